@@ -17,6 +17,8 @@
 package com.btmatthews.maven.plugins.ldap;
 
 import com.unboundid.ldap.sdk.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -86,4 +88,25 @@ public final class FormatTestUtils {
     public static SearchResult createSearchResult(final SearchResultEntry... entries) {
         return createSearchResult(Arrays.asList(entries));
     }
+
+    /**
+     * Create an answer for a mocked {@link LDAPInterface#search(SearchRequest)} that streams the search result entries
+     * to the search result listener of the search request in the same way as the LDAP SDK. The search result
+     * returned by the answer does not hold the entries.
+     *
+     * @param entries The individual search result entries.
+     * @return An {@link Answer} object.
+     * @since 1.3.3
+     */
+    public static Answer<SearchResult> streamSearchResult(final SearchResultEntry... entries) {
+        return new Answer<SearchResult>() {
+            public SearchResult answer(final InvocationOnMock invocation) {
+                final SearchRequest request = (SearchRequest) invocation.getArguments()[0];
+                for (final SearchResultEntry entry : entries) {
+                    request.getSearchResultListener().searchEntryReturned(entry);
+                }
+                return new SearchResult(0, ResultCode.SUCCESS, null, null, null, entries.length, 0, null);
+            }
+        };
+    }
 }
@@ -23,7 +23,6 @@ import com.unboundid.ldif.LDIFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.List;
 
 /**
  * Abstract base class for {@link FormatHandler} objects that import/export directory entries to/from LDAP directory
@@ -49,27 +48,7 @@ public abstract class AbstractFormatHandler implements FormatHandler {
         final FormatReader reader = openReader(inputStream, logger);
         if (reader != null) {
             try {
-                boolean keepReading = true;
-                do {
-                    try {
-                        final LDIFChangeRecord record = reader.nextRecord();
-                        if (record == null) {
-                            keepReading = false;
-                        } else {
-                            record.processChange(connection);
-                        }
-                    } catch (final LDIFException e) {
-                        if (!ignoreErrors || !e.mayContinueReading()) {
-                            logger.logError("Error parsing directory entry read from the input stream", e);
-                            keepReading = false;
-                        }
-                    } catch (final LDAPException e) {
-                        if (!ignoreErrors) {
-                            logger.logError("Error loading directory entry into the LDAP directory server", e);
-                            keepReading = false;
-                        }
-                    }
-                } while (keepReading);
+                load(connection, reader, ignoreErrors, logger);
             } catch (final IOException e) {
                 logger.logError("I/O error reading directory entry from input stream", e);
             } finally {
@@ -82,6 +61,46 @@ public abstract class AbstractFormatHandler implements FormatHandler {
         }
     }
 
+    /**
+     * Reads change records from the reader and applies them to the LDAP directory server one at a time in the
+     * order they were read. Handlers for formats that describe how the change records should be applied can
+     * override this method.
+     *
+     * @param connection   The connection to the LDAP directory server.
+     * @param reader       The reader returned by {@link #openReader(InputStream, FormatLogger)}.
+     * @param ignoreErrors If {@code true} then loading will continue if an error occurs.
+     * @param logger       Used to log information or error messages.
+     * @throws IOException If there was an error reading from the input stream.
+     * @since 1.3.3
+     */
+    protected void load(final LDAPInterface connection,
+                        final FormatReader reader,
+                        final boolean ignoreErrors,
+                        final FormatLogger logger)
+            throws IOException {
+        boolean keepReading = true;
+        do {
+            try {
+                final LDIFChangeRecord record = reader.nextRecord();
+                if (record == null) {
+                    keepReading = false;
+                } else {
+                    record.processChange(connection);
+                }
+            } catch (final LDIFException e) {
+                if (!ignoreErrors || !e.mayContinueReading()) {
+                    logger.logError("Error parsing directory entry read from the input stream", e);
+                    keepReading = false;
+                }
+            } catch (final LDAPException e) {
+                if (!ignoreErrors) {
+                    logger.logError("Error loading directory entry into the LDAP directory server", e);
+                    keepReading = false;
+                }
+            }
+        } while (keepReading);
+    }
+
     /**
      * Dump the results of a search against the LDAP directory server to an output stream.
      *
@@ -100,31 +119,54 @@ public abstract class AbstractFormatHandler implements FormatHandler {
         if (ldapWriter == null) {
             logger.logError("Error creating writer for output stream");
         } else {
+            dump(connection, base, filter, ldapWriter, logger);
+        }
+    }
+
+    /**
+     * Dump the results of a search against the LDAP directory server to a writer. The directory entries are
+     * streamed to the writer as they are returned by the LDAP directory server rather than being buffered until
+     * the search completes.
+     *
+     * @param connection The connection to the LDAP directory server.
+     * @param base       The base DN from which to start the search.
+     * @param filter     Query used to filter the directory entries.
+     * @param ldapWriter The writer that formats the directory entries.
+     * @param logger     Used to log information or error messages.
+     * @return {@code true} if all the matching directory entries were written and the writer was closed or
+     *         {@code false} if the search or writing failed.
+     * @since 1.3.3
+     */
+    public final boolean dump(final LDAPInterface connection,
+                              final String base,
+                              final String filter,
+                              final FormatWriter ldapWriter,
+                              final FormatLogger logger) {
+        boolean success = false;
+        try {
             try {
-                try {
-                    final SearchRequest request = new SearchRequest(base, SearchScope.SUB, Filter.create(filter));
-                    final SearchResult result = connection.search(request);
-                    if (result.getResultCode() == ResultCode.SUCCESS) {
-                        final List<SearchResultEntry> entries = result.getSearchEntries();
-                        if (entries != null) {
-                            for (final SearchResultEntry entry : entries) {
-                                ldapWriter.printEntry(entry);
-                            }
-                        } else {
-                            logger.logInfo("Search did not return any directory entries");
-                        }
-                    } else {
-                        logger.logError("Search operation failed");
+                final WriterSearchResultListener listener = new WriterSearchResultListener(ldapWriter);
+                final SearchRequest request = new SearchRequest(listener, base, SearchScope.SUB, Filter.create(filter));
+                final SearchResult result = connection.search(request);
+                listener.checkFailure();
+                if (result.getResultCode() == ResultCode.SUCCESS) {
+                    if (listener.getEntryCount() == 0) {
+                        logger.logInfo("Search did not return any directory entries");
                     }
-                } catch (final LDAPException e) {
-                    logger.logError("Error searching the LDAP directory", e);
-                } finally {
-                    ldapWriter.close();
+                    success = true;
+                } else {
+                    logger.logError("Search operation failed");
                 }
-            } catch (final IOException e) {
-                logger.logError("Error writing directory entry to the output stream", e);
+            } catch (final LDAPException e) {
+                logger.logError("Error searching the LDAP directory", e);
+            } finally {
+                ldapWriter.close();
             }
+        } catch (final IOException e) {
+            logger.logError("Error writing directory entry to the output stream", e);
+            success = false;
         }
+        return success;
     }
 
     /**
@@ -134,7 +176,21 @@ public abstract class AbstractFormatHandler implements FormatHandler {
      * @param logger       Used to log information or error messages.
      * @return A {@link FormatWriter} object.
      */
-    protected abstract FormatWriter createWriter(OutputStream outputStream, FormatLogger logger);
+    public abstract FormatWriter createWriter(OutputStream outputStream, FormatLogger logger);
+
+    /**
+     * Create a reader that parses change records from the input stream without applying them to the LDAP
+     * directory server.
+     *
+     * @param inputStream The source input stream.
+     * @param logger      Used to log information or error messages.
+     * @return The result of {@link #openReader(InputStream, FormatLogger)}.
+     * @since 1.3.3
+     */
+    public final FormatReader createReader(final InputStream inputStream,
+                                           final FormatLogger logger) {
+        return openReader(inputStream, logger);
+    }
 
     /**
      * Create a reader to parse the directory entries as they are read from the input stream.
@@ -144,4 +200,78 @@ public abstract class AbstractFormatHandler implements FormatHandler {
      * @return A {@link FormatReader} object.
      */
     protected abstract FormatReader openReader(InputStream inputStream, FormatLogger logger);
+
+    /**
+     * Receives the directory entries as they are returned by the LDAP directory server and passes them on to the
+     * {@link FormatWriter}. The search API does not allow the listener to throw checked exceptions so the first
+     * {@link IOException} is saved and subsequent entries are discarded.
+     */
+    private static final class WriterSearchResultListener implements SearchResultListener {
+
+        /**
+         * The writer that formats the directory entries.
+         */
+        private final transient FormatWriter writer;
+        /**
+         * The number of directory entries received.
+         */
+        private volatile int entryCount;
+        /**
+         * The first error raised by the writer.
+         */
+        private volatile IOException failure;
+
+        /**
+         * Initialise the listener with the writer that will format the directory entries.
+         *
+         * @param writer The writer.
+         */
+        WriterSearchResultListener(final FormatWriter writer) {
+            this.writer = writer;
+        }
+
+        /**
+         * Pass a directory entry returned by the LDAP directory server on to the writer.
+         *
+         * @param searchEntry The directory entry.
+         */
+        public void searchEntryReturned(final SearchResultEntry searchEntry) {
+            entryCount++;
+            if (failure == null) {
+                try {
+                    writer.printEntry(searchEntry);
+                } catch (final IOException e) {
+                    failure = e;
+                }
+            }
+        }
+
+        /**
+         * Search references are not dumped.
+         *
+         * @param searchReference The search reference.
+         */
+        public void searchReferenceReturned(final SearchResultReference searchReference) {
+        }
+
+        /**
+         * Get the number of directory entries received.
+         *
+         * @return The number of directory entries.
+         */
+        int getEntryCount() {
+            return entryCount;
+        }
+
+        /**
+         * Raise the first error raised by the writer, if any.
+         *
+         * @throws IOException If there was an error writing a directory entry.
+         */
+        void checkFailure() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
 }
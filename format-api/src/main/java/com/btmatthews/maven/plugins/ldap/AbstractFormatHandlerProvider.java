@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Properties;
+
+/**
+ * Base class for {@link FormatHandlerProvider} implementations that recognise files by their extension and provides
+ * helpers for sniffing text formats.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public abstract class AbstractFormatHandlerProvider implements FormatHandlerProvider {
+
+    /**
+     * The format name.
+     */
+    private final String name;
+    /**
+     * The file extensions, including the leading period, that are conventionally used for the format.
+     */
+    private final String[] extensions;
+
+    /**
+     * Initialise the provider with the format name and file extensions.
+     *
+     * @param name       The format name.
+     * @param extensions The file extensions including the leading period.
+     */
+    protected AbstractFormatHandlerProvider(final String name, final String... extensions) {
+        this.name = name;
+        this.extensions = extensions;
+    }
+
+    /**
+     * Get the name used to select the format.
+     *
+     * @return The format name.
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * Determine if the file name ends with one of the file extensions for the format. The comparison ignores case.
+     *
+     * @param filename The file name.
+     * @return {@code true} if the file name is recognised by this format.
+     */
+    public final boolean acceptsFilename(final String filename) {
+        if (filename != null) {
+            final String lowerCaseFilename = filename.toLowerCase();
+            for (final String extension : extensions) {
+                if (lowerCaseFilename.endsWith(extension)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create a format handler that is customised by configuration properties. By default the configuration is
+     * ignored and the result of {@link #createHandler()} is returned.
+     *
+     * @param configuration The configuration properties.
+     * @return The format handler.
+     */
+    public FormatHandler createHandler(final Properties configuration) {
+        return createHandler();
+    }
+
+    /**
+     * Decode the leading bytes of a file as UTF-8 text skipping any byte order mark and leading white space.
+     *
+     * @param header The leading bytes of the file.
+     * @param length The number of valid bytes in {@code header}.
+     * @return The decoded text.
+     */
+    protected static String toText(final byte[] header, final int length) {
+        try {
+            final String text = new String(header, 0, length, "UTF-8");
+            int start = 0;
+            if (text.length() > 0 && text.charAt(0) == '\uFEFF') {
+                start++;
+            }
+            while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            return text.substring(start);
+        } catch (final UnsupportedEncodingException e) {
+            return "";
+        }
+    }
+}
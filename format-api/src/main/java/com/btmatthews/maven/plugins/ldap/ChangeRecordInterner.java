@@ -0,0 +1,196 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFModifyChangeRecord;
+
+/**
+ * Rebuilds change records so that equal attribute names and values are shared between records instead of each record
+ * holding its own copies. Attribute names and {@code objectClass} values are drawn from a small population and are
+ * always shared. Other values are shared if they are no longer than a configurable limit. Unique values, such as
+ * {@code uid}, quickly fall out of the bounded value cache while low-cardinality values, such as {@code ou} or
+ * {@code l}, stay in it.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class ChangeRecordInterner {
+
+    /**
+     * The default number of slots in the cache of attribute names and {@code objectClass} values.
+     */
+    public static final int DEFAULT_NAME_CACHE_SIZE = 1024;
+    /**
+     * The default number of slots in the cache of other attribute values.
+     */
+    public static final int DEFAULT_VALUE_CACHE_SIZE = 16384;
+    /**
+     * The default length, in bytes, of the longest attribute value that will be shared.
+     */
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 64;
+    /**
+     * The cache of attribute names.
+     */
+    private final Interner<String> names;
+    /**
+     * The cache of {@code objectClass} values.
+     */
+    private final Interner<ASN1OctetString> objectClasses;
+    /**
+     * The cache of other attribute values.
+     */
+    private final Interner<ASN1OctetString> values;
+    /**
+     * The length, in bytes, of the longest attribute value that will be shared.
+     */
+    private final int maxValueLength;
+    /**
+     * The total length, in bytes, of the attribute values that were replaced by a shared value.
+     */
+    private long sharedValueBytes;
+
+    /**
+     * Initialise with the default cache sizes and value length limit.
+     */
+    public ChangeRecordInterner() {
+        this(DEFAULT_NAME_CACHE_SIZE, DEFAULT_VALUE_CACHE_SIZE, DEFAULT_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * Initialise with the specified cache sizes and value length limit.
+     *
+     * @param nameCacheSize  The number of slots in the cache of attribute names and {@code objectClass} values.
+     * @param valueCacheSize The number of slots in the cache of other attribute values.
+     * @param maxValueLength The length, in bytes, of the longest attribute value that will be shared.
+     */
+    public ChangeRecordInterner(final int nameCacheSize,
+                                final int valueCacheSize,
+                                final int maxValueLength) {
+        this.names = new Interner<String>(nameCacheSize);
+        this.objectClasses = new Interner<ASN1OctetString>(nameCacheSize);
+        this.values = new Interner<ASN1OctetString>(valueCacheSize);
+        this.maxValueLength = maxValueLength;
+    }
+
+    /**
+     * Rebuild a change record using shared attribute names and values. Only add and modify change records carry
+     * attributes so other change records are returned unchanged.
+     *
+     * @param record The change record.
+     * @return The rebuilt change record.
+     */
+    public LDIFChangeRecord intern(final LDIFChangeRecord record) {
+        if (record instanceof LDIFAddChangeRecord) {
+            final Attribute[] attributes = ((LDIFAddChangeRecord) record).getAttributes();
+            for (int i = 0; i < attributes.length; i++) {
+                attributes[i] = intern(attributes[i]);
+            }
+            return new LDIFAddChangeRecord(record.getDN(), attributes, record.getControls());
+        } else if (record instanceof LDIFModifyChangeRecord) {
+            final Modification[] modifications = ((LDIFModifyChangeRecord) record).getModifications();
+            for (int i = 0; i < modifications.length; i++) {
+                final Modification modification = modifications[i];
+                final String name = names.intern(modification.getAttributeName());
+                modifications[i] = new Modification(modification.getModificationType(), name,
+                        internValues(name, modification.getRawValues()));
+            }
+            return new LDIFModifyChangeRecord(record.getDN(), modifications, record.getControls());
+        } else {
+            return record;
+        }
+    }
+
+    /**
+     * Rebuild an entry using shared attribute names and values.
+     *
+     * @param entry The entry.
+     * @return The rebuilt entry.
+     */
+    public Entry intern(final Entry entry) {
+        final Attribute[] attributes = entry.getAttributes().toArray(new Attribute[entry.getAttributes().size()]);
+        for (int i = 0; i < attributes.length; i++) {
+            attributes[i] = intern(attributes[i]);
+        }
+        return new Entry(entry.getDN(), attributes);
+    }
+
+    /**
+     * Rebuild an attribute using a shared attribute name and values.
+     *
+     * @param attribute The attribute.
+     * @return The rebuilt attribute.
+     */
+    public Attribute intern(final Attribute attribute) {
+        final String name = names.intern(attribute.getName());
+        return new Attribute(name, internValues(name, attribute.getRawValues()));
+    }
+
+    /**
+     * Get the number of attribute names and values that were replaced by a shared copy.
+     *
+     * @return The number of shared names and values.
+     */
+    public long getSharedCount() {
+        return names.getHits() + objectClasses.getHits() + values.getHits();
+    }
+
+    /**
+     * Get the total length, in bytes, of the attribute values that were replaced by a shared value. This is a lower
+     * bound for the memory saved because it excludes the object headers and the attribute names.
+     *
+     * @return The number of bytes.
+     */
+    public long getSharedValueBytes() {
+        return sharedValueBytes;
+    }
+
+    /**
+     * Replace the values in an array with shared copies.
+     *
+     * @param name      The attribute name.
+     * @param rawValues The values. This array is updated in place.
+     * @return The {@code rawValues} array.
+     */
+    private ASN1OctetString[] internValues(final String name, final ASN1OctetString[] rawValues) {
+        final boolean isObjectClass = name.equalsIgnoreCase("objectClass");
+        for (int i = 0; i < rawValues.length; i++) {
+            final ASN1OctetString value = rawValues[i];
+            final int length = value.getValueLength();
+            final ASN1OctetString shared;
+            if (isObjectClass) {
+                shared = objectClasses.intern(value);
+            } else if (length <= maxValueLength) {
+                shared = values.intern(value);
+            } else {
+                shared = value;
+            }
+            if (shared != value) {
+                sharedValueBytes += length;
+                rawValues[i] = shared;
+            }
+        }
+        return rawValues;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the daemon threads used to encode and parse directory entries so that they cannot prevent the JVM from
+ * exiting.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class DaemonThreadFactory implements ThreadFactory {
+
+    /**
+     * The prefix for the thread names.
+     */
+    private final String prefix;
+    /**
+     * Used to number the threads.
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Initialise the factory with the prefix used for thread names.
+     *
+     * @param prefix The prefix.
+     */
+    DaemonThreadFactory(final String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Create a daemon thread.
+     *
+     * @param runnable The code that will be executed by the thread.
+     * @return The thread.
+     */
+    public Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
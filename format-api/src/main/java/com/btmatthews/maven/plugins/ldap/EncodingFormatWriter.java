@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.maven.plugins.ldap;
+
+import com.unboundid.ldap.sdk.Entry;
+
+import java.io.IOException;
+
+/**
+ * Implemented by {@link FormatWriter} objects that can separate the encoding of a directory entry from writing it
+ * to the underlying output stream. This allows the encoding to be performed by several threads while the output is
+ * written by a single thread in the original entry order.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public interface EncodingFormatWriter extends FormatWriter {
+
+    /**
+     * Encode the directory entry in the appropriate format. This method must not modify the state of the writer
+     * because it may be called concurrently from several threads.
+     *
+     * @param entry The directory entry.
+     * @return The encoded directory entry.
+     * @throws IOException If there was an error encoding the directory entry.
+     */
+    byte[] encodeEntry(Entry entry) throws IOException;
+
+    /**
+     * Write a directory entry that was encoded by {@link #encodeEntry(Entry)} to the underlying output stream.
+     * This method is always called from a single thread in the original entry order.
+     *
+     * @param encodedEntry The encoded directory entry.
+     * @throws IOException If there was an error writing to the underlying output stream.
+     */
+    void printEncodedEntry(byte[] encodedEntry) throws IOException;
+}
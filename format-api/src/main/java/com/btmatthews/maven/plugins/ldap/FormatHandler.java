@@ -49,4 +49,40 @@ public interface FormatHandler {
      * @param logger       Used to log information or error messages.
      */
     void dump(LDAPInterface connection, String base, String filter, OutputStream outputStream, FormatLogger logger);
+
+    /**
+     * Dump the results of a search against the LDAP directory server to a writer. The writer is closed when the
+     * search completes.
+     *
+     * @param connection The connection to the LDAP directory server.
+     * @param base       The base DN from which to start the search.
+     * @param filter     Query used to filter the directory entries.
+     * @param writer     The writer that formats the directory entries.
+     * @param logger     Used to log information or error messages.
+     * @return {@code true} if all the matching directory entries were written and the writer was closed or
+     *         {@code false} if the search or writing failed.
+     * @since 1.3.3
+     */
+    boolean dump(LDAPInterface connection, String base, String filter, FormatWriter writer, FormatLogger logger);
+
+    /**
+     * Create a writer that formats the directory entry before writing it to the output stream.
+     *
+     * @param outputStream The target output stream.
+     * @param logger       Used to log information or error messages.
+     * @return A {@link FormatWriter} object or {@code null} if the writer could not be created.
+     * @since 1.3.3
+     */
+    FormatWriter createWriter(OutputStream outputStream, FormatLogger logger);
+
+    /**
+     * Create a reader that parses change records from the input stream without applying them to the LDAP
+     * directory server.
+     *
+     * @param inputStream The source input stream.
+     * @param logger      Used to log information or error messages.
+     * @return A {@link FormatReader} object or {@code null} if the reader could not be created.
+     * @since 1.3.3
+     */
+    FormatReader createReader(InputStream inputStream, FormatLogger logger);
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import java.util.Properties;
+
+/**
+ * Service provider interface used by {@link FormatHandlerRegistry} to discover format handlers. Implementations are
+ * listed in {@code META-INF/services/com.btmatthews.maven.plugins.ldap.FormatHandlerProvider} and must be cheap to
+ * load. The format handler itself, and any libraries it depends on, should only be loaded by
+ * {@link #createHandler()}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public interface FormatHandlerProvider {
+
+    /**
+     * Get the name used to select the format. For example, {@code ldif} or {@code dsml}.
+     *
+     * @return The format name.
+     */
+    String getName();
+
+    /**
+     * Determine if the file name has an extension that is conventionally used for this format.
+     *
+     * @param filename The file name.
+     * @return {@code true} if the file name is recognised by this format.
+     */
+    boolean acceptsFilename(String filename);
+
+    /**
+     * Determine if the leading bytes of a file look like this format.
+     *
+     * @param header The leading bytes of the file.
+     * @param length The number of valid bytes in {@code header}.
+     * @return {@code true} if the content is recognised by this format.
+     */
+    boolean acceptsContent(byte[] header, int length);
+
+    /**
+     * Create the format handler.
+     *
+     * @return The format handler.
+     */
+    FormatHandler createHandler();
+
+    /**
+     * Create a format handler that is customised by configuration properties. The properties that are understood
+     * are specific to the format.
+     *
+     * @param configuration The configuration properties.
+     * @return The format handler.
+     */
+    FormatHandler createHandler(Properties configuration);
+}
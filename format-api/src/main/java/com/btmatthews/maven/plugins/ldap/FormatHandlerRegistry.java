@@ -0,0 +1,176 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ServiceLoader;
+
+/**
+ * Locates format handlers using {@link ServiceLoader}. The providers are only discovered when the registry is first
+ * used and each format handler is only created when its format is first requested. So the classes for a format, and
+ * the libraries they depend on, are only loaded if that format is actually used.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class FormatHandlerRegistry {
+
+    /**
+     * The number of leading bytes that are examined when detecting the format from the content.
+     */
+    public static final int HEADER_LENGTH = 512;
+    /**
+     * The class loader used to discover the providers.
+     */
+    private final ClassLoader classLoader;
+    /**
+     * The providers that have been discovered or {@code null} if discovery has not happened yet.
+     */
+    private List<FormatHandlerProvider> providers;
+    /**
+     * The format handlers that have been created keyed by format name.
+     */
+    private final Map<String, FormatHandler> handlers = new HashMap<String, FormatHandler>();
+
+    /**
+     * Initialise the registry to discover providers using the thread context class loader.
+     */
+    public FormatHandlerRegistry() {
+        this(Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * Initialise the registry to discover providers using the specified class loader.
+     *
+     * @param classLoader The class loader.
+     */
+    public FormatHandlerRegistry(final ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Get the names of the formats that are available.
+     *
+     * @return The format names.
+     */
+    public synchronized List<String> getFormatNames() {
+        final List<String> names = new ArrayList<String>();
+        for (final FormatHandlerProvider provider : getProviders()) {
+            names.add(provider.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Get the format handler for a named format. The format handler is created the first time it is requested.
+     *
+     * @param format The format name.
+     * @return The format handler or {@code null} if the format is not supported.
+     */
+    public synchronized FormatHandler getHandler(final String format) {
+        FormatHandler handler = handlers.get(format);
+        if (handler == null) {
+            for (final FormatHandlerProvider provider : getProviders()) {
+                if (provider.getName().equals(format)) {
+                    handler = provider.createHandler();
+                    handlers.put(format, handler);
+                    break;
+                }
+            }
+        }
+        return handler;
+    }
+
+    /**
+     * Create a format handler for a named format that is customised by configuration properties. Unlike
+     * {@link #getHandler(String)} a new format handler is created each time this method is called.
+     *
+     * @param format        The format name.
+     * @param configuration The configuration properties.
+     * @return The format handler or {@code null} if the format is not supported.
+     */
+    public synchronized FormatHandler createHandler(final String format, final Properties configuration) {
+        for (final FormatHandlerProvider provider : getProviders()) {
+            if (provider.getName().equals(format)) {
+                return provider.createHandler(configuration);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Detect the format of a file from its name and, if that is not conclusive, its content. The input stream must
+     * support {@link InputStream#mark(int)} and is reset to its original position before returning.
+     *
+     * @param filename    The file name or {@code null} if it is not known.
+     * @param inputStream The input stream or {@code null} if the content should not be examined.
+     * @return The format name or {@code null} if the format could not be detected.
+     * @throws IOException If there was an error reading the content.
+     */
+    public synchronized String detectFormat(final String filename, final InputStream inputStream) throws IOException {
+        final List<FormatHandlerProvider> candidates = new ArrayList<FormatHandlerProvider>();
+        for (final FormatHandlerProvider provider : getProviders()) {
+            if (provider.acceptsFilename(filename)) {
+                candidates.add(provider);
+            }
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0).getName();
+        }
+        if (inputStream != null) {
+            final byte[] header = new byte[HEADER_LENGTH];
+            inputStream.mark(HEADER_LENGTH);
+            int length = 0;
+            try {
+                int count = inputStream.read(header, 0, HEADER_LENGTH);
+                while (count > 0) {
+                    length += count;
+                    count = inputStream.read(header, length, HEADER_LENGTH - length);
+                }
+            } finally {
+                inputStream.reset();
+            }
+            for (final FormatHandlerProvider provider : candidates.isEmpty() ? getProviders() : candidates) {
+                if (provider.acceptsContent(header, length)) {
+                    return provider.getName();
+                }
+            }
+        }
+        return candidates.isEmpty() ? null : candidates.get(0).getName();
+    }
+
+    /**
+     * Get the providers discovering them the first time this method is called.
+     *
+     * @return The providers.
+     */
+    private List<FormatHandlerProvider> getProviders() {
+        if (providers == null) {
+            providers = new ArrayList<FormatHandlerProvider>();
+            for (final FormatHandlerProvider provider : ServiceLoader.load(FormatHandlerProvider.class, classLoader)) {
+                providers.add(provider);
+            }
+        }
+        return providers;
+    }
+}
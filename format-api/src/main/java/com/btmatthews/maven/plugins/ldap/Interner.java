@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+/**
+ * A bounded, lossy cache used to share equal immutable objects, such as attribute names and values, between the
+ * records produced by a {@link FormatReader}. The cache is a fixed size table indexed by hash code where each slot
+ * holds the most recently seen object with that index. So frequently repeated objects stay in the cache while rarely
+ * repeated objects are displaced, and the memory used by the cache never grows.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <T> The type of the objects being shared.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class Interner<T> {
+
+    /**
+     * The slots of the table.
+     */
+    private final Object[] slots;
+    /**
+     * Used to map a hash code onto a slot.
+     */
+    private final int mask;
+    /**
+     * The number of lookups that returned a shared object.
+     */
+    private long hits;
+    /**
+     * The number of lookups that did not find a shared object.
+     */
+    private long misses;
+
+    /**
+     * Initialise the cache with the requested number of slots which is rounded up to a power of two.
+     *
+     * @param size The number of slots.
+     */
+    public Interner(final int size) {
+        int capacity = 1;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        slots = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Return a shared object that is equal to {@code value} or, if there isn't one, remember {@code value} so that it
+     * can be shared later.
+     *
+     * @param value The object.
+     * @return The shared object or {@code value} itself.
+     */
+    @SuppressWarnings("unchecked")
+    public T intern(final T value) {
+        if (value == null) {
+            return null;
+        }
+        final int hash = value.hashCode();
+        final int index = (hash ^ (hash >>> 16)) & mask;
+        final Object shared = slots[index];
+        if (shared != null && shared.equals(value)) {
+            hits++;
+            return (T) shared;
+        }
+        misses++;
+        slots[index] = value;
+        return value;
+    }
+
+    /**
+     * Get the number of lookups that returned a shared object.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that did not find a shared object.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes batches read sequentially by a single thread on a pool of daemon threads and returns the results in the
+ * order the batches were submitted. The pool keeps up to two batches per thread in flight. If no threads are
+ * configured then the batches are processed by the calling thread as they are submitted.
+ * <p>
+ * A typical reader submits batches while the pool is not full and then takes the results of the oldest batch:
+ * <pre>
+ * while (!finished &amp;&amp; !pool.isFull()) {
+ *     pool.submit(readBatch());
+ * }
+ * if (pool.isEmpty()) {
+ *     return null;
+ * }
+ * results = pool.next().iterator();
+ * </pre>
+ *
+ * @param <T> The type of the results produced for each item in a batch.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class ParserPool<T> {
+
+    /**
+     * Used to number the pools.
+     */
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+    /**
+     * Describes what is done to each batch and is used in error messages. For example, "parsing JSON Lines".
+     */
+    private final String activity;
+    /**
+     * The pool of threads that process the batches or {@code null} if batches are processed by the calling thread.
+     */
+    private final ExecutorService executor;
+    /**
+     * The maximum number of batches that can be waiting to be processed.
+     */
+    private final int readAhead;
+    /**
+     * The batches that are being processed in the order they were submitted.
+     */
+    private final LinkedList<Future<List<T>>> pending = new LinkedList<Future<List<T>>>();
+
+    /**
+     * Initialise the pool creating the threads that process the batches.
+     *
+     * @param name     The prefix for the thread names. For example, "ldap-jsonl-parser".
+     * @param activity Describes what is done to each batch and is used in error messages. For example,
+     *                 "parsing JSON Lines".
+     * @param threads  The number of threads used to process batches. If zero the batches are processed by the
+     *                 calling thread.
+     */
+    public ParserPool(final String name, final String activity, final int threads) {
+        this.activity = activity;
+        if (threads > 0) {
+            executor = Executors.newFixedThreadPool(threads,
+                    new DaemonThreadFactory(name + "-" + POOL_NUMBER.incrementAndGet()));
+            readAhead = threads * 2;
+        } else {
+            executor = null;
+            readAhead = 1;
+        }
+    }
+
+    /**
+     * Determine if the maximum number of batches are waiting to be processed.
+     *
+     * @return {@code true} if the results of the oldest batch should be taken before another batch is submitted.
+     */
+    public boolean isFull() {
+        return pending.size() >= readAhead;
+    }
+
+    /**
+     * Determine if there are no batches waiting to be processed.
+     *
+     * @return {@code true} if there are no batches waiting.
+     */
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Queue a batch to be processed.
+     *
+     * @param batch The batch.
+     */
+    public void submit(final Callable<List<T>> batch) {
+        if (executor == null) {
+            final FutureTask<List<T>> task = new FutureTask<List<T>>(batch);
+            task.run();
+            pending.add(task);
+        } else {
+            pending.add(executor.submit(batch));
+        }
+    }
+
+    /**
+     * Wait for the oldest batch to be processed and remove it from the pool.
+     *
+     * @return The results for the items in the batch.
+     * @throws IOException If the thread was interrupted or the batch could not be processed.
+     */
+    public List<T> next() throws IOException {
+        try {
+            return pending.removeFirst().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while " + activity);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            final IOException exception = new IOException("Error " + activity);
+            exception.initCause(e.getCause());
+            throw exception;
+        }
+    }
+
+    /**
+     * Stop the threads and discard the batches that are waiting to be processed.
+     */
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        pending.clear();
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.maven.plugins.ldap;
+
+import com.unboundid.ldap.sdk.Entry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link FormatWriter} that splits dumping into three stages. The thread receiving search results calls
+ * {@link #printEntry(Entry)} which hands the entry to a pool of encoder threads, the encoded entries are then
+ * written to the underlying output stream by a single writer thread. The stages are linked by a bounded buffer
+ * of pending results which is consumed in the order the entries were received, so the original entry order is
+ * kept and a slow stage blocks the stages before it instead of buffering the whole dump in memory.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class PipelinedFormatWriter implements FormatWriter {
+
+    /**
+     * Marker placed in the buffer to tell the writer thread that there are no more entries.
+     */
+    private static final Future<byte[]> END_OF_ENTRIES = new FutureTask<byte[]>(new Callable<byte[]>() {
+        public byte[] call() {
+            return null;
+        }
+    });
+    /**
+     * The interval in milliseconds at which a thread waiting for space in the buffer checks that the writer thread
+     * has not failed or stopped.
+     */
+    private static final long ENQUEUE_POLL_INTERVAL = 100L;
+    /**
+     * Used to number the threads created by all pipelines.
+     */
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+    /**
+     * The writer that encodes and outputs the directory entries.
+     */
+    private final EncodingFormatWriter writer;
+    /**
+     * The pool of threads that encode the directory entries.
+     */
+    private final ExecutorService encoders;
+    /**
+     * The bounded buffer of pending encoded entries in the order in which the entries were received.
+     */
+    private final BlockingQueue<Future<byte[]>> pending;
+    /**
+     * The thread that writes the encoded entries to the underlying output stream.
+     */
+    private final Thread writerThread;
+    /**
+     * The first error raised by either the encoder threads or the writer thread.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Initialise the pipeline and start the encoder and writer threads.
+     *
+     * @param writer         The writer that encodes and outputs the directory entries.
+     * @param encoderThreads The number of encoder threads.
+     * @param capacity       The maximum number of entries that can be waiting to be encoded or written.
+     */
+    public PipelinedFormatWriter(final EncodingFormatWriter writer,
+                                 final int encoderThreads,
+                                 final int capacity) {
+        this.writer = writer;
+        final int number = THREAD_NUMBER.incrementAndGet();
+        // The bounded buffer limits the number of tasks that can be submitted to the pool
+        encoders = Executors.newFixedThreadPool(encoderThreads, new DaemonThreadFactory("ldap-dump-encoder-" + number));
+        pending = new ArrayBlockingQueue<Future<byte[]>>(capacity);
+        writerThread = new Thread(new Runnable() {
+            public void run() {
+                writeEntries();
+            }
+        }, "ldap-dump-writer-" + number);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Submit the directory entry to the encoder threads and queue the pending result for the writer thread. This
+     * method will block if the buffer of pending entries is full.
+     *
+     * @param entry The directory entry.
+     * @throws IOException If an earlier entry could not be encoded or written or the thread was interrupted.
+     */
+    public void printEntry(final Entry entry) throws IOException {
+        checkFailure();
+        if (entry != null) {
+            final Future<byte[]> encodedEntry = encoders.submit(new Callable<byte[]>() {
+                public byte[] call() throws IOException {
+                    return writer.encodeEntry(entry);
+                }
+            });
+            enqueue(encodedEntry);
+        }
+    }
+
+    /**
+     * Wait for the pending entries to be encoded and written, stop the encoder and writer threads and then close
+     * the underlying writer. The underlying writer is closed even if the pipeline failed or the thread was
+     * interrupted, in which case the writer thread is interrupted so that it does not stay blocked waiting for
+     * entries.
+     *
+     * @throws IOException If an entry could not be encoded or written or the thread was interrupted.
+     */
+    public void close() throws IOException {
+        try {
+            try {
+                enqueue(END_OF_ENTRIES);
+                try {
+                    writerThread.join();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for the writer thread");
+                }
+            } finally {
+                encoders.shutdownNow();
+                if (writerThread.isAlive()) {
+                    writerThread.interrupt();
+                }
+            }
+            checkFailure();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Runs on the writer thread taking encoded entries from the buffer in order and writing them to the
+     * underlying output stream. After a failure the remaining entries are discarded so that the receiving thread
+     * is not blocked. If the thread stops for any other reason before the end of the entries then that is recorded
+     * as a failure too.
+     */
+    private void writeEntries() {
+        boolean finished = false;
+        try {
+            Future<byte[]> encodedEntry = pending.take();
+            while (encodedEntry != END_OF_ENTRIES) {
+                if (failure == null) {
+                    try {
+                        writer.printEncodedEntry(encodedEntry.get());
+                    } catch (final ExecutionException e) {
+                        failure = asIOException("Error encoding directory entry", e.getCause());
+                    } catch (final IOException e) {
+                        failure = e;
+                    } catch (final RuntimeException e) {
+                        failure = asIOException("Error writing directory entry", e);
+                    }
+                } else {
+                    encodedEntry.cancel(false);
+                }
+                encodedEntry = pending.take();
+            }
+            finished = true;
+        } catch (final InterruptedException e) {
+            failure = new InterruptedIOException("Interrupted waiting for encoded entries");
+        } finally {
+            if (!finished && failure == null) {
+                failure = new IOException("The dump writer thread stopped unexpectedly");
+            }
+        }
+    }
+
+    /**
+     * Add a pending result to the buffer blocking if the buffer is full. While waiting the writer thread is checked
+     * periodically so that the caller does not stay blocked if the writer thread failed or stopped.
+     *
+     * @param encodedEntry The pending result.
+     * @throws IOException If the writer thread failed or stopped or the thread was interrupted.
+     */
+    private void enqueue(final Future<byte[]> encodedEntry) throws IOException {
+        try {
+            while (!pending.offer(encodedEntry, ENQUEUE_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+                if (!writerThread.isAlive()) {
+                    throw new IOException("The dump writer thread stopped unexpectedly");
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for space in the dump pipeline");
+        }
+    }
+
+    /**
+     * Raise the first error raised by the encoder or writer threads, if any.
+     *
+     * @throws IOException If there was an error encoding or writing a directory entry.
+     */
+    private void checkFailure() throws IOException {
+        final IOException e = failure;
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Convert the cause of an encoding or writing failure to an {@link IOException}.
+     *
+     * @param message The message used if the cause is not an {@link IOException}.
+     * @param cause   The cause of the failure.
+     * @return An {@link IOException}.
+     */
+    private static IOException asIOException(final String message, final Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        final IOException e = new IOException(message);
+        e.initCause(cause);
+        return e;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import com.unboundid.ldap.sdk.Entry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link FormatWriter} that passes each directory entry on to several other writers. This allows the results of
+ * a single search to be dumped to more than one file or output format at the same time.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TeeFormatWriter implements FormatWriter {
+
+    /**
+     * The writers that each directory entry is passed on to.
+     */
+    private final List<FormatWriter> writers;
+
+    /**
+     * Initialise the writer with the list of writers that directory entries are passed on to.
+     *
+     * @param writers The writers.
+     */
+    public TeeFormatWriter(final List<FormatWriter> writers) {
+        this.writers = new ArrayList<FormatWriter>(writers);
+    }
+
+    /**
+     * Pass the directory entry on to each of the writers in turn.
+     *
+     * @param entry The directory entry.
+     * @throws IOException If there was an error writing the directory entry.
+     */
+    public void printEntry(final Entry entry) throws IOException {
+        for (final FormatWriter writer : writers) {
+            writer.printEntry(entry);
+        }
+    }
+
+    /**
+     * Close all of the writers. Every writer is closed even if closing an earlier writer fails.
+     *
+     * @throws IOException The first error raised when closing the writers.
+     */
+    public void close() throws IOException {
+        IOException failure = null;
+        for (final FormatWriter writer : writers) {
+            try {
+                writer.close();
+            } catch (final IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
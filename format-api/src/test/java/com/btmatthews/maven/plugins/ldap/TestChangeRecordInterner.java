@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFDeleteChangeRecord;
+import com.unboundid.ldif.LDIFModifyChangeRecord;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.createEntry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit test the {@link ChangeRecordInterner}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestChangeRecordInterner {
+
+    /**
+     * The interner being tested. Values longer than 8 bytes are not shared.
+     */
+    private ChangeRecordInterner interner;
+
+    /**
+     * Prepare for test case execution by creating the interner being tested.
+     */
+    @Before
+    public void setUp() {
+        interner = new ChangeRecordInterner(16, 16, 8);
+    }
+
+    /**
+     * Verify that attribute names and short values are shared between add change records.
+     */
+    @Test
+    public void sharesNamesAndShortValues() {
+        final LDIFAddChangeRecord first = (LDIFAddChangeRecord) interner.intern(new LDIFAddChangeRecord(
+                createEntry("uid=bsimpson,ou=People,dc=btmatthews,dc=com", "objectclass", "inetOrgPerson", "sn", "Simpson")));
+        final LDIFAddChangeRecord second = (LDIFAddChangeRecord) interner.intern(new LDIFAddChangeRecord(
+                createEntry("uid=hsimpson,ou=People,dc=btmatthews,dc=com", "objectclass", "inetOrgPerson", "sn", "Simpson")));
+        final Attribute[] firstAttributes = first.getAttributes();
+        final Attribute[] secondAttributes = second.getAttributes();
+        assertSame(firstAttributes[0].getName(), secondAttributes[0].getName());
+        assertSame(firstAttributes[0].getRawValues()[0], secondAttributes[0].getRawValues()[0]);
+        assertSame(firstAttributes[1].getName(), secondAttributes[1].getName());
+        assertSame(firstAttributes[1].getRawValues()[0], secondAttributes[1].getRawValues()[0]);
+        assertEquals("uid=hsimpson,ou=People,dc=btmatthews,dc=com", second.getDN());
+        assertEquals(4, interner.getSharedCount());
+        assertEquals(20, interner.getSharedValueBytes());
+    }
+
+    /**
+     * Verify that {@code objectClass} values are shared even if they are longer than the limit for other values.
+     */
+    @Test
+    public void sharesLongObjectClassValuesButNotOtherLongValues() {
+        final Attribute first = interner.intern(new Attribute("objectClass", "organizationalUnit"));
+        final Attribute second = interner.intern(new Attribute("objectClass", "organizationalUnit"));
+        assertSame(first.getRawValues()[0], second.getRawValues()[0]);
+        final Attribute third = interner.intern(new Attribute("description", "A long description"));
+        final Attribute fourth = interner.intern(new Attribute("description", "A long description"));
+        assertNotSame(third.getRawValues()[0], fourth.getRawValues()[0]);
+    }
+
+    /**
+     * Verify that attribute names and short values are shared between entries.
+     */
+    @Test
+    public void sharesEntryNamesAndValues() {
+        final Entry first = interner.intern(
+                createEntry("uid=bsimpson,ou=People,dc=btmatthews,dc=com", "objectclass", "inetOrgPerson", "sn", "Simpson"));
+        final Entry second = interner.intern(
+                createEntry("uid=hsimpson,ou=People,dc=btmatthews,dc=com", "objectclass", "inetOrgPerson", "sn", "Simpson"));
+        assertSame(first.getAttribute("sn").getRawValues()[0], second.getAttribute("sn").getRawValues()[0]);
+        assertSame(first.getAttribute("objectclass").getRawValues()[0],
+                second.getAttribute("objectclass").getRawValues()[0]);
+        assertEquals("uid=hsimpson,ou=People,dc=btmatthews,dc=com", second.getDN());
+        assertEquals(4, interner.getSharedCount());
+    }
+
+    /**
+     * Verify that attribute names and values are shared between modify change records.
+     */
+    @Test
+    public void sharesModificationNamesAndValues() {
+        final LDIFModifyChangeRecord first = (LDIFModifyChangeRecord) interner.intern(new LDIFModifyChangeRecord(
+                "uid=bsimpson,ou=People,dc=btmatthews,dc=com",
+                new Modification(ModificationType.REPLACE, "title", "Student")));
+        final LDIFModifyChangeRecord second = (LDIFModifyChangeRecord) interner.intern(new LDIFModifyChangeRecord(
+                "uid=lsimpson,ou=People,dc=btmatthews,dc=com",
+                new Modification(ModificationType.REPLACE, "title", "Student")));
+        assertSame(first.getModifications()[0].getAttributeName(), second.getModifications()[0].getAttributeName());
+        assertSame(first.getModifications()[0].getRawValues()[0], second.getModifications()[0].getRawValues()[0]);
+        assertEquals(ModificationType.REPLACE, second.getModifications()[0].getModificationType());
+    }
+
+    /**
+     * Verify that change records without attributes are returned unchanged.
+     */
+    @Test
+    public void returnsDeleteChangeRecordUnchanged() {
+        final LDIFChangeRecord record = new LDIFDeleteChangeRecord("uid=bsimpson,ou=People,dc=btmatthews,dc=com");
+        assertSame(record, interner.intern(record));
+    }
+}
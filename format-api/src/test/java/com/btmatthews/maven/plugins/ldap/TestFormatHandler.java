@@ -22,11 +22,15 @@ import com.unboundid.ldif.LDIFException;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.*;
@@ -83,8 +87,8 @@ public final class TestFormatHandler {
         initMocks(this);
         handler = new AbstractFormatHandler() {
             @Override
-            protected FormatWriter createWriter(final OutputStream outputStream,
-                                                final FormatLogger logger) {
+            public FormatWriter createWriter(final OutputStream outputStream,
+                                             final FormatLogger logger) {
                 return writer;
             }
 
@@ -225,11 +229,11 @@ public final class TestFormatHandler {
      */
     @Test
     public void dumpEmptyResultSet() throws Exception {
-        final SearchResult result = FormatTestUtils.createSearchResult();
-        when(connection.search(any(SearchRequest.class))).thenReturn(result);
+        when(connection.search(any(SearchRequest.class))).thenAnswer(FormatTestUtils.streamSearchResult());
         handler.dump(connection, "dc=btmatthews,dc=com", "(objectclass=*)", outputStream, logger);
         verify(connection).search(any(SearchRequest.class));
         verify(writer).close();
+        verify(logger).logInfo("Search did not return any directory entries");
         verifyNoMoreInteractions(writer, connection, outputStream, logger);
     }
 
@@ -246,8 +250,7 @@ public final class TestFormatHandler {
                 "ou=People,dc=btmatthews,dc=com",
                 "ou", "People",
                 "objectclass", "organisationalUnit");
-        final SearchResult result = FormatTestUtils.createSearchResult(first);
-        when(connection.search(any(SearchRequest.class))).thenReturn(result);
+        when(connection.search(any(SearchRequest.class))).thenAnswer(FormatTestUtils.streamSearchResult(first));
         handler.dump(connection, "dc=btmatthews,dc=com", "(objectclass=*)", outputStream, logger);
         verify(connection).search(any(SearchRequest.class));
         verify(writer).printEntry(same(first));
@@ -275,8 +278,7 @@ public final class TestFormatHandler {
                 "givenName", "Bart",
                 "uid", "bsimpson",
                 "objectclass", "inetOrgPerson");
-        final SearchResult result = FormatTestUtils.createSearchResult(first, second);
-        when(connection.search(any(SearchRequest.class))).thenReturn(result);
+        when(connection.search(any(SearchRequest.class))).thenAnswer(FormatTestUtils.streamSearchResult(first, second));
         handler.dump(connection, "dc=btmatthews,dc=com", "(objectclass=*)", outputStream, logger);
         verify(connection).search(any(SearchRequest.class));
         verify(writer).printEntry(same(first));
@@ -284,4 +286,92 @@ public final class TestFormatHandler {
         verify(writer).close();
         verifyNoMoreInteractions(writer, connection, outputStream, logger);
     }
+
+    /**
+     * Verify the correct behaviour of
+     * {@link FormatHandler#dump(com.unboundid.ldap.sdk.LDAPInterface, String, String, java.io.OutputStream, FormatLogger)}
+     * when the directory entries are streamed to the search result listener.
+     *
+     * @throws Exception If there was an exception executing the test.
+     */
+    @Test
+    public void dumpStreamedResultSet() throws Exception {
+        final SearchResultEntry first = FormatTestUtils.createSearchResultEntry(
+                "ou=People,dc=btmatthews,dc=com",
+                "ou", "People",
+                "objectclass", "organisationalUnit");
+        when(connection.search(any(SearchRequest.class))).thenAnswer(new Answer<SearchResult>() {
+            public SearchResult answer(final InvocationOnMock invocation) {
+                final SearchRequest request = (SearchRequest) invocation.getArguments()[0];
+                request.getSearchResultListener().searchEntryReturned(first);
+                return new SearchResult(0, ResultCode.SUCCESS, null, null, null, 1, 0, null);
+            }
+        });
+        handler.dump(connection, "dc=btmatthews,dc=com", "(objectclass=*)", outputStream, logger);
+        verify(connection).search(any(SearchRequest.class));
+        verify(writer).printEntry(same(first));
+        verify(writer).close();
+        verifyNoMoreInteractions(writer, connection, outputStream, logger);
+    }
+
+    /**
+     * Verify that an {@link IOException} raised while writing a streamed directory entry is logged and the writer
+     * is closed.
+     *
+     * @throws Exception If there was an exception executing the test.
+     */
+    @Test
+    public void handleIOExceptionWhileDumping() throws Exception {
+        final SearchResultEntry first = FormatTestUtils.createSearchResultEntry(
+                "ou=People,dc=btmatthews,dc=com",
+                "ou", "People",
+                "objectclass", "organisationalUnit");
+        when(connection.search(any(SearchRequest.class))).thenAnswer(new Answer<SearchResult>() {
+            public SearchResult answer(final InvocationOnMock invocation) {
+                final SearchRequest request = (SearchRequest) invocation.getArguments()[0];
+                request.getSearchResultListener().searchEntryReturned(first);
+                return new SearchResult(0, ResultCode.SUCCESS, null, null, null, 1, 0, null);
+            }
+        });
+        doThrow(IOException.class).when(writer).printEntry(same(first));
+        handler.dump(connection, "dc=btmatthews,dc=com", "(objectclass=*)", outputStream, logger);
+        verify(connection).search(any(SearchRequest.class));
+        verify(writer).printEntry(same(first));
+        verify(writer).close();
+        verify(logger).logError(eq("Error writing directory entry to the output stream"), any(IOException.class));
+        verifyNoMoreInteractions(writer, connection, outputStream, logger);
+    }
+
+    /**
+     * Verify that
+     * {@link FormatHandler#dump(com.unboundid.ldap.sdk.LDAPInterface, String, String, FormatWriter, FormatLogger)}
+     * reports success when all the directory entries were written.
+     *
+     * @throws Exception If there was an exception executing the test.
+     */
+    @Test
+    public void dumpToWriterReportsSuccess() throws Exception {
+        when(connection.search(any(SearchRequest.class))).thenAnswer(FormatTestUtils.streamSearchResult());
+        assertTrue(handler.dump(connection, "dc=btmatthews,dc=com", "(objectclass=*)", writer, logger));
+        verify(writer).close();
+    }
+
+    /**
+     * Verify that
+     * {@link FormatHandler#dump(com.unboundid.ldap.sdk.LDAPInterface, String, String, FormatWriter, FormatLogger)}
+     * reports failure when a directory entry could not be written.
+     *
+     * @throws Exception If there was an exception executing the test.
+     */
+    @Test
+    public void dumpToWriterReportsFailure() throws Exception {
+        final SearchResultEntry first = FormatTestUtils.createSearchResultEntry(
+                "ou=People,dc=btmatthews,dc=com",
+                "ou", "People",
+                "objectclass", "organisationalUnit");
+        when(connection.search(any(SearchRequest.class))).thenAnswer(FormatTestUtils.streamSearchResult(first));
+        doThrow(IOException.class).when(writer).printEntry(same(first));
+        assertFalse(handler.dump(connection, "dc=btmatthews,dc=com", "(objectclass=*)", writer, logger));
+        verify(writer).close();
+    }
 }
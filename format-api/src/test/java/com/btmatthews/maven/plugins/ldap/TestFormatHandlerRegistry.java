@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit test the {@link FormatHandlerRegistry}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestFormatHandlerRegistry {
+
+    /**
+     * The registry being tested.
+     */
+    private FormatHandlerRegistry registry;
+
+    /**
+     * Prepare for test case execution by creating the registry being tested.
+     */
+    @Before
+    public void setUp() {
+        registry = new FormatHandlerRegistry(getClass().getClassLoader());
+    }
+
+    /**
+     * Verify that the providers registered in {@code META-INF/services} are discovered.
+     */
+    @Test
+    public void discoversProviders() {
+        assertEquals(Arrays.asList("text", "markup"), registry.getFormatNames());
+    }
+
+    /**
+     * Verify that a format handler is created once and then reused.
+     */
+    @Test
+    public void createsHandlerOnce() {
+        final FormatHandler handler = registry.getHandler("text");
+        assertNotNull(handler);
+        assertSame(handler, registry.getHandler("text"));
+    }
+
+    /**
+     * Verify that {@code null} is returned for an unknown format.
+     */
+    @Test
+    public void returnsNullForUnknownFormat() {
+        assertNull(registry.getHandler("unknown"));
+    }
+
+    /**
+     * Verify that an unambiguous file extension is used to detect the format without examining the content.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void detectsFormatFromExtension() throws Exception {
+        assertEquals("text", registry.detectFormat("data.txt", null));
+    }
+
+    /**
+     * Verify that the content is used to detect the format when the file extension is ambiguous and that the input
+     * stream is reset.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void detectsFormatFromContentWhenExtensionIsAmbiguous() throws Exception {
+        final InputStream inputStream = new BufferedInputStream(new ByteArrayInputStream("  <markup/>".getBytes("UTF-8")));
+        assertEquals("markup", registry.detectFormat("data.both", inputStream));
+        assertEquals(' ', inputStream.read());
+    }
+
+    /**
+     * Verify that the content is used to detect the format when the file extension is not recognised.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void detectsFormatFromContent() throws Exception {
+        final InputStream inputStream = new BufferedInputStream(new ByteArrayInputStream("plain".getBytes("UTF-8")));
+        assertEquals("text", registry.detectFormat("data", inputStream));
+    }
+
+    /**
+     * Verify that {@code null} is returned when the format cannot be detected.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void returnsNullWhenFormatNotDetected() throws Exception {
+        final InputStream inputStream = new BufferedInputStream(new ByteArrayInputStream(new byte[0]));
+        assertNull(registry.detectFormat("data", inputStream));
+    }
+
+    /**
+     * Provider for a test format that recognises any content that is not markup.
+     */
+    public static final class TextFormatHandlerProvider extends AbstractFormatHandlerProvider {
+
+        /**
+         * Initialise the provider.
+         */
+        public TextFormatHandlerProvider() {
+            super("text", ".txt", ".both");
+        }
+
+        /**
+         * Recognise any non-empty content that does not start with {@code <}.
+         *
+         * @param header The leading bytes of the file.
+         * @param length The number of valid bytes in {@code header}.
+         * @return {@code true} if the content is recognised.
+         */
+        public boolean acceptsContent(final byte[] header, final int length) {
+            final String text = toText(header, length);
+            return text.length() > 0 && !text.startsWith("<");
+        }
+
+        /**
+         * Create a mock format handler.
+         *
+         * @return The format handler.
+         */
+        public FormatHandler createHandler() {
+            return mock(FormatHandler.class);
+        }
+    }
+
+    /**
+     * Provider for a test format that recognises markup.
+     */
+    public static final class MarkupFormatHandlerProvider extends AbstractFormatHandlerProvider {
+
+        /**
+         * Initialise the provider.
+         */
+        public MarkupFormatHandlerProvider() {
+            super("markup", ".xml", ".both");
+        }
+
+        /**
+         * Recognise content that starts with {@code <}.
+         *
+         * @param header The leading bytes of the file.
+         * @param length The number of valid bytes in {@code header}.
+         * @return {@code true} if the content is recognised.
+         */
+        public boolean acceptsContent(final byte[] header, final int length) {
+            return toText(header, length).startsWith("<");
+        }
+
+        /**
+         * Create a mock format handler.
+         *
+         * @return The format handler.
+         */
+        public FormatHandler createHandler() {
+            return mock(FormatHandler.class);
+        }
+    }
+}
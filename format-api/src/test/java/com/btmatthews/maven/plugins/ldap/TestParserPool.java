@@ -0,0 +1,189 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test the {@link ParserPool}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestParserPool {
+
+    /**
+     * Verify that the results are returned in the order the batches were submitted even when the batches are
+     * processed by several threads.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test(timeout = 10000)
+    public void keepsBatchOrder() throws Exception {
+        final ParserPool<Integer> pool = new ParserPool<Integer>("test-parser", "testing", 4);
+        try {
+            final List<Integer> results = new ArrayList<Integer>();
+            int submitted = 0;
+            while (submitted < 100 || !pool.isEmpty()) {
+                while (submitted < 100 && !pool.isFull()) {
+                    pool.submit(new SlowBatch(submitted++));
+                }
+                results.addAll(pool.next());
+            }
+            assertEquals(100, results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(Integer.valueOf(i), results.get(i));
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Verify that the pool allows two batches per thread to be in flight.
+     */
+    @Test
+    public void readsAheadTwoBatchesPerThread() {
+        final ParserPool<Integer> pool = new ParserPool<Integer>("test-parser", "testing", 2);
+        try {
+            assertTrue(pool.isEmpty());
+            for (int i = 0; i < 4; i++) {
+                assertFalse(pool.isFull());
+                pool.submit(new SlowBatch(i));
+            }
+            assertTrue(pool.isFull());
+            assertFalse(pool.isEmpty());
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Verify that the batches are processed by the calling thread one at a time when no threads are configured.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test
+    public void processesBatchesOnCallingThread() throws Exception {
+        final ParserPool<Thread> pool = new ParserPool<Thread>("test-parser", "testing", 0);
+        try {
+            pool.submit(new Callable<List<Thread>>() {
+                public List<Thread> call() {
+                    return Collections.singletonList(Thread.currentThread());
+                }
+            });
+            assertTrue(pool.isFull());
+            assertSame(Thread.currentThread(), pool.next().get(0));
+            assertTrue(pool.isEmpty());
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Verify that an {@link IOException} raised while processing a batch is rethrown unchanged.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test
+    public void rethrowsIOException() throws Exception {
+        final IOException failure = new IOException("Corrupt");
+        final ParserPool<Integer> pool = new ParserPool<Integer>("test-parser", "testing", 1);
+        try {
+            pool.submit(new Callable<List<Integer>>() {
+                public List<Integer> call() throws IOException {
+                    throw failure;
+                }
+            });
+            pool.next();
+            fail();
+        } catch (final IOException e) {
+            assertSame(failure, e);
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Verify that an unexpected exception raised while processing a batch is wrapped in an {@link IOException}
+     * that describes the activity.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test
+    public void wrapsUnexpectedException() throws Exception {
+        final IllegalStateException failure = new IllegalStateException();
+        final ParserPool<Integer> pool = new ParserPool<Integer>("test-parser", "testing", 1);
+        try {
+            pool.submit(new Callable<List<Integer>>() {
+                public List<Integer> call() {
+                    throw failure;
+                }
+            });
+            pool.next();
+            fail();
+        } catch (final IOException e) {
+            assertEquals("Error testing", e.getMessage());
+            assertSame(failure, e.getCause());
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * A batch that takes longer to process the earlier it was submitted so that later batches tend to finish first.
+     */
+    private static final class SlowBatch implements Callable<List<Integer>> {
+
+        /**
+         * The batch number.
+         */
+        private final int number;
+
+        /**
+         * Initialise the batch.
+         *
+         * @param number The batch number.
+         */
+        SlowBatch(final int number) {
+            this.number = number;
+        }
+
+        /**
+         * Wait a while and return the batch number.
+         *
+         * @return The batch number.
+         * @throws InterruptedException If the thread was interrupted.
+         */
+        public List<Integer> call() throws InterruptedException {
+            Thread.sleep(10 - number % 10);
+            return Collections.singletonList(number);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.maven.plugins.ldap;
+
+import com.unboundid.ldap.sdk.Entry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.createEntry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Unit test the {@link PipelinedFormatWriter}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestPipelinedFormatWriter {
+
+    /**
+     * Mock for the writer used to encode and output the directory entries.
+     */
+    @Mock
+    private EncodingFormatWriter writer;
+
+    /**
+     * Prepare for test case execution by creating the mock objects.
+     */
+    @Before
+    public void setUp() {
+        initMocks(this);
+    }
+
+    /**
+     * Verify that the directory entries are written in the order they were received even when they are encoded
+     * by several threads.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test
+    public void keepsEntryOrder() throws Exception {
+        final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+        final EncodingFormatWriter recordingWriter = new EncodingFormatWriter() {
+            public byte[] encodeEntry(final Entry entry) {
+                return entry.getDN().getBytes();
+            }
+
+            public void printEncodedEntry(final byte[] encodedEntry) {
+                written.add(new String(encodedEntry));
+            }
+
+            public void printEntry(final Entry entry) {
+                fail();
+            }
+
+            public void close() {
+                written.add("closed");
+            }
+        };
+        final FormatWriter pipeline = new PipelinedFormatWriter(recordingWriter, 4, 8);
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 500; ++i) {
+            final String dn = "uid=user" + i + ",ou=People,dc=btmatthews,dc=com";
+            pipeline.printEntry(createEntry(dn, "uid", "user" + i));
+            expected.add(dn);
+        }
+        pipeline.close();
+        expected.add("closed");
+        assertEquals(expected, written);
+    }
+
+    /**
+     * Verify that an {@link IOException} raised while encoding is reported to the caller and the underlying
+     * writer is still closed.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test
+    public void propagatesEncodingFailure() throws Exception {
+        when(writer.encodeEntry(any(Entry.class))).thenThrow(new IOException());
+        final FormatWriter pipeline = new PipelinedFormatWriter(writer, 2, 4);
+        pipeline.printEntry(createEntry("ou=People,dc=btmatthews,dc=com", "ou", "People"));
+        try {
+            pipeline.close();
+            fail("Expected an IOException");
+        } catch (final IOException e) {
+            // expected
+        }
+        verify(writer, never()).printEncodedEntry(any(byte[].class));
+        verify(writer).close();
+    }
+
+    /**
+     * Verify that an {@link IOException} raised while writing is reported to the caller.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test(expected = IOException.class)
+    public void propagatesWritingFailure() throws Exception {
+        when(writer.encodeEntry(any(Entry.class))).thenReturn(new byte[0]);
+        doThrow(IOException.class).when(writer).printEncodedEntry(any(byte[].class));
+        final FormatWriter pipeline = new PipelinedFormatWriter(writer, 2, 4);
+        pipeline.printEntry(createEntry("ou=People,dc=btmatthews,dc=com", "ou", "People"));
+        pipeline.close();
+    }
+
+    /**
+     * Verify that a {@link RuntimeException} raised while writing is reported to the caller instead of leaving it
+     * blocked waiting for space in the buffer.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test(expected = IOException.class, timeout = 10000L)
+    public void propagatesRuntimeWritingFailure() throws Exception {
+        when(writer.encodeEntry(any(Entry.class))).thenReturn(new byte[0]);
+        doThrow(IllegalStateException.class).when(writer).printEncodedEntry(any(byte[].class));
+        final FormatWriter pipeline = new PipelinedFormatWriter(writer, 1, 1);
+        try {
+            for (int i = 0; i < 100; i++) {
+                pipeline.printEntry(createEntry("ou=People,dc=btmatthews,dc=com", "ou", "People"));
+            }
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    /**
+     * Verify that the caller is not left blocked waiting for space in the buffer if the writer thread stops.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test(expected = IOException.class, timeout = 10000L)
+    public void failsWhenWriterThreadStops() throws Exception {
+        when(writer.encodeEntry(any(Entry.class))).thenReturn(new byte[0]);
+        doThrow(new Error()).when(writer).printEncodedEntry(any(byte[].class));
+        final FormatWriter pipeline = new PipelinedFormatWriter(writer, 1, 1);
+        try {
+            for (int i = 0; i < 100; i++) {
+                pipeline.printEntry(createEntry("ou=People,dc=btmatthews,dc=com", "ou", "People"));
+            }
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    /**
+     * Verify that the underlying writer is closed if the thread is interrupted while closing the pipeline.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test
+    public void closesWriterWhenInterrupted() throws Exception {
+        final FormatWriter pipeline = new PipelinedFormatWriter(writer, 1, 1);
+        Thread.currentThread().interrupt();
+        try {
+            pipeline.close();
+            fail("Expected an InterruptedIOException");
+        } catch (final InterruptedIOException e) {
+            // expected
+        } finally {
+            Thread.interrupted();
+        }
+        verify(writer).close();
+    }
+
+    /**
+     * Verify that closing an empty pipeline closes the underlying writer.
+     *
+     * @throws Exception If there was an unexpected problem executing the test case.
+     */
+    @Test
+    public void closeEmptyPipeline() throws Exception {
+        final FormatWriter pipeline = new PipelinedFormatWriter(writer, 1, 1);
+        pipeline.close();
+        verify(writer).close();
+        verifyNoMoreInteractions(writer);
+    }
+}
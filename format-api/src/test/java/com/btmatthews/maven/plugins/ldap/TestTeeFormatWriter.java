@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import com.unboundid.ldap.sdk.Entry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.createEntry;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Unit test the {@link TeeFormatWriter}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestTeeFormatWriter {
+
+    /**
+     * Mock for the first writer.
+     */
+    @Mock
+    private FormatWriter firstWriter;
+    /**
+     * Mock for the second writer.
+     */
+    @Mock
+    private FormatWriter secondWriter;
+    /**
+     * The writer being tested.
+     */
+    private FormatWriter writer;
+
+    /**
+     * Prepare for test case execution by creating the mock objects and the writer being tested.
+     */
+    @Before
+    public void setUp() {
+        initMocks(this);
+        writer = new TeeFormatWriter(Arrays.asList(firstWriter, secondWriter));
+    }
+
+    /**
+     * Verify that each directory entry is passed on to all the writers.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void passesEntriesToAllWriters() throws Exception {
+        final Entry first = createEntry("ou=People,dc=btmatthews,dc=com", "objectclass", "organizationalUnit");
+        final Entry second = createEntry("ou=Groups,dc=btmatthews,dc=com", "objectclass", "organizationalUnit");
+        writer.printEntry(first);
+        writer.printEntry(second);
+        writer.close();
+        final InOrder inOrder = inOrder(firstWriter, secondWriter);
+        inOrder.verify(firstWriter).printEntry(same(first));
+        inOrder.verify(secondWriter).printEntry(same(first));
+        inOrder.verify(firstWriter).printEntry(same(second));
+        inOrder.verify(secondWriter).printEntry(same(second));
+        inOrder.verify(firstWriter).close();
+        inOrder.verify(secondWriter).close();
+        verifyNoMoreInteractions(firstWriter, secondWriter);
+    }
+
+    /**
+     * Verify that all the writers are closed even if closing one of them fails and that the failure is reported.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void closesAllWritersOnFailure() throws Exception {
+        final IOException failure = new IOException();
+        doThrow(failure).when(firstWriter).close();
+        try {
+            writer.close();
+            fail();
+        } catch (final IOException e) {
+            assertSame(failure, e);
+        }
+        verify(firstWriter).close();
+        verify(secondWriter).close();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.binary;
+
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Decodes the directory entries in a single block of a binary snapshot file. Blocks are self contained so
+ * several decoders can run at the same time.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class BinaryBlockDecoder implements Callable<List<Entry>> {
+
+    /**
+     * The block payload.
+     */
+    private final byte[] payload;
+    /**
+     * The number of directory entries in the block.
+     */
+    private final int entryCount;
+    /**
+     * The dictionary of distinguished name suffixes and attribute names built up as the block is decoded.
+     */
+    private final List<String> dictionary = new ArrayList<String>();
+    /**
+     * The position of the next byte to be decoded.
+     */
+    private int position;
+
+    /**
+     * Initialise the decoder.
+     *
+     * @param payload    The block payload.
+     * @param entryCount The number of directory entries in the block.
+     */
+    BinaryBlockDecoder(final byte[] payload, final int entryCount) {
+        this.payload = payload;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * Decode the directory entries in the block.
+     *
+     * @return The directory entries in the order they were written.
+     * @throws IOException If the block is corrupt.
+     */
+    public List<Entry> call() throws IOException {
+        final List<Entry> entries = new ArrayList<Entry>(entryCount);
+        try {
+            for (int i = 0; i < entryCount; i++) {
+                final String rdn = readString();
+                final String parent = readReference();
+                final String dn = parent == null ? rdn : rdn + "," + parent;
+                final int attributeCount = readVarInt();
+                final List<Attribute> attributes = new ArrayList<Attribute>(attributeCount);
+                for (int j = 0; j < attributeCount; j++) {
+                    final String name = readReference();
+                    final byte[][] values = new byte[readVarInt()][];
+                    for (int k = 0; k < values.length; k++) {
+                        values[k] = readBytes(readVarInt());
+                    }
+                    attributes.add(new Attribute(name, values));
+                }
+                entries.add(new Entry(dn, attributes));
+            }
+        } catch (final ArrayIndexOutOfBoundsException e) {
+            throw corrupt();
+        } catch (final IndexOutOfBoundsException e) {
+            throw corrupt();
+        } catch (final NegativeArraySizeException e) {
+            throw corrupt();
+        }
+        if (position != payload.length) {
+            throw corrupt();
+        }
+        return entries;
+    }
+
+    /**
+     * Read a reference to a dictionary value adding new values to the dictionary.
+     *
+     * @return The value or {@code null}.
+     * @throws IOException If the reference is invalid.
+     */
+    private String readReference() throws IOException {
+        final int reference = readVarInt();
+        if (reference == BinaryFormat.NULL_REFERENCE) {
+            return null;
+        } else if (reference == BinaryFormat.NEW_REFERENCE) {
+            final String value = readString();
+            dictionary.add(value);
+            return value;
+        } else {
+            return dictionary.get(reference - BinaryFormat.FIRST_REFERENCE);
+        }
+    }
+
+    /**
+     * Read a length prefixed UTF-8 string.
+     *
+     * @return The string.
+     * @throws IOException If the string could not be decoded.
+     */
+    private String readString() throws IOException {
+        final int length = readVarInt();
+        if (position + length > payload.length) {
+            throw corrupt();
+        }
+        final String value = new String(payload, position, length, "UTF-8");
+        position += length;
+        return value;
+    }
+
+    /**
+     * Read an array of bytes.
+     *
+     * @param length The number of bytes.
+     * @return The bytes.
+     * @throws IOException If the block does not contain enough bytes.
+     */
+    private byte[] readBytes(final int length) throws IOException {
+        if (position + length > payload.length) {
+            throw corrupt();
+        }
+        final byte[] value = new byte[length];
+        System.arraycopy(payload, position, value, 0, length);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Read an unsigned variable length integer encoded using 7 bits per byte.
+     *
+     * @return The integer.
+     * @throws IOException If the integer is too long.
+     */
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = payload[position++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw corrupt();
+    }
+
+    /**
+     * Create the exception that is thrown when a block is corrupt.
+     *
+     * @return The exception.
+     */
+    private IOException corrupt() {
+        return new IOException("Binary snapshot block is corrupt");
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.binary;
+
+/**
+ * Constants that describe the layout of binary snapshot files.
+ * <p>
+ * A snapshot starts with the 8 byte {@link #MAGIC} and a 4 byte {@link #VERSION}. This is followed by a sequence of
+ * blocks, each made up of a 4 byte payload length, a 4 byte entry count and the payload. A payload length of zero
+ * marks the end of the blocks. The block index follows with a 4 byte block count and, for each block, the 8 byte
+ * offset of the block from the start of the file and its 4 byte entry count. The file ends with the 8 byte offset of
+ * the block index so that readers with random access can locate the blocks without scanning the file.
+ * <p>
+ * Each block is self contained so that blocks can be decoded in parallel. Directory entries are encoded as the
+ * relative distinguished name, a reference to the parent distinguished name, the number of attributes and, for each
+ * attribute, a reference to the attribute name followed by the number of values and the length prefixed values.
+ * References are resolved against a dictionary that is built up as the block is read. A reference of
+ * {@link #NULL_REFERENCE} is used when there is no value, {@link #NEW_REFERENCE} is followed by a length prefixed
+ * string that is added to the dictionary and any other reference is an index into the dictionary offset by
+ * {@link #FIRST_REFERENCE}. All lengths, counts and references within a block are unsigned variable length
+ * integers.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class BinaryFormat {
+
+    /**
+     * The bytes at the start of every binary snapshot file.
+     */
+    static final byte[] MAGIC = {'L', 'D', 'A', 'P', 'S', 'N', 'A', 'P'};
+    /**
+     * The version of the binary snapshot file layout.
+     */
+    static final int VERSION = 1;
+    /**
+     * The default number of directory entries in each block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    /**
+     * The reference used when there is no value.
+     */
+    static final int NULL_REFERENCE = 0;
+    /**
+     * The reference that is followed by a new dictionary value.
+     */
+    static final int NEW_REFERENCE = 1;
+    /**
+     * The reference to the first value in the dictionary.
+     */
+    static final int FIRST_REFERENCE = 2;
+
+    /**
+     * Private constructor prevents instantiation.
+     */
+    private BinaryFormat() {
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.binary;
+
+import com.btmatthews.maven.plugins.ldap.AbstractFormatHandler;
+import com.btmatthews.maven.plugins.ldap.FormatLogger;
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * This {@link com.btmatthews.maven.plugins.ldap.FormatHandler} is used to load data from or dump data
+ * to binary snapshot files.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class BinaryFormatHandler extends AbstractFormatHandler {
+
+    /**
+     * The number of threads used to decode blocks when loading.
+     */
+    private final int decoderThreads;
+
+    /**
+     * Initialise the handler so that one decoder thread is used for each available processor when there is more
+     * than one.
+     */
+    public BinaryFormatHandler() {
+        this(Runtime.getRuntime().availableProcessors() > 1 ? Runtime.getRuntime().availableProcessors() : 0);
+    }
+
+    /**
+     * Initialise the handler.
+     *
+     * @param decoderThreads The number of threads used to decode blocks when loading. If zero the blocks are decoded
+     *                       by the thread that loads the directory entries.
+     */
+    public BinaryFormatHandler(final int decoderThreads) {
+        this.decoderThreads = decoderThreads;
+    }
+
+    /**
+     * Create the {@link BinaryFormatWriter} that will dump LDAP entries in binary snapshot format
+     * to the target output stream.
+     *
+     * @param outputStream The target output stream.
+     * @param logger       Used to log information or error messages.
+     * @return A {@link BinaryFormatWriter} object.
+     */
+    @Override
+    public FormatWriter createWriter(final OutputStream outputStream,
+                                     final FormatLogger logger) {
+        return new BinaryFormatWriter(outputStream);
+    }
+
+    /**
+     * Create {@link BinaryFormatReader} that reads directory entries from the source input stream.
+     *
+     * @param inputStream The source input stream.
+     * @param logger      Used to log information or error messages.
+     * @return A {@link BinaryFormatReader} object.
+     */
+    @Override
+    protected FormatReader openReader(final InputStream inputStream,
+                                      final FormatLogger logger) {
+        return new BinaryFormatReader(inputStream, decoderThreads);
+    }
+}
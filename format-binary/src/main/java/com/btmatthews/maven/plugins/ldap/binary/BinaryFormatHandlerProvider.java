@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.binary;
+
+import com.btmatthews.maven.plugins.ldap.AbstractFormatHandlerProvider;
+import com.btmatthews.maven.plugins.ldap.FormatHandler;
+
+/**
+ * Makes the binary snapshot format handler available to {@link com.btmatthews.maven.plugins.ldap.FormatHandlerRegistry}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class BinaryFormatHandlerProvider extends AbstractFormatHandlerProvider {
+
+    /**
+     * Initialise the provider with the format name and file extensions.
+     */
+    public BinaryFormatHandlerProvider() {
+        super("binary", ".snapshot", ".ldapsnap");
+    }
+
+    /**
+     * Recognise a binary snapshot by its magic number.
+     *
+     * @param header The leading bytes of the file.
+     * @param length The number of valid bytes in {@code header}.
+     * @return {@code true} if the content starts with {@link BinaryFormat#MAGIC}.
+     */
+    public boolean acceptsContent(final byte[] header, final int length) {
+        if (length < BinaryFormat.MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < BinaryFormat.MAGIC.length; i++) {
+            if (header[i] != BinaryFormat.MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create the binary snapshot format handler.
+     *
+     * @return The format handler.
+     */
+    public FormatHandler createHandler() {
+        return new BinaryFormatHandler();
+    }
+}
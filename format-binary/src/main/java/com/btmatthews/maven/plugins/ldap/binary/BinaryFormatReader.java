@@ -0,0 +1,159 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.binary;
+
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.btmatthews.maven.plugins.ldap.ParserPool;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * This {@link FormatReader} reads directory entries from an underlying input stream in the binary snapshot format
+ * described by {@link BinaryFormat} and returns them as add change records.
+ * <p>
+ * The blocks are read sequentially from the input stream but, if decoder threads are configured, they are decoded
+ * in parallel. The reader keeps up to two blocks per decoder thread in flight and returns the directory entries in the
+ * order they were written.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class BinaryFormatReader implements FormatReader {
+
+    /**
+     * The underlying input stream.
+     */
+    private final DataInputStream inputStream;
+    /**
+     * Decodes the blocks in the order they were read.
+     */
+    private final ParserPool<Entry> decoders;
+    /**
+     * The remaining directory entries in the current block.
+     */
+    private Iterator<Entry> entries;
+    /**
+     * Indicates if the file header has been read.
+     */
+    private boolean started;
+    /**
+     * Indicates if the marker that follows the last block has been read.
+     */
+    private boolean finished;
+
+    /**
+     * Initialize the {@link BinaryFormatReader} so that blocks are decoded by the calling thread.
+     *
+     * @param inputStream The underlying input stream.
+     */
+    public BinaryFormatReader(final InputStream inputStream) {
+        this(inputStream, 0);
+    }
+
+    /**
+     * Initialize the {@link BinaryFormatReader} creating a pool of threads to decode the blocks.
+     *
+     * @param inputStream    The underlying input stream.
+     * @param decoderThreads The number of threads used to decode blocks. If zero the blocks are decoded by the
+     *                       calling thread.
+     */
+    public BinaryFormatReader(final InputStream inputStream, final int decoderThreads) {
+        this.inputStream = new DataInputStream(inputStream);
+        decoders = new ParserPool<Entry>("ldap-binary-decoder", "decoding binary snapshot", decoderThreads);
+    }
+
+    /**
+     * Read the next directory entry from the underlying input stream.
+     *
+     * @return An add change record for the next directory entry or {@code null} if the end of the input stream has
+     *         been reached.
+     * @throws IOException If there was an error reading from the input stream or the input stream is not a binary
+     *                     snapshot.
+     */
+    public LDIFChangeRecord nextRecord() throws IOException {
+        if (!started) {
+            readHeader();
+            started = true;
+        }
+        while (entries == null || !entries.hasNext()) {
+            while (!finished && !decoders.isFull()) {
+                readBlock();
+            }
+            if (decoders.isEmpty()) {
+                return null;
+            }
+            entries = decoders.next().iterator();
+        }
+        return new LDIFAddChangeRecord(entries.next());
+    }
+
+    /**
+     * Close the reader stopping the decoder threads. The underlying input stream is not closed.
+     */
+    public void close() {
+        decoders.close();
+    }
+
+    /**
+     * Read and verify the file header.
+     *
+     * @throws IOException If the input stream is not a binary snapshot.
+     */
+    private void readHeader() throws IOException {
+        final byte[] magic = new byte[BinaryFormat.MAGIC.length];
+        try {
+            inputStream.readFully(magic);
+        } catch (final EOFException e) {
+            finished = true;
+            return;
+        }
+        if (!Arrays.equals(magic, BinaryFormat.MAGIC)) {
+            throw new IOException("Input stream is not a binary snapshot");
+        }
+        final int version = inputStream.readInt();
+        if (version != BinaryFormat.VERSION) {
+            throw new IOException("Unsupported binary snapshot version: " + version);
+        }
+    }
+
+    /**
+     * Read the next block and queue it for decoding.
+     *
+     * @throws IOException If there was an error reading from the input stream.
+     */
+    private void readBlock() throws IOException {
+        final int length = inputStream.readInt();
+        if (length == 0) {
+            finished = true;
+        } else if (length < 0) {
+            throw new IOException("Binary snapshot block is corrupt");
+        } else {
+            final int entryCount = inputStream.readInt();
+            final byte[] payload = new byte[length];
+            inputStream.readFully(payload);
+            decoders.submit(new BinaryBlockDecoder(payload, entryCount));
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.binary;
+
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This {@link FormatWriter} writes LDAP entries to an underlying output stream in the binary snapshot format
+ * described by {@link BinaryFormat}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class BinaryFormatWriter implements FormatWriter {
+
+    /**
+     * The size of the file header.
+     */
+    private static final int HEADER_LENGTH = 12;
+    /**
+     * The size of the header that precedes each block.
+     */
+    private static final int BLOCK_HEADER_LENGTH = 8;
+    /**
+     * The underlying output stream.
+     */
+    private final DataOutputStream outputStream;
+    /**
+     * The maximum number of directory entries in each block.
+     */
+    private final int blockSize;
+    /**
+     * Buffers the encoded directory entries for the current block.
+     */
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    /**
+     * The dictionary of distinguished name suffixes and attribute names for the current block.
+     */
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    /**
+     * The offsets of the blocks that have been written.
+     */
+    private final List<Long> blockOffsets = new ArrayList<Long>();
+    /**
+     * The number of directory entries in each of the blocks that have been written.
+     */
+    private final List<Integer> blockEntryCounts = new ArrayList<Integer>();
+    /**
+     * The number of directory entries in the current block.
+     */
+    private int blockEntryCount;
+    /**
+     * The number of bytes written to the underlying output stream.
+     */
+    private long offset;
+
+    /**
+     * Initialize the {@link BinaryFormatWriter} using the default block size.
+     *
+     * @param outputStream The underlying output stream.
+     */
+    public BinaryFormatWriter(final OutputStream outputStream) {
+        this(outputStream, BinaryFormat.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Initialize the {@link BinaryFormatWriter} by keeping a reference to the underlying output stream.
+     *
+     * @param outputStream The underlying output stream.
+     * @param blockSize    The maximum number of directory entries in each block.
+     */
+    public BinaryFormatWriter(final OutputStream outputStream, final int blockSize) {
+        this.outputStream = new DataOutputStream(outputStream);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Encode the LDAP entry and add it to the current block writing the block to the underlying output stream if
+     * it is full.
+     *
+     * @param entry The directory entry.
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    public void printEntry(final Entry entry) throws IOException {
+        if (entry != null) {
+            final DN dn;
+            try {
+                dn = entry.getParsedDN();
+            } catch (final LDAPException e) {
+                final IOException exception = new IOException("Invalid distinguished name: " + entry.getDN());
+                exception.initCause(e);
+                throw exception;
+            }
+            final String rdn = dn.getRDNString();
+            writeString(rdn == null ? "" : rdn);
+            writeReference(dn.getParentString());
+            writeVarInt(entry.getAttributes().size());
+            for (final Attribute attribute : entry.getAttributes()) {
+                writeReference(attribute.getName());
+                final byte[][] values = attribute.getValueByteArrays();
+                writeVarInt(values.length);
+                for (final byte[] value : values) {
+                    writeVarInt(value.length);
+                    block.write(value);
+                }
+            }
+            if (++blockEntryCount >= blockSize) {
+                writeBlock();
+            }
+        }
+    }
+
+    /**
+     * Write the last block followed by the block index. The underlying output stream is flushed but not closed.
+     *
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    public void close() throws IOException {
+        writeBlock();
+        writeHeader();
+        outputStream.writeInt(0);
+        final long indexOffset = offset + 4;
+        outputStream.writeInt(blockOffsets.size());
+        for (int i = 0; i < blockOffsets.size(); i++) {
+            outputStream.writeLong(blockOffsets.get(i));
+            outputStream.writeInt(blockEntryCounts.get(i));
+        }
+        outputStream.writeLong(indexOffset);
+        outputStream.flush();
+    }
+
+    /**
+     * Write the file header if it has not already been written.
+     *
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    private void writeHeader() throws IOException {
+        if (offset == 0) {
+            outputStream.write(BinaryFormat.MAGIC);
+            outputStream.writeInt(BinaryFormat.VERSION);
+            offset = HEADER_LENGTH;
+        }
+    }
+
+    /**
+     * Write the current block to the underlying output stream and start a new block with an empty dictionary.
+     *
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    private void writeBlock() throws IOException {
+        if (blockEntryCount > 0) {
+            writeHeader();
+            blockOffsets.add(offset);
+            blockEntryCounts.add(blockEntryCount);
+            outputStream.writeInt(block.size());
+            outputStream.writeInt(blockEntryCount);
+            block.writeTo(outputStream);
+            offset += BLOCK_HEADER_LENGTH + block.size();
+            block.reset();
+            dictionary.clear();
+            blockEntryCount = 0;
+        }
+    }
+
+    /**
+     * Write a reference to a dictionary value to the current block adding the value to the dictionary if it has not
+     * been seen before in the current block.
+     *
+     * @param value The value or {@code null}.
+     * @throws IOException If there was a problem encoding the value.
+     */
+    private void writeReference(final String value) throws IOException {
+        if (value == null) {
+            writeVarInt(BinaryFormat.NULL_REFERENCE);
+        } else {
+            final Integer index = dictionary.get(value);
+            if (index == null) {
+                dictionary.put(value, dictionary.size());
+                writeVarInt(BinaryFormat.NEW_REFERENCE);
+                writeString(value);
+            } else {
+                writeVarInt(BinaryFormat.FIRST_REFERENCE + index);
+            }
+        }
+    }
+
+    /**
+     * Write a length prefixed UTF-8 string to the current block.
+     *
+     * @param value The string.
+     * @throws IOException If there was a problem encoding the string.
+     */
+    private void writeString(final String value) throws IOException {
+        final byte[] bytes = value.getBytes("UTF-8");
+        writeVarInt(bytes.length);
+        block.write(bytes);
+    }
+
+    /**
+     * Write an unsigned variable length integer to the current block using 7 bits per byte.
+     *
+     * @param value The non-negative integer.
+     */
+    private void writeVarInt(final int value) {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            block.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        block.write(remaining);
+    }
+}
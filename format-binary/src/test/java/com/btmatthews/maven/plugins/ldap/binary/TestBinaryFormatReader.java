@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.binary;
+
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit test the {@link BinaryFormatReader}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestBinaryFormatReader {
+
+    /**
+     * Verify that an empty input stream is treated as having no directory entries.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void canReadEmptyStream() throws Exception {
+        final FormatReader reader = new BinaryFormatReader(new ByteArrayInputStream(new byte[0]));
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+
+    /**
+     * Verify that input streams that are not binary snapshots are rejected.
+     *
+     * @throws Exception Expecting an {@link IOException} all other exceptions are unexpected.
+     */
+    @Test(expected = IOException.class)
+    public void rejectsOtherFormats() throws Exception {
+        final byte[] ldif = "dn: dc=btmatthews,dc=com\n".getBytes("UTF-8");
+        final FormatReader reader = new BinaryFormatReader(new ByteArrayInputStream(ldif));
+        reader.nextRecord();
+    }
+
+    /**
+     * Verify that a corrupt block is reported when it is decoded by a decoder thread.
+     *
+     * @throws Exception Expecting an {@link IOException} all other exceptions are unexpected.
+     */
+    @Test(expected = IOException.class)
+    public void rejectsCorruptBlock() throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.write(BinaryFormat.MAGIC);
+        dataOutputStream.writeInt(BinaryFormat.VERSION);
+        dataOutputStream.writeInt(3);
+        dataOutputStream.writeInt(1);
+        dataOutputStream.write(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+        dataOutputStream.writeInt(0);
+        final FormatReader reader = new BinaryFormatReader(new ByteArrayInputStream(outputStream.toByteArray()), 2);
+        try {
+            reader.nextRecord();
+        } finally {
+            reader.close();
+        }
+    }
+}
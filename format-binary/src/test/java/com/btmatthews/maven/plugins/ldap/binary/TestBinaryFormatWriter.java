@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.binary;
+
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+import com.unboundid.ldap.sdk.ChangeType;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.createEntry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test the {@link BinaryFormatWriter}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestBinaryFormatWriter {
+
+    /**
+     * Verify that an empty snapshot can be written and read back.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void writeEmptySnapshot() throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final FormatWriter writer = new BinaryFormatWriter(outputStream);
+        writer.close();
+        final FormatReader reader = new BinaryFormatReader(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+
+    /**
+     * Verify that directory entries spread across several blocks are read back in the same order using a single
+     * thread.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void roundTripSingleThreaded() throws Exception {
+        roundTrip(0);
+    }
+
+    /**
+     * Verify that directory entries spread across several blocks are read back in the same order when the blocks
+     * are decoded in parallel.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void roundTripMultiThreaded() throws Exception {
+        roundTrip(4);
+    }
+
+    /**
+     * Verify that the block index at the end of the file locates each block.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void writesBlockIndex() throws Exception {
+        final byte[] snapshot = write(createEntries(25), 10);
+        final DataInputStream trailer = new DataInputStream(
+                new ByteArrayInputStream(snapshot, snapshot.length - 8, 8));
+        final int indexOffset = (int) trailer.readLong();
+        final DataInputStream index = new DataInputStream(
+                new ByteArrayInputStream(snapshot, indexOffset, snapshot.length - indexOffset));
+        assertEquals(3, index.readInt());
+        final int[] expectedCounts = {10, 10, 5};
+        for (final int expectedCount : expectedCounts) {
+            final int blockOffset = (int) index.readLong();
+            assertEquals(expectedCount, index.readInt());
+            final DataInputStream block = new DataInputStream(
+                    new ByteArrayInputStream(snapshot, blockOffset, snapshot.length - blockOffset));
+            assertTrue(block.readInt() > 0);
+            assertEquals(expectedCount, block.readInt());
+        }
+    }
+
+    /**
+     * Write the directory entries using small blocks and verify that they are read back unchanged.
+     *
+     * @param decoderThreads The number of threads used to decode the blocks.
+     * @throws Exception If there was an error in the test case.
+     */
+    private void roundTrip(final int decoderThreads) throws Exception {
+        final List<Entry> entries = createEntries(250);
+        final byte[] snapshot = write(entries, 16);
+        final FormatReader reader = new BinaryFormatReader(new ByteArrayInputStream(snapshot), decoderThreads);
+        try {
+            for (final Entry entry : entries) {
+                final LDIFChangeRecord record = reader.nextRecord();
+                assertEquals(ChangeType.ADD, record.getChangeType());
+                assertEquals(entry, ((LDIFAddChangeRecord) record).getEntryToAdd());
+            }
+            assertNull(reader.nextRecord());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Write directory entries to a binary snapshot.
+     *
+     * @param entries   The directory entries.
+     * @param blockSize The number of directory entries in each block.
+     * @return The binary snapshot.
+     * @throws Exception If there was an error writing the snapshot.
+     */
+    private byte[] write(final List<Entry> entries, final int blockSize) throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final FormatWriter writer = new BinaryFormatWriter(outputStream, blockSize);
+        for (final Entry entry : entries) {
+            writer.printEntry(entry);
+        }
+        writer.close();
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Create a list of directory entries that includes the base entry, an organizational unit and people.
+     *
+     * @param count The number of directory entries.
+     * @return The directory entries.
+     */
+    private List<Entry> createEntries(final int count) {
+        final List<Entry> entries = new ArrayList<Entry>(count);
+        entries.add(createEntry("dc=btmatthews,dc=com", "objectclass", "domain", "dc", "btmatthews"));
+        entries.add(createEntry("ou=People,dc=btmatthews,dc=com", "objectclass", "organizationalUnit", "ou", "People"));
+        for (int i = 2; i < count; i++) {
+            final Entry entry = createEntry("uid=user" + i + ",ou=People,dc=btmatthews,dc=com",
+                    "objectclass", "inetOrgPerson",
+                    "uid", "user" + i,
+                    "cn", "User " + i,
+                    "sn", "User");
+            entry.addAttribute("objectclass", "person");
+            entry.addAttribute("userPassword", new byte[]{(byte) i, 0, (byte) 0xFF});
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
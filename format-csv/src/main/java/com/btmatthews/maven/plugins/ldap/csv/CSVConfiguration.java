@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Describes how the rows of a CSV file are mapped onto LDAP directory entries. The first row of the file names the
+ * columns. By default each column is loaded into the attribute with the same name, columns can be mapped onto a
+ * different attribute or ignored by mapping them onto an empty attribute name. The distinguished name of each entry
+ * is built from a template where column names in braces, for example {@code uid={uid},ou=People,dc=btmatthews,dc=com},
+ * are replaced by the escaped column value. If there is no template the distinguished name is taken from the
+ * {@code dn} column.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class CSVConfiguration {
+
+    /**
+     * The name of the column that holds the distinguished name when there is no template.
+     */
+    public static final String DN_COLUMN = "dn";
+    /**
+     * The template used to build the distinguished name or {@code null} if it is taken from the {@link #DN_COLUMN}.
+     */
+    private String dnTemplate;
+    /**
+     * The character that separates the columns.
+     */
+    private char separator = ',';
+    /**
+     * The character used to quote values that contain separators, quotes or line breaks.
+     */
+    private char quote = '"';
+    /**
+     * The string that separates the values of multi-valued columns or {@code null} if there are none.
+     */
+    private String multiValueDelimiter;
+    /**
+     * The names of the columns that hold multiple values. If empty and {@link #multiValueDelimiter} is set then all
+     * columns can hold multiple values.
+     */
+    private final Set<String> multiValuedColumns = new HashSet<String>();
+    /**
+     * The object classes added to every entry.
+     */
+    private final List<String> objectClasses = new ArrayList<String>();
+    /**
+     * Maps column names onto attribute names.
+     */
+    private final Map<String, String> columnMappings = new HashMap<String, String>();
+
+    /**
+     * Get the template used to build the distinguished name.
+     *
+     * @return The template or {@code null} if the distinguished name is taken from the {@link #DN_COLUMN}.
+     */
+    public String getDnTemplate() {
+        return dnTemplate;
+    }
+
+    /**
+     * Set the template used to build the distinguished name.
+     *
+     * @param dnTemplate The template or {@code null} if the distinguished name is taken from the {@link #DN_COLUMN}.
+     */
+    public void setDnTemplate(final String dnTemplate) {
+        this.dnTemplate = dnTemplate;
+    }
+
+    /**
+     * Get the character that separates the columns.
+     *
+     * @return The separator.
+     */
+    public char getSeparator() {
+        return separator;
+    }
+
+    /**
+     * Set the character that separates the columns. The default is a comma.
+     *
+     * @param separator The separator.
+     */
+    public void setSeparator(final char separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * Get the character used to quote values.
+     *
+     * @return The quote character.
+     */
+    public char getQuote() {
+        return quote;
+    }
+
+    /**
+     * Set the character used to quote values. The default is a double quote.
+     *
+     * @param quote The quote character.
+     */
+    public void setQuote(final char quote) {
+        this.quote = quote;
+    }
+
+    /**
+     * Get the string that separates the values of multi-valued columns.
+     *
+     * @return The delimiter or {@code null} if there are no multi-valued columns.
+     */
+    public String getMultiValueDelimiter() {
+        return multiValueDelimiter;
+    }
+
+    /**
+     * Set the string that separates the values of multi-valued columns.
+     *
+     * @param multiValueDelimiter The delimiter or {@code null} if there are no multi-valued columns.
+     */
+    public void setMultiValueDelimiter(final String multiValueDelimiter) {
+        this.multiValueDelimiter = multiValueDelimiter;
+    }
+
+    /**
+     * Add a column that holds multiple values. If no columns are added and the delimiter is set then all columns can
+     * hold multiple values.
+     *
+     * @param column The column name.
+     */
+    public void addMultiValuedColumn(final String column) {
+        multiValuedColumns.add(column);
+    }
+
+    /**
+     * Determine if a column can hold multiple values.
+     *
+     * @param column The column name.
+     * @return {@code true} if the column can hold multiple values.
+     */
+    public boolean isMultiValued(final String column) {
+        return multiValueDelimiter != null && (multiValuedColumns.isEmpty() || multiValuedColumns.contains(column));
+    }
+
+    /**
+     * Add an object class that will be added to every entry.
+     *
+     * @param objectClass The object class.
+     */
+    public void addObjectClass(final String objectClass) {
+        objectClasses.add(objectClass);
+    }
+
+    /**
+     * Get the object classes that are added to every entry.
+     *
+     * @return The object classes.
+     */
+    public List<String> getObjectClasses() {
+        return Collections.unmodifiableList(objectClasses);
+    }
+
+    /**
+     * Map a column onto an attribute.
+     *
+     * @param column    The column name.
+     * @param attribute The attribute name or an empty string if the column should be ignored.
+     */
+    public void mapColumn(final String column, final String attribute) {
+        columnMappings.put(column, attribute);
+    }
+
+    /**
+     * Get the attribute that a column is mapped onto.
+     *
+     * @param column The column name.
+     * @return The attribute name or {@code null} if the column is ignored.
+     */
+    public String getAttribute(final String column) {
+        final String attribute = columnMappings.get(column);
+        if (attribute == null) {
+            return column;
+        } else if (attribute.length() == 0) {
+            return null;
+        } else {
+            return attribute;
+        }
+    }
+}
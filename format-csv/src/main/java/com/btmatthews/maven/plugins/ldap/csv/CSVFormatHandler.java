@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.csv;
+
+import com.btmatthews.maven.plugins.ldap.AbstractFormatHandler;
+import com.btmatthews.maven.plugins.ldap.FormatLogger;
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * This {@link com.btmatthews.maven.plugins.ldap.FormatHandler} is used to load data from CSV files. Dumping to CSV
+ * is not supported.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class CSVFormatHandler extends AbstractFormatHandler {
+
+    /**
+     * Describes how rows are mapped onto directory entries.
+     */
+    private final CSVConfiguration configuration;
+    /**
+     * The number of threads used to parse rows when loading.
+     */
+    private final int parserThreads;
+
+    /**
+     * Initialise the handler with the default configuration which takes the distinguished name from the {@code dn}
+     * column. One parser thread is used for each available processor when there is more than one.
+     */
+    public CSVFormatHandler() {
+        this(new CSVConfiguration());
+    }
+
+    /**
+     * Initialise the handler so that one parser thread is used for each available processor when there is more
+     * than one.
+     *
+     * @param configuration Describes how rows are mapped onto directory entries.
+     */
+    public CSVFormatHandler(final CSVConfiguration configuration) {
+        this(configuration,
+                Runtime.getRuntime().availableProcessors() > 1 ? Runtime.getRuntime().availableProcessors() : 0);
+    }
+
+    /**
+     * Initialise the handler.
+     *
+     * @param configuration Describes how rows are mapped onto directory entries.
+     * @param parserThreads The number of threads used to parse rows when loading. If zero the rows are parsed by the
+     *                      thread that loads the directory entries.
+     */
+    public CSVFormatHandler(final CSVConfiguration configuration,
+                            final int parserThreads) {
+        this.configuration = configuration;
+        this.parserThreads = parserThreads;
+    }
+
+    /**
+     * Dumping to CSV is not supported so an error is logged.
+     *
+     * @param outputStream The target output stream.
+     * @param logger       Used to log information or error messages.
+     * @return Always returns {@code null}.
+     */
+    @Override
+    public FormatWriter createWriter(final OutputStream outputStream,
+                                     final FormatLogger logger) {
+        logger.logError("Dumping to CSV is not supported");
+        return null;
+    }
+
+    /**
+     * Create {@link CSVFormatReader} that reads change records from the source input stream.
+     *
+     * @param inputStream The source input stream.
+     * @param logger      Used to log information or error messages.
+     * @return A {@link CSVFormatReader} object.
+     */
+    @Override
+    protected FormatReader openReader(final InputStream inputStream,
+                                      final FormatLogger logger) {
+        return new CSVFormatReader(inputStream, configuration, parserThreads);
+    }
+}
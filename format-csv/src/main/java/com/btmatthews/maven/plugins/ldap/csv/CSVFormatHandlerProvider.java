@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.csv;
+
+import com.btmatthews.maven.plugins.ldap.AbstractFormatHandlerProvider;
+import com.btmatthews.maven.plugins.ldap.FormatHandler;
+
+import java.util.Properties;
+
+/**
+ * Makes the CSV format handler available to {@link com.btmatthews.maven.plugins.ldap.FormatHandlerRegistry}. CSV
+ * files cannot be reliably recognised from their content so they are only detected by their file extension.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class CSVFormatHandlerProvider extends AbstractFormatHandlerProvider {
+
+    /**
+     * The configuration key for the distinguished name template.
+     */
+    public static final String DN_TEMPLATE = "dnTemplate";
+    /**
+     * The configuration key for the column separator.
+     */
+    public static final String SEPARATOR = "separator";
+    /**
+     * The configuration key for the quote character.
+     */
+    public static final String QUOTE = "quote";
+    /**
+     * The configuration key for the string that separates the values of multi-valued columns.
+     */
+    public static final String MULTI_VALUE_DELIMITER = "multiValueDelimiter";
+    /**
+     * The configuration key for the comma separated list of multi-valued columns.
+     */
+    public static final String MULTI_VALUED_COLUMNS = "multiValuedColumns";
+    /**
+     * The configuration key for the comma separated list of object classes added to every entry.
+     */
+    public static final String OBJECT_CLASSES = "objectClasses";
+    /**
+     * The configuration key for the number of parser threads.
+     */
+    public static final String THREADS = "threads";
+    /**
+     * The prefix of the configuration keys that map a column onto an attribute.
+     */
+    public static final String COLUMN_PREFIX = "column.";
+
+    /**
+     * Initialise the provider with the format name and file extensions.
+     */
+    public CSVFormatHandlerProvider() {
+        super("csv", ".csv");
+    }
+
+    /**
+     * CSV files are not recognised by their content.
+     *
+     * @param header The leading bytes of the file.
+     * @param length The number of valid bytes in {@code header}.
+     * @return Always returns {@code false}.
+     */
+    public boolean acceptsContent(final byte[] header, final int length) {
+        return false;
+    }
+
+    /**
+     * Create the CSV format handler with the default configuration which takes the distinguished name from the
+     * {@code dn} column.
+     *
+     * @return The format handler.
+     */
+    public FormatHandler createHandler() {
+        return new CSVFormatHandler();
+    }
+
+    /**
+     * Create the CSV format handler with a configuration built from the {@link #DN_TEMPLATE}, {@link #SEPARATOR},
+     * {@link #QUOTE}, {@link #MULTI_VALUE_DELIMITER}, {@link #MULTI_VALUED_COLUMNS}, {@link #OBJECT_CLASSES},
+     * {@link #THREADS} and {@link #COLUMN_PREFIX} keys.
+     *
+     * @param configuration The configuration properties.
+     * @return The format handler.
+     */
+    @Override
+    public FormatHandler createHandler(final Properties configuration) {
+        final CSVConfiguration csvConfiguration = new CSVConfiguration();
+        csvConfiguration.setDnTemplate(configuration.getProperty(DN_TEMPLATE));
+        final String separator = configuration.getProperty(SEPARATOR);
+        if (separator != null && separator.length() > 0) {
+            csvConfiguration.setSeparator(separator.equals("\\t") ? '\t' : separator.charAt(0));
+        }
+        final String quote = configuration.getProperty(QUOTE);
+        if (quote != null && quote.length() > 0) {
+            csvConfiguration.setQuote(quote.charAt(0));
+        }
+        csvConfiguration.setMultiValueDelimiter(configuration.getProperty(MULTI_VALUE_DELIMITER));
+        for (final String column : splitList(configuration.getProperty(MULTI_VALUED_COLUMNS))) {
+            csvConfiguration.addMultiValuedColumn(column);
+        }
+        for (final String objectClass : splitList(configuration.getProperty(OBJECT_CLASSES))) {
+            csvConfiguration.addObjectClass(objectClass);
+        }
+        for (final String key : configuration.stringPropertyNames()) {
+            if (key.startsWith(COLUMN_PREFIX)) {
+                csvConfiguration.mapColumn(key.substring(COLUMN_PREFIX.length()), configuration.getProperty(key));
+            }
+        }
+        final String threads = configuration.getProperty(THREADS);
+        if (threads == null) {
+            return new CSVFormatHandler(csvConfiguration);
+        } else {
+            return new CSVFormatHandler(csvConfiguration, Integer.parseInt(threads));
+        }
+    }
+
+    /**
+     * Split a comma separated list ignoring empty items.
+     *
+     * @param list The list or {@code null}.
+     * @return The items.
+     */
+    private static String[] splitList(final String list) {
+        if (list == null || list.trim().length() == 0) {
+            return new String[0];
+        }
+        return list.trim().split("\\s*,\\s*");
+    }
+}
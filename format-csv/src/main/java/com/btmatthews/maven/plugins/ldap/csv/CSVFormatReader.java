@@ -0,0 +1,335 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.csv;
+
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.btmatthews.maven.plugins.ldap.ParserPool;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * This {@link FormatReader} reads rows from a CSV file and maps them onto add change records as described by a
+ * {@link CSVConfiguration}. The first row names the columns. Records are read sequentially, keeping quoted values
+ * that span several lines together, and grouped into batches that can be parsed and mapped by a pool of threads. The
+ * change records are returned in the order the rows appear in the file.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class CSVFormatReader implements FormatReader {
+
+    /**
+     * The number of rows in each batch.
+     */
+    private static final int BATCH_SIZE = 256;
+    /**
+     * Describes how rows are mapped onto directory entries.
+     */
+    private final CSVConfiguration configuration;
+    /**
+     * Reads lines from the underlying input stream.
+     */
+    private final BufferedReader reader;
+    /**
+     * Parses the batches in the order they were read.
+     */
+    private final ParserPool<ParsedRow> parsers;
+    /**
+     * Maps rows onto change records or {@code null} if the header row has not been read yet.
+     */
+    private CSVRowMapper mapper;
+    /**
+     * The remaining parsed rows in the current batch.
+     */
+    private Iterator<ParsedRow> parsedRows;
+    /**
+     * The number of the last line read from the input stream.
+     */
+    private long lineNumber;
+    /**
+     * The line number at which the last record read from the input stream started.
+     */
+    private long recordLineNumber;
+    /**
+     * Indicates if the end of the input stream has been reached.
+     */
+    private boolean finished;
+
+    /**
+     * Initialize the {@link CSVFormatReader} so that rows are parsed by the calling thread.
+     *
+     * @param inputStream   The underlying input stream.
+     * @param configuration Describes how rows are mapped onto directory entries.
+     */
+    public CSVFormatReader(final InputStream inputStream,
+                           final CSVConfiguration configuration) {
+        this(inputStream, configuration, 0);
+    }
+
+    /**
+     * Initialize the {@link CSVFormatReader} creating a pool of threads to parse the rows.
+     *
+     * @param inputStream   The underlying input stream.
+     * @param configuration Describes how rows are mapped onto directory entries.
+     * @param parserThreads The number of threads used to parse rows. If zero the rows are parsed by the calling
+     *                      thread.
+     */
+    public CSVFormatReader(final InputStream inputStream,
+                           final CSVConfiguration configuration,
+                           final int parserThreads) {
+        this.configuration = configuration;
+        try {
+            reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+        parsers = new ParserPool<ParsedRow>("ldap-csv-parser", "parsing CSV", parserThreads);
+    }
+
+    /**
+     * Read the next change record from the underlying input stream. The header row is read the first time this
+     * method is called.
+     *
+     * @return The next change record or {@code null} if the end of the input stream has been reached.
+     * @throws IOException   If there was an error reading from the input stream.
+     * @throws LDIFException If the header row is invalid or a row could not be mapped onto a change record.
+     */
+    public LDIFChangeRecord nextRecord() throws IOException, LDIFException {
+        if (mapper == null && (finished || !readHeader())) {
+            return null;
+        }
+        while (parsedRows == null || !parsedRows.hasNext()) {
+            while (!finished && !parsers.isFull()) {
+                readBatch();
+            }
+            if (parsers.isEmpty()) {
+                return null;
+            }
+            parsedRows = parsers.next().iterator();
+        }
+        final ParsedRow parsedRow = parsedRows.next();
+        if (parsedRow.error != null) {
+            throw parsedRow.error;
+        }
+        return parsedRow.record;
+    }
+
+    /**
+     * Close the reader stopping the parser threads. The underlying input stream is not closed.
+     */
+    public void close() {
+        parsers.close();
+    }
+
+    /**
+     * Read the header row and create the mapper.
+     *
+     * @return {@code true} if the header row was read or {@code false} if the input stream is empty.
+     * @throws IOException   If there was an error reading from the input stream.
+     * @throws LDIFException If the header row is invalid. No further rows will be read.
+     */
+    private boolean readHeader() throws IOException, LDIFException {
+        String record = readRecord();
+        if (record == null) {
+            finished = true;
+            return false;
+        }
+        if (record.length() > 0 && record.charAt(0) == '\uFEFF') {
+            record = record.substring(1);
+        }
+        try {
+            final List<String> header = CSVRowMapper.split(record, configuration.getSeparator(),
+                    configuration.getQuote(), recordLineNumber);
+            mapper = new CSVRowMapper(configuration, header, recordLineNumber);
+            return true;
+        } catch (final LDIFException e) {
+            finished = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next batch of records and queue it for parsing.
+     *
+     * @throws IOException If there was an error reading from the input stream.
+     */
+    private void readBatch() throws IOException {
+        final List<String> records = new ArrayList<String>(BATCH_SIZE);
+        final List<Long> lineNumbers = new ArrayList<Long>(BATCH_SIZE);
+        while (records.size() < BATCH_SIZE) {
+            final String record = readRecord();
+            if (record == null) {
+                finished = true;
+                break;
+            }
+            records.add(record);
+            lineNumbers.add(recordLineNumber);
+        }
+        if (!records.isEmpty()) {
+            parsers.submit(new Batch(mapper, configuration, records, lineNumbers));
+        }
+    }
+
+    /**
+     * Read the next record skipping blank lines. A record continues onto the following line while it contains an
+     * unbalanced quote.
+     *
+     * @return The record or {@code null} if the end of the input stream has been reached.
+     * @throws IOException If there was an error reading from the input stream.
+     */
+    private String readRecord() throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.trim().length() == 0) {
+            lineNumber++;
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+        lineNumber++;
+        recordLineNumber = lineNumber;
+        int quotes = countQuotes(line);
+        if (quotes % 2 == 0) {
+            return line;
+        }
+        final StringBuilder record = new StringBuilder(line);
+        while (quotes % 2 != 0) {
+            line = reader.readLine();
+            if (line == null) {
+                break;
+            }
+            lineNumber++;
+            record.append('\n').append(line);
+            quotes += countQuotes(line);
+        }
+        return record.toString();
+    }
+
+    /**
+     * Count the quote characters in a line.
+     *
+     * @param line The line.
+     * @return The number of quote characters.
+     */
+    private int countQuotes(final String line) {
+        final char quote = configuration.getQuote();
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == quote) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The result of parsing a row which is either a change record or the error that prevented it being mapped.
+     */
+    private static final class ParsedRow {
+
+        /**
+         * The change record or {@code null} if the row could not be mapped.
+         */
+        private final LDIFChangeRecord record;
+        /**
+         * The error or {@code null} if the row was mapped.
+         */
+        private final LDIFException error;
+
+        /**
+         * Initialise the result.
+         *
+         * @param record The change record.
+         * @param error  The error.
+         */
+        ParsedRow(final LDIFChangeRecord record, final LDIFException error) {
+            this.record = record;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Parses a batch of records.
+     */
+    private static final class Batch implements Callable<List<ParsedRow>> {
+
+        /**
+         * Maps rows onto change records.
+         */
+        private final CSVRowMapper mapper;
+        /**
+         * Provides the separator and quote characters.
+         */
+        private final CSVConfiguration configuration;
+        /**
+         * The records.
+         */
+        private final List<String> records;
+        /**
+         * The line numbers used when reporting errors.
+         */
+        private final List<Long> lineNumbers;
+
+        /**
+         * Initialise the batch.
+         *
+         * @param mapper        Maps rows onto change records.
+         * @param configuration Provides the separator and quote characters.
+         * @param records       The records.
+         * @param lineNumbers   The line numbers.
+         */
+        Batch(final CSVRowMapper mapper,
+              final CSVConfiguration configuration,
+              final List<String> records,
+              final List<Long> lineNumbers) {
+            this.mapper = mapper;
+            this.configuration = configuration;
+            this.records = records;
+            this.lineNumbers = lineNumbers;
+        }
+
+        /**
+         * Parse and map each record in the batch.
+         *
+         * @return The parsed rows in the same order.
+         */
+        public List<ParsedRow> call() {
+            final List<ParsedRow> result = new ArrayList<ParsedRow>(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                final long recordLineNumber = lineNumbers.get(i);
+                try {
+                    final List<String> row = CSVRowMapper.split(records.get(i), configuration.getSeparator(),
+                            configuration.getQuote(), recordLineNumber);
+                    result.add(new ParsedRow(mapper.map(row, recordLineNumber), null));
+                } catch (final LDIFException e) {
+                    result.add(new ParsedRow(null, e));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.csv;
+
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the rows of a CSV file onto add change records. The mapper is created from the header row and is immutable so
+ * it can be shared by several parser threads.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class CSVRowMapper {
+
+    /**
+     * The configuration.
+     */
+    private final CSVConfiguration configuration;
+    /**
+     * The number of columns in the header row.
+     */
+    private final int columnCount;
+    /**
+     * The attribute name for each column or {@code null} if the column is ignored.
+     */
+    private final String[] attributes;
+    /**
+     * Indicates which columns can hold multiple values.
+     */
+    private final boolean[] multiValued;
+    /**
+     * The literal text of the distinguished name template. There is one more literal than there are column
+     * references.
+     */
+    private final List<String> dnLiterals = new ArrayList<String>();
+    /**
+     * The columns referenced by the distinguished name template.
+     */
+    private final List<Integer> dnColumns = new ArrayList<Integer>();
+
+    /**
+     * Create the mapper from the header row.
+     *
+     * @param configuration The configuration.
+     * @param header        The column names.
+     * @param lineNumber    The line number of the header row.
+     * @throws LDIFException If the distinguished name template refers to a column that does not exist or there is no
+     *                       template and no {@code dn} column.
+     */
+    CSVRowMapper(final CSVConfiguration configuration,
+                 final List<String> header,
+                 final long lineNumber)
+            throws LDIFException {
+        this.configuration = configuration;
+        this.columnCount = header.size();
+        this.attributes = new String[columnCount];
+        this.multiValued = new boolean[columnCount];
+        final String dnTemplate = configuration.getDnTemplate();
+        for (int i = 0; i < columnCount; i++) {
+            final String column = header.get(i).trim();
+            if (dnTemplate == null && dnColumns.isEmpty() && column.equalsIgnoreCase(CSVConfiguration.DN_COLUMN)) {
+                dnLiterals.add("");
+                dnColumns.add(i);
+                dnLiterals.add("");
+            } else {
+                attributes[i] = configuration.getAttribute(column);
+                multiValued[i] = configuration.isMultiValued(column);
+            }
+        }
+        if (dnTemplate == null) {
+            if (dnColumns.isEmpty()) {
+                throw new LDIFException("There is no DN template and no " + CSVConfiguration.DN_COLUMN + " column",
+                        lineNumber, false);
+            }
+        } else {
+            parseTemplate(dnTemplate, header, lineNumber);
+        }
+    }
+
+    /**
+     * Map a row onto an add change record.
+     *
+     * @param row        The column values.
+     * @param lineNumber The line number of the row used when reporting errors.
+     * @return The add change record.
+     * @throws LDIFException If the row does not have the expected number of columns or the distinguished name could
+     *                       not be built.
+     */
+    LDIFChangeRecord map(final List<String> row,
+                         final long lineNumber)
+            throws LDIFException {
+        if (row.size() != columnCount) {
+            throw new LDIFException("Expected " + columnCount + " columns but found " + row.size(), lineNumber, true);
+        }
+        final StringBuilder dn = new StringBuilder(dnLiterals.get(0));
+        for (int i = 0; i < dnColumns.size(); i++) {
+            final String value = row.get(dnColumns.get(i));
+            if (value.length() == 0) {
+                throw new LDIFException("The DN refers to an empty column", lineNumber, true);
+            }
+            if (configuration.getDnTemplate() == null) {
+                dn.append(value);
+            } else {
+                escapeDNValue(value, dn);
+            }
+            dn.append(dnLiterals.get(i + 1));
+        }
+        final Map<String, List<String>> values = new LinkedHashMap<String, List<String>>();
+        for (final String objectClass : configuration.getObjectClasses()) {
+            addValue(values, "objectClass", objectClass);
+        }
+        for (int i = 0; i < columnCount; i++) {
+            final String value = row.get(i);
+            if (attributes[i] != null && value.length() > 0) {
+                if (multiValued[i]) {
+                    addValues(values, attributes[i], value, configuration.getMultiValueDelimiter());
+                } else {
+                    addValue(values, attributes[i], value);
+                }
+            }
+        }
+        final List<Attribute> attributeList = new ArrayList<Attribute>(values.size());
+        for (final List<String> attributeValues : values.values()) {
+            final String name = attributeValues.remove(0);
+            attributeList.add(new Attribute(name, attributeValues));
+        }
+        return new LDIFAddChangeRecord(dn.toString(), attributeList);
+    }
+
+    /**
+     * Split a CSV record into its column values. Values can be enclosed in quotes in which case they may contain
+     * separators and line breaks and a quote is represented by two quotes.
+     *
+     * @param record     The record.
+     * @param separator  The character that separates the columns.
+     * @param quote      The quote character.
+     * @param lineNumber The line number of the record used when reporting errors.
+     * @return The column values.
+     * @throws LDIFException If a quoted value is not terminated or is followed by something other than a separator.
+     */
+    static List<String> split(final String record,
+                              final char separator,
+                              final char quote,
+                              final long lineNumber)
+            throws LDIFException {
+        final List<String> values = new ArrayList<String>();
+        final int length = record.length();
+        int index = 0;
+        while (true) {
+            if (index < length && record.charAt(index) == quote) {
+                final StringBuilder value = new StringBuilder();
+                index++;
+                while (true) {
+                    if (index >= length) {
+                        throw new LDIFException("Unterminated quoted value", lineNumber, true);
+                    }
+                    final char ch = record.charAt(index++);
+                    if (ch != quote) {
+                        value.append(ch);
+                    } else if (index < length && record.charAt(index) == quote) {
+                        value.append(quote);
+                        index++;
+                    } else {
+                        break;
+                    }
+                }
+                values.add(value.toString());
+                if (index < length && record.charAt(index) != separator) {
+                    throw new LDIFException("Expected a separator after a quoted value", lineNumber, true);
+                }
+            } else {
+                int end = record.indexOf(separator, index);
+                if (end < 0) {
+                    end = length;
+                }
+                values.add(record.substring(index, end));
+                index = end;
+            }
+            if (index >= length) {
+                return values;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Parse the distinguished name template into literal text and column references.
+     *
+     * @param dnTemplate The template.
+     * @param header     The column names.
+     * @param lineNumber The line number of the header row.
+     * @throws LDIFException If the template refers to a column that does not exist or a reference is not terminated.
+     */
+    private void parseTemplate(final String dnTemplate,
+                               final List<String> header,
+                               final long lineNumber)
+            throws LDIFException {
+        int index = 0;
+        int start = dnTemplate.indexOf('{');
+        while (start >= 0) {
+            final int end = dnTemplate.indexOf('}', start);
+            if (end < 0) {
+                throw new LDIFException("Unterminated column reference in DN template: " + dnTemplate,
+                        lineNumber, false);
+            }
+            final String column = dnTemplate.substring(start + 1, end);
+            int columnIndex = -1;
+            for (int i = 0; i < header.size() && columnIndex < 0; i++) {
+                if (header.get(i).trim().equals(column)) {
+                    columnIndex = i;
+                }
+            }
+            if (columnIndex < 0) {
+                throw new LDIFException("DN template refers to an unknown column: " + column, lineNumber, false);
+            }
+            dnLiterals.add(dnTemplate.substring(index, start));
+            dnColumns.add(columnIndex);
+            index = end + 1;
+            start = dnTemplate.indexOf('{', index);
+        }
+        dnLiterals.add(dnTemplate.substring(index));
+    }
+
+    /**
+     * Escape a value so it can be used as an attribute value in a distinguished name as described by RFC 4514.
+     *
+     * @param value  The value.
+     * @param buffer The buffer to which the escaped value is appended.
+     */
+    private static void escapeDNValue(final String value, final StringBuilder buffer) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char ch = value.charAt(i);
+            switch (ch) {
+                case '\\':
+                case ',':
+                case '+':
+                case '"':
+                case '<':
+                case '>':
+                case ';':
+                case '=':
+                    buffer.append('\\').append(ch);
+                    break;
+                case '#':
+                    if (i == 0) {
+                        buffer.append('\\');
+                    }
+                    buffer.append(ch);
+                    break;
+                case ' ':
+                    if (i == 0 || i == length - 1) {
+                        buffer.append('\\');
+                    }
+                    buffer.append(ch);
+                    break;
+                default:
+                    buffer.append(ch);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Add the values of a multi-valued column to an attribute.
+     *
+     * @param values    The attribute values keyed by the lower case attribute name.
+     * @param name      The attribute name.
+     * @param value     The column value.
+     * @param delimiter The string that separates the values.
+     */
+    private static void addValues(final Map<String, List<String>> values,
+                                  final String name,
+                                  final String value,
+                                  final String delimiter) {
+        int start = 0;
+        int end = value.indexOf(delimiter);
+        while (end >= 0) {
+            addValue(values, name, value.substring(start, end));
+            start = end + delimiter.length();
+            end = value.indexOf(delimiter, start);
+        }
+        addValue(values, name, value.substring(start));
+    }
+
+    /**
+     * Add a value to an attribute ignoring empty values. The first element of each list is the attribute name as it
+     * was first seen.
+     *
+     * @param values The attribute values keyed by the lower case attribute name.
+     * @param name   The attribute name.
+     * @param value  The value.
+     */
+    private static void addValue(final Map<String, List<String>> values,
+                                 final String name,
+                                 final String value) {
+        if (value.length() > 0) {
+            final String key = name.toLowerCase();
+            List<String> list = values.get(key);
+            if (list == null) {
+                list = new ArrayList<String>();
+                list.add(name);
+                values.put(key, list);
+            }
+            list.add(value);
+        }
+    }
+}
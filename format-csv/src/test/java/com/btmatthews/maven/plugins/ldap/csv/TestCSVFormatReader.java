@@ -0,0 +1,223 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.csv;
+
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test the {@link CSVFormatReader}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestCSVFormatReader {
+
+    /**
+     * Verify that an empty file yields no change records.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void canReadEmptyFile() throws Exception {
+        final FormatReader reader = createReader("", new CSVConfiguration(), 0);
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+
+    /**
+     * Verify that the distinguished name is taken from the {@code dn} column when there is no template and that
+     * empty values are skipped.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void takesDNFromColumn() throws Exception {
+        final FormatReader reader = createReader(
+                "dn,objectClass,ou,description\n"
+                        + "ou=People,dc=btmatthews,dc=com,organizationalUnit,People,\n",
+                new CSVConfiguration(), 0);
+        try {
+            reader.nextRecord();
+            fail("Expected the unquoted DN to be split into several columns");
+        } catch (final LDIFException e) {
+            assertTrue(e.mayContinueReading());
+        }
+        reader.close();
+        final FormatReader quotedReader = createReader(
+                "dn,objectClass,ou,description\n"
+                        + "\"ou=People,dc=btmatthews,dc=com\",organizationalUnit,People,\n",
+                new CSVConfiguration(), 0);
+        final Entry entry = ((LDIFAddChangeRecord) quotedReader.nextRecord()).getEntryToAdd();
+        assertEquals("ou=People,dc=btmatthews,dc=com", entry.getDN());
+        assertEquals("organizationalUnit", entry.getAttributeValue("objectClass"));
+        assertEquals("People", entry.getAttributeValue("ou"));
+        assertFalse(entry.hasAttribute("description"));
+        assertNull(quotedReader.nextRecord());
+        quotedReader.close();
+    }
+
+    /**
+     * Verify that the distinguished name is built from the template, columns are mapped onto attributes, object
+     * classes are added and multi-valued columns are split.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void mapsColumnsAndBuildsDNFromTemplate() throws Exception {
+        final CSVConfiguration configuration = new CSVConfiguration();
+        configuration.setDnTemplate("cn={name},ou=People,dc=btmatthews,dc=com");
+        configuration.addObjectClass("inetOrgPerson");
+        configuration.mapColumn("name", "cn");
+        configuration.mapColumn("surname", "sn");
+        configuration.mapColumn("employee", "");
+        configuration.setMultiValueDelimiter(";");
+        configuration.addMultiValuedColumn("mail");
+        final FormatReader reader = createReader(
+                "name,surname,employee,mail,description\n"
+                        + "\"Simpson, Bart\",Simpson,12345,bart@btmatthews.com;elbarto@btmatthews.com,a;b\n",
+                configuration, 0);
+        final Entry entry = ((LDIFAddChangeRecord) reader.nextRecord()).getEntryToAdd();
+        assertEquals("cn=Simpson\\, Bart,ou=People,dc=btmatthews,dc=com", entry.getDN());
+        assertEquals("inetOrgPerson", entry.getAttributeValue("objectClass"));
+        assertEquals("Simpson, Bart", entry.getAttributeValue("cn"));
+        assertEquals("Simpson", entry.getAttributeValue("sn"));
+        assertFalse(entry.hasAttribute("employee"));
+        assertArrayEquals(new String[]{"bart@btmatthews.com", "elbarto@btmatthews.com"},
+                entry.getAttributeValues("mail"));
+        assertEquals("a;b", entry.getAttributeValue("description"));
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+
+    /**
+     * Verify that quoted values can contain quotes and line breaks.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void readsQuotedValuesSpanningLines() throws Exception {
+        final CSVConfiguration configuration = new CSVConfiguration();
+        configuration.setDnTemplate("uid={uid},ou=People,dc=btmatthews,dc=com");
+        final FormatReader reader = createReader(
+                "uid,description\n"
+                        + "bsimpson,\"Says \"\"Eat my shorts\"\"\nevery day\"\n"
+                        + "\n"
+                        + "lsimpson,Plays the saxophone\n",
+                configuration, 0);
+        final Entry first = ((LDIFAddChangeRecord) reader.nextRecord()).getEntryToAdd();
+        assertEquals("Says \"Eat my shorts\"\nevery day", first.getAttributeValue("description"));
+        final Entry second = ((LDIFAddChangeRecord) reader.nextRecord()).getEntryToAdd();
+        assertEquals("uid=lsimpson,ou=People,dc=btmatthews,dc=com", second.getDN());
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+
+    /**
+     * Verify that a row with the wrong number of columns is reported with its line number and reading can continue.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void reportsRowWithWrongNumberOfColumns() throws Exception {
+        final CSVConfiguration configuration = new CSVConfiguration();
+        configuration.setDnTemplate("uid={uid},ou=People,dc=btmatthews,dc=com");
+        final FormatReader reader = createReader("uid,sn\nbsimpson\nlsimpson,Simpson\n", configuration, 0);
+        try {
+            reader.nextRecord();
+            fail("Expected an LDIFException");
+        } catch (final LDIFException e) {
+            assertEquals(2, e.getLineNumber());
+            assertTrue(e.mayContinueReading());
+        }
+        assertEquals("uid=lsimpson,ou=People,dc=btmatthews,dc=com", reader.nextRecord().getDN());
+        reader.close();
+    }
+
+    /**
+     * Verify that a template that refers to an unknown column stops the reader.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void rejectsTemplateWithUnknownColumn() throws Exception {
+        final CSVConfiguration configuration = new CSVConfiguration();
+        configuration.setDnTemplate("uid={login},ou=People,dc=btmatthews,dc=com");
+        final FormatReader reader = createReader("uid,sn\nbsimpson,Simpson\n", configuration, 0);
+        try {
+            reader.nextRecord();
+            fail("Expected an LDIFException");
+        } catch (final LDIFException e) {
+            assertFalse(e.mayContinueReading());
+        }
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+
+    /**
+     * Verify that rows parsed by a pool of threads are returned in their original order.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void preservesOrderWhenParsingInParallel() throws Exception {
+        final CSVConfiguration configuration = new CSVConfiguration();
+        configuration.setDnTemplate("uid={uid},ou=People,dc=btmatthews,dc=com");
+        final StringBuilder data = new StringBuilder("uid,sn\n");
+        for (int i = 0; i < 2000; i++) {
+            data.append("user").append(i).append(",User\n");
+        }
+        final FormatReader reader = createReader(data.toString(), configuration, 4);
+        for (int i = 0; i < 2000; i++) {
+            final LDIFChangeRecord record = reader.nextRecord();
+            assertEquals("uid=user" + i + ",ou=People,dc=btmatthews,dc=com", record.getDN());
+        }
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+
+    /**
+     * Create a reader for CSV data.
+     *
+     * @param data          The CSV data.
+     * @param configuration Describes how rows are mapped onto directory entries.
+     * @param threads       The number of parser threads.
+     * @return The reader.
+     * @throws Exception If there was an unexpected error.
+     */
+    private FormatReader createReader(final String data,
+                                      final CSVConfiguration configuration,
+                                      final int threads)
+            throws Exception {
+        final InputStream inputStream = new ByteArrayInputStream(data.getBytes("UTF-8"));
+        return new CSVFormatReader(inputStream, configuration, threads);
+    }
+}
@@ -43,8 +43,8 @@ public final class DSMLFormatHandler extends AbstractFormatHandler {
      * @return A {@link DSMLFormatWriter} object.
      */
     @Override
-    protected FormatWriter createWriter(final OutputStream outputStream,
-                                        final FormatLogger logger) {
+    public FormatWriter createWriter(final OutputStream outputStream,
+                                     final FormatLogger logger) {
         try {
             return new DSMLFormatWriter(outputStream);
         } catch (final IOException e) {
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.dsml;
+
+import com.btmatthews.maven.plugins.ldap.AbstractFormatHandlerProvider;
+import com.btmatthews.maven.plugins.ldap.FormatHandler;
+
+/**
+ * Makes the DSML format handler available to {@link com.btmatthews.maven.plugins.ldap.FormatHandlerRegistry}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class DSMLFormatHandlerProvider extends AbstractFormatHandlerProvider {
+
+    /**
+     * Initialise the provider with the format name and file extensions.
+     */
+    public DSMLFormatHandlerProvider() {
+        super("dsml", ".dsml", ".xml");
+    }
+
+    /**
+     * Recognise DSML content by an XML document that contains a {@code directory-entries} element.
+     *
+     * @param header The leading bytes of the file.
+     * @param length The number of valid bytes in {@code header}.
+     * @return {@code true} if the content looks like DSML.
+     */
+    public boolean acceptsContent(final byte[] header, final int length) {
+        final String text = toText(header, length);
+        return text.startsWith("<") && text.contains("directory-entries");
+    }
+
+    /**
+     * Create the DSML format handler.
+     *
+     * @return The format handler.
+     */
+    public FormatHandler createHandler() {
+        return new DSMLFormatHandler();
+    }
+}
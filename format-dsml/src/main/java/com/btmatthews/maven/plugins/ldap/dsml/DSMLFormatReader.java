@@ -16,6 +16,7 @@
 
 package com.btmatthews.maven.plugins.ldap.dsml;
 
+import com.btmatthews.maven.plugins.ldap.ChangeRecordInterner;
 import com.btmatthews.maven.plugins.ldap.FormatReader;
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldif.LDIFAddChangeRecord;
@@ -62,9 +63,14 @@ public final class DSMLFormatReader implements FormatReader {
      * The {@link XPath} expression used to iterate through the values of each attribute for the DSML entry.
      */
     private final XPath attrValueXPath;
+    /**
+     * Used to share attribute names and values between entries or {@code null} if sharing is disabled.
+     */
+    private final ChangeRecordInterner interner;
 
     /**
-     * Initialise the reader to read DSML entries from an underlying input stream.
+     * Initialise the reader to read DSML entries from an underlying input stream. Attribute names and values are not
+     * shared because the entries are usually discarded as soon as they have been processed.
      *
      * @param inputStream The underlying input stream.
      * @throws DocumentException If there was a problem parsing the DSML file.
@@ -72,6 +78,25 @@ public final class DSMLFormatReader implements FormatReader {
      * @throws IOException       If there was a problem reading the DSML file.
      */
     public DSMLFormatReader(final InputStream inputStream) throws DocumentException, IOException, JaxenException {
+        this(inputStream, null);
+    }
+
+    /**
+     * Initialise the reader to read DSML entries from an underlying input stream and share attribute names and values
+     * between entries using {@code interner}. Sharing only saves memory if the caller keeps the entries after reading
+     * them.
+     *
+     * @param inputStream The underlying input stream.
+     * @param interner    Used to share attribute names and values or {@code null} to disable sharing.
+     * @throws DocumentException If there was a problem parsing the DSML file.
+     * @throws JaxenException    If there was a problem creating the {@link XPath} expressions.
+     * @throws IOException       If there was a problem reading the DSML file.
+     * @since 1.3.3
+     */
+    public DSMLFormatReader(final InputStream inputStream,
+                            final ChangeRecordInterner interner)
+            throws DocumentException, IOException, JaxenException {
+        this.interner = interner;
         final Map<String, String> map = new HashMap<String, String>();
         map.put("dsml", "http://www.dsml.org/DSML");
         namespaceContext = new SimpleNamespaceContext(map);
@@ -102,7 +127,7 @@ public final class DSMLFormatReader implements FormatReader {
                 for (int j = 0; j < objectClasses.length; ++j) {
                     objectClasses[j] = objectClassList.get(j).getStringValue();
                 }
-                attributes.add(new Attribute("objectclass", objectClasses));
+                attributes.add(intern(new Attribute("objectclass", objectClasses)));
                 for (final Node attributeNode : (List<Node>) attrXPath.selectNodes(entryNode)) {
                     final String attributeName = attributeNode.valueOf("@name");
                     final List<Node> attributeValueNodes = (List<Node>) attrValueXPath.selectNodes(attributeNode);
@@ -111,7 +136,7 @@ public final class DSMLFormatReader implements FormatReader {
                             break;
                         case 1: {
                             final String attributeValue = attributeValueNodes.get(0).getStringValue();
-                            attributes.add(new Attribute(attributeName, attributeValue));
+                            attributes.add(intern(new Attribute(attributeName, attributeValue)));
                             break;
                         }
                         default: {
@@ -119,7 +144,7 @@ public final class DSMLFormatReader implements FormatReader {
                             for (int j = 0; j < attributeValueNodes.size(); ++j) {
                                 attributeValues[j] = attributeValueNodes.get(j).getStringValue();
                             }
-                            attributes.add(new Attribute(attributeName, attributeValues));
+                            attributes.add(intern(new Attribute(attributeName, attributeValues)));
                             break;
                         }
                     }
@@ -133,12 +158,32 @@ public final class DSMLFormatReader implements FormatReader {
         }
     }
 
+    /**
+     * Get the object used to share attribute names and values between entries.
+     *
+     * @return The {@link ChangeRecordInterner} or {@code null} if sharing is disabled.
+     * @since 1.3.3
+     */
+    public ChangeRecordInterner getInterner() {
+        return interner;
+    }
+
     /**
      * Called to close {@link DSMLFormatReader}.
      */
     public void close() {
     }
 
+    /**
+     * Share the attribute name and values with previous entries if sharing is enabled.
+     *
+     * @param attribute The attribute.
+     * @return The attribute rebuilt with shared names and values or {@code attribute} if sharing is disabled.
+     */
+    private Attribute intern(final Attribute attribute) {
+        return interner == null ? attribute : interner.intern(attribute);
+    }
+
     /**
      * Create a {@link XPath} for the expression {@code xpathString}.
      *
@@ -16,6 +16,7 @@
 
 package com.btmatthews.maven.plugins.ldap.dsml;
 
+import com.btmatthews.maven.plugins.ldap.EncodingFormatWriter;
 import com.btmatthews.maven.plugins.ldap.FormatWriter;
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.Entry;
@@ -31,7 +32,7 @@ import java.io.PrintWriter;
  * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
  * @since 1.2.0
  */
-public final class DSMLFormatWriter implements FormatWriter {
+public final class DSMLFormatWriter implements EncodingFormatWriter {
 
     /**
      * The underlying output stream.
@@ -69,6 +70,16 @@ public final class DSMLFormatWriter implements FormatWriter {
      * @throws IOException If there was a problem writing to the underlying output stream.
      */
     public void printEntry(final Entry entry) throws IOException {
+        printEncodedEntry(encodeEntry(entry));
+    }
+
+    /**
+     * Encode an individual LDAP directory entry as a DSML entry element.
+     *
+     * @param entry The directory entry.
+     * @return The DSML representation of the directory entry.
+     */
+    public byte[] encodeEntry(final Entry entry) {
         final ByteStringBuffer buffer = new ByteStringBuffer();
         buffer.append("\t\t<dsml:entry dn=\"");
         buffer.append(entry.getDN());
@@ -106,7 +117,17 @@ public final class DSMLFormatWriter implements FormatWriter {
         }
         buffer.append("\t\t</dsml:entry>");
         buffer.append(eol);
-        ldifOutputStream.write(buffer.toByteArray());
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Write a directory entry that has already been encoded as a DSML entry element to the DSML file.
+     *
+     * @param encodedEntry The DSML representation of the directory entry.
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    public void printEncodedEntry(final byte[] encodedEntry) throws IOException {
+        ldifOutputStream.write(encodedEntry);
     }
 
     /**
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.dsml;
+
+import com.btmatthews.maven.plugins.ldap.AbstractFormatHandler;
+import com.btmatthews.maven.plugins.ldap.FormatLogger;
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPInterface;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFException;
+import org.dom4j.DocumentException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link com.btmatthews.maven.plugins.ldap.FormatHandler} that imports/exports LDAP directory entries from/to
+ * DSMLv2 {@code batchRequest} files.
+ * <p>
+ * When loading, a batch request with {@code processing="parallel"} is applied using a pool of threads and a batch
+ * request with {@code onError="resume"} continues after a failed request even if errors are not otherwise ignored.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class DSMLv2FormatHandler extends AbstractFormatHandler {
+
+    /**
+     * The number of threads used to apply batch requests that can be processed in parallel.
+     */
+    private final int threads;
+
+    /**
+     * Initialise the handler so that one thread is used for each available processor when applying batch requests
+     * in parallel.
+     */
+    public DSMLv2FormatHandler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Initialise the handler.
+     *
+     * @param threads The number of threads used to apply batch requests that can be processed in parallel.
+     */
+    public DSMLv2FormatHandler(final int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Create the writer that will dump LDAP entries to a DSMLv2 file.
+     *
+     * @param outputStream The target output stream.
+     * @param logger       Used to log information or error messages.
+     * @return A {@link DSMLv2FormatWriter} object.
+     */
+    @Override
+    public FormatWriter createWriter(final OutputStream outputStream,
+                                     final FormatLogger logger) {
+        try {
+            return new DSMLv2FormatWriter(outputStream);
+        } catch (final IOException e) {
+            logger.logError("Could not create and intialise the DSMLv2 writer", e);
+        }
+        return null;
+    }
+
+    /**
+     * Create the reader that will load requests from a DSMLv2 file.
+     *
+     * @param inputStream The file input stream.
+     * @param logger      Used to log information or error messages.
+     * @return A {@link DSMLv2FormatReader} object.
+     */
+    @Override
+    protected FormatReader openReader(final InputStream inputStream,
+                                      final FormatLogger logger) {
+        try {
+            return new DSMLv2FormatReader(inputStream);
+        } catch (final DocumentException e) {
+            logger.logError("Error parsing DSMLv2 file", e);
+        }
+        return null;
+    }
+
+    /**
+     * Apply the requests in the batch honouring the {@code processing} and {@code onError} attributes of the batch
+     * request.
+     *
+     * @param connection   The connection to the LDAP directory server.
+     * @param reader       The {@link DSMLv2FormatReader}.
+     * @param ignoreErrors If {@code true} then loading will continue if an error occurs.
+     * @param logger       Used to log information or error messages.
+     * @throws IOException If the thread was interrupted while waiting for parallel requests.
+     */
+    @Override
+    protected void load(final LDAPInterface connection,
+                        final FormatReader reader,
+                        final boolean ignoreErrors,
+                        final FormatLogger logger)
+            throws IOException {
+        final DSMLv2FormatReader batchReader = (DSMLv2FormatReader) reader;
+        final boolean continueOnError = ignoreErrors || batchReader.isResumeOnError();
+        if (batchReader.isParallel() && isSynchronous(connection)) {
+            logger.logInfo("Applying parallel DSMLv2 batch request sequentially because the connection is in "
+                    + "synchronous mode");
+            super.load(connection, reader, continueOnError, logger);
+        } else if (batchReader.isParallel()) {
+            loadParallel(connection, batchReader, continueOnError, logger);
+        } else {
+            super.load(connection, reader, continueOnError, logger);
+        }
+    }
+
+    /**
+     * Determine whether the connection is a single connection in synchronous mode. Such a connection cannot be used by
+     * more than one thread at a time.
+     *
+     * @param connection The connection to the LDAP directory server.
+     * @return {@code true} if the connection is in synchronous mode.
+     */
+    private static boolean isSynchronous(final LDAPInterface connection) {
+        return connection instanceof LDAPConnection
+                && ((LDAPConnection) connection).getConnectionOptions().useSynchronousMode();
+    }
+
+    /**
+     * Apply the requests in the batch concurrently. If errors are not being ignored then requests that have not
+     * started when a request fails are skipped.
+     *
+     * @param connection      The connection to the LDAP directory server.
+     * @param reader          The {@link DSMLv2FormatReader}.
+     * @param continueOnError If {@code true} then loading will continue if an error occurs.
+     * @param logger          Used to log information or error messages.
+     * @throws IOException If the thread was interrupted while waiting for the requests.
+     */
+    private void loadParallel(final LDAPInterface connection,
+                              final DSMLv2FormatReader reader,
+                              final boolean continueOnError,
+                              final FormatLogger logger)
+            throws IOException {
+        final List<LDIFChangeRecord> records = new ArrayList<LDIFChangeRecord>();
+        boolean keepReading = true;
+        do {
+            try {
+                final LDIFChangeRecord record = reader.nextRecord();
+                if (record == null) {
+                    keepReading = false;
+                } else {
+                    records.add(record);
+                }
+            } catch (final LDIFException e) {
+                if (!continueOnError) {
+                    logger.logError("Error parsing directory entry read from the input stream", e);
+                    return;
+                }
+            }
+        } while (keepReading);
+        if (records.isEmpty()) {
+            return;
+        }
+        final AtomicBoolean failed = new AtomicBoolean();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, records.size()));
+        try {
+            final List<Future<LDAPException>> results = new ArrayList<Future<LDAPException>>(records.size());
+            for (final LDIFChangeRecord record : records) {
+                results.add(executor.submit(new Callable<LDAPException>() {
+                    public LDAPException call() {
+                        if (continueOnError || !failed.get()) {
+                            try {
+                                record.processChange(connection);
+                            } catch (final LDAPException e) {
+                                failed.set(true);
+                                return e;
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<LDAPException> result : results) {
+                final LDAPException e = result.get();
+                if (e != null) {
+                    logger.logError("Error loading directory entry into the LDAP directory server", e);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading DSMLv2 batch request");
+        } catch (final ExecutionException e) {
+            final IOException exception = new IOException("Error loading DSMLv2 batch request");
+            exception.initCause(e.getCause());
+            throw exception;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.dsml;
+
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFDeleteChangeRecord;
+import com.unboundid.ldif.LDIFException;
+import com.unboundid.ldif.LDIFModifyChangeRecord;
+import com.unboundid.ldif.LDIFModifyDNChangeRecord;
+import com.unboundid.util.Base64;
+import com.unboundid.util.StaticUtils;
+import org.dom4j.Document;
+import org.dom4j.DocumentException;
+import org.dom4j.Element;
+import org.dom4j.io.SAXReader;
+
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A {@link FormatReader} that reads the add, modify, delete and modify DN requests from a DSMLv2
+ * {@code batchRequest} document. The {@code processing} and {@code onError} attributes of the batch request are
+ * exposed so that the {@link DSMLv2FormatHandler} can decide how the requests are applied.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class DSMLv2FormatReader implements FormatReader {
+
+    /**
+     * The DSMLv2 namespace URI.
+     */
+    static final String NAMESPACE = "urn:oasis:names:tc:DSML:2:0:core";
+    /**
+     * Iterates over the requests in the batch.
+     */
+    private final Iterator<Element> requestIterator;
+    /**
+     * {@code true} if the batch requests can be processed in parallel.
+     */
+    private final boolean parallel;
+    /**
+     * {@code true} if processing should continue after a request fails.
+     */
+    private final boolean resumeOnError;
+    /**
+     * The position of the last request returned used when reporting errors.
+     */
+    private long requestNumber;
+
+    /**
+     * Initialise the reader to read requests from a DSMLv2 batch request.
+     *
+     * @param inputStream The underlying input stream.
+     * @throws DocumentException If there was a problem parsing the DSMLv2 file or it does not contain a batch
+     *                           request.
+     */
+    public DSMLv2FormatReader(final InputStream inputStream) throws DocumentException {
+        final SAXReader reader = new SAXReader();
+        final Document document = reader.read(inputStream);
+        final Element batchRequest = document.getRootElement();
+        if (!"batchRequest".equals(batchRequest.getName())
+                || !(NAMESPACE.equals(batchRequest.getNamespaceURI()) || "".equals(batchRequest.getNamespaceURI()))) {
+            throw new DocumentException("Document is not a DSMLv2 batchRequest");
+        }
+        parallel = "parallel".equals(batchRequest.attributeValue("processing"));
+        resumeOnError = "resume".equals(batchRequest.attributeValue("onError"));
+        requestIterator = ((List<Element>) batchRequest.elements()).iterator();
+    }
+
+    /**
+     * Determine if the batch requests can be processed in parallel.
+     *
+     * @return {@code true} if the {@code processing} attribute of the batch request is {@code parallel}.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Determine if processing should continue after a request fails.
+     *
+     * @return {@code true} if the {@code onError} attribute of the batch request is {@code resume}.
+     */
+    public boolean isResumeOnError() {
+        return resumeOnError;
+    }
+
+    /**
+     * Read the next request from the batch and convert it to a change record.
+     *
+     * @return The next change record or {@code null} if there are no more requests.
+     * @throws LDIFException If the request is not supported or is invalid.
+     */
+    public LDIFChangeRecord nextRecord() throws LDIFException {
+        while (requestIterator.hasNext()) {
+            final Element request = requestIterator.next();
+            requestNumber++;
+            final String name = request.getName();
+            final String dn = request.attributeValue("dn");
+            if (name.equals("addRequest")) {
+                final List<Attribute> attributes = new ArrayList<Attribute>();
+                for (final Element attr : (List<Element>) request.elements("attr")) {
+                    attributes.add(new Attribute(getName(attr), getValues(attr)));
+                }
+                return new LDIFAddChangeRecord(requireDN(name, dn), attributes);
+            } else if (name.equals("modifyRequest")) {
+                final List<Modification> modifications = new ArrayList<Modification>();
+                for (final Element modification : (List<Element>) request.elements("modification")) {
+                    modifications.add(new Modification(getModificationType(modification), getName(modification),
+                            getValues(modification)));
+                }
+                return new LDIFModifyChangeRecord(requireDN(name, dn),
+                        modifications.toArray(new Modification[modifications.size()]));
+            } else if (name.equals("delRequest")) {
+                return new LDIFDeleteChangeRecord(requireDN(name, dn));
+            } else if (name.equals("modDNRequest")) {
+                final String newRDN = request.attributeValue("newrdn");
+                if (newRDN == null) {
+                    throw error("modDNRequest is missing newrdn");
+                }
+                return new LDIFModifyDNChangeRecord(requireDN(name, dn), newRDN,
+                        !"false".equals(request.attributeValue("deleteoldrdn")),
+                        request.attributeValue("newSuperior"));
+            } else if (!name.equals("control")) {
+                throw error("Unsupported DSMLv2 request: " + name);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Called to close {@link DSMLv2FormatReader}.
+     */
+    public void close() {
+    }
+
+    /**
+     * Get the value of the {@code dn} attribute of a request.
+     *
+     * @param request The request name.
+     * @param dn      The value of the {@code dn} attribute.
+     * @return The distinguished name.
+     * @throws LDIFException If the {@code dn} attribute is missing.
+     */
+    private String requireDN(final String request, final String dn) throws LDIFException {
+        if (dn == null) {
+            throw error(request + " is missing dn");
+        }
+        return dn;
+    }
+
+    /**
+     * Get the attribute name from an {@code attr} or {@code modification} element.
+     *
+     * @param element The element.
+     * @return The attribute name.
+     * @throws LDIFException If the {@code name} attribute is missing.
+     */
+    private String getName(final Element element) throws LDIFException {
+        final String name = element.attributeValue("name");
+        if (name == null) {
+            throw error(element.getName() + " is missing name");
+        }
+        return name;
+    }
+
+    /**
+     * Get the modification type from the {@code operation} attribute of a {@code modification} element.
+     *
+     * @param modification The element.
+     * @return The modification type.
+     * @throws LDIFException If the operation is missing or invalid.
+     */
+    private ModificationType getModificationType(final Element modification) throws LDIFException {
+        final String operation = modification.attributeValue("operation");
+        if ("add".equals(operation)) {
+            return ModificationType.ADD;
+        } else if ("delete".equals(operation)) {
+            return ModificationType.DELETE;
+        } else if ("replace".equals(operation)) {
+            return ModificationType.REPLACE;
+        } else if ("increment".equals(operation)) {
+            return ModificationType.INCREMENT;
+        } else {
+            throw error("Unsupported modification operation: " + operation);
+        }
+    }
+
+    /**
+     * Get the values from the {@code value} child elements decoding values of type {@code xsd:base64Binary}.
+     *
+     * @param element The parent element.
+     * @return The values.
+     * @throws LDIFException If a base64 value is invalid.
+     */
+    private byte[][] getValues(final Element element) throws LDIFException {
+        final List<Element> valueElements = (List<Element>) element.elements("value");
+        final byte[][] values = new byte[valueElements.size()][];
+        for (int i = 0; i < values.length; i++) {
+            final Element value = valueElements.get(i);
+            final String type = value.attributeValue("type");
+            if (type != null && type.endsWith("base64Binary")) {
+                try {
+                    values[i] = Base64.decode(value.getTextTrim());
+                } catch (final ParseException e) {
+                    throw new LDIFException("Invalid base64 value in request " + requestNumber, requestNumber,
+                            true, e);
+                }
+            } else {
+                values[i] = StaticUtils.getBytes(value.getText());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Create the exception used to report an invalid or unsupported request.
+     *
+     * @param message The error message.
+     * @return The exception.
+     */
+    private LDIFException error(final String message) {
+        return new LDIFException(message + " (request " + requestNumber + ")", requestNumber, true);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.dsml;
+
+import com.btmatthews.maven.plugins.ldap.EncodingFormatWriter;
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.util.Base64;
+import com.unboundid.util.ByteStringBuffer;
+import com.unboundid.util.StaticUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A {@link FormatWriter} that outputs LDAP directory entries as the add requests of a DSMLv2 {@code batchRequest}.
+ * Values that cannot be represented as XML text are written as {@code xsd:base64Binary}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class DSMLv2FormatWriter implements EncodingFormatWriter {
+
+    /**
+     * The underlying output stream.
+     */
+    private final OutputStream outputStream;
+    /**
+     * The end of line marker.
+     */
+    private final String eol;
+
+    /**
+     * Initialise the writer and write the opening {@code batchRequest} tag.
+     *
+     * @param outputStream The file output stream.
+     * @throws IOException If there was a problem writing the opening tag.
+     */
+    public DSMLv2FormatWriter(final OutputStream outputStream) throws IOException {
+        this.outputStream = outputStream;
+        eol = System.getProperty("line.separator", "\n");
+        final ByteStringBuffer buffer = new ByteStringBuffer();
+        buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        buffer.append(eol);
+        buffer.append("<batchRequest xmlns=\"");
+        buffer.append(DSMLv2FormatReader.NAMESPACE);
+        buffer.append("\" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\"");
+        buffer.append(" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">");
+        buffer.append(eol);
+        outputStream.write(buffer.toByteArray());
+    }
+
+    /**
+     * Writes an individual LDAP directory entry as an add request.
+     *
+     * @param entry The directory entry.
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    public void printEntry(final Entry entry) throws IOException {
+        printEncodedEntry(encodeEntry(entry));
+    }
+
+    /**
+     * Encode an individual LDAP directory entry as an {@code addRequest} element.
+     *
+     * @param entry The directory entry.
+     * @return The DSMLv2 representation of the directory entry.
+     */
+    public byte[] encodeEntry(final Entry entry) {
+        final ByteStringBuffer buffer = new ByteStringBuffer();
+        buffer.append("\t<addRequest dn=\"");
+        appendEscaped(entry.getDN(), buffer);
+        buffer.append("\">");
+        buffer.append(eol);
+        for (final Attribute attribute : entry.getAttributes()) {
+            buffer.append("\t\t<attr name=\"");
+            appendEscaped(attribute.getName(), buffer);
+            buffer.append("\">");
+            buffer.append(eol);
+            for (final byte[] value : attribute.getValueByteArrays()) {
+                final String stringValue = StaticUtils.toUTF8String(value);
+                if (isXMLText(stringValue) && Arrays.equals(value, StaticUtils.getBytes(stringValue))) {
+                    buffer.append("\t\t\t<value>");
+                    appendEscaped(stringValue, buffer);
+                } else {
+                    buffer.append("\t\t\t<value xsi:type=\"xsd:base64Binary\">");
+                    Base64.encode(value, buffer);
+                }
+                buffer.append("</value>");
+                buffer.append(eol);
+            }
+            buffer.append("\t\t</attr>");
+            buffer.append(eol);
+        }
+        buffer.append("\t</addRequest>");
+        buffer.append(eol);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Write a directory entry that has already been encoded as an {@code addRequest} element.
+     *
+     * @param encodedEntry The DSMLv2 representation of the directory entry.
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    public void printEncodedEntry(final byte[] encodedEntry) throws IOException {
+        outputStream.write(encodedEntry);
+    }
+
+    /**
+     * Close the {@link FormatWriter} writing the closing {@code batchRequest} tag.
+     *
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    public void close() throws IOException {
+        final ByteStringBuffer buffer = new ByteStringBuffer();
+        buffer.append("</batchRequest>");
+        buffer.append(eol);
+        outputStream.write(buffer.toByteArray());
+    }
+
+    /**
+     * Determine if a value can be written as XML text. Control characters other than tab, carriage return and line
+     * feed are not allowed.
+     *
+     * @param value The value.
+     * @return {@code true} if the value can be written as XML text.
+     */
+    private static boolean isXMLText(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || c == 0xFFFD) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Append a string escaping the characters that have special meaning in XML.
+     *
+     * @param value  The string.
+     * @param buffer The buffer.
+     */
+    private static void appendEscaped(final String value, final ByteStringBuffer buffer) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    buffer.append("&amp;");
+                    break;
+                case '<':
+                    buffer.append("&lt;");
+                    break;
+                case '>':
+                    buffer.append("&gt;");
+                    break;
+                case '"':
+                    buffer.append("&quot;");
+                    break;
+                case '\r':
+                    buffer.append("&#13;");
+                    break;
+                default:
+                    if (Character.isHighSurrogate(c) && i + 1 < value.length()) {
+                        buffer.append(value.substring(i, i + 2));
+                        i++;
+                    } else {
+                        buffer.append(c);
+                    }
+                    break;
+            }
+        }
+    }
+}
@@ -22,7 +22,6 @@ import com.btmatthews.maven.plugins.ldap.FormatLogger;
 import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.LDAPInterface;
 import com.unboundid.ldap.sdk.SearchRequest;
-import com.unboundid.ldap.sdk.SearchResult;
 import org.custommonkey.xmlunit.XMLUnit;
 import org.junit.Before;
 import org.junit.Rule;
@@ -33,8 +32,8 @@ import org.xml.sax.InputSource;
 
 import java.io.*;
 
-import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.createSearchResult;
 import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.createSearchResultEntry;
+import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.streamSearchResult;
 import static org.custommonkey.xmlunit.XMLAssert.assertXMLEqual;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
@@ -128,8 +127,7 @@ public class TestDSMLFormatHandler {
      */
     @Test
     public void noDataInDump() throws Exception {
-        final SearchResult results = createSearchResult();
-        when(connection.search(any(SearchRequest.class))).thenReturn(results);
+        when(connection.search(any(SearchRequest.class))).thenAnswer(streamSearchResult());
 
         final File outputFile = outputFolder.newFile();
         final OutputStream outputStream = new FileOutputStream(outputFile);
@@ -145,12 +143,11 @@ public class TestDSMLFormatHandler {
      */
     @Test
     public void oneItemInDump() throws Exception {
-        final SearchResult result = createSearchResult(
+        when(connection.search(any(SearchRequest.class))).thenAnswer(streamSearchResult(
                 createSearchResultEntry(
                         "ou=People,dc=btmatthews,dc=com",
                         "ou", "People",
-                        "objectclass", "organizationalUnit"));
-        when(connection.search(any(SearchRequest.class))).thenReturn(result);
+                        "objectclass", "organizationalUnit")));
 
         final File outputFile = outputFolder.newFile();
         final OutputStream outputStream = new FileOutputStream(outputFile);
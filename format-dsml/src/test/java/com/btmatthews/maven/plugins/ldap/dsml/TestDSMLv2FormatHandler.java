@@ -0,0 +1,188 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.dsml;
+
+import com.btmatthews.maven.plugins.ldap.FormatHandler;
+import com.btmatthews.maven.plugins.ldap.FormatLogger;
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.unboundid.ldap.sdk.AddRequest;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.DeleteRequest;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionOptions;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPInterface;
+import com.unboundid.ldap.sdk.ModifyDNRequest;
+import com.unboundid.ldap.sdk.ModifyRequest;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.createSearchResultEntry;
+import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.streamSearchResult;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Unit test the {@link DSMLv2FormatHandler}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestDSMLv2FormatHandler {
+
+    /**
+     * Mock the LDAP directory server connection.
+     */
+    @Mock
+    private LDAPInterface connection;
+    /**
+     * Mock the logger.
+     */
+    @Mock
+    private FormatLogger logger;
+    /**
+     * The {@link DSMLv2FormatHandler} being tested.
+     */
+    private FormatHandler formatHandler;
+
+    /**
+     * Prepare for unit test execution by creating and initializing the mock objects and test fixtures.
+     */
+    @Before
+    public void setUp() {
+        initMocks(this);
+        formatHandler = new DSMLv2FormatHandler(4);
+    }
+
+    /**
+     * Verify that each type of request in a sequential batch is applied.
+     *
+     * @throws Exception If there was an unexpected exception.
+     */
+    @Test
+    public void loadSequentialBatch() throws Exception {
+        load("batch.dsml", false);
+        verify(connection).delete(any(DeleteRequest.class));
+        verify(connection).add(any(AddRequest.class));
+        verify(connection).modify(any(ModifyRequest.class));
+        verify(connection).modifyDN(any(ModifyDNRequest.class));
+        verifyZeroInteractions(logger);
+    }
+
+    /**
+     * Verify that a sequential batch stops at the first failed request when {@code onError} is not {@code resume}.
+     *
+     * @throws Exception If there was an unexpected exception.
+     */
+    @Test
+    public void sequentialBatchExitsOnError() throws Exception {
+        when(connection.delete(any(DeleteRequest.class))).thenThrow(new LDAPException(ResultCode.NO_SUCH_OBJECT));
+        load("batch.dsml", false);
+        verify(connection).delete(any(DeleteRequest.class));
+        verify(connection, never()).add(any(AddRequest.class));
+        verify(logger).logError(anyString(), any(LDAPException.class));
+    }
+
+    /**
+     * Verify that all the requests in a parallel batch are applied even if one fails because {@code onError} is
+     * {@code resume}.
+     *
+     * @throws Exception If there was an unexpected exception.
+     */
+    @Test
+    public void loadParallelBatch() throws Exception {
+        when(connection.delete(any(DeleteRequest.class))).thenThrow(new LDAPException(ResultCode.NO_SUCH_OBJECT));
+        load("parallel.dsml", false);
+        verify(connection).delete(any(DeleteRequest.class));
+        verify(connection).add(any(AddRequest.class));
+        verify(connection).modify(any(ModifyRequest.class));
+        verify(connection).modifyDN(any(ModifyDNRequest.class));
+        verify(logger).logError(anyString(), any(LDAPException.class));
+    }
+
+    /**
+     * Verify that a parallel batch is applied sequentially when the connection is in synchronous mode because a
+     * synchronous connection cannot be shared between threads.
+     *
+     * @throws Exception If there was an unexpected exception.
+     */
+    @Test
+    public void loadParallelBatchSequentiallyOnSynchronousConnection() throws Exception {
+        final LDAPConnectionOptions options = new LDAPConnectionOptions();
+        options.setUseSynchronousMode(true);
+        final LDAPConnection synchronousConnection = new LDAPConnection(options);
+        final InputStream inputStream = TestDSMLv2FormatHandler.class.getResourceAsStream("parallel.dsml");
+        try {
+            formatHandler.load(synchronousConnection, inputStream, false, logger);
+        } finally {
+            inputStream.close();
+        }
+        verify(logger).logInfo(contains("sequentially"));
+    }
+
+    /**
+     * Verify that directory entries are dumped as add requests that can be read back unchanged.
+     *
+     * @throws Exception If there was an unexpected exception.
+     */
+    @Test
+    public void dumpAsAddRequests() throws Exception {
+        when(connection.search(any(SearchRequest.class))).thenAnswer(streamSearchResult(
+                createSearchResultEntry(
+                        "ou=R&D,dc=btmatthews,dc=com",
+                        "ou", "R&D <Research>",
+                        "objectclass", "organizationalUnit")));
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        formatHandler.dump(connection, "dc=btmatthews,dc=com", "(objectclass=*)", outputStream, logger);
+        final Entry expected = new Entry("ou=R&D,dc=btmatthews,dc=com",
+                new Attribute("ou", "R&D <Research>"),
+                new Attribute("objectclass", "organizationalUnit"));
+        final FormatReader reader = new DSMLv2FormatReader(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(expected, ((LDIFAddChangeRecord) reader.nextRecord()).getEntryToAdd());
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+
+    /**
+     * Load a DSMLv2 file from the class path.
+     *
+     * @param name         The name of the DSMLv2 file.
+     * @param ignoreErrors If {@code true} then loading will continue if an error occurs.
+     * @throws Exception If there was an unexpected exception.
+     */
+    private void load(final String name, final boolean ignoreErrors) throws Exception {
+        final InputStream inputStream = TestDSMLv2FormatHandler.class.getResourceAsStream(name);
+        try {
+            formatHandler.load(connection, inputStream, ignoreErrors, logger);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.jsonl;
+
+import com.btmatthews.maven.plugins.ldap.AbstractFormatHandlerProvider;
+import com.btmatthews.maven.plugins.ldap.FormatHandler;
+
+/**
+ * Makes the JSON Lines format handler available to {@link com.btmatthews.maven.plugins.ldap.FormatHandlerRegistry}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class JSONLinesFormatHandlerProvider extends AbstractFormatHandlerProvider {
+
+    /**
+     * Initialise the provider with the format name and file extensions.
+     */
+    public JSONLinesFormatHandlerProvider() {
+        super("jsonl", ".jsonl", ".ndjson");
+    }
+
+    /**
+     * Recognise JSON Lines content by a leading JSON object.
+     *
+     * @param header The leading bytes of the file.
+     * @param length The number of valid bytes in {@code header}.
+     * @return {@code true} if the content looks like JSON Lines.
+     */
+    public boolean acceptsContent(final byte[] header, final int length) {
+        return toText(header, length).startsWith("{");
+    }
+
+    /**
+     * Create the JSON Lines format handler.
+     *
+     * @return The format handler.
+     */
+    public FormatHandler createHandler() {
+        return new JSONLinesFormatHandler();
+    }
+}
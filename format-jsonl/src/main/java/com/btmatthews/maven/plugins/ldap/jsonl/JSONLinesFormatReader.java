@@ -0,0 +1,218 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.jsonl;
+
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.btmatthews.maven.plugins.ldap.ParserPool;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * This {@link FormatReader} reads change records from an underlying input stream in JSON Lines format. Lines are
+ * read sequentially and grouped into batches. Because each line stands alone the batches can be parsed by a pool of
+ * threads. The change records are returned in the order they appear in the input stream.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class JSONLinesFormatReader implements FormatReader {
+
+    /**
+     * The number of lines in each batch.
+     */
+    private static final int BATCH_SIZE = 256;
+    /**
+     * Reads lines from the underlying input stream.
+     */
+    private final BufferedReader reader;
+    /**
+     * Parses the batches in the order they were read.
+     */
+    private final ParserPool<ParsedLine> parsers;
+    /**
+     * The remaining parsed lines in the current batch.
+     */
+    private Iterator<ParsedLine> parsedLines;
+    /**
+     * The number of the last line read from the input stream.
+     */
+    private long lineNumber;
+    /**
+     * Indicates if the end of the input stream has been reached.
+     */
+    private boolean finished;
+
+    /**
+     * Initialize the {@link JSONLinesFormatReader} so that lines are parsed by the calling thread.
+     *
+     * @param inputStream The underlying input stream.
+     */
+    public JSONLinesFormatReader(final InputStream inputStream) {
+        this(inputStream, 0);
+    }
+
+    /**
+     * Initialize the {@link JSONLinesFormatReader} creating a pool of threads to parse the lines.
+     *
+     * @param inputStream   The underlying input stream.
+     * @param parserThreads The number of threads used to parse lines. If zero the lines are parsed by the calling
+     *                      thread.
+     */
+    public JSONLinesFormatReader(final InputStream inputStream, final int parserThreads) {
+        try {
+            reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+        parsers = new ParserPool<ParsedLine>("ldap-jsonl-parser", "parsing JSON Lines", parserThreads);
+    }
+
+    /**
+     * Read the next change record from the underlying input stream.
+     *
+     * @return The next change record or {@code null} if the end of the input stream has been reached.
+     * @throws IOException   If there was an error reading from the input stream.
+     * @throws LDIFException If the line could not be parsed as a change record.
+     */
+    public LDIFChangeRecord nextRecord() throws IOException, LDIFException {
+        while (parsedLines == null || !parsedLines.hasNext()) {
+            while (!finished && !parsers.isFull()) {
+                readBatch();
+            }
+            if (parsers.isEmpty()) {
+                return null;
+            }
+            parsedLines = parsers.next().iterator();
+        }
+        final ParsedLine parsedLine = parsedLines.next();
+        if (parsedLine.error != null) {
+            throw parsedLine.error;
+        }
+        return parsedLine.record;
+    }
+
+    /**
+     * Close the reader stopping the parser threads. The underlying input stream is not closed.
+     */
+    public void close() {
+        parsers.close();
+    }
+
+    /**
+     * Read the next batch of lines skipping blank lines and queue it for parsing.
+     *
+     * @throws IOException If there was an error reading from the input stream.
+     */
+    private void readBatch() throws IOException {
+        final List<String> lines = new ArrayList<String>(BATCH_SIZE);
+        final List<Long> lineNumbers = new ArrayList<Long>(BATCH_SIZE);
+        while (lines.size() < BATCH_SIZE) {
+            final String line = reader.readLine();
+            if (line == null) {
+                finished = true;
+                break;
+            }
+            lineNumber++;
+            if (line.trim().length() > 0) {
+                lines.add(line);
+                lineNumbers.add(lineNumber);
+            }
+        }
+        if (!lines.isEmpty()) {
+            parsers.submit(new Batch(lines, lineNumbers));
+        }
+    }
+
+    /**
+     * The result of parsing a line which is either a change record or the error that prevented it being parsed.
+     */
+    private static final class ParsedLine {
+
+        /**
+         * The change record or {@code null} if the line could not be parsed.
+         */
+        private final LDIFChangeRecord record;
+        /**
+         * The error or {@code null} if the line was parsed.
+         */
+        private final LDIFException error;
+
+        /**
+         * Initialise the result.
+         *
+         * @param record The change record.
+         * @param error  The error.
+         */
+        ParsedLine(final LDIFChangeRecord record, final LDIFException error) {
+            this.record = record;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Parses a batch of lines.
+     */
+    private static final class Batch implements Callable<List<ParsedLine>> {
+
+        /**
+         * The lines.
+         */
+        private final List<String> lines;
+        /**
+         * The line numbers used when reporting errors.
+         */
+        private final List<Long> lineNumbers;
+
+        /**
+         * Initialise the batch.
+         *
+         * @param lines       The lines.
+         * @param lineNumbers The line numbers.
+         */
+        Batch(final List<String> lines, final List<Long> lineNumbers) {
+            this.lines = lines;
+            this.lineNumbers = lineNumbers;
+        }
+
+        /**
+         * Parse each line in the batch.
+         *
+         * @return The parsed lines in the same order.
+         */
+        public List<ParsedLine> call() {
+            final List<ParsedLine> result = new ArrayList<ParsedLine>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                try {
+                    result.add(new ParsedLine(JSONLinesParser.parse(lines.get(i), lineNumbers.get(i)), null));
+                } catch (final LDIFException e) {
+                    result.add(new ParsedLine(null, e));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.jsonl;
+
+import com.btmatthews.maven.plugins.ldap.EncodingFormatWriter;
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.util.Base64;
+import com.unboundid.util.ByteStringBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * This {@link FormatWriter} writes LDAP entries to an underlying output stream as JSON Lines, one JSON object per
+ * line in the format described by {@link JSONLinesParser}. Entries are encoded directly into a reusable byte buffer
+ * without building intermediate JSON objects or strings.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class JSONLinesFormatWriter implements EncodingFormatWriter {
+
+    /**
+     * The hexadecimal digits used to escape control characters.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /**
+     * The underlying output stream.
+     */
+    private final OutputStream outputStream;
+    /**
+     * The buffer reused by {@link #printEntry(Entry)} to encode each directory entry.
+     */
+    private final ByteStringBuffer buffer = new ByteStringBuffer();
+
+    /**
+     * Initialize the {@link JSONLinesFormatWriter} by keeping a reference to the underlying output stream.
+     *
+     * @param outputStream The underlying output stream.
+     */
+    public JSONLinesFormatWriter(final OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Write the LDAP entry to the underlying output stream as a JSON object on a single line.
+     *
+     * @param entry The directory entry.
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    public void printEntry(final Entry entry) throws IOException {
+        if (entry != null) {
+            buffer.clear();
+            encode(entry, buffer);
+            buffer.write(outputStream);
+        }
+    }
+
+    /**
+     * Encode the LDAP entry as a JSON object on a single line.
+     *
+     * @param entry The directory entry.
+     * @return The encoded directory entry.
+     */
+    public byte[] encodeEntry(final Entry entry) {
+        final ByteStringBuffer entryBuffer = new ByteStringBuffer();
+        encode(entry, entryBuffer);
+        return entryBuffer.toByteArray();
+    }
+
+    /**
+     * Write a directory entry that has already been encoded to the underlying output stream.
+     *
+     * @param encodedEntry The encoded directory entry.
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    public void printEncodedEntry(final byte[] encodedEntry) throws IOException {
+        outputStream.write(encodedEntry);
+    }
+
+    /**
+     * Close the {@link JSONLinesFormatWriter} which does not require any processing.
+     */
+    public void close() {
+    }
+
+    /**
+     * Encode the directory entry as a JSON object followed by a new line.
+     *
+     * @param entry  The directory entry.
+     * @param target The buffer to which the JSON object is appended.
+     */
+    private static void encode(final Entry entry, final ByteStringBuffer target) {
+        target.append("{\"dn\":");
+        appendString(entry.getDN(), target);
+        target.append(",\"attributes\":{");
+        boolean firstAttribute = true;
+        for (final Attribute attribute : entry.getAttributes()) {
+            if (firstAttribute) {
+                firstAttribute = false;
+            } else {
+                target.append((byte) ',');
+            }
+            appendString(attribute.getName(), target);
+            target.append(":[");
+            boolean firstValue = true;
+            for (final byte[] value : attribute.getValueByteArrays()) {
+                if (firstValue) {
+                    firstValue = false;
+                } else {
+                    target.append((byte) ',');
+                }
+                appendValue(value, target);
+            }
+            target.append((byte) ']');
+        }
+        target.append("}}\n");
+    }
+
+    /**
+     * Append a string as a quoted JSON string. ASCII characters are appended directly and runs of non-ASCII
+     * characters are appended as UTF-8.
+     *
+     * @param value  The string.
+     * @param target The buffer.
+     */
+    private static void appendString(final String value, final ByteStringBuffer target) {
+        target.append((byte) '"');
+        final int length = value.length();
+        int i = 0;
+        while (i < length) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                appendAscii(c, target);
+                i++;
+            } else {
+                int end = i + 1;
+                while (end < length && value.charAt(end) >= 0x80) {
+                    end++;
+                }
+                target.append(value.substring(i, end));
+                i = end;
+            }
+        }
+        target.append((byte) '"');
+    }
+
+    /**
+     * Append an attribute value as a quoted JSON string if it is valid UTF-8 or as an object with a {@code base64}
+     * field otherwise.
+     *
+     * @param value  The attribute value.
+     * @param target The buffer.
+     */
+    private static void appendValue(final byte[] value, final ByteStringBuffer target) {
+        if (isValidUTF8(value)) {
+            target.append((byte) '"');
+            for (final byte b : value) {
+                if (b >= 0) {
+                    appendAscii((char) b, target);
+                } else {
+                    target.append(b);
+                }
+            }
+            target.append((byte) '"');
+        } else {
+            target.append("{\"base64\":\"");
+            Base64.encode(value, target);
+            target.append("\"}");
+        }
+    }
+
+    /**
+     * Append an ASCII character escaping it if necessary.
+     *
+     * @param c      The character.
+     * @param target The buffer.
+     */
+    private static void appendAscii(final char c, final ByteStringBuffer target) {
+        switch (c) {
+            case '"':
+                target.append("\\\"");
+                break;
+            case '\\':
+                target.append("\\\\");
+                break;
+            case '\n':
+                target.append("\\n");
+                break;
+            case '\r':
+                target.append("\\r");
+                break;
+            case '\t':
+                target.append("\\t");
+                break;
+            default:
+                if (c < 0x20 || c == 0x7F) {
+                    target.append("\\u00");
+                    target.append((byte) HEX_DIGITS[c >> 4]);
+                    target.append((byte) HEX_DIGITS[c & 0xF]);
+                } else {
+                    target.append((byte) c);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Determine if a byte array contains well formed UTF-8 without allocating any objects. Overlong encodings and
+     * surrogates are rejected so that the value survives being decoded and encoded again.
+     *
+     * @param value The byte array.
+     * @return {@code true} if the byte array is well formed UTF-8.
+     */
+    private static boolean isValidUTF8(final byte[] value) {
+        int i = 0;
+        while (i < value.length) {
+            final int b = value[i] & 0xFF;
+            final int continuationBytes;
+            if (b < 0x80) {
+                continuationBytes = 0;
+            } else if (b >= 0xC2 && b <= 0xDF) {
+                continuationBytes = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                continuationBytes = 2;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                continuationBytes = 3;
+            } else {
+                return false;
+            }
+            if (i + continuationBytes >= value.length) {
+                return false;
+            }
+            for (int j = 1; j <= continuationBytes; j++) {
+                if ((value[i + j] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            if (continuationBytes > 1) {
+                final int second = value[i + 1] & 0xFF;
+                if ((b == 0xE0 && second < 0xA0) || (b == 0xED && second > 0x9F)
+                        || (b == 0xF0 && second < 0x90) || (b == 0xF4 && second > 0x8F)) {
+                    return false;
+                }
+            }
+            i += continuationBytes + 1;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.jsonl;
+
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.ModificationType;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFDeleteChangeRecord;
+import com.unboundid.ldif.LDIFException;
+import com.unboundid.ldif.LDIFModifyChangeRecord;
+import com.unboundid.ldif.LDIFModifyDNChangeRecord;
+import com.unboundid.util.Base64;
+import com.unboundid.util.StaticUtils;
+import com.unboundid.util.json.JSONArray;
+import com.unboundid.util.json.JSONBoolean;
+import com.unboundid.util.json.JSONException;
+import com.unboundid.util.json.JSONObject;
+import com.unboundid.util.json.JSONString;
+import com.unboundid.util.json.JSONValue;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses a single line of a JSON Lines file into a change record. Each line is a JSON object with a {@code dn}
+ * field and an optional {@code changetype} field that defaults to {@code add}:
+ * <ul>
+ * <li>{@code add} records have an {@code attributes} object mapping attribute names to arrays of values.</li>
+ * <li>{@code delete} records have no other fields.</li>
+ * <li>{@code modify} records have a {@code modifications} array of objects with {@code op} ({@code add},
+ * {@code delete}, {@code replace} or {@code increment}), {@code attribute} and optional {@code values} fields.</li>
+ * <li>{@code moddn} records have {@code newrdn}, optional {@code deleteoldrdn} (default {@code true}) and optional
+ * {@code newsuperior} fields.</li>
+ * </ul>
+ * Attribute values are JSON strings or, for values that are not valid UTF-8, objects with a single {@code base64}
+ * field.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class JSONLinesParser {
+
+    /**
+     * Private constructor prevents instantiation.
+     */
+    private JSONLinesParser() {
+    }
+
+    /**
+     * Parse a line of a JSON Lines file.
+     *
+     * @param line       The line.
+     * @param lineNumber The line number used when reporting errors.
+     * @return The change record.
+     * @throws LDIFException If the line is not valid JSON or does not describe a change record.
+     */
+    static LDIFChangeRecord parse(final String line, final long lineNumber) throws LDIFException {
+        try {
+            final JSONObject object = new JSONObject(line);
+            final String dn = getString(object, "dn", true, lineNumber);
+            final String changeType = getString(object, "changetype", false, lineNumber);
+            if (changeType == null || changeType.equalsIgnoreCase("add")) {
+                final JSONValue attributes = object.getField("attributes");
+                if (!(attributes instanceof JSONObject)) {
+                    throw error("Missing or invalid attributes", lineNumber);
+                }
+                final Map<String, JSONValue> fields = ((JSONObject) attributes).getFields();
+                final List<Attribute> attributeList = new ArrayList<Attribute>(fields.size());
+                for (final Map.Entry<String, JSONValue> field : fields.entrySet()) {
+                    attributeList.add(new Attribute(field.getKey(), getValues(field.getValue(), lineNumber)));
+                }
+                return new LDIFAddChangeRecord(dn, attributeList);
+            } else if (changeType.equalsIgnoreCase("delete")) {
+                return new LDIFDeleteChangeRecord(dn);
+            } else if (changeType.equalsIgnoreCase("modify")) {
+                final JSONValue modifications = object.getField("modifications");
+                if (!(modifications instanceof JSONArray)) {
+                    throw error("Missing or invalid modifications", lineNumber);
+                }
+                final List<Modification> modificationList = new ArrayList<Modification>();
+                for (final JSONValue modification : ((JSONArray) modifications).getValues()) {
+                    if (!(modification instanceof JSONObject)) {
+                        throw error("Invalid modification", lineNumber);
+                    }
+                    modificationList.add(getModification((JSONObject) modification, lineNumber));
+                }
+                return new LDIFModifyChangeRecord(dn, modificationList.toArray(
+                        new Modification[modificationList.size()]));
+            } else if (changeType.equalsIgnoreCase("moddn") || changeType.equalsIgnoreCase("modrdn")) {
+                final String newRDN = getString(object, "newrdn", true, lineNumber);
+                final JSONValue deleteOldRDN = object.getField("deleteoldrdn");
+                if (deleteOldRDN != null && !(deleteOldRDN instanceof JSONBoolean)) {
+                    throw error("Invalid deleteoldrdn", lineNumber);
+                }
+                final String newSuperior = getString(object, "newsuperior", false, lineNumber);
+                return new LDIFModifyDNChangeRecord(dn, newRDN,
+                        deleteOldRDN == null || ((JSONBoolean) deleteOldRDN).booleanValue(), newSuperior);
+            } else {
+                throw error("Unsupported changetype: " + changeType, lineNumber);
+            }
+        } catch (final JSONException e) {
+            throw new LDIFException("Invalid JSON: " + e.getMessage(), lineNumber, true, e);
+        }
+    }
+
+    /**
+     * Build a modification from a JSON object.
+     *
+     * @param object     The JSON object.
+     * @param lineNumber The line number used when reporting errors.
+     * @return The modification.
+     * @throws LDIFException If the JSON object does not describe a valid modification.
+     */
+    private static Modification getModification(final JSONObject object, final long lineNumber)
+            throws LDIFException {
+        final String op = getString(object, "op", true, lineNumber);
+        final ModificationType type;
+        if (op.equalsIgnoreCase("add")) {
+            type = ModificationType.ADD;
+        } else if (op.equalsIgnoreCase("delete")) {
+            type = ModificationType.DELETE;
+        } else if (op.equalsIgnoreCase("replace")) {
+            type = ModificationType.REPLACE;
+        } else if (op.equalsIgnoreCase("increment")) {
+            type = ModificationType.INCREMENT;
+        } else {
+            throw error("Unsupported modification op: " + op, lineNumber);
+        }
+        final String attribute = getString(object, "attribute", true, lineNumber);
+        final JSONValue values = object.getField("values");
+        if (values == null) {
+            return new Modification(type, attribute);
+        }
+        return new Modification(type, attribute, getValues(values, lineNumber));
+    }
+
+    /**
+     * Get the values of an attribute from a JSON array.
+     *
+     * @param values     The JSON array.
+     * @param lineNumber The line number used when reporting errors.
+     * @return The attribute values.
+     * @throws LDIFException If the values are not a JSON array of strings or base64 objects.
+     */
+    private static byte[][] getValues(final JSONValue values, final long lineNumber) throws LDIFException {
+        if (!(values instanceof JSONArray)) {
+            throw error("Attribute values must be an array", lineNumber);
+        }
+        final List<JSONValue> valueList = ((JSONArray) values).getValues();
+        final byte[][] result = new byte[valueList.size()][];
+        for (int i = 0; i < result.length; i++) {
+            final JSONValue value = valueList.get(i);
+            if (value instanceof JSONString) {
+                result[i] = StaticUtils.getBytes(((JSONString) value).stringValue());
+            } else if (value instanceof JSONObject
+                    && ((JSONObject) value).getField("base64") instanceof JSONString) {
+                try {
+                    result[i] = Base64.decode(
+                            ((JSONString) ((JSONObject) value).getField("base64")).stringValue());
+                } catch (final ParseException e) {
+                    throw new LDIFException("Invalid base64 value", lineNumber, true, e);
+                }
+            } else {
+                throw error("Invalid attribute value", lineNumber);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the value of a string field.
+     *
+     * @param object     The JSON object.
+     * @param name       The field name.
+     * @param required   {@code true} if the field must be present.
+     * @param lineNumber The line number used when reporting errors.
+     * @return The value or {@code null} if an optional field is not present.
+     * @throws LDIFException If a required field is missing or the field is not a string.
+     */
+    private static String getString(final JSONObject object,
+                                    final String name,
+                                    final boolean required,
+                                    final long lineNumber)
+            throws LDIFException {
+        final JSONValue value = object.getField(name);
+        if (value == null) {
+            if (required) {
+                throw error("Missing " + name, lineNumber);
+            }
+            return null;
+        }
+        if (!(value instanceof JSONString)) {
+            throw error("Invalid " + name, lineNumber);
+        }
+        return ((JSONString) value).stringValue();
+    }
+
+    /**
+     * Create the exception used to report a line that does not describe a valid change record.
+     *
+     * @param message    The error message.
+     * @param lineNumber The line number.
+     * @return The exception.
+     */
+    private static LDIFException error(final String message, final long lineNumber) {
+        return new LDIFException(message, lineNumber, true);
+    }
+}
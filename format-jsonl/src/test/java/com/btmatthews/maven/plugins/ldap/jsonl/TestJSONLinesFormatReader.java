@@ -0,0 +1,139 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.jsonl;
+
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.unboundid.ldap.sdk.ChangeType;
+import com.unboundid.ldap.sdk.ModificationType;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFException;
+import com.unboundid.ldif.LDIFModifyChangeRecord;
+import com.unboundid.ldif.LDIFModifyDNChangeRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test the {@link JSONLinesFormatReader}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestJSONLinesFormatReader {
+
+    /**
+     * Verify that an empty input stream has no change records.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void canReadEmptyStream() throws Exception {
+        final FormatReader reader = createReader("", 0);
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+
+    /**
+     * Verify that each type of change record can be read and blank lines are skipped.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void canReadChangeRecords() throws Exception {
+        final FormatReader reader = createReader(
+                "{\"dn\":\"ou=People,dc=btmatthews,dc=com\",\"attributes\":{\"ou\":[\"People\"]}}\n"
+                        + "\n"
+                        + "{\"dn\":\"ou=People,dc=btmatthews,dc=com\",\"changetype\":\"modify\",\"modifications\":["
+                        + "{\"op\":\"replace\",\"attribute\":\"description\",\"values\":[\"Staff\"]}]}\n"
+                        + "{\"dn\":\"ou=People,dc=btmatthews,dc=com\",\"changetype\":\"moddn\","
+                        + "\"newrdn\":\"ou=Staff\",\"deleteoldrdn\":false}\n"
+                        + "{\"dn\":\"ou=Staff,dc=btmatthews,dc=com\",\"changetype\":\"delete\"}\n", 0);
+        assertEquals(ChangeType.ADD, reader.nextRecord().getChangeType());
+        final LDIFChangeRecord modify = reader.nextRecord();
+        assertEquals(ChangeType.MODIFY, modify.getChangeType());
+        assertEquals(ModificationType.REPLACE,
+                ((LDIFModifyChangeRecord) modify).getModifications()[0].getModificationType());
+        final LDIFChangeRecord modifyDN = reader.nextRecord();
+        assertEquals(ChangeType.MODIFY_DN, modifyDN.getChangeType());
+        assertEquals("ou=Staff", ((LDIFModifyDNChangeRecord) modifyDN).getNewRDN());
+        assertFalse(((LDIFModifyDNChangeRecord) modifyDN).deleteOldRDN());
+        assertEquals(ChangeType.DELETE, reader.nextRecord().getChangeType());
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+
+    /**
+     * Verify that invalid lines are reported with their line number and reading can continue.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void reportsInvalidLine() throws Exception {
+        final FormatReader reader = createReader("{\"dn\":\"ou=People,dc=btmatthews,dc=com\"\n"
+                + "{\"dn\":\"ou=Staff,dc=btmatthews,dc=com\",\"changetype\":\"delete\"}\n", 0);
+        try {
+            reader.nextRecord();
+            fail();
+        } catch (final LDIFException e) {
+            assertEquals(1, e.getLineNumber());
+            assertTrue(e.mayContinueReading());
+        }
+        assertEquals(ChangeType.DELETE, reader.nextRecord().getChangeType());
+        reader.close();
+    }
+
+    /**
+     * Verify that change records are returned in order when lines are parsed in parallel.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void keepsOrderWhenParsingInParallel() throws Exception {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            builder.append("{\"dn\":\"uid=user").append(i)
+                    .append(",dc=btmatthews,dc=com\",\"changetype\":\"delete\"}\n");
+        }
+        final FormatReader reader = createReader(builder.toString(), 4);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                assertEquals("uid=user" + i + ",dc=btmatthews,dc=com", reader.nextRecord().getDN());
+            }
+            assertNull(reader.nextRecord());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Create a reader for JSON Lines content.
+     *
+     * @param content       The JSON Lines content.
+     * @param parserThreads The number of threads used to parse the lines.
+     * @return The reader.
+     * @throws Exception If there was an error creating the reader.
+     */
+    private FormatReader createReader(final String content, final int parserThreads) throws Exception {
+        return new JSONLinesFormatReader(new ByteArrayInputStream(content.getBytes("UTF-8")), parserThreads);
+    }
+}
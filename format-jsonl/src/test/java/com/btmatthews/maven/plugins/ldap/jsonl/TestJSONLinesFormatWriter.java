@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.jsonl;
+
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.createEntry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit test the {@link JSONLinesFormatWriter}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class TestJSONLinesFormatWriter {
+
+    /**
+     * Verify that a directory entry is written as a single JSON object on one line.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void writeEntry() throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final FormatWriter writer = new JSONLinesFormatWriter(outputStream);
+        writer.printEntry(createEntry("ou=People,dc=btmatthews,dc=com",
+                "objectclass", "organizationalUnit",
+                "ou", "People"));
+        writer.close();
+        assertEquals("{\"dn\":\"ou=People,dc=btmatthews,dc=com\",\"attributes\":{"
+                        + "\"objectclass\":[\"organizationalUnit\"],\"ou\":[\"People\"]}}\n",
+                outputStream.toString("UTF-8"));
+    }
+
+    /**
+     * Verify that special characters are escaped, non-ASCII characters are written as UTF-8 and values that are not
+     * valid UTF-8 are written as base64.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void writeEscapedEntry() throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final FormatWriter writer = new JSONLinesFormatWriter(outputStream);
+        final Entry entry = new Entry("cn=Zo\u00eb \"Z\",dc=btmatthews,dc=com",
+                new Attribute("description", "line1\nline2\\"),
+                new Attribute("userPassword", new byte[]{(byte) 0xFF, 0x00}));
+        writer.printEntry(entry);
+        writer.close();
+        assertEquals("{\"dn\":\"cn=Zo\u00eb \\\"Z\\\",dc=btmatthews,dc=com\",\"attributes\":{"
+                        + "\"description\":[\"line1\\nline2\\\\\"],\"userPassword\":[{\"base64\":\"/wA=\"}]}}\n",
+                outputStream.toString("UTF-8"));
+    }
+
+    /**
+     * Verify that directory entries written by the {@link JSONLinesFormatWriter} are read back unchanged.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void roundTrip() throws Exception {
+        final Entry entry = new Entry("cn=Zo\u00eb \"Z\",dc=btmatthews,dc=com",
+                new Attribute("objectclass", "top", "person"),
+                new Attribute("description", "line1\nline2\\\u0001"),
+                new Attribute("userPassword", new byte[]{(byte) 0xED, (byte) 0xA0, (byte) 0x80}));
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final FormatWriter writer = new JSONLinesFormatWriter(outputStream);
+        writer.printEntry(entry);
+        writer.close();
+        final FormatReader reader = new JSONLinesFormatReader(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(entry, ((LDIFAddChangeRecord) reader.nextRecord()).getEntryToAdd());
+        assertNull(reader.nextRecord());
+        reader.close();
+    }
+}
@@ -42,8 +42,8 @@ public final class LDIFFormatHandler extends AbstractFormatHandler {
      * @return A {@link LDIFFormatWriter} object.
      */
     @Override
-    protected FormatWriter createWriter(final OutputStream outputStream,
-                                        final FormatLogger logger) {
+    public FormatWriter createWriter(final OutputStream outputStream,
+                                     final FormatLogger logger) {
         return new LDIFFormatWriter(outputStream);
     }
 
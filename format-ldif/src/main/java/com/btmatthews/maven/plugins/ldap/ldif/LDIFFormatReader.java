@@ -16,6 +16,7 @@
 
 package com.btmatthews.maven.plugins.ldap.ldif;
 
+import com.btmatthews.maven.plugins.ldap.ChangeRecordInterner;
 import com.btmatthews.maven.plugins.ldap.FormatReader;
 import com.unboundid.ldif.LDIFChangeRecord;
 import com.unboundid.ldif.LDIFException;
@@ -37,15 +38,47 @@ public final class LDIFFormatReader implements FormatReader {
      * underlying input stream.
      */
     private final LDIFReader reader;
+    /**
+     * Used to share attribute names and values between change records or {@code null} if sharing is disabled.
+     */
+    private final ChangeRecordInterner interner;
 
     /**
      * Initialize the {@link LDIFFormatReader} by creating an {@link LDIFReader} that
-     * will read and parse LDIF change records from the {@code inputStream}.
+     * will read and parse LDIF change records from the {@code inputStream}. Attribute
+     * names and values are not shared because the records are usually discarded as
+     * soon as they have been processed.
      *
      * @param inputStream The underlying input stream.
      */
     public LDIFFormatReader(final InputStream inputStream) {
-        reader = new LDIFReader(inputStream);
+        this(inputStream, null);
+    }
+
+    /**
+     * Initialize the {@link LDIFFormatReader} by creating an {@link LDIFReader} that
+     * will read and parse LDIF change records from the {@code inputStream} and share
+     * attribute names and values between change records using {@code interner}. Sharing
+     * only saves memory if the caller keeps the change records after reading them.
+     *
+     * @param inputStream The underlying input stream.
+     * @param interner    Used to share attribute names and values or {@code null} to disable sharing.
+     * @since 1.3.3
+     */
+    public LDIFFormatReader(final InputStream inputStream,
+                            final ChangeRecordInterner interner) {
+        this.reader = new LDIFReader(inputStream);
+        this.interner = interner;
+    }
+
+    /**
+     * Get the object used to share attribute names and values between change records.
+     *
+     * @return The {@link ChangeRecordInterner} or {@code null} if sharing is disabled.
+     * @since 1.3.3
+     */
+    public ChangeRecordInterner getInterner() {
+        return interner;
     }
 
     /**
@@ -56,7 +89,11 @@ public final class LDIFFormatReader implements FormatReader {
      * @throws LDIFException If there was an error parsing the data read from the input stream.
      */
     public LDIFChangeRecord nextRecord() throws IOException, LDIFException {
-        return reader.readChangeRecord();
+        final LDIFChangeRecord record = reader.readChangeRecord();
+        if (record == null || interner == null) {
+            return record;
+        }
+        return interner.intern(record);
     }
 
     /**
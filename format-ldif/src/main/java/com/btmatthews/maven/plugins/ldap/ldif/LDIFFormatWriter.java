@@ -16,6 +16,7 @@
 
 package com.btmatthews.maven.plugins.ldap.ldif;
 
+import com.btmatthews.maven.plugins.ldap.EncodingFormatWriter;
 import com.btmatthews.maven.plugins.ldap.FormatWriter;
 import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.util.ByteStringBuffer;
@@ -29,7 +30,7 @@ import java.io.OutputStream;
  * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
  * @since 1.2.0
  */
-public final class LDIFFormatWriter implements FormatWriter {
+public final class LDIFFormatWriter implements EncodingFormatWriter {
 
     /**
      * The underlying output stream.
@@ -64,17 +65,38 @@ public final class LDIFFormatWriter implements FormatWriter {
      */
     public void printEntry(final Entry entry) throws IOException {
         if (entry != null) {
-            final ByteStringBuffer buffer = new ByteStringBuffer();
-            entry.toLDIF(buffer, 77);
-            if (!first) {
-                ldifOutputStream.write(eol);
-            } else {
-                first = false;
-            }
-            ldifOutputStream.write(buffer.toByteArray());
+            printEncodedEntry(encodeEntry(entry));
         }
     }
 
+    /**
+     * Encode the LDAP entry in LDIF format.
+     *
+     * @param entry The directory entry.
+     * @return The LDIF representation of the directory entry.
+     */
+    public byte[] encodeEntry(final Entry entry) {
+        final ByteStringBuffer buffer = new ByteStringBuffer();
+        entry.toLDIF(buffer, 77);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Write an LDAP entry that has already been encoded in LDIF format to the underlying output stream
+     * separating it from the previous entry.
+     *
+     * @param encodedEntry The LDIF representation of the directory entry.
+     * @throws IOException If there was a problem writing to the underlying output stream.
+     */
+    public void printEncodedEntry(final byte[] encodedEntry) throws IOException {
+        if (!first) {
+            ldifOutputStream.write(eol);
+        } else {
+            first = false;
+        }
+        ldifOutputStream.write(encodedEntry);
+    }
+
     /**
      * Close the {@link LDIFFormatWriter} which does not require any processing.
      */
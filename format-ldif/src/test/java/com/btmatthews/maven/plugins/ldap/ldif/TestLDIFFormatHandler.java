@@ -21,7 +21,6 @@ import com.btmatthews.maven.plugins.ldap.FormatHandler;
 import com.btmatthews.maven.plugins.ldap.FormatLogger;
 import com.unboundid.ldap.sdk.LDAPInterface;
 import com.unboundid.ldap.sdk.SearchRequest;
-import com.unboundid.ldap.sdk.SearchResult;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -33,8 +32,8 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 
-import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.createSearchResult;
 import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.createSearchResultEntry;
+import static com.btmatthews.maven.plugins.ldap.FormatTestUtils.streamSearchResult;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
@@ -137,8 +136,7 @@ public class TestLDIFFormatHandler {
      */
     @Test
     public void noDataInDump() throws Exception {
-        final SearchResult results = createSearchResult();
-        when(connection.search(any(SearchRequest.class))).thenReturn(results);
+        when(connection.search(any(SearchRequest.class))).thenAnswer(streamSearchResult());
 
         final File outputFile = outputFolder.newFile();
         final OutputStream outputStream = new FileOutputStream(outputFile);
@@ -154,12 +152,11 @@ public class TestLDIFFormatHandler {
      */
     @Test
     public void oneItemInDump() throws Exception {
-        final SearchResult result = createSearchResult(
+        when(connection.search(any(SearchRequest.class))).thenAnswer(streamSearchResult(
                 createSearchResultEntry(
                         "ou=People,dc=btmatthews,dc=com",
                         "ou", "People",
-                        "objectclass", "organizationalUnit"));
-        when(connection.search(any(SearchRequest.class))).thenReturn(result);
+                        "objectclass", "organizationalUnit")));
         final File outputFile = outputFolder.newFile();
         final OutputStream outputStream = new FileOutputStream(outputFile);
         formatHandler.dump(connection, "dc=btmatthews,dc=com", "(objectclass=*)", outputStream, logger);
@@ -174,7 +171,7 @@ public class TestLDIFFormatHandler {
      */
     @Test
     public void twoItemsInDump() throws Exception {
-        final SearchResult result = createSearchResult(
+        when(connection.search(any(SearchRequest.class))).thenAnswer(streamSearchResult(
                 createSearchResultEntry(
                         "ou=People,dc=btmatthews,dc=com",
                         "ou", "People",
@@ -185,8 +182,7 @@ public class TestLDIFFormatHandler {
                         "sn", "Simpson",
                         "givenName", "Bart",
                         "uid", "bsimpson",
-                        "objectclass", "inetOrgPerson"));
-        when(connection.search(any(SearchRequest.class))).thenReturn(result);
+                        "objectclass", "inetOrgPerson")));
         final File outputFile = outputFolder.newFile();
         final OutputStream outputStream = new FileOutputStream(outputFile);
         formatHandler.dump(connection, "dc=btmatthews,dc=com", "(objectclass=*)", outputStream, logger);
@@ -16,8 +16,10 @@
 
 package com.btmatthews.maven.plugins.ldap.ldif;
 
+import com.btmatthews.maven.plugins.ldap.ChangeRecordInterner;
 import com.btmatthews.maven.plugins.ldap.FormatReader;
 import com.unboundid.ldap.sdk.ChangeType;
+import com.unboundid.ldif.LDIFAddChangeRecord;
 import com.unboundid.ldif.LDIFChangeRecord;
 import org.junit.Assert;
 import org.junit.Test;
@@ -28,6 +30,7 @@ import java.io.InputStream;
 import static junit.framework.Assert.assertNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.*;
@@ -116,4 +119,38 @@ public class TestLDIFFormatReader {
         inputStream.close();
     }
 
+    /**
+     * Verify that attribute names are shared between change records read by the {@link LDIFFormatReader}.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void sharesAttributeNamesBetweenItems() throws Exception {
+        final InputStream inputStream = TestLDIFFormatReader.class.getResourceAsStream("two.ldif");
+        assertNotNull(inputStream);
+        final LDIFFormatReader reader = new LDIFFormatReader(inputStream, new ChangeRecordInterner());
+        final LDIFAddChangeRecord first = (LDIFAddChangeRecord) reader.nextRecord();
+        final LDIFAddChangeRecord second = (LDIFAddChangeRecord) reader.nextRecord();
+        assertSame(first.getEntryToAdd().getAttribute("objectclass").getName(),
+                second.getEntryToAdd().getAttribute("objectclass").getName());
+        assertEquals(1, reader.getInterner().getSharedCount());
+        reader.close();
+        inputStream.close();
+    }
+
+    /**
+     * Verify that change records read by a {@link LDIFFormatReader} created without an interner are not rebuilt.
+     *
+     * @throws Exception If there was an error in the test case.
+     */
+    @Test
+    public void doesNotShareByDefault() throws Exception {
+        final InputStream inputStream = TestLDIFFormatReader.class.getResourceAsStream("two.ldif");
+        assertNotNull(inputStream);
+        final LDIFFormatReader reader = new LDIFFormatReader(inputStream);
+        assertNull(reader.getInterner());
+        assertNotNull(reader.nextRecord());
+        reader.close();
+        inputStream.close();
+    }
 }
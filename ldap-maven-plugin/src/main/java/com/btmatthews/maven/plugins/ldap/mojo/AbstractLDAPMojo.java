@@ -17,12 +17,30 @@
 package com.btmatthews.maven.plugins.ldap.mojo;
 
 import com.btmatthews.maven.plugins.ldap.FormatLogger;
+import com.unboundid.ldap.sdk.FailoverServerSet;
+import com.unboundid.ldap.sdk.FewestConnectionsServerSet;
+import com.unboundid.ldap.sdk.GetEntryLDAPConnectionPoolHealthCheck;
 import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionOptions;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
 import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPInterface;
+import com.unboundid.ldap.sdk.OperationType;
+import com.unboundid.ldap.sdk.RoundRobinServerSet;
+import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldap.sdk.ServerSet;
+import com.unboundid.ldap.sdk.SimpleBindRequest;
+import com.unboundid.ldap.sdk.SingleServerSet;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Parameter;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+
 /**
  * This is the abstract base class for all Mojos in this the ldap-maven-plugin
  * plugin. It defines the properties for the LDAP directory server connection
@@ -40,6 +58,14 @@ public abstract class AbstractLDAPMojo extends AbstractMojo implements FormatLog
      * The default port number for LDAP servers.
      */
     private static final int DEFAULT_PORT = 389;
+    /**
+     * The initial delay in milliseconds before retrying a failed connection attempt.
+     */
+    private static final long INITIAL_BACK_OFF = 25L;
+    /**
+     * The maximum delay in milliseconds between connection attempts.
+     */
+    private static final long MAX_BACK_OFF = 1000L;
     /**
      * The host name of the LDAP directory server. Defaults to localhost.
      */
@@ -50,6 +76,26 @@ public abstract class AbstractLDAPMojo extends AbstractMojo implements FormatLog
      */
     @Parameter(defaultValue = "389")
     private int port = AbstractLDAPMojo.DEFAULT_PORT;
+    /**
+     * The LDAP directory servers as host names optionally followed by a colon and port number. IPv6 addresses are
+     * enclosed in square brackets if they are followed by a port number, for example {@code [::1]:10389}. If
+     * configured these are used instead of {@link #host} and {@link #port}.
+     *
+     * @since 1.3.3
+     */
+    @Parameter
+    private String[] servers;
+    /**
+     * How connections are distributed when {@link #servers} is configured. One of {@code failover},
+     * {@code roundRobin} or {@code fewestConnections}. Defaults to {@code failover}. The {@code roundRobin} and
+     * {@code fewestConnections} strategies only spread the load when there is a pool of connections to spread, so if
+     * more than one server is configured with one of these strategies then connection pooling is enabled with a
+     * connection for each server unless {@link #connectionPoolSize} is set.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "failover")
+    private String serverSetStrategy = "failover";
     /**
      * The distinguished name used if authentication is required.
      */
@@ -66,57 +112,357 @@ public abstract class AbstractLDAPMojo extends AbstractMojo implements FormatLog
     @Parameter(defaultValue = "5000")
     private int connectionTimeout = 5000;
     /**
-     * The maximum number of connection attempts before failing.
+     * Used with {@link #connectionTimeout} to calculate the total time allowed for connecting if
+     * {@link #connectionDeadline} is not set.
      */
     @Parameter(defaultValue = "3")
     private int connectionRetries = 3;
+    /**
+     * The total time in milliseconds allowed for connecting to the LDAP directory server and waiting for it to become
+     * ready. Defaults to {@link #connectionTimeout} multiplied by {@link #connectionRetries}.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "0")
+    private long connectionDeadline;
     /**
      * To skip execution of the plugin
      */
     @Parameter(defaultValue = "false")
     private boolean skip;
+    /**
+     * The options used for connections to the LDAP directory server.
+     *
+     * @since 1.3.3
+     */
+    @Parameter
+    private ConnectionOptions connectionOptions;
+    /**
+     * The maximum number of connections in the pool shared by all executions in the build that connect to the
+     * same LDAP directory servers with the same credentials and connection settings. Connection pooling is disabled
+     * if this is zero, which is the default, unless it is needed by {@link #serverSetStrategy}.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "0")
+    private int connectionPoolSize;
+    /**
+     * The interval in milliseconds between background health checks of the pooled connections.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "60000")
+    private long connectionPoolHealthCheckInterval = 60000L;
+    /**
+     * The current Maven session. Connection pools are shared by all executions in the same build.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
 
     /**
-     * Connect to the LDAP directory server. The connection attempt will be retried {@link #connectionRetries} times
-     * and the connection time is set to {@link #connectionTimeout}.
+     * Connect to the LDAP directory server and wait until it is ready to serve requests. Connection attempts are
+     * retried with an exponential back off until a connection is established and the server responds to a request
+     * for the root DSE or {@link #connectionDeadline} expires. Any response from the server, including a refusal to
+     * read the root DSE, means that it is ready. Each attempt is limited by {@link #connectionTimeout}.
      *
      * @return The connection object.
      * @throws MojoExecutionException If the connection to the LDAP directory server failed.
      */
     protected final LDAPConnection connect() throws MojoExecutionException {
-        final LDAPConnection connection = new LDAPConnection();
-        int i = 0;
-        while (i < connectionRetries) {
-            long start = System.currentTimeMillis();
-            try {
-                this.getLog().info("Attempting to connect to LDAP directory server (" + host + ":" + port + ")");
-                connection.connect(host, port, connectionTimeout);
-                break;
-            } catch (final LDAPException e) {
-                final String message = "Could not connect to LDAP directory server (" + host + ":" + port + ")";
-                this.getLog().error(message, e);
-                if (i++ < connectionRetries) {
-                    long time = System.currentTimeMillis() - start;
-                    if (time < connectionTimeout) {
-                        try {
-                            Thread.sleep(connectionTimeout - time);
-                        } catch (final InterruptedException e1) {
-                            throw new MojoExecutionException(message, e1);
-                        }
+        final String address = getServerAddress();
+        this.getLog().info("Attempting to connect to LDAP directory server (" + address + ")");
+        final LDAPConnection connection = retry(new ConnectionAttempt<LDAPConnection>() {
+            public LDAPConnection attempt(final long timeout) throws LDAPException, MojoExecutionException {
+                final LDAPConnection candidate = createServerSet(timeout).getConnection();
+                try {
+                    final SearchRequest request = new SearchRequest("", SearchScope.BASE, "(objectClass=*)");
+                    request.setResponseTimeoutMillis(timeout);
+                    candidate.searchForEntry(request);
+                } catch (final LDAPException e) {
+                    if (!e.getResultCode().isConnectionUsable()) {
+                        candidate.close();
+                        throw e;
                     }
-                } else {
-                    throw new MojoExecutionException(message, e);
+                    getLog().debug("LDAP directory server (" + address + ") refused to read the root DSE: "
+                            + e.getMessage());
                 }
+                return candidate;
             }
-        }
+        });
         try {
             connection.bind(authDn, passwd);
         } catch (final LDAPException e) {
+            connection.close();
             throw new MojoExecutionException("Could not bind to LDAP directory server as " + authDn, e);
         }
         return connection;
     }
 
+    /**
+     * Repeat an attempt to connect to the LDAP directory server with an exponential back off until it succeeds, it
+     * fails with an error returned by the server or {@link #connectionDeadline} expires. Only connection-level
+     * failures are retried because any response from the server means that it is ready.
+     *
+     * @param attempt The connection attempt.
+     * @param <T>     The type of the connection.
+     * @return The connection returned by the successful attempt.
+     * @throws MojoExecutionException If the deadline expired or the server returned an error.
+     */
+    private <T> T retry(final ConnectionAttempt<T> attempt) throws MojoExecutionException {
+        final String address = getServerAddress();
+        final long deadline = System.currentTimeMillis() + getConnectionDeadline();
+        long backOff = AbstractLDAPMojo.INITIAL_BACK_OFF;
+        int attempts = 0;
+        while (true) {
+            try {
+                attempts++;
+                final long remaining = Math.max(deadline - System.currentTimeMillis(), 1L);
+                return attempt.attempt(Math.min(connectionTimeout, remaining));
+            } catch (final LDAPException e) {
+                final long wait = Math.min(backOff, deadline - System.currentTimeMillis());
+                if (e.getResultCode().isConnectionUsable() || wait <= 0) {
+                    final String message = "Could not connect to LDAP directory server (" + address + ") after "
+                            + attempts + " attempts";
+                    this.getLog().error(message, e);
+                    throw new MojoExecutionException(message, e);
+                }
+                this.getLog().debug("LDAP directory server (" + address + ") is not ready, retrying in "
+                        + wait + "ms: " + e.getMessage());
+                try {
+                    Thread.sleep(wait);
+                } catch (final InterruptedException e1) {
+                    throw new MojoExecutionException("Interrupted while waiting for LDAP directory server ("
+                            + address + ")", e1);
+                }
+                backOff = Math.min(backOff * 2, AbstractLDAPMojo.MAX_BACK_OFF);
+            }
+        }
+    }
+
+    /**
+     * Create the server set used to establish connections. If {@link #servers} is configured then the connections are
+     * distributed over those LDAP directory servers according to {@link #serverSetStrategy}. Otherwise, all
+     * connections are made to {@link #host} and {@link #port}. A server without a port number uses the default LDAP
+     * port and a server that contains more than one colon without square brackets is an IPv6 address without a port
+     * number.
+     *
+     * @param connectTimeout The maximum time in milliseconds to wait for a connection to be established.
+     * @return The server set.
+     * @throws MojoExecutionException If a server address or the strategy is not valid.
+     */
+    final ServerSet createServerSet(final long connectTimeout) throws MojoExecutionException {
+        final LDAPConnectionOptions options = createConnectionOptions(connectTimeout);
+        if (servers == null || servers.length == 0) {
+            return new SingleServerSet(host, port, options);
+        }
+        final String[] addresses = new String[servers.length];
+        final int[] ports = new int[servers.length];
+        for (int i = 0; i < servers.length; i++) {
+            final String server = servers[i].trim();
+            final String portNumber;
+            if (server.startsWith("[")) {
+                final int bracket = server.indexOf(']');
+                if (bracket == -1 || (bracket + 1 < server.length() && server.charAt(bracket + 1) != ':')) {
+                    throw new MojoExecutionException("Invalid LDAP directory server address: " + servers[i]);
+                }
+                addresses[i] = server.substring(1, bracket);
+                portNumber = bracket + 1 < server.length() ? server.substring(bracket + 2) : null;
+            } else {
+                final int colon = server.indexOf(':');
+                if (colon == -1 || colon != server.lastIndexOf(':')) {
+                    addresses[i] = server;
+                    portNumber = null;
+                } else {
+                    addresses[i] = server.substring(0, colon).trim();
+                    portNumber = server.substring(colon + 1);
+                }
+            }
+            if (portNumber == null) {
+                ports[i] = AbstractLDAPMojo.DEFAULT_PORT;
+            } else {
+                try {
+                    ports[i] = Integer.parseInt(portNumber.trim());
+                } catch (final NumberFormatException e) {
+                    throw new MojoExecutionException("Invalid LDAP directory server address: " + servers[i], e);
+                }
+            }
+        }
+        if ("roundRobin".equals(serverSetStrategy)) {
+            return new RoundRobinServerSet(addresses, ports, options);
+        } else if ("fewestConnections".equals(serverSetStrategy)) {
+            return new FewestConnectionsServerSet(addresses, ports, options);
+        } else if ("failover".equals(serverSetStrategy)) {
+            return new FailoverServerSet(addresses, ports, options);
+        } else {
+            throw new MojoExecutionException("Unknown server set strategy: " + serverSetStrategy);
+        }
+    }
+
+    /**
+     * Create the options used for connections to the LDAP directory server from {@link #connectionOptions}.
+     *
+     * @param connectTimeout The maximum time in milliseconds to wait for a connection to be established.
+     * @return The connection options.
+     * @throws MojoExecutionException If the connection options preset is not recognised.
+     */
+    private LDAPConnectionOptions createConnectionOptions(final long connectTimeout) throws MojoExecutionException {
+        final LDAPConnectionOptions options;
+        if (connectionOptions == null) {
+            options = new LDAPConnectionOptions();
+        } else {
+            options = connectionOptions.toLDAPConnectionOptions();
+        }
+        options.setConnectTimeoutMillis((int) connectTimeout);
+        return options;
+    }
+
+    /**
+     * Get the total time allowed for connecting to the LDAP directory server. If {@link #connectionDeadline} is not set
+     * then this is {@link #connectionTimeout} multiplied by {@link #connectionRetries}.
+     *
+     * @return The deadline in milliseconds.
+     */
+    private long getConnectionDeadline() {
+        if (connectionDeadline > 0) {
+            return connectionDeadline;
+        } else {
+            return (long) connectionTimeout * Math.max(connectionRetries, 1);
+        }
+    }
+
+    /**
+     * Get a connection to the LDAP directory server. If connection pooling is enabled this is the pool shared with
+     * the other executions in the build, creating it if this is the first execution to connect to the LDAP directory
+     * server. The pool is created once the server accepts the initial connection and bind, waiting for it to become
+     * ready in the same way as {@link #connect()}. Otherwise, a new connection is opened using {@link #connect()}.
+     *
+     * @return The connection pool or connection object.
+     * @throws MojoExecutionException If the connection to the LDAP directory server failed.
+     * @since 1.3.3
+     */
+    protected final LDAPInterface getConnection() throws MojoExecutionException {
+        final int poolSize = getConnectionPoolSize();
+        if (poolSize <= 0) {
+            return connect();
+        }
+        if (session == null) {
+            if (connectionPoolSize <= 0) {
+                getLog().warn("Connections are not distributed over the LDAP directory servers using the "
+                        + serverSetStrategy + " strategy because connection pooling requires a Maven session");
+            }
+            return connect();
+        }
+        final String address = getServerAddress();
+        final Object scope = SessionEndListener.install(session);
+        final String key = getConnectionPoolKey();
+        LDAPConnectionPool pool = ConnectionPools.get(scope, key);
+        if (pool == null) {
+            getLog().info("Attempting to connect to LDAP directory server (" + address + ")");
+            pool = retry(new ConnectionAttempt<LDAPConnectionPool>() {
+                public LDAPConnectionPool attempt(final long timeout) throws LDAPException, MojoExecutionException {
+                    return new LDAPConnectionPool(createServerSet(timeout), new SimpleBindRequest(authDn, passwd),
+                            1, poolSize);
+                }
+            });
+            pool.setConnectionPoolName(address + " as " + authDn);
+            pool.setMaxWaitTimeMillis(connectionTimeout);
+            pool.setHealthCheck(new GetEntryLDAPConnectionPoolHealthCheck("", connectionTimeout,
+                    false, false, false, true, true));
+            pool.setHealthCheckIntervalMillis(connectionPoolHealthCheckInterval);
+            pool.setRetryFailedOperationsDueToInvalidConnections(
+                    EnumSet.of(OperationType.BIND, OperationType.SEARCH, OperationType.COMPARE));
+            pool = ConnectionPools.put(scope, key, pool);
+        } else {
+            getLog().info("Reusing connection pool for LDAP directory server (" + address + ")");
+        }
+        return pool;
+    }
+
+    /**
+     * Get the maximum number of connections in the connection pool. If {@link #connectionPoolSize} is not set and the
+     * connections are distributed over more than one server using the {@code roundRobin} or
+     * {@code fewestConnections} strategy then the pool has a connection for each server.
+     *
+     * @return The maximum number of connections or zero if connection pooling is disabled.
+     */
+    private int getConnectionPoolSize() {
+        if (connectionPoolSize > 0) {
+            return connectionPoolSize;
+        } else if (servers != null && servers.length > 1 && !"failover".equals(serverSetStrategy)) {
+            return servers.length;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Get the key that identifies the connection pool for the connection settings. The key is a checksum of all the
+     * settings that affect the pool so that the password is not held in clear text.
+     *
+     * @return The key.
+     * @throws MojoExecutionException If the connection options are not valid.
+     * @since 1.3.3
+     */
+    final String getConnectionPoolKey() throws MojoExecutionException {
+        final String settings = serverSetStrategy + "\n" + getServerAddress() + "\n" + authDn + "\n" + passwd
+                + "\n" + connectionTimeout + "\n" + getConnectionPoolSize() + "\n" + connectionPoolHealthCheckInterval
+                + "\n" + createConnectionOptions(connectionTimeout);
+        final ChecksumOutputStream checksum = new ChecksumOutputStream(new ByteArrayOutputStream());
+        try {
+            checksum.write(settings.getBytes("UTF-8"));
+        } catch (final IOException e) {
+            throw new MojoExecutionException("Could not calculate connection pool key", e);
+        }
+        return checksum.getChecksum();
+    }
+
+    /**
+     * Release a connection obtained from {@link #getConnection()}. Connections that are not pooled are closed but
+     * connection pools are kept open for the next execution.
+     *
+     * @param connection The connection pool or connection object.
+     * @since 1.3.3
+     */
+    protected final void releaseConnection(final LDAPInterface connection) {
+        if (connection instanceof LDAPConnection) {
+            ((LDAPConnection) connection).close();
+        }
+    }
+
+    /**
+     * Get the object that identifies the build so that resources can be shared by the executions in the build and
+     * released when it ends.
+     *
+     * @return The object that identifies the build or {@code null} if there is no Maven session.
+     * @since 1.3.3
+     */
+    protected final Object getBuildScope() {
+        return session == null ? null : SessionEndListener.install(session);
+    }
+
+    /**
+     * Get the host name and port of the LDAP directory server or the list of LDAP directory servers if
+     * {@link #servers} is configured.
+     *
+     * @return The host name and port separated by a colon or a comma separated list of host names and ports.
+     * @since 1.3.3
+     */
+    protected final String getServerAddress() {
+        if (servers == null || servers.length == 0) {
+            return host + ":" + port;
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (final String server : servers) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(server.trim());
+        }
+        return builder.toString();
+    }
+
     public boolean isSkip(){
         return this.skip;
     }
@@ -148,4 +494,22 @@ public abstract class AbstractLDAPMojo extends AbstractMojo implements FormatLog
     public void logError(final String message, final Throwable exception) {
         getLog().error(message, exception);
     }
+
+    /**
+     * An attempt to connect to the LDAP directory server that is repeated by {@link #retry(ConnectionAttempt)}.
+     *
+     * @param <T> The type of the connection.
+     */
+    private interface ConnectionAttempt<T> {
+
+        /**
+         * Make the connection attempt.
+         *
+         * @param timeout The maximum time in milliseconds allowed for the attempt.
+         * @return The connection.
+         * @throws LDAPException          If the attempt failed.
+         * @throws MojoExecutionException If the connection settings are not valid.
+         */
+        T attempt(long timeout) throws LDAPException, MojoExecutionException;
+    }
 }
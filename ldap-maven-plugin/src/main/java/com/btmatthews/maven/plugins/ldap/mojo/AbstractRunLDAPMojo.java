@@ -0,0 +1,366 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.btmatthews.maven.plugins.ldap.LDAPServer;
+import com.btmatthews.utils.monitor.mojo.AbstractRunMojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The abstract base class for the Mojos that launch embedded LDAP directory servers. It holds the parameters that
+ * describe the server type, the directory root, the admin account and the seed data.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public abstract class AbstractRunLDAPMojo extends AbstractRunMojo {
+
+    /**
+     * The server can be one of:
+     * <ul>
+     * <li>apacheds</li> - Use ApacheDS 1.5.5
+     * <li>opendj</li> - Use OpenDJ 2.6.0
+     * <li>unboundid</li> - Use UnboundID 3.1.0
+     * <li>dependency-[serverType]</li> - Use custom server included as plugin dependency and identified by <b>serverType</b>
+     * <li>dependency-[serverType]-[groupId]:[artifactId]:[version]</li> - Use custom server specified by the GAV coordinates and identified by <b>serverType</b>
+     * </ul>
+     */
+    @Parameter(property = "ldap.type", defaultValue = "unboundid")
+    private String serverType;
+    /**
+     * The identity of the admin account for tbe directory server.
+     */
+    @Parameter(property = "ldap.authDn", defaultValue = "uid=admin,ou=system")
+    private String authDn;
+    /**
+     * The credentials for the admin account of the directory server.
+     */
+    @Parameter(property = "ldap.passwd", defaultValue = "secret")
+    private String passwd;
+    /**
+     * The root DN for the LDAP server.
+     */
+    @Parameter(property = "ldap.root", required = true)
+    private String rootDn;
+    /**
+     *
+     */
+    @Parameter(property = "ldap.objectClasses", required = false)
+    private String objectClasses;
+    /**
+     * An optional LDIF file that can be used to seed the embedded LDAP server.
+     */
+    @Parameter(property = "ldap.ldif", required = false)
+    private File ldifFile;
+    /**
+     * Optional additional sources of seed data that are loaded after {@link #ldifFile}. Each source can be an LDIF or
+     * DSML file, a directory containing seed files or a glob pattern such as {@code src/test/ldap/*.ldif}. The seed
+     * files are parsed concurrently and parent entries are imported before their children regardless of which file
+     * they are in. ApacheDS and OpenDJ only support LDIF seed files.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(required = false)
+    private File[] seeds;
+    /**
+     * The port for the LDAP server. If the port is {@code 0} then the server binds an ephemeral port, which avoids
+     * port clashes between parallel builds. The port that was bound is published as a project property.
+     */
+    @Parameter(property = "ldap.port", defaultValue = "389")
+    private int ldapPort;
+    /**
+     * An optional directory in which an image of the seeded directory is cached, for example
+     * {@code ${project.build.directory}/ldap-snapshots} or a directory below {@code ~/.m2}. Later starts with the
+     * same seed data, root DN and schema restore the image instead of parsing the LDIF file. Only supported by the
+     * UnboundID server.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.snapshotDirectory", required = false)
+    private File snapshotDirectory;
+    /**
+     * An optional comma separated list of attributes that are indexed for equality searches, for example
+     * {@code uid,mail,member}. Supported by the UnboundID and ApacheDS servers.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.indexAttributes", required = false)
+    private String indexAttributes;
+    /**
+     * The optional maximum number of entries returned by a search. Only supported by the UnboundID server.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.sizeLimit", required = false)
+    private Integer sizeLimit;
+    /**
+     * The optional maximum number of concurrent client connections. Supported by the UnboundID and ApacheDS servers.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.maxConnections", required = false)
+    private Integer maxConnections;
+    /**
+     * If {@code false} then entries are not checked against the schema, which speeds up loading fixtures that are
+     * known to be valid. If {@code indexAttributes} is also set then the schema is kept for the indexes and only
+     * attribute syntax and structural object class checking are disabled. Only supported by the UnboundID server.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.schemaEnforcement", required = false)
+    private Boolean schemaEnforcement;
+    /**
+     * The optional maximum number of entries kept in the change log. The change log is disabled if it is zero. Only
+     * supported by the UnboundID server.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.maxChangeLogEntries", required = false)
+    private Integer maxChangeLogEntries;
+    /**
+     * The optional number of threads that process client requests. Supported by the ApacheDS and OpenDJ servers. The
+     * UnboundID server uses a thread per connection.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.workerThreads", required = false)
+    private Integer workerThreads;
+    /**
+     * The optional maximum number of pending connections queued by the listener before they are accepted.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.connectionBacklog", required = false)
+    private Integer connectionBacklog;
+    /**
+     * If set then Nagle's algorithm is enabled or disabled on client connections. Supported by the ApacheDS and OpenDJ
+     * servers. The UnboundID server always disables Nagle's algorithm.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.tcpNoDelay", required = false)
+    private Boolean tcpNoDelay;
+    /**
+     * If set then TCP keep-alive is enabled or disabled on client connections. Supported by the ApacheDS and OpenDJ
+     * servers. The UnboundID server always enables keep-alive.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.keepAlive", required = false)
+    private Boolean keepAlive;
+    /**
+     * The optional size in bytes of the socket receive buffer for client connections.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.receiveBufferSize", required = false)
+    private Integer receiveBufferSize;
+    /**
+     * The optional size in bytes of the socket send buffer for client connections.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.sendBufferSize", required = false)
+    private Integer sendBufferSize;
+    /**
+     * If {@code true} then per-operation counters, latency histograms, connection counts and samples of the slowest
+     * operations are collected, published through JMX and written to {@code metricsFile} when the server is stopped.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.metrics", defaultValue = "false")
+    private boolean metrics;
+    /**
+     * The file to which the summary of the operation metrics is written if {@code metrics} is {@code true}.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.metricsFile", defaultValue = "${project.build.directory}/ldap-metrics.txt")
+    private File metricsFile;
+    /**
+     * An optional file to which the client connections and operations are logged. The access log is written by a
+     * background thread.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.accessLogFile", required = false)
+    private File accessLogFile;
+    /**
+     * The optional number of entries cached by the directory partition. Only supported by the ApacheDS server.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.entryCacheSize", required = false)
+    private Integer entryCacheSize;
+    /**
+     * The optional number of records cached by each attribute index. Only supported by the ApacheDS server.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.indexCacheSize", required = false)
+    private Integer indexCacheSize;
+    /**
+     * If {@code false} then the directory partition is not synchronised to disk after every write, which speeds up
+     * loading large fixtures. Only supported by the ApacheDS server.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.syncOnWrite", required = false)
+    private Boolean syncOnWrite;
+    /**
+     * If {@code true} then the directory is discarded when the server is stopped instead of being kept in the working
+     * directory, which suits throw-away test servers. Only supported by the ApacheDS server because the other servers
+     * always hold the directory in memory.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.inMemory", required = false)
+    private Boolean inMemory;
+    /**
+     * The current Maven project. The ports the servers are listening on are published as its properties.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+    /**
+     * The build target directory.
+     */
+    @Parameter(defaultValue = "${project.build.directory}", required = true)
+    private File outputDirectory;
+
+    /**
+     * Get the port for the LDAP server.
+     *
+     * @return The port or {@code 0} if the server binds an ephemeral port.
+     */
+    protected final int getLdapPort() {
+        return ldapPort;
+    }
+
+    /**
+     * Get the current Maven project.
+     *
+     * @return The Maven project.
+     */
+    protected final MavenProject getProject() {
+        return project;
+    }
+
+    /**
+     * Get the server type.
+     *
+     * @return The server type.
+     */
+    @Override
+    public String getServerType() {
+        if (serverType.startsWith("dependency-")) {
+            return serverType.substring(11);
+        }
+        if (serverType.startsWith("gav-")) {
+            int index = serverType.indexOf("-", 4);
+            if (index > 0) {
+                return serverType.substring(4, index);
+            }
+        }
+        return serverType;
+    }
+
+    /**
+     * Get the embedded LDAP directory server configuration.
+     *
+     * @return A {@link Map} containing the server configuration.
+     */
+    @Override
+    public Map<String, Object> getServerConfig() {
+        final Map<String, Object> config = new HashMap<String, Object>();
+        config.put(LDAPServer.ROOT, rootDn);
+        if (objectClasses != null) {
+            config.put(LDAPServer.OBJECT_CLASSES, objectClasses.split(","));
+        }
+        config.put(LDAPServer.WORK_DIR, new File(outputDirectory, serverType));
+        if (ldifFile != null) {
+            config.put(LDAPServer.LDIF_FILE, ldifFile);
+        }
+        if (seeds != null && seeds.length > 0) {
+            config.put(LDAPServer.SEED_FILES, SeedSources.expand(seeds));
+        }
+        config.put(LDAPServer.LDAP_PORT, ldapPort);
+        if (snapshotDirectory != null) {
+            config.put(LDAPServer.SNAPSHOT_DIR, snapshotDirectory);
+        }
+        if (indexAttributes != null) {
+            config.put(LDAPServer.INDEX_ATTRIBUTES, indexAttributes.trim().split("\\s*,\\s*"));
+        }
+        if (sizeLimit != null) {
+            config.put(LDAPServer.SIZE_LIMIT, sizeLimit);
+        }
+        if (maxConnections != null) {
+            config.put(LDAPServer.MAX_CONNECTIONS, maxConnections);
+        }
+        if (schemaEnforcement != null) {
+            config.put(LDAPServer.SCHEMA_ENFORCEMENT, schemaEnforcement);
+        }
+        if (maxChangeLogEntries != null) {
+            config.put(LDAPServer.MAX_CHANGELOG_ENTRIES, maxChangeLogEntries);
+        }
+        if (workerThreads != null) {
+            config.put(LDAPServer.WORKER_THREADS, workerThreads);
+        }
+        if (connectionBacklog != null) {
+            config.put(LDAPServer.CONNECTION_BACKLOG, connectionBacklog);
+        }
+        if (tcpNoDelay != null) {
+            config.put(LDAPServer.TCP_NO_DELAY, tcpNoDelay);
+        }
+        if (keepAlive != null) {
+            config.put(LDAPServer.KEEP_ALIVE, keepAlive);
+        }
+        if (receiveBufferSize != null) {
+            config.put(LDAPServer.RECEIVE_BUFFER_SIZE, receiveBufferSize);
+        }
+        if (sendBufferSize != null) {
+            config.put(LDAPServer.SEND_BUFFER_SIZE, sendBufferSize);
+        }
+        if (metrics && metricsFile != null) {
+            config.put(LDAPServer.METRICS_FILE, metricsFile);
+        }
+        if (accessLogFile != null) {
+            config.put(LDAPServer.ACCESS_LOG_FILE, accessLogFile);
+        }
+        if (entryCacheSize != null) {
+            config.put(LDAPServer.ENTRY_CACHE_SIZE, entryCacheSize);
+        }
+        if (indexCacheSize != null) {
+            config.put(LDAPServer.INDEX_CACHE_SIZE, indexCacheSize);
+        }
+        if (syncOnWrite != null) {
+            config.put(LDAPServer.SYNC_ON_WRITE, syncOnWrite);
+        }
+        if (inMemory != null) {
+            config.put(LDAPServer.IN_MEMORY, inMemory);
+        }
+        config.put(LDAPServer.AUTH_DN, authDn);
+        config.put(LDAPServer.PASSWD, passwd);
+        return config;
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link FormatWriter} that splits a dump into several files. A new file is started when the current file
+ * reaches a maximum number of directory entries or bytes. The directory entries can also be split by subtree in
+ * which case each child of the search base gets its own sequence of files. Only a limited number of files are kept
+ * open at once so when the search results for different subtrees are interleaved the least recently used file is
+ * closed and the next entry for that subtree starts a new file. Once the writer has been closed
+ * {@link #writeManifest()} writes a manifest listing each file with the number of directory entries, size and
+ * checksum.
+ * <p>
+ * The file names are derived from the configured file name by inserting the subtree and a sequence number before the
+ * extension. For example, {@code dump.ldif} becomes {@code dump-0001.ldif} or {@code dump-ou_people-0001.ldif}. The
+ * subtree is the normalized RDN with any characters that may not be safe in file names replaced by underscores. If
+ * two subtrees end up with the same name, for example {@code cn=John Smith} and {@code cn=John_Smith}, then a number
+ * is appended to the name of the later subtree giving {@code dump-cn_john_smith_2-0001.ldif}. The manifest is
+ * written to {@code dump.ldif.manifest}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public abstract class AbstractShardedFormatWriter implements FormatWriter {
+
+    /**
+     * The key used for directory entries that are not in a subtree below the search base.
+     */
+    private static final String BASE_KEY = "";
+    /**
+     * The directory in which the files are created.
+     */
+    private final File outputDirectory;
+    /**
+     * The configured file name.
+     */
+    private final String filename;
+    /**
+     * The maximum number of directory entries in each file or zero if there is no limit.
+     */
+    private final long maxEntries;
+    /**
+     * The maximum number of bytes in each file or zero if there is no limit. Files may slightly exceed this limit
+     * because a directory entry is never split across files.
+     */
+    private final long maxBytes;
+    /**
+     * The search base if the directory entries are split by subtree or {@code null} otherwise.
+     */
+    private final DN subtreeBase;
+    /**
+     * The maximum number of files that are open at once.
+     */
+    private final int maxOpenFiles;
+    /**
+     * The files that are currently open keyed by subtree in order from least to most recently used.
+     */
+    private final Map<String, FileFormatWriter> openShards = new LinkedHashMap<String, FileFormatWriter>(16, 0.75f,
+            true);
+    /**
+     * The number of files created for each subtree.
+     */
+    private final Map<String, Integer> shardCounts = new HashMap<String, Integer>();
+    /**
+     * The name used in the file names for each subtree.
+     */
+    private final Map<String, String> shardNames = new HashMap<String, String>();
+    /**
+     * The names that have already been used for a subtree.
+     */
+    private final Set<String> usedShardNames = new HashSet<String>();
+    /**
+     * Lists the files that have been completed.
+     */
+    private final DumpManifest manifest = new DumpManifest();
+
+    /**
+     * Initialise the writer.
+     *
+     * @param outputDirectory The directory in which the files are created.
+     * @param filename        The configured file name.
+     * @param maxEntries      The maximum number of directory entries in each file or zero if there is no limit.
+     * @param maxBytes        The maximum number of bytes in each file or zero if there is no limit.
+     * @param subtreeBase     The search base if the directory entries are to be split by subtree or {@code null}.
+     * @param maxOpenFiles    The maximum number of files that are open at once.
+     * @throws LDAPException If the search base is not a valid distinguished name.
+     */
+    protected AbstractShardedFormatWriter(final File outputDirectory,
+                                          final String filename,
+                                          final long maxEntries,
+                                          final long maxBytes,
+                                          final String subtreeBase,
+                                          final int maxOpenFiles)
+            throws LDAPException {
+        this.outputDirectory = outputDirectory;
+        this.filename = filename;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.subtreeBase = subtreeBase == null ? null : new DN(subtreeBase);
+        this.maxOpenFiles = Math.max(1, maxOpenFiles);
+    }
+
+    /**
+     * Write the directory entry to the current file for its subtree starting a new file if the current file is
+     * full or was closed to make way for other subtrees.
+     *
+     * @param entry The directory entry.
+     * @throws IOException If there was an error creating or writing to the file.
+     */
+    public final void printEntry(final Entry entry) throws IOException {
+        if (entry != null) {
+            final String key = getSubtreeKey(entry);
+            FileFormatWriter shard = openShards.get(key);
+            if (shard != null && isFull(shard)) {
+                openShards.remove(key);
+                shard.close();
+                shard = null;
+            }
+            if (shard == null) {
+                if (openShards.size() >= maxOpenFiles) {
+                    closeLeastRecentlyUsedShard();
+                }
+                shard = openShard(key);
+                openShards.put(key, shard);
+            }
+            shard.printEntry(entry);
+        }
+    }
+
+    /**
+     * Close all the open files.
+     *
+     * @throws IOException If there was an error closing the files.
+     */
+    public final void close() throws IOException {
+        try {
+            for (final FileFormatWriter shard : openShards.values()) {
+                shard.close();
+            }
+        } finally {
+            openShards.clear();
+        }
+    }
+
+    /**
+     * Write the manifest listing the files that were written. This should only be called after the writer has been
+     * closed and the dump succeeded.
+     *
+     * @throws IOException If there was an error writing the manifest.
+     */
+    public final void writeManifest() throws IOException {
+        manifest.write(new File(outputDirectory, filename + ".manifest"));
+    }
+
+    /**
+     * Create the writer that formats the directory entries written to a file.
+     *
+     * @param outputStream The output stream for the file.
+     * @return The writer.
+     * @throws IOException If the writer could not be created.
+     */
+    protected abstract FormatWriter createWriter(OutputStream outputStream) throws IOException;
+
+    /**
+     * Determine which subtree a directory entry belongs to. This is the relative distinguished name of the ancestor
+     * immediately below the search base.
+     *
+     * @param entry The directory entry.
+     * @return The subtree key or {@link #BASE_KEY} if directory entries are not being split by subtree or the entry
+     *         is not below the search base.
+     * @throws IOException If the distinguished name of the directory entry is invalid.
+     */
+    private String getSubtreeKey(final Entry entry) throws IOException {
+        if (subtreeBase != null) {
+            try {
+                DN dn = entry.getParsedDN();
+                while (dn != null && dn.isDescendantOf(subtreeBase, false)) {
+                    final DN parent = dn.getParent();
+                    if (subtreeBase.equals(parent)) {
+                        return dn.getRDN().toNormalizedString();
+                    }
+                    dn = parent;
+                }
+            } catch (final LDAPException e) {
+                final IOException exception = new IOException("Invalid distinguished name: " + entry.getDN());
+                exception.initCause(e);
+                throw exception;
+            }
+        }
+        return BASE_KEY;
+    }
+
+    /**
+     * Close the file that was least recently written to.
+     *
+     * @throws IOException If there was an error closing the file.
+     */
+    private void closeLeastRecentlyUsedShard() throws IOException {
+        final Iterator<FileFormatWriter> iterator = openShards.values().iterator();
+        final FileFormatWriter shard = iterator.next();
+        iterator.remove();
+        shard.close();
+    }
+
+    /**
+     * Create the next file for a subtree.
+     *
+     * @param key The subtree key.
+     * @return The newly opened file.
+     * @throws IOException If there was an error creating the file.
+     */
+    private FileFormatWriter openShard(final String key) throws IOException {
+        final Integer count = shardCounts.get(key);
+        final int number = count == null ? 1 : count + 1;
+        shardCounts.put(key, number);
+        final File file = new File(outputDirectory, getShardFilename(key, number));
+        final ChecksumOutputStream outputStream = new ChecksumOutputStream(new FileOutputStream(file));
+        try {
+            final FormatWriter writer = createWriter(outputStream);
+            if (writer == null) {
+                throw new IOException("Error creating writer for output file: " + file);
+            }
+            return new FileFormatWriter(file, outputStream, writer, manifest);
+        } catch (final IOException e) {
+            outputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Build the name of a file by inserting the subtree name and sequence number before the extension of the
+     * configured file name.
+     *
+     * @param key    The subtree key.
+     * @param number The sequence number.
+     * @return The file name.
+     */
+    private String getShardFilename(final String key, final int number) {
+        final int index = filename.lastIndexOf('.');
+        final String prefix = index > 0 ? filename.substring(0, index) : filename;
+        final String extension = index > 0 ? filename.substring(index) : "";
+        final StringBuilder builder = new StringBuilder(prefix);
+        builder.append('-');
+        if (key.length() > 0) {
+            builder.append(getShardName(key));
+            builder.append('-');
+        }
+        builder.append(String.format("%04d", number));
+        builder.append(extension);
+        return builder.toString();
+    }
+
+    /**
+     * Get the name used in the file names for a subtree. This is the subtree key with any characters that may not be
+     * safe in file names replaced with underscores. A number is appended if that name is already used by a different
+     * subtree so that no two subtrees write to the same files.
+     *
+     * @param key The subtree key.
+     * @return The subtree name.
+     */
+    private String getShardName(final String key) {
+        String name = shardNames.get(key);
+        if (name == null) {
+            final String safeKey = key.replaceAll("[^A-Za-z0-9._-]", "_");
+            name = safeKey;
+            for (int suffix = 2; usedShardNames.contains(name); suffix++) {
+                name = safeKey + "_" + suffix;
+            }
+            usedShardNames.add(name);
+            shardNames.put(key, name);
+        }
+        return name;
+    }
+
+    /**
+     * Determine if a file has reached the maximum number of directory entries or bytes.
+     *
+     * @param shard The file.
+     * @return {@code true} if the file is full.
+     */
+    private boolean isFull(final FileFormatWriter shard) {
+        return (maxEntries > 0 && shard.getEntryCount() >= maxEntries)
+                || (maxBytes > 0 && shard.getByteCount() >= maxBytes);
+    }
+}
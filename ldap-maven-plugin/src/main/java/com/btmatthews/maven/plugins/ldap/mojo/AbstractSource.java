@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.util.Properties;
 
 /**
  * The abstract base class for DSML or LDIF source files located on the class path or file system.
@@ -80,6 +81,37 @@ public abstract class AbstractSource implements Source {
         }
     }
 
+    /**
+     * Get the location of the source on the class path or file system.
+     *
+     * @return The source location.
+     * @since 1.3.3
+     */
+    public final String getPath() {
+        return path;
+    }
+
+    /**
+     * Get the name of the format of the source. By default the format is detected from the file name or content.
+     *
+     * @return Always returns {@code null}.
+     * @since 1.3.3
+     */
+    public String getFormat() {
+        return null;
+    }
+
+    /**
+     * Get the configuration properties used to customise the format handler for the source. By default the format
+     * handler is not customised.
+     *
+     * @return Always returns {@code null}.
+     * @since 1.3.3
+     */
+    public Properties getConfiguration() {
+        return null;
+    }
+
     /**
      * Convert the source to a string.
      *
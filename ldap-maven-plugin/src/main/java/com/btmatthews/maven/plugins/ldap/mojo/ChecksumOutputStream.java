@@ -0,0 +1,117 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * An output stream that counts the bytes and calculates the SHA-256 checksum of the data written to an underlying
+ * output stream.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class ChecksumOutputStream extends FilterOutputStream {
+
+    /**
+     * The algorithm used to calculate the checksum.
+     */
+    private static final String ALGORITHM = "SHA-256";
+    /**
+     * Used to convert the checksum to a hexadecimal string.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /**
+     * Used to calculate the checksum.
+     */
+    private final MessageDigest digest;
+    /**
+     * The number of bytes written.
+     */
+    private long byteCount;
+
+    /**
+     * Initialise the stream with the underlying output stream.
+     *
+     * @param outputStream The underlying output stream.
+     */
+    public ChecksumOutputStream(final OutputStream outputStream) {
+        super(outputStream);
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The " + ALGORITHM + " algorithm is not supported", e);
+        }
+    }
+
+    /**
+     * Write a single byte to the underlying output stream.
+     *
+     * @param b The byte.
+     * @throws IOException If there was an error writing to the underlying output stream.
+     */
+    @Override
+    public void write(final int b) throws IOException {
+        out.write(b);
+        digest.update((byte) b);
+        byteCount++;
+    }
+
+    /**
+     * Write a range of bytes to the underlying output stream.
+     *
+     * @param b   The bytes.
+     * @param off The offset of the first byte.
+     * @param len The number of bytes.
+     * @throws IOException If there was an error writing to the underlying output stream.
+     */
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        out.write(b, off, len);
+        digest.update(b, off, len);
+        byteCount += len;
+    }
+
+    /**
+     * Get the number of bytes written.
+     *
+     * @return The number of bytes.
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Get the checksum of the bytes written as a hexadecimal string. This completes the checksum calculation so it
+     * should only be called once all the data has been written.
+     *
+     * @return The checksum.
+     */
+    public String getChecksum() {
+        final byte[] bytes = digest.digest();
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; ++i) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+}
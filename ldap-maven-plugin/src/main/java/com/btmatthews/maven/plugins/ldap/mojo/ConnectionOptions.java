@@ -0,0 +1,145 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.unboundid.ldap.sdk.LDAPConnectionOptions;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Describes the options used for connections to the LDAP directory server. A preset can be used as the starting point
+ * and the individual options override the values from the preset.
+ * <ul>
+ * <li>{@code default} - the defaults used by the LDAP SDK.</li>
+ * <li>{@code bulkLoad} - TCP_NODELAY and a large send buffer for streaming change records. Synchronous mode is not
+ * used because parallel DSMLv2 batch requests share the connection between threads.</li>
+ * <li>{@code bulkDump} - synchronous mode, a large receive buffer and a large maximum message size for streaming
+ * search results containing big entries.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class ConnectionOptions {
+
+    /**
+     * The socket buffer size used by the bulk presets.
+     */
+    private static final int BULK_BUFFER_SIZE = 1024 * 1024;
+    /**
+     * The maximum message size used by the bulk dump preset.
+     */
+    private static final int BULK_MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+    /**
+     * The name of the preset used as the starting point.
+     */
+    private String preset = "default";
+    /**
+     * If set, whether connections operate in synchronous mode without a separate reader thread.
+     */
+    private Boolean useSynchronousMode;
+    /**
+     * If set, whether the TCP_NODELAY socket option is enabled.
+     */
+    private Boolean tcpNoDelay;
+    /**
+     * If set, whether the SO_KEEPALIVE socket option is enabled.
+     */
+    private Boolean keepAlive;
+    /**
+     * If set, the socket send buffer size in bytes.
+     */
+    private Integer sendBufferSize;
+    /**
+     * If set, the socket receive buffer size in bytes.
+     */
+    private Integer receiveBufferSize;
+    /**
+     * If set, the maximum time in milliseconds to wait for a response to an operation. Zero means no timeout.
+     */
+    private Long responseTimeout;
+    /**
+     * If set, the maximum size in bytes of a message received from the LDAP directory server.
+     */
+    private Integer maxMessageSize;
+
+    /**
+     * Default constructor used by plexus when injecting the configuration.
+     */
+    public ConnectionOptions() {
+    }
+
+    /**
+     * Initialise the connection options from a preset.
+     *
+     * @param preset The name of the preset.
+     */
+    public ConnectionOptions(final String preset) {
+        this.preset = preset;
+    }
+
+    /**
+     * Create the LDAP SDK connection options from the preset and the individual options.
+     *
+     * @return The connection options.
+     * @throws MojoExecutionException If the preset is not recognised.
+     */
+    public LDAPConnectionOptions toLDAPConnectionOptions() throws MojoExecutionException {
+        final LDAPConnectionOptions options = new LDAPConnectionOptions();
+        if ("bulkLoad".equals(preset)) {
+            options.setUseTCPNoDelay(true);
+            options.setSendBufferSize(BULK_BUFFER_SIZE);
+        } else if ("bulkDump".equals(preset)) {
+            options.setUseSynchronousMode(true);
+            options.setReceiveBufferSize(BULK_BUFFER_SIZE);
+            options.setMaxMessageSize(BULK_MAX_MESSAGE_SIZE);
+        } else if (preset != null && !"default".equals(preset)) {
+            throw new MojoExecutionException("Unknown connection options preset: " + preset);
+        }
+        if (useSynchronousMode != null) {
+            options.setUseSynchronousMode(useSynchronousMode);
+        }
+        if (tcpNoDelay != null) {
+            options.setUseTCPNoDelay(tcpNoDelay);
+        }
+        if (keepAlive != null) {
+            options.setUseKeepAlive(keepAlive);
+        }
+        if (sendBufferSize != null) {
+            options.setSendBufferSize(sendBufferSize);
+        }
+        if (receiveBufferSize != null) {
+            options.setReceiveBufferSize(receiveBufferSize);
+        }
+        if (responseTimeout != null) {
+            options.setResponseTimeoutMillis(responseTimeout);
+        }
+        if (maxMessageSize != null) {
+            options.setMaxMessageSize(maxMessageSize);
+        }
+        return options;
+    }
+
+    /**
+     * Convert the connection options to a string.
+     *
+     * @return The name of the preset.
+     */
+    @Override
+    public String toString() {
+        return preset;
+    }
+}
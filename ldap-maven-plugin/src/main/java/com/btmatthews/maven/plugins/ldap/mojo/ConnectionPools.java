@@ -0,0 +1,130 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Holds the connection pools shared by the load and dump goals. Pools are scoped to the build so that all the
+ * executions and modules in a build reuse the same connections. The pools belonging to a build are closed when the
+ * build ends, and any pools that are still open when the JVM exits are closed by a shutdown hook.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class ConnectionPools {
+
+    /**
+     * The connection pools keyed by build and then by the connection settings.
+     */
+    private static final Map<Object, Map<String, LDAPConnectionPool>> POOLS =
+            new WeakHashMap<Object, Map<String, LDAPConnectionPool>>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("ldap-connection-pools-shutdown") {
+            @Override
+            public void run() {
+                closeAll();
+            }
+        });
+    }
+
+    /**
+     * Hide the constructor because this class only has static methods.
+     */
+    private ConnectionPools() {
+    }
+
+    /**
+     * Get the connection pool registered for a build.
+     *
+     * @param session Identifies the build.
+     * @param key     Identifies the connection settings.
+     * @return The connection pool or {@code null} if no open connection pool has been registered.
+     */
+    static synchronized LDAPConnectionPool get(final Object session, final String key) {
+        final Map<String, LDAPConnectionPool> pools = POOLS.get(session);
+        if (pools != null) {
+            final LDAPConnectionPool pool = pools.get(key);
+            if (pool != null && !pool.isClosed()) {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Register a connection pool for a build. If another execution registered a pool with the same key first then
+     * the new pool is closed and the existing one is returned instead.
+     *
+     * @param session Identifies the build.
+     * @param key     Identifies the connection settings.
+     * @param pool    The connection pool.
+     * @return The connection pool that is registered for the key.
+     */
+    static synchronized LDAPConnectionPool put(final Object session, final String key, final LDAPConnectionPool pool) {
+        Map<String, LDAPConnectionPool> pools = POOLS.get(session);
+        if (pools == null) {
+            pools = new HashMap<String, LDAPConnectionPool>();
+            POOLS.put(session, pools);
+        }
+        final LDAPConnectionPool existing = pools.get(key);
+        if (existing != null && !existing.isClosed()) {
+            pool.close();
+            return existing;
+        }
+        pools.put(key, pool);
+        return pool;
+    }
+
+    /**
+     * Close the connection pools that were registered for a build.
+     *
+     * @param session Identifies the build.
+     */
+    static synchronized void close(final Object session) {
+        final Map<String, LDAPConnectionPool> pools = POOLS.remove(session);
+        if (pools != null) {
+            closePools(pools);
+        }
+    }
+
+    /**
+     * Close all the connection pools.
+     */
+    static synchronized void closeAll() {
+        for (final Map<String, LDAPConnectionPool> pools : POOLS.values()) {
+            closePools(pools);
+        }
+        POOLS.clear();
+    }
+
+    /**
+     * Close the connection pools.
+     *
+     * @param pools The connection pools.
+     */
+    private static void closePools(final Map<String, LDAPConnectionPool> pools) {
+        for (final LDAPConnectionPool pool : pools.values()) {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Represents CSV files located on the class path or file system. The first row of the file names the columns and
+ * each following row is loaded as a directory entry.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class Csv extends AbstractSource {
+
+    /**
+     * The template used to build the distinguished name of each entry. Column names in braces are replaced by the
+     * column values, for example {@code uid={uid},ou=People,dc=btmatthews,dc=com}. If not set the distinguished name
+     * is taken from the {@code dn} column.
+     */
+    private String dnTemplate;
+    /**
+     * The character that separates the columns. Use {@code \t} for tab separated files. The default is a comma.
+     */
+    private String separator;
+    /**
+     * The string that separates the values of multi-valued columns.
+     */
+    private String multiValueDelimiter;
+    /**
+     * The columns that hold multiple values separated by {@link #multiValueDelimiter}. If not set then all columns
+     * can hold multiple values.
+     */
+    private String[] multiValuedColumns;
+    /**
+     * The object classes added to every entry.
+     */
+    private String[] objectClasses;
+    /**
+     * Maps column names onto attribute names. A column mapped onto an empty attribute name is ignored. Columns that
+     * are not mapped are loaded into the attribute with the same name.
+     */
+    private Map<String, String> columns;
+    /**
+     * The number of threads used to parse rows. If not set one thread is used for each available processor.
+     */
+    private Integer threads;
+
+    /**
+     * Initialise the CSV source.
+     *
+     * @param path The location of the CSV file on the class path or file system.
+     */
+    public Csv(final String path) {
+        super(path);
+    }
+
+    /**
+     * Default constructor used by plexus when injecting the configuration.
+     */
+    public Csv() {
+        super(null);
+    }
+
+    /**
+     * Get the name of the format of the source.
+     *
+     * @return Always returns {@code csv}.
+     */
+    @Override
+    public String getFormat() {
+        return "csv";
+    }
+
+    /**
+     * Get the configuration properties that describe how rows are mapped onto directory entries.
+     *
+     * @return The configuration properties.
+     */
+    @Override
+    public Properties getConfiguration() {
+        final Properties configuration = new Properties();
+        setProperty(configuration, "dnTemplate", dnTemplate);
+        setProperty(configuration, "separator", separator);
+        setProperty(configuration, "multiValueDelimiter", multiValueDelimiter);
+        setProperty(configuration, "multiValuedColumns", join(multiValuedColumns));
+        setProperty(configuration, "objectClasses", join(objectClasses));
+        if (threads != null) {
+            setProperty(configuration, "threads", threads.toString());
+        }
+        if (columns != null) {
+            for (final Map.Entry<String, String> column : columns.entrySet()) {
+                configuration.setProperty("column." + column.getKey(),
+                        column.getValue() == null ? "" : column.getValue().trim());
+            }
+        }
+        return configuration;
+    }
+
+    /**
+     * Set a property if the value is not {@code null}.
+     *
+     * @param configuration The configuration properties.
+     * @param key           The property key.
+     * @param value         The property value.
+     */
+    private static void setProperty(final Properties configuration, final String key, final String value) {
+        if (value != null) {
+            configuration.setProperty(key, value);
+        }
+    }
+
+    /**
+     * Join the items of an array into a comma separated list.
+     *
+     * @param items The items or {@code null}.
+     * @return The comma separated list or {@code null} if {@code items} is {@code null}.
+     */
+    private static String join(final String[] items) {
+        if (items == null) {
+            return null;
+        }
+        final StringBuilder builder = new StringBuilder();
+        for (final String item : items) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(item);
+        }
+        return builder.toString();
+    }
+}
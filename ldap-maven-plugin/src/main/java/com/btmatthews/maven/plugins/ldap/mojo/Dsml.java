@@ -36,4 +36,15 @@ public final class Dsml extends AbstractSource {
     public Dsml(){
     	super(null);
     }
+
+    /**
+     * Get the name of the format of the source.
+     *
+     * @return Always returns {@code dsml}.
+     * @since 1.3.3
+     */
+    @Override
+    public String getFormat() {
+        return "dsml";
+    }
 }
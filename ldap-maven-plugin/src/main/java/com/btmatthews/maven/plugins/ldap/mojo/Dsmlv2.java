@@ -0,0 +1,53 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+/**
+ * Represents DSMLv2 batch request files located on the class path or file system.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class Dsmlv2 extends AbstractSource {
+
+    /**
+     * Initialise the DSMLv2 batch request source.
+     *
+     * @param path The location of the DSMLv2 batch request file on the class path or file system.
+     */
+    public Dsmlv2(final String path) {
+        super(path);
+    }
+
+    /**
+     * Default constructor used by plexus when injecting the configuration.
+     */
+    public Dsmlv2() {
+        super(null);
+    }
+
+    /**
+     * Get the name of the format of the source.
+     *
+     * @return Always returns {@code dsmlv2}.
+     * @since 1.3.3
+     */
+    @Override
+    public String getFormat() {
+        return "dsmlv2";
+    }
+}
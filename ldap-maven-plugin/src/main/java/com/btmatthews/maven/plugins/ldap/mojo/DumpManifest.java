@@ -0,0 +1,78 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the files written by a dump together with the number of directory entries, the size and the SHA-256
+ * checksum of each file. The manifest is a tab separated text file with one line per file so that downstream tools
+ * can verify and load the files concurrently.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class DumpManifest {
+
+    /**
+     * The header line written at the start of the manifest.
+     */
+    private static final String HEADER = "# file\tentries\tbytes\tsha-256";
+    /**
+     * The lines describing each file in the order they were added.
+     */
+    private final List<String> lines = new ArrayList<String>();
+
+    /**
+     * Add a file to the manifest.
+     *
+     * @param file       The file.
+     * @param entryCount The number of directory entries written to the file.
+     * @param byteCount  The size of the file.
+     * @param checksum   The SHA-256 checksum of the file.
+     */
+    public void addFile(final File file, final long entryCount, final long byteCount, final String checksum) {
+        lines.add(file.getName() + '\t' + entryCount + '\t' + byteCount + '\t' + checksum);
+    }
+
+    /**
+     * Write the manifest to a file.
+     *
+     * @param file The manifest file.
+     * @throws IOException If there was an error writing the manifest file.
+     */
+    public void write(final File file) throws IOException {
+        final PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writer.println(HEADER);
+            for (final String line : lines) {
+                writer.println(line);
+            }
+        } finally {
+            writer.close();
+        }
+        if (writer.checkError()) {
+            throw new IOException("Error writing manifest file: " + file);
+        }
+    }
+}
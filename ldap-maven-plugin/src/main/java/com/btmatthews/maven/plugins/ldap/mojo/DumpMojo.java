@@ -16,15 +16,22 @@
 
 package com.btmatthews.maven.plugins.ldap.mojo;
 
+import com.btmatthews.maven.plugins.ldap.EncodingFormatWriter;
 import com.btmatthews.maven.plugins.ldap.FormatHandler;
-import com.btmatthews.maven.plugins.ldap.dsml.DSMLFormatHandler;
-import com.btmatthews.maven.plugins.ldap.ldif.LDIFFormatHandler;
-import com.unboundid.ldap.sdk.LDAPConnection;
+import com.btmatthews.maven.plugins.ldap.FormatHandlerRegistry;
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+import com.btmatthews.maven.plugins.ldap.PipelinedFormatWriter;
+import com.btmatthews.maven.plugins.ldap.TeeFormatWriter;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPInterface;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * This is the abstract base class for all Mojos in the ldap-maven-plugin plugin
@@ -38,13 +45,9 @@ import java.io.*;
 @Mojo(name = "dump")
 public final class DumpMojo extends AbstractLDAPMojo {
     /**
-     * Handler used to dump LDAP directory entries to DSML files.
+     * Locates the format handlers. A format handler is only loaded when an output file of that format is written.
      */
-    private final FormatHandler dsmlFormatHandler = new DSMLFormatHandler();
-    /**
-     * Handler used to dump LDAP directory entries to LDIF files.
-     */
-    private final FormatHandler ldifFormatHandler = new LDIFFormatHandler();
+    private final FormatHandlerRegistry formatHandlerRegistry = new FormatHandlerRegistry(getClass().getClassLoader());
     /**
      * The search base.
      */
@@ -61,63 +64,273 @@ public final class DumpMojo extends AbstractLDAPMojo {
     @Parameter(defaultValue = "${project.build.directory}", required = true)
     private File outputDirectory;
     /**
-     * The output file name.
+     * The output file name. This is required unless {@link #outputs} are configured.
      */
-    @Parameter(required = true)
+    @Parameter
     private String filename;
     /**
      * The output file format.
      * <ul>
      * <li>ldif</li>
      * <li>dsml</li>
+     * <li>binary</li>
+     * <li>jsonl</li>
+     * <li>dsmlv2</li>
      * </ul>
+     * Other formats can be added by putting a library that provides a
+     * {@link com.btmatthews.maven.plugins.ldap.FormatHandlerProvider} on the plugin class path.
      */
     @Parameter(defaultValue = "ldif")
     private String format;
+    /**
+     * The number of threads used to encode directory entries. If greater than zero the dump is pipelined so that
+     * receiving search results, encoding directory entries and writing the output file happen concurrently. The
+     * default is to encode and write the directory entries on the thread that receives the search results.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "0")
+    private int encoderThreads;
+    /**
+     * The maximum number of directory entries that can be waiting to be encoded or written when the dump is
+     * pipelined.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "1024")
+    private int pipelineCapacity = 1024;
+    /**
+     * If greater than zero the dump is split into several files each containing at most this number of directory
+     * entries.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "0")
+    private long shardMaxEntries;
+    /**
+     * If greater than zero the dump is split into several files each containing approximately this number of bytes.
+     * A directory entry is never split across files so files may be slightly larger. The size of a file is only known
+     * once its entries have been written, so the dump is not pipelined when this is set.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "0")
+    private long shardMaxBytes;
+    /**
+     * If {@code true} the dump is split into separate files for each subtree immediately below the search base.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "false")
+    private boolean shardBySubtree;
+    /**
+     * The maximum number of files that are open at once when the dump is split into several files. If the search
+     * results for different subtrees are interleaved the least recently used file is closed and a new file is started
+     * for the next entry in that subtree. Each open file has its own encoder and writer threads when the dump is
+     * pipelined.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "16")
+    private int shardMaxOpenFiles = 16;
+    /**
+     * Additional output files. Every directory entry returned by the search is written to each of the output files
+     * so that the directory is only searched once regardless of how many formats are required.
+     *
+     * @since 1.3.3
+     */
+    @SuppressWarnings("MismatchedReadAndWriteOfArray")
+    @Parameter
+    private Output[] outputs;
+    /**
+     * If set a manifest listing the number of directory entries, size and checksum of each output file is written
+     * to this file in the output directory. When the dump is split into several files a manifest is always written
+     * for each output file.
+     *
+     * @since 1.3.3
+     */
+    @Parameter
+    private String manifestFilename;
 
     /**
-     * Execute the plugin goal by dumping the matching directory entries to a file in the specified format.
+     * Execute the plugin goal by dumping the matching directory entries to one or more files in the specified
+     * formats. The manifests are only written if the dump succeeded.
      *
-     * @throws MojoExecutionException If something unexpected happens.
+     * @throws MojoExecutionException If the dump failed or something unexpected happens.
      */
     public final void execute() throws MojoExecutionException {
-        final File outputFile = new File(outputDirectory, filename);
         if (outputDirectory.exists() || outputDirectory.mkdirs()) {
+            final DumpManifest manifest = new DumpManifest();
+            final List<FormatWriter> writers = new ArrayList<FormatWriter>();
+            boolean dumped = false;
             try {
-                final OutputStream outputStream = new FileOutputStream(outputFile);
-                try {
-                    final LDAPConnection connection = connect();
-                    try {
-                        final FormatHandler handler = getFormatHandler();
-                        if (handler != null) {
-                            handler.dump(connection, searchBase, searchFilter, outputStream, this);
+                FormatHandler dumpHandler = null;
+                for (final Output output : getOutputs()) {
+                    final FormatHandler handler = getFormatHandler(output.getFormat());
+                    if (handler == null) {
+                        getLog().warn("Output file format is not supported: " + output.getFormat());
+                    } else {
+                        final FormatWriter writer = createWriter(handler, output, manifest);
+                        if (writer == null) {
+                            logError("Error creating writer for output file: " + output);
+                        } else {
+                            writers.add(writer);
+                            dumpHandler = handler;
                         }
-                    } finally {
-                        connection.close();
                     }
-                } finally {
+                }
+                if (dumpHandler != null) {
+                    final LDAPInterface connection = getConnection();
+                    final boolean success;
                     try {
-                        outputStream.close();
-                    } catch (final IOException e) {
+                        dumped = true;
+                        success = dumpHandler.dump(connection, searchBase, searchFilter, combine(writers), this);
+                    } finally {
+                        releaseConnection(connection);
+                    }
+                    if (!success) {
+                        throw new MojoExecutionException("Error dumping directory entries from the LDAP directory");
+                    }
+                    for (final FormatWriter writer : writers) {
+                        if (writer instanceof AbstractShardedFormatWriter) {
+                            ((AbstractShardedFormatWriter) writer).writeManifest();
+                        }
+                    }
+                    if (manifestFilename != null) {
+                        manifest.write(new File(outputDirectory, manifestFilename));
                     }
                 }
-            } catch (final FileNotFoundException e) {
+            } catch (final IOException e) {
+                throw new MojoExecutionException("Error writing dump output files", e);
+            } finally {
+                if (!dumped) {
+                    close(writers);
+                }
             }
         }
     }
 
     /**
-     * Get the appropriate format handler based on the output file format.
+     * Get the output files. These are the file configured by {@link #filename} and {@link #format} followed by any
+     * additional {@link #outputs}.
      *
-     * @return The appropriate file handler or {@code null} if the output file format is not supported.
+     * @return The output files.
+     * @throws MojoExecutionException If no output files have been configured.
+     */
+    private List<Output> getOutputs() throws MojoExecutionException {
+        final List<Output> result = new ArrayList<Output>();
+        if (filename != null) {
+            result.add(new Output(format, filename));
+        }
+        if (outputs != null) {
+            result.addAll(Arrays.asList(outputs));
+        }
+        if (result.isEmpty()) {
+            throw new MojoExecutionException("No output files have been configured");
+        }
+        return result;
+    }
+
+    /**
+     * Create the writer for an output file. If sharding has been configured the writer splits the output into several
+     * files. Otherwise, the writer writes a single file that is added to the manifest when it is closed.
+     *
+     * @param handler  The format handler for the output file.
+     * @param output   Describes the output file.
+     * @param manifest The manifest to which single output files are added.
+     * @return The writer or {@code null} if the format handler could not create a writer.
+     * @throws IOException            If the output file could not be created.
+     * @throws MojoExecutionException If the search base is not a valid distinguished name.
      */
-    private FormatHandler getFormatHandler() {
-        if (format.equals("dsml")) {
-            return dsmlFormatHandler;
-        } else if (format.equals("ldif")) {
-            return ldifFormatHandler;
+    private FormatWriter createWriter(final FormatHandler handler,
+                                      final Output output,
+                                      final DumpManifest manifest)
+            throws IOException, MojoExecutionException {
+        if (shardMaxEntries > 0 || shardMaxBytes > 0 || shardBySubtree) {
+            final boolean pipelined = shardMaxBytes <= 0;
+            if (!pipelined && encoderThreads > 0) {
+                getLog().warn("Dump is not pipelined because it is split into files by size");
+            }
+            try {
+                return new AbstractShardedFormatWriter(outputDirectory, output.getFilename(), shardMaxEntries,
+                        shardMaxBytes, shardBySubtree ? searchBase : null, shardMaxOpenFiles) {
+                    @Override
+                    protected FormatWriter createWriter(final OutputStream outputStream) {
+                        final FormatWriter writer = handler.createWriter(outputStream, DumpMojo.this);
+                        if (writer == null || !pipelined) {
+                            return writer;
+                        }
+                        return pipeline(writer);
+                    }
+                };
+            } catch (final LDAPException e) {
+                throw new MojoExecutionException("Invalid search base: " + searchBase, e);
+            }
         } else {
-            return null;
+            final File outputFile = new File(outputDirectory, output.getFilename());
+            final ChecksumOutputStream outputStream = new ChecksumOutputStream(new FileOutputStream(outputFile));
+            final FormatWriter writer = handler.createWriter(outputStream, this);
+            if (writer == null) {
+                outputStream.close();
+                return null;
+            }
+            return new FileFormatWriter(outputFile, outputStream, pipeline(writer), manifest);
+        }
+    }
+
+    /**
+     * Combine the writers for the output files into a single writer.
+     *
+     * @param writers The writers for the output files.
+     * @return The only writer or a {@link TeeFormatWriter} if there is more than one output file.
+     */
+    private FormatWriter combine(final List<FormatWriter> writers) {
+        if (writers.size() == 1) {
+            return writers.get(0);
+        }
+        return new TeeFormatWriter(writers);
+    }
+
+    /**
+     * Close the writers for the output files when the dump could not be started.
+     *
+     * @param writers The writers for the output files.
+     */
+    private void close(final List<FormatWriter> writers) {
+        for (final FormatWriter writer : writers) {
+            try {
+                writer.close();
+            } catch (final IOException e) {
+                getLog().warn("Error closing output file", e);
+            }
+        }
+    }
+
+    /**
+     * Wrap the writer in a {@link PipelinedFormatWriter} if pipelining has been enabled by configuring one or more
+     * {@link #encoderThreads} and the writer supports it.
+     *
+     * @param writer The writer for the output file format.
+     * @return The pipelined writer or {@code writer} if pipelining is not enabled or supported.
+     */
+    private FormatWriter pipeline(final FormatWriter writer) {
+        if (encoderThreads > 0) {
+            if (writer instanceof EncodingFormatWriter) {
+                getLog().info("Pipelining dump with " + encoderThreads + " encoder thread(s)");
+                return new PipelinedFormatWriter((EncodingFormatWriter) writer, encoderThreads, pipelineCapacity);
+            }
+            getLog().warn("Output file format does not support pipelining");
         }
+        return writer;
+    }
+
+    /**
+     * Get the appropriate format handler based on the output file format.
+     *
+     * @param format The output file format.
+     * @return The appropriate file handler or {@code null} if the output file format is not supported.
+     */
+    private FormatHandler getFormatHandler(final String format) {
+        return formatHandlerRegistry.getHandler(format);
     }
 }
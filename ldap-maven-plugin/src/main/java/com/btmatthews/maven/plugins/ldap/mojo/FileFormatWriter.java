@@ -0,0 +1,115 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+import com.unboundid.ldap.sdk.Entry;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A {@link FormatWriter} that writes directory entries to a file and adds the file to a {@link DumpManifest} with
+ * the number of directory entries, size and checksum when it is closed.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class FileFormatWriter implements FormatWriter {
+
+    /**
+     * The file.
+     */
+    private final File file;
+    /**
+     * Counts the bytes written to the file and calculates the checksum.
+     */
+    private final ChecksumOutputStream outputStream;
+    /**
+     * Formats the directory entries.
+     */
+    private final FormatWriter writer;
+    /**
+     * The manifest to which the file is added when it is closed.
+     */
+    private final DumpManifest manifest;
+    /**
+     * The number of directory entries written to the file.
+     */
+    private long entryCount;
+
+    /**
+     * Initialise the writer.
+     *
+     * @param file         The file.
+     * @param outputStream The output stream for the file.
+     * @param writer       The writer that formats directory entries.
+     * @param manifest     The manifest to which the file is added when it is closed.
+     */
+    public FileFormatWriter(final File file,
+                            final ChecksumOutputStream outputStream,
+                            final FormatWriter writer,
+                            final DumpManifest manifest) {
+        this.file = file;
+        this.outputStream = outputStream;
+        this.writer = writer;
+        this.manifest = manifest;
+    }
+
+    /**
+     * Get the number of directory entries written to the file.
+     *
+     * @return The number of directory entries.
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Get the number of bytes written to the file.
+     *
+     * @return The number of bytes.
+     */
+    public long getByteCount() {
+        return outputStream.getByteCount();
+    }
+
+    /**
+     * Write a directory entry to the file.
+     *
+     * @param entry The directory entry.
+     * @throws IOException If there was an error writing to the file.
+     */
+    public void printEntry(final Entry entry) throws IOException {
+        writer.printEntry(entry);
+        entryCount++;
+    }
+
+    /**
+     * Close the writer and the file and add the file to the manifest.
+     *
+     * @throws IOException If there was an error closing the writer or file.
+     */
+    public void close() throws IOException {
+        try {
+            writer.close();
+        } finally {
+            outputStream.close();
+        }
+        manifest.addFile(file, entryCount, outputStream.getByteCount(), outputStream.getChecksum());
+    }
+}
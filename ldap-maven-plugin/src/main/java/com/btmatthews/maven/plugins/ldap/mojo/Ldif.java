@@ -36,4 +36,15 @@ public final class Ldif extends AbstractSource {
     public Ldif(){
     	super(null);
     }
+
+    /**
+     * Get the name of the format of the source.
+     *
+     * @return Always returns {@code ldif}.
+     * @since 1.3.3
+     */
+    @Override
+    public String getFormat() {
+        return "ldif";
+    }
 }
@@ -17,18 +17,30 @@
 package com.btmatthews.maven.plugins.ldap.mojo;
 
 import com.btmatthews.maven.plugins.ldap.FormatHandler;
-import com.btmatthews.maven.plugins.ldap.dsml.DSMLFormatHandler;
-import com.btmatthews.maven.plugins.ldap.ldif.LDIFFormatHandler;
-import com.unboundid.ldap.sdk.LDAPConnection;
+import com.btmatthews.maven.plugins.ldap.FormatHandlerRegistry;
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPInterface;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.ldif.LDIFException;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
 
 /**
- * Implement the goal that loads a LDIF or DSML file into the LDAP directory server.
+ * Implement the goal that loads LDAP directory entries from LDIF, DSML or other supported file formats into the LDAP
+ * directory server.
  *
  * @author <a href="mailto:brian.matthews@btmatthews.com">Brian Matthews</a>
  * @since 1.2.0
@@ -37,13 +49,9 @@ import java.io.InputStream;
 public final class LoadMojo extends AbstractLDAPMojo {
 
     /**
-     * Handler used to load LDAP directory entries from DSML files.
+     * Locates the format handlers. A format handler is only loaded when a source of that format is processed.
      */
-    private final FormatHandler dsmlFormatHandler = new DSMLFormatHandler();
-    /**
-     * Handler used to load LDAP directory entries from LDIF files.
-     */
-    private final FormatHandler ldifFormatHandler = new LDIFFormatHandler();
+    private final FormatHandlerRegistry formatHandlerRegistry = new FormatHandlerRegistry(getClass().getClassLoader());
     /**
      * The LDIF and DSML files to be processed.
      */
@@ -57,66 +65,254 @@ public final class LoadMojo extends AbstractLDAPMojo {
     @Parameter(defaultValue = "false")
     private boolean continueOnError;
 
+    /**
+     * If {@code true} the change records are checked against the schema before anything is loaded. The schema is
+     * read from {@link #schemaFile} or, if that is not set, from the LDAP directory server.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean validate;
+    /**
+     * If {@code true} the change records are checked against the schema and a report is produced but nothing is
+     * loaded. If {@link #schemaFile} is set the LDAP directory server is not contacted at all.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean validateOnly;
+    /**
+     * An LDIF file containing the subschema subentry used to validate the change records. If not set the schema is
+     * read from the LDAP directory server. Either way the schema is only read once per build.
+     */
+    @Parameter
+    private File schemaFile;
+    /**
+     * The number of threads used to validate the change records. If zero one thread is used for each available
+     * processor.
+     */
+    @Parameter(defaultValue = "0")
+    private int validationThreads;
+    /**
+     * If set the validation report is also written to this file.
+     */
+    @Parameter
+    private File validationReport;
+
     /**
      * Execute the plugin goal iterating over the list of source files and loading the LDAP directory entries from
-     * each file using the appropriate handler.
+     * each file using the appropriate handler. If validation is enabled all the source files are checked against the
+     * schema first.
      *
      * @throws MojoExecutionException If there was an error executing the plugin goal.
      */
     public void execute() throws MojoExecutionException {
-        if (!isSkip()){
-            final LDAPConnection connection = connect();
-            try {
-                for (final Source source : sources) {
-                    try {
-                        getLog().info("Processing input source: " + source);
-                        final FormatHandler handler = getFormatHandler(source);
-                        if (handler == null) {
-                            getLog().warn("No handler for input source: " + source);
-                        } else {
-                            final InputStream inputStream = source.open();
-                            if (inputStream == null) {
-                                if (!this.continueOnError) {
-                                    throw new MojoExecutionException("Cannot open source for reading: " + source);
-                                } else {
-                                    getLog().warn("Skipping source that could not be opened for reading: " + source);
-                                }
-                            } else {
-                                try {
-                                    handler.load(connection, source.open(), continueOnError, this);
-                                } finally {
-                                    inputStream.close();
-                                }
+        if (!isSkip()) {
+            if (validateOnly && schemaFile != null) {
+                validate(getSchema(null));
+            } else {
+                final LDAPInterface connection = getConnection();
+                try {
+                    if (validate || validateOnly) {
+                        validate(getSchema(connection));
+                    }
+                    if (!validateOnly) {
+                        for (final Source source : sources) {
+                            load(connection, source);
+                        }
+                    }
+                } finally {
+                    releaseConnection(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Load the LDAP directory entries from a source file using the appropriate handler.
+     *
+     * @param connection The connection to the LDAP directory server.
+     * @param source     Describes the source file.
+     * @throws MojoExecutionException If the source file could not be opened or closed and {@link #continueOnError}
+     *                                is {@code false}.
+     */
+    private void load(final LDAPInterface connection, final Source source) throws MojoExecutionException {
+        try {
+            getLog().info("Processing input source: " + source);
+            final InputStream inputStream = source.open();
+            if (inputStream == null) {
+                if (!this.continueOnError) {
+                    throw new MojoExecutionException("Cannot open source for reading: " + source);
+                } else {
+                    getLog().warn("Skipping source that could not be opened for reading: " + source);
+                }
+            } else {
+                try {
+                    final InputStream bufferedInputStream = new BufferedInputStream(inputStream);
+                    final FormatHandler handler = getFormatHandler(source, bufferedInputStream);
+                    if (handler == null) {
+                        getLog().warn("No handler for input source: " + source);
+                    } else {
+                        handler.load(connection, bufferedInputStream, continueOnError, this);
+                    }
+                } finally {
+                    inputStream.close();
+                }
+            }
+        } catch (final IOException e) {
+            if (!this.continueOnError) {
+                throw new MojoExecutionException("Error closing input source: " + source, e);
+            } else {
+                this.getLog().warn("Ignoring error closing input source: " + source, e);
+            }
+        }
+    }
+
+    /**
+     * Get the schema used to validate the change records.
+     *
+     * @param connection The connection to the LDAP directory server or {@code null} if the schema is to be read from
+     *                   {@link #schemaFile}.
+     * @return The schema.
+     * @throws MojoExecutionException If the schema could not be read.
+     */
+    private Schema getSchema(final LDAPInterface connection) throws MojoExecutionException {
+        try {
+            if (schemaFile != null) {
+                return SchemaCache.getSchema(getBuildScope(), schemaFile);
+            } else {
+                return SchemaCache.getSchema(getBuildScope(), connection, getServerAddress());
+            }
+        } catch (final IOException e) {
+            throw new MojoExecutionException("Could not read schema file: " + schemaFile, e);
+        } catch (final LDIFException e) {
+            throw new MojoExecutionException("Could not parse schema file: " + schemaFile, e);
+        } catch (final LDAPException e) {
+            throw new MojoExecutionException("Could not read schema from the LDAP directory server", e);
+        }
+    }
+
+    /**
+     * Check the change records in all the source files against the schema and report every problem found.
+     *
+     * @param schema The schema.
+     * @throws MojoExecutionException If any problems were found and {@link #continueOnError} is {@code false} or
+     *                                the report could not be written.
+     */
+    private void validate(final Schema schema) throws MojoExecutionException {
+        final int threads = validationThreads > 0 ? validationThreads : Runtime.getRuntime().availableProcessors();
+        final SchemaValidator validator = new SchemaValidator(schema, threads);
+        final List<String> report = new ArrayList<String>();
+        for (final Source source : sources) {
+            getLog().info("Validating input source: " + source);
+            final InputStream inputStream = source.open();
+            if (inputStream == null) {
+                report.add(source + ": Cannot open source for reading");
+            } else {
+                try {
+                    final InputStream bufferedInputStream = new BufferedInputStream(inputStream);
+                    final FormatHandler handler = getFormatHandler(source, bufferedInputStream);
+                    final FormatReader reader = handler == null ? null : handler.createReader(bufferedInputStream, this);
+                    if (reader == null) {
+                        report.add(source + ": No handler for input source");
+                    } else {
+                        try {
+                            for (final String problem : validator.validate(reader)) {
+                                report.add(source + ": " + problem);
                             }
+                        } finally {
+                            reader.close();
                         }
+                    }
+                } catch (final IOException e) {
+                    report.add(source + ": Error reading input source: " + e.getMessage());
+                } finally {
+                    try {
+                        inputStream.close();
                     } catch (final IOException e) {
-                        if (!this.continueOnError) {
-                            throw new MojoExecutionException("Error closing input source: " + source, e);
-                        } else {
-                            this.getLog().warn("Ignoring error closing input source: " + source, e);
-                        }
+                        getLog().warn("Ignoring error closing input source: " + source, e);
+                    }
+                }
+            }
+        }
+        for (final String problem : report) {
+            getLog().error(problem);
+        }
+        final String summary = "Validated " + validator.getRecordCount() + " change records and found "
+                + report.size() + " problems";
+        getLog().info(summary);
+        if (validationReport != null) {
+            writeValidationReport(summary, report, validator.getSummary());
+        }
+        if (!report.isEmpty() && !continueOnError) {
+            throw new MojoExecutionException(summary);
+        }
+    }
+
+    /**
+     * Write the validation report to {@link #validationReport}.
+     *
+     * @param summary  The one line summary.
+     * @param problems The problems found.
+     * @param details  The problems found in the directory entries grouped by type.
+     * @throws MojoExecutionException If the report could not be written.
+     */
+    private void writeValidationReport(final String summary,
+                                       final List<String> problems,
+                                       final List<String> details)
+            throws MojoExecutionException {
+        try {
+            final File parent = validationReport.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Could not create directory: " + parent);
+            }
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                    new FileOutputStream(validationReport), "UTF-8"));
+            try {
+                writer.println(summary);
+                writer.println();
+                for (final String problem : problems) {
+                    writer.println(problem);
+                }
+                if (!details.isEmpty()) {
+                    writer.println();
+                    for (final String detail : details) {
+                        writer.println(detail);
                     }
                 }
             } finally {
-                connection.close();
+                writer.close();
+            }
+            if (writer.checkError()) {
+                throw new IOException("Error writing " + validationReport);
             }
+        } catch (final IOException e) {
+            throw new MojoExecutionException("Could not write validation report: " + validationReport, e);
         }
     }
 
     /**
-     * Determine which format handler to use for a source file. If the source file is DSML then {@link #dsmlFormatHandler}
-     * will be used and if it is LDIF then {@link #ldifFormatHandler}.
+     * Determine which format handler to use for a source file. The format is determined by the type of the source
+     * or, if the source does not specify a format, detected from the file extension or content. If the source has
+     * configuration properties a format handler customised for the source is created.
      *
-     * @param source Describes the source file.
+     * @param source      Describes the source file.
+     * @param inputStream The input stream for the source file. This must support {@link InputStream#mark(int)}.
      * @return The appropriate format handler or {@code null} if the source is not supported.
+     * @throws IOException If there was an error reading the content to detect the format.
      */
-    private FormatHandler getFormatHandler(final Source source) {
-        if (source instanceof Dsml) {
-            return dsmlFormatHandler;
-        } else if (source instanceof Ldif) {
-            return ldifFormatHandler;
+    private FormatHandler getFormatHandler(final Source source,
+                                           final InputStream inputStream)
+            throws IOException {
+        String format = source.getFormat();
+        if (format == null) {
+            format = formatHandlerRegistry.detectFormat(source.getPath(), inputStream);
+            if (format == null) {
+                return null;
+            }
+            getLog().info("Detected format of input source: " + format);
+        }
+        final Properties configuration = source.getConfiguration();
+        if (configuration == null) {
+            return formatHandlerRegistry.getHandler(format);
         } else {
-            return null;
+            return formatHandlerRegistry.createHandler(format, configuration);
         }
     }
 }
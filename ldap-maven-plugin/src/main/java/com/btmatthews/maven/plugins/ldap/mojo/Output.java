@@ -0,0 +1,80 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+/**
+ * Describes an additional output file for the dump goal.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class Output {
+
+    /**
+     * The output file format.
+     */
+    private String format = "ldif";
+    /**
+     * The output file name.
+     */
+    private String filename;
+
+    /**
+     * Default constructor used by plexus when injecting the configuration.
+     */
+    public Output() {
+    }
+
+    /**
+     * Initialise the output file description.
+     *
+     * @param format   The output file format.
+     * @param filename The output file name.
+     */
+    public Output(final String format, final String filename) {
+        this.format = format;
+        this.filename = filename;
+    }
+
+    /**
+     * Get the output file format.
+     *
+     * @return The output file format.
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Get the output file name.
+     *
+     * @return The output file name.
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Convert the output file description to a string.
+     *
+     * @return The output file name and format.
+     */
+    @Override
+    public String toString() {
+        return filename + " (" + format + ")";
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.btmatthews.maven.plugins.ldap.ControlChannel;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.IOException;
+
+/**
+ * Implement the reset goal for the plugin which restores a running embedded LDAP directory server to the state it was
+ * in immediately after it was started and seeded. The server must have been started by the run goal with the control
+ * channel enabled.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+@Mojo(name = "reset")
+public final class ResetLDAPMojo extends AbstractMojo {
+
+    /**
+     * The port on which the control channel of the embedded LDAP directory server is listening.
+     */
+    @Parameter(property = "ldap.controlPort", required = true)
+    private int controlPort;
+    /**
+     * The key that must be sent to the control channel before a command.
+     */
+    @Parameter(property = "ldap.controlKey", defaultValue = "ldap")
+    private String controlKey;
+    /**
+     * The maximum time in milliseconds to wait for the reset to complete.
+     */
+    @Parameter(property = "ldap.resetTimeout", defaultValue = "60000")
+    private int resetTimeout;
+
+    /**
+     * Send the reset command to the control channel and wait for it to complete.
+     *
+     * @throws MojoExecutionException If the reset failed.
+     */
+    public void execute() throws MojoExecutionException {
+        try {
+            getLog().info("Resetting LDAP directory server");
+            ControlChannel.sendCommand(controlPort, controlKey, ControlChannel.RESET, resetTimeout);
+            getLog().info("Reset LDAP directory server");
+        } catch (final IOException e) {
+            throw new MojoExecutionException("Could not reset LDAP directory server", e);
+        }
+    }
+}
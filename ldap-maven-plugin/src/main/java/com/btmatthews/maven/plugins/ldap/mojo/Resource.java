@@ -0,0 +1,43 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+/**
+ * Represents files located on the class path or file system whose format is detected from the file extension or,
+ * if that is ambiguous, the content.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class Resource extends AbstractSource {
+
+    /**
+     * Initialise the source.
+     *
+     * @param path The location of the file on the class path or file system.
+     */
+    public Resource(final String path) {
+        super(path);
+    }
+
+    /**
+     * Default constructor used by plexus when injecting the configuration.
+     */
+    public Resource() {
+        super(null);
+    }
+}
@@ -17,15 +17,30 @@
 package com.btmatthews.maven.plugins.ldap.mojo;
 
 
+import com.btmatthews.maven.plugins.ldap.ControlChannel;
 import com.btmatthews.maven.plugins.ldap.LDAPServer;
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Server;
+import com.btmatthews.utils.monitor.ServerFactory;
+import com.btmatthews.utils.monitor.ServerFactoryLocator;
 import com.btmatthews.utils.monitor.mojo.AbstractRunMojo;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.ReflectionUtils;
 
 import java.io.File;
-import java.util.HashMap;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This Mojo implements the run goal which launches an embedded LDAP
@@ -38,97 +53,338 @@ import java.util.Map;
         name = "run",
         defaultPhase = LifecyclePhase.PRE_INTEGRATION_TEST,
         configurator = "include-server-dependencies")
-public final class RunLDAPMojo extends AbstractRunMojo {
+public final class RunLDAPMojo extends AbstractRunLDAPMojo {
 
     /**
-     * The server can be one of:
-     * <ul>
-     * <li>apacheds</li> - Use ApacheDS 1.5.5
-     * <li>opendj</li> - Use OpenDJ 2.6.0
-     * <li>unboundid</li> - Use UnboundID 3.1.0
-     * <li>dependency-[serverType]</li> - Use custom server included as plugin dependency and identified by <b>serverType</b>
-     * <li>dependency-[serverType]-[groupId]:[artifactId]:[version]</li> - Use custom server specified by the GAV coordinates and identified by <b>serverType</b>
-     * </ul>
+     * The interval in milliseconds at which the monitor thread of a daemon server is checked while waiting for the
+     * server to report its port.
      */
-    @Parameter(property = "ldap.type", defaultValue = "unboundid")
-    private String serverType;
+    private static final long START_POLL_INTERVAL = 100L;
+
     /**
-     * The identity of the admin account for tbe directory server.
+     * The name of the project property in which the port the server is listening on is published once it has
+     * started. Later goals can refer to it, for example {@code <port>${ldap.port}</port>} for the load and dump goals
+     * or as a system property for the integration tests.
+     *
+     * @since 1.3.3
      */
-    @Parameter(property = "ldap.authDn", defaultValue = "uid=admin,ou=system")
-    private String authDn;
+    @Parameter(property = "ldap.portProperty", defaultValue = "ldap.port")
+    private String portProperty;
     /**
-     * The credentials for the admin account of the directory server.
+     * An optional file to which the port the server is listening on is written once it has started. This allows
+     * processes that cannot read project properties to find the server.
+     *
+     * @since 1.3.3
      */
-    @Parameter(property = "ldap.passwd", defaultValue = "secret")
-    private String passwd;
+    @Parameter(property = "ldap.portFile", required = false)
+    private File portFile;
     /**
-     * The root DN for the LDAP server.
+     * The maximum time in milliseconds to wait for a daemon server that binds an ephemeral port to start. This
+     * includes the time taken to load the seed data.
+     *
+     * @since 1.3.3
      */
-    @Parameter(property = "ldap.root", required = true)
-    private String rootDn;
+    @Parameter(property = "ldap.startTimeout", defaultValue = "300000")
+    private long startTimeout = 300000L;
     /**
+     * The port on which the control channel used by the reset goal and test code listens. The control channel is
+     * disabled if this is zero.
      *
+     * @since 1.3.3
      */
-    @Parameter(property = "ldap.objectClasses", required = false)
-    private String objectClasses;
+    @Parameter(property = "ldap.controlPort", defaultValue = "0")
+    private int controlPort;
     /**
-     * An optional LDIF file that can be used to seed the embedded LDAP server.
+     * The key that clients must send to the control channel before a command.
+     *
+     * @since 1.3.3
      */
-    @Parameter(property = "ldap.ldif", required = false)
-    private File ldifFile;
+    @Parameter(property = "ldap.controlKey", defaultValue = "ldap")
+    private String controlKey;
     /**
-     * The port for the LDAP server.
+     * If {@code true} the server is shared by all the modules in the build that use the same
+     * {@link #sharedId}. The first run goal starts the server and later run goals with the same configuration attach to
+     * it. The server is stopped by the stop goal of the last module that uses it or when the build ends. Shared
+     * servers must be run as daemons.
+     *
+     * @since 1.3.3
      */
-    @Parameter(property = "ldap.port", defaultValue = "389")
-    private int ldapPort;
+    @Parameter(property = "ldap.shared", defaultValue = "false")
+    private boolean shared;
     /**
-     * The build target directory.
+     * Identifies the shared server when {@link #shared} is {@code true}.
+     *
+     * @since 1.3.3
      */
-    @Parameter(defaultValue = "${project.build.directory}", required = true)
-    private File outputDirectory;
+    @Parameter(property = "ldap.sharedId", defaultValue = "default")
+    private String sharedId;
+    /**
+     * The current Maven session. Shared servers are registered with the build.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
 
     /**
-     * Get the server type.
+     * The control channel used to reset the directory server or {@code null} if it is disabled.
+     */
+    private ControlChannel controlChannel;
+    /**
+     * Released once the server has started and an ephemeral port has been published.
+     */
+    private final CountDownLatch portPublished = new CountDownLatch(1);
+    /**
+     * The last error reported while the server was starting. Used to explain why the server did not start.
+     */
+    private volatile Throwable startError;
+
+    /**
+     * Start the embedded LDAP directory server. If the server is shared and another module has already started it
+     * with the same configuration then attach to that server instead.
      *
-     * @return The server type.
+     * @throws MojoFailureException If the server could not be started or a shared server with the same id is running
+     *                              with a different configuration.
      */
     @Override
-    public String getServerType() {
-        if (serverType.startsWith("dependency-")) {
-            return serverType.substring(11);
+    public void execute() throws MojoFailureException {
+        if (shared && session != null) {
+            if (!isDaemon()) {
+                throw new MojoFailureException("Shared LDAP directory server " + sharedId + " must be run as a daemon");
+            }
+            final Object scope = SessionEndListener.install(session);
+            final boolean registered;
+            try {
+                registered = SharedServers.attach(scope, sharedId, getFingerprint(), createMonitor(), this);
+            } catch (final IllegalStateException e) {
+                throw new MojoFailureException(e.getMessage());
+            }
+            if (registered) {
+                try {
+                    runServer();
+                } catch (final MojoFailureException e) {
+                    SharedServers.remove(scope, sharedId);
+                    throw e;
+                }
+            } else {
+                getLog().info("Attached to shared LDAP directory server " + sharedId + " ("
+                        + SharedServers.getReferences(scope, sharedId) + " modules attached)");
+                final int port = getLdapPort() != 0 ? getLdapPort() : SharedServers.getPort(scope, sharedId);
+                if (port >= 0) {
+                    publishPort(port);
+                }
+            }
+        } else {
+            runServer();
+        }
+    }
+
+    /**
+     * Determine whether the server is run as a daemon so that the goal returns once the server has started.
+     *
+     * @return {@code true} if the server is run as a daemon.
+     * @throws MojoFailureException If the daemon parameter could not be read.
+     */
+    private boolean isDaemon() throws MojoFailureException {
+        try {
+            return Boolean.TRUE.equals(ReflectionUtils.getValueIncludingSuperclasses("daemon", this));
+        } catch (final IllegalAccessException e) {
+            throw new MojoFailureException("Could not determine whether the LDAP directory server is run as a daemon");
         }
-        if (serverType.startsWith("gav-")) {
-            int index = serverType.indexOf("-", 4);
-            if (index > 0) {
-                return serverType.substring(4, index);
+    }
+
+    /**
+     * Start the server and publish the port it is listening on. A fixed port is published before the server is started
+     * because the monitor does not return until the server stops unless it is run as a daemon. An ephemeral port is
+     * published by {@link #started(Server, Logger)}. A daemon server is started and monitored by another thread that
+     * delivers that notification after {@link AbstractRunMojo#execute()} would have returned so the server is started
+     * here and the goal waits for the port to be published.
+     *
+     * @throws MojoFailureException If the server could not be started or did not start in time.
+     */
+    private void runServer() throws MojoFailureException {
+        if (getLdapPort() != 0) {
+            publishPort(getLdapPort());
+            super.execute();
+        } else if (isDaemon()) {
+            final Server server = createServer();
+            final Thread monitorThread = createMonitor().runMonitorDaemon(server, this, this);
+            awaitPort(server, monitorThread);
+        } else {
+            super.execute();
+            if (portPublished.getCount() > 0) {
+                throw startFailure();
             }
         }
-        return serverType;
     }
 
     /**
-     * Get the embedded LDAP directory server configuration.
+     * Create the server and apply the server configuration.
      *
-     * @return A {@link Map} containing the server configuration.
+     * @return The server.
+     * @throws MojoFailureException If the server type is not supported.
      */
-    @Override
-    public Map<String, Object> getServerConfig() {
-        final Map<String, Object> config = new HashMap<String, Object>();
-        config.put(LDAPServer.ROOT, rootDn);
-        if (objectClasses != null) {
-            config.put(LDAPServer.OBJECT_CLASSES, objectClasses.split(","));
+    private Server createServer() throws MojoFailureException {
+        final ServerFactory factory = ServerFactoryLocator.getInstance(this).getFactory(getServerType());
+        if (factory == null) {
+            throw new MojoFailureException("Unsupported server type: " + getServerType());
         }
-        config.put(LDAPServer.WORK_DIR, new File(outputDirectory, serverType));
-        if (ldifFile != null) {
-            config.put(LDAPServer.LDIF_FILE, ldifFile);
+        final Server server = factory.createServer();
+        for (final Map.Entry<String, Object> entry : getServerConfig().entrySet()) {
+            server.configure(entry.getKey(), entry.getValue(), this);
         }
-        config.put(LDAPServer.LDAP_PORT, ldapPort);
-        config.put(LDAPServer.AUTH_DN, authDn);
-        config.put(LDAPServer.PASSWD, passwd);
-        return config;
+        return server;
+    }
+
+    /**
+     * Wait for a daemon server to start and publish its port. The server is stopped if the monitor thread gives up
+     * because the server did not start or if the server does not start within {@link #startTimeout}.
+     *
+     * @param server        The server.
+     * @param monitorThread The thread that starts and monitors the server.
+     * @throws MojoFailureException If the server did not start or did not start in time.
+     */
+    private void awaitPort(final Server server, final Thread monitorThread) throws MojoFailureException {
+        final long deadline = System.currentTimeMillis() + startTimeout;
+        try {
+            while (!portPublished.await(START_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (!monitorThread.isAlive() && portPublished.getCount() > 0) {
+                    server.stop(this);
+                    throw startFailure();
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    server.stop(this);
+                    throw new MojoFailureException("Timed out after " + startTimeout
+                            + "ms waiting for the LDAP directory server to start");
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.stop(this);
+            throw new MojoFailureException("Interrupted while waiting for the LDAP directory server to start");
+        }
+    }
+
+    /**
+     * Build the exception reported when the server did not start.
+     *
+     * @return The exception including the last error reported while the server was starting, if any.
+     */
+    private MojoFailureException startFailure() {
+        final Throwable cause = startError;
+        if (cause == null) {
+            return new MojoFailureException("The LDAP directory server did not start");
+        }
+        return new MojoFailureException("The LDAP directory server did not start: " + cause.getMessage(), cause);
     }
-}
 
+    /**
+     * Publish the port the server is listening on as a project property and, if configured, write it to the port
+     * file.
+     *
+     * @param port The port.
+     */
+    private void publishPort(final int port) {
+        if (getProject() != null) {
+            getProject().getProperties().setProperty(portProperty, Integer.toString(port));
+            getLog().info("Published LDAP directory server port " + port + " as " + portProperty);
+        }
+        if (portFile != null) {
+            try {
+                final File directory = portFile.getAbsoluteFile().getParentFile();
+                if (directory != null) {
+                    directory.mkdirs();
+                }
+                final Writer writer = new OutputStreamWriter(new FileOutputStream(portFile), "UTF-8");
+                try {
+                    writer.write(Integer.toString(port));
+                } finally {
+                    writer.close();
+                }
+            } catch (final IOException e) {
+                getLog().error("Could not write LDAP directory server port to " + portFile, e);
+            }
+        }
+    }
+
+    /**
+     * Describe the server type and configuration so that run goals can check that they are attaching to a shared
+     * server with the same configuration. The working directory is ignored because it is different for each module.
+     *
+     * @return The description of the server type and configuration.
+     */
+    private String getFingerprint() {
+        final Map<String, Object> config = new TreeMap<String, Object>(getServerConfig());
+        config.remove(LDAPServer.WORK_DIR);
+        final StringBuilder builder = new StringBuilder(getServerType());
+        for (final Map.Entry<String, Object> entry : config.entrySet()) {
+            builder.append(';').append(entry.getKey()).append('=');
+            if (entry.getValue() instanceof Object[]) {
+                builder.append(Arrays.toString((Object[]) entry.getValue()));
+            } else {
+                builder.append(entry.getValue());
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Publish the port the directory server is listening on and open the control channel, if it is enabled, once the
+     * directory server has started.
+     *
+     * @param server The directory server.
+     * @param logger Used to log informational and error messages.
+     */
+    @Override
+    public void started(final Server server, final Logger logger) {
+        super.started(server, logger);
+        if (server instanceof LDAPServer) {
+            final int port = ((LDAPServer) server).getServerPort();
+            if (shared && session != null) {
+                SharedServers.setPort(SessionEndListener.install(session), sharedId, port);
+            }
+            if (getLdapPort() == 0) {
+                publishPort(port);
+            }
+        }
+        portPublished.countDown();
+        if (controlPort > 0 && server instanceof LDAPServer) {
+            try {
+                controlChannel = new ControlChannel((LDAPServer) server, controlPort, controlKey, logger);
+                controlChannel.start();
+            } catch (final IOException e) {
+                logger.logError("Could not open control channel on port " + controlPort, e);
+            }
+        }
+    }
 
+    /**
+     * Log an error message and exception stack trace and, if the server has not started yet, remember the exception so
+     * that it can be reported if the server does not start.
+     *
+     * @param message The error message.
+     * @param cause   The exception.
+     */
+    @Override
+    public void logError(final String message, final Throwable cause) {
+        if (portPublished.getCount() > 0) {
+            startError = cause;
+        }
+        super.logError(message, cause);
+    }
 
+    /**
+     * Close the control channel, if it is open, once the directory server has stopped.
+     *
+     * @param server The directory server.
+     * @param logger Used to log informational and error messages.
+     */
+    @Override
+    public void stopped(final Server server, final Logger logger) {
+        if (controlChannel != null) {
+            controlChannel.close();
+            controlChannel = null;
+        }
+        super.stopped(server, logger);
+    }
+}
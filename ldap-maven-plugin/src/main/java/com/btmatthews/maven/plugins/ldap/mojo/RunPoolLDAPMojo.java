@@ -0,0 +1,168 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.btmatthews.maven.plugins.ldap.LDAPServer;
+import com.btmatthews.utils.monitor.Server;
+import com.btmatthews.utils.monitor.ServerFactory;
+import com.btmatthews.utils.monitor.ServerFactoryLocator;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This Mojo implements the run-pool goal which launches a pool of identical embedded LDAP directory servers so that
+ * each forked test JVM can use its own isolated directory. The servers are seeded in parallel and are run as daemons
+ * under a single monitor, so the stop goal stops the whole pool.
+ * <p>
+ * The ports are published as the project properties {@code ldap.port.1} to {@code ldap.port.N}, numbered from one to
+ * match {@code surefire.forkNumber}, and as a comma separated list in {@code ldap.ports}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+@Mojo(
+        name = "run-pool",
+        defaultPhase = LifecyclePhase.PRE_INTEGRATION_TEST,
+        configurator = "include-server-dependencies")
+public final class RunPoolLDAPMojo extends AbstractRunLDAPMojo {
+
+    /**
+     * The number of servers in the pool.
+     */
+    @Parameter(property = "ldap.poolSize", defaultValue = "2")
+    private int poolSize;
+    /**
+     * The prefix of the project properties in which the port of each server is published. The index of the server,
+     * starting at one, is appended to the prefix. If {@code ldapPort} is not zero then the servers listen on
+     * consecutive ports starting at {@code ldapPort}.
+     */
+    @Parameter(property = "ldap.portProperty", defaultValue = "ldap.port")
+    private String portProperty;
+    /**
+     * The name of the project property in which the ports of all the servers are published as a comma separated list.
+     */
+    @Parameter(property = "ldap.portsProperty", defaultValue = "ldap.ports")
+    private String portsProperty;
+    /**
+     * The maximum time in milliseconds to wait for all the servers in the pool to start and seed their directories.
+     */
+    @Parameter(property = "ldap.poolStartTimeout", defaultValue = "300000")
+    private long poolStartTimeout;
+
+    /**
+     * Create, configure and start the servers in the pool and then publish their ports.
+     *
+     * @throws MojoFailureException If the servers could not be created or did not all start in time.
+     */
+    @Override
+    public void execute() throws MojoFailureException {
+        if (poolSize < 1) {
+            throw new MojoFailureException("The pool size must be at least 1");
+        }
+        final ServerFactory factory = ServerFactoryLocator.getInstance(this).getFactory(getServerType());
+        if (factory == null) {
+            throw new MojoFailureException("Unsupported server type: " + getServerType());
+        }
+        final List<LDAPServer> servers = new ArrayList<LDAPServer>(poolSize);
+        boolean snapshots = false;
+        for (int i = 0; i < poolSize; i++) {
+            final Server server = factory.createServer();
+            if (!(server instanceof LDAPServer)) {
+                throw new MojoFailureException("Server type " + getServerType() + " is not an LDAP directory server");
+            }
+            final Map<String, Object> config = getServerConfig();
+            config.put(LDAPServer.WORK_DIR, new File((File) config.get(LDAPServer.WORK_DIR), Integer.toString(i + 1)));
+            indexFile(config, LDAPServer.METRICS_FILE, i + 1);
+            indexFile(config, LDAPServer.ACCESS_LOG_FILE, i + 1);
+            if (getLdapPort() != 0) {
+                config.put(LDAPServer.LDAP_PORT, getLdapPort() + i);
+            }
+            for (final Map.Entry<String, Object> entry : config.entrySet()) {
+                server.configure(entry.getKey(), entry.getValue(), this);
+            }
+            snapshots = config.containsKey(LDAPServer.SNAPSHOT_DIR);
+            servers.add((LDAPServer) server);
+        }
+        final ServerPool pool = new ServerPool(servers, snapshots && poolSize > 1);
+        createMonitor().runMonitorDaemon(pool, this, this);
+        if (!pool.awaitStarted(poolStartTimeout)) {
+            pool.stop(this);
+            throw new MojoFailureException("Timed out waiting for the pool of LDAP directory servers to start");
+        }
+        if (!pool.isStarted(this)) {
+            pool.stop(this);
+            final List<Throwable> failures = pool.getFailures();
+            if (failures.isEmpty()) {
+                throw new MojoFailureException("The pool of LDAP directory servers did not start");
+            } else {
+                throw new MojoFailureException("The pool of LDAP directory servers did not start: "
+                        + failures.get(0).getMessage(), failures.get(0));
+            }
+        }
+        publishPorts(servers);
+    }
+
+    /**
+     * Insert the index of a server in the pool into the name of a file it writes, before the extension, so that the
+     * servers do not overwrite each other's files. For example {@code ldap-metrics.txt} becomes
+     * {@code ldap-metrics-2.txt} for the second server.
+     *
+     * @param config The server configuration.
+     * @param name   The name of the configuration parameter holding the file.
+     * @param index  The index of the server, starting at one.
+     */
+    private static void indexFile(final Map<String, Object> config, final String name, final int index) {
+        final File file = (File) config.get(name);
+        if (file != null) {
+            final String fileName = file.getName();
+            final int dot = fileName.lastIndexOf('.');
+            final String indexedName = dot < 0 ? fileName + "-" + index
+                    : fileName.substring(0, dot) + "-" + index + fileName.substring(dot);
+            config.put(name, new File(file.getParentFile(), indexedName));
+        }
+    }
+
+    /**
+     * Publish the ports the servers are listening on as project properties.
+     *
+     * @param servers The servers in the pool.
+     */
+    private void publishPorts(final List<LDAPServer> servers) {
+        final StringBuilder ports = new StringBuilder();
+        for (int i = 0; i < servers.size(); i++) {
+            final int port = servers.get(i).getServerPort();
+            if (getProject() != null) {
+                getProject().getProperties().setProperty(portProperty + "." + (i + 1), Integer.toString(port));
+            }
+            if (i > 0) {
+                ports.append(',');
+            }
+            ports.append(port);
+        }
+        if (getProject() != null) {
+            getProject().getProperties().setProperty(portsProperty, ports.toString());
+        }
+        getLog().info("LDAP directory server pool is listening on ports " + ports);
+    }
+}
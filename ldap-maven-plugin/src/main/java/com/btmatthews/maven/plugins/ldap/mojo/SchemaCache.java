@@ -0,0 +1,173 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPInterface;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.ldif.LDIFException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Caches the schemas used to validate change records so that each schema is only read once per build no matter how
+ * many executions use it. Schemas are scoped to the build in the same way as the connection pools and are discarded
+ * when the build ends. Schemas read from the LDAP directory server are keyed by the server address and port and are
+ * also discarded when the stop goal stops a server because a server started later on the same address may have a
+ * different schema. Schemas read from a file are keyed by the file path and are read again if the file is modified.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class SchemaCache {
+
+    /**
+     * The prefix of the keys for schemas read from an LDAP directory server.
+     */
+    private static final String SERVER_PREFIX = "ldap:";
+    /**
+     * The cached schemas keyed by build and then by schema source.
+     */
+    private static final Map<Object, Map<String, Schema>> SCHEMAS = new WeakHashMap<Object, Map<String, Schema>>();
+
+    /**
+     * Hide the constructor because this class only has static methods.
+     */
+    private SchemaCache() {
+    }
+
+    /**
+     * Get the schema defined in an LDIF file.
+     *
+     * @param scope Identifies the build or {@code null} if the schema is not to be cached.
+     * @param file  The schema file.
+     * @return The schema.
+     * @throws IOException   If there was an error reading the schema file.
+     * @throws LDIFException If the schema file could not be parsed.
+     */
+    static Schema getSchema(final Object scope, final File file) throws IOException, LDIFException {
+        final String key = "file:" + file.getCanonicalPath() + ":" + file.lastModified() + ":" + file.length();
+        Schema schema = get(scope, key);
+        if (schema == null) {
+            schema = Schema.getSchema(file);
+            if (schema == null) {
+                throw new IOException("No schema definitions found in " + file);
+            }
+            schema = put(scope, key, schema);
+        }
+        return schema;
+    }
+
+    /**
+     * Get the schema published by the LDAP directory server.
+     *
+     * @param scope      Identifies the build or {@code null} if the schema is not to be cached.
+     * @param connection The connection or connection pool for the LDAP directory server.
+     * @param address    The host name and port of the LDAP directory server.
+     * @return The schema.
+     * @throws LDAPException If the schema could not be read.
+     */
+    static Schema getSchema(final Object scope, final LDAPInterface connection, final String address)
+            throws LDAPException {
+        final String key = SERVER_PREFIX + address;
+        Schema schema = get(scope, key);
+        if (schema == null) {
+            schema = connection.getSchema();
+            if (schema == null) {
+                throw new LDAPException(ResultCode.NO_SUCH_OBJECT,
+                        "The LDAP directory server does not publish its schema");
+            }
+            schema = put(scope, key, schema);
+        }
+        return schema;
+    }
+
+    /**
+     * Discard the schemas read from LDAP directory servers for a build.
+     *
+     * @param scope Identifies the build.
+     */
+    static synchronized void removeServerSchemas(final Object scope) {
+        final Map<String, Schema> schemas = SCHEMAS.get(scope);
+        if (schemas != null) {
+            final Iterator<String> iterator = schemas.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().startsWith(SERVER_PREFIX)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Discard all the schemas cached for a build.
+     *
+     * @param scope Identifies the build.
+     */
+    static synchronized void close(final Object scope) {
+        SCHEMAS.remove(scope);
+    }
+
+    /**
+     * Get a cached schema.
+     *
+     * @param scope Identifies the build or {@code null} if schemas are not cached.
+     * @param key   Identifies the schema source.
+     * @return The schema or {@code null} if it has not been cached.
+     */
+    private static synchronized Schema get(final Object scope, final String key) {
+        if (scope != null) {
+            final Map<String, Schema> schemas = SCHEMAS.get(scope);
+            if (schemas != null) {
+                return schemas.get(key);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cache a schema. If another execution cached a schema with the same key first then that schema is returned
+     * instead.
+     *
+     * @param scope  Identifies the build or {@code null} if schemas are not cached.
+     * @param key    Identifies the schema source.
+     * @param schema The schema.
+     * @return The schema that is cached for the key.
+     */
+    private static synchronized Schema put(final Object scope, final String key, final Schema schema) {
+        if (scope == null) {
+            return schema;
+        }
+        Map<String, Schema> schemas = SCHEMAS.get(scope);
+        if (schemas == null) {
+            schemas = new HashMap<String, Schema>();
+            SCHEMAS.put(scope, schemas);
+        }
+        final Schema existing = schemas.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        schemas.put(key, schema);
+        return schema;
+    }
+}
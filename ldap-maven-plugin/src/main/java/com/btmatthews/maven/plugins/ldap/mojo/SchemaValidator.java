@@ -0,0 +1,234 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.btmatthews.maven.plugins.ldap.ParserPool;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Modification;
+import com.unboundid.ldap.sdk.schema.EntryValidator;
+import com.unboundid.ldap.sdk.schema.Schema;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFException;
+import com.unboundid.ldif.LDIFModifyChangeRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Checks change records against a schema before they are sent to the LDAP directory server. Add change records are
+ * checked with the SDK's {@link EntryValidator} and modify change records are checked for undefined attribute types.
+ * Change records are read sequentially and checked in batches by a pool of threads. The problems are reported in the
+ * order the change records were read.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class SchemaValidator {
+
+    /**
+     * The number of change records in each batch.
+     */
+    private static final int BATCH_SIZE = 256;
+    /**
+     * The schema.
+     */
+    private final Schema schema;
+    /**
+     * Checks add change records against the schema. This is thread safe and shared by all the threads.
+     */
+    private final EntryValidator entryValidator;
+    /**
+     * The number of threads used to check change records.
+     */
+    private final int threads;
+    /**
+     * The number of change records that were checked.
+     */
+    private long recordCount;
+
+    /**
+     * Initialise the validator.
+     *
+     * @param schema  The schema.
+     * @param threads The number of threads used to check change records.
+     */
+    SchemaValidator(final Schema schema, final int threads) {
+        this.schema = schema;
+        this.entryValidator = new EntryValidator(schema);
+        // Directory servers add the superior object classes themselves so their absence is not a problem
+        this.entryValidator.setCheckMissingSuperiorObjectClasses(false);
+        this.threads = threads;
+    }
+
+    /**
+     * Read all the change records from a reader and check them against the schema.
+     *
+     * @param reader The reader.
+     * @return A description of each problem found, including parse errors.
+     * @throws IOException If there was an error reading the change records.
+     */
+    List<String> validate(final FormatReader reader) throws IOException {
+        final List<String> problems = new ArrayList<String>();
+        final ParserPool<String> validators = new ParserPool<String>("ldap-validator",
+                "validating change records", threads);
+        try {
+            List<LDIFChangeRecord> batch = new ArrayList<LDIFChangeRecord>(BATCH_SIZE);
+            boolean keepReading = true;
+            while (keepReading) {
+                try {
+                    final LDIFChangeRecord record = reader.nextRecord();
+                    if (record == null) {
+                        keepReading = false;
+                    } else {
+                        recordCount++;
+                        batch.add(record);
+                    }
+                } catch (final LDIFException e) {
+                    recordCount++;
+                    if (!batch.isEmpty()) {
+                        validators.submit(new Batch(batch));
+                        batch = new ArrayList<LDIFChangeRecord>(BATCH_SIZE);
+                    }
+                    validators.submit(new ParseError(e));
+                    keepReading = e.mayContinueReading();
+                }
+                if (batch.size() == BATCH_SIZE || (!keepReading && !batch.isEmpty())) {
+                    validators.submit(new Batch(batch));
+                    batch = new ArrayList<LDIFChangeRecord>(BATCH_SIZE);
+                }
+                while (validators.isFull()) {
+                    problems.addAll(validators.next());
+                }
+            }
+            while (!validators.isEmpty()) {
+                problems.addAll(validators.next());
+            }
+        } finally {
+            validators.close();
+        }
+        return problems;
+    }
+
+    /**
+     * Get the number of change records that were read.
+     *
+     * @return The number of change records.
+     */
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Get a summary of the problems found in add change records grouped by type.
+     *
+     * @return The summary lines.
+     */
+    List<String> getSummary() {
+        return entryValidator.getInvalidEntrySummary(true);
+    }
+
+    /**
+     * Check a change record against the schema.
+     *
+     * @param record   The change record.
+     * @param problems Receives a description of each problem found.
+     */
+    private void validate(final LDIFChangeRecord record, final List<String> problems) {
+        if (record instanceof LDIFAddChangeRecord) {
+            final List<String> reasons = new ArrayList<String>();
+            if (!entryValidator.entryIsValid(((LDIFAddChangeRecord) record).getEntryToAdd(), reasons)) {
+                for (final String reason : reasons) {
+                    problems.add(record.getDN() + ": " + reason);
+                }
+            }
+        } else if (record instanceof LDIFModifyChangeRecord) {
+            for (final Modification modification : ((LDIFModifyChangeRecord) record).getModifications()) {
+                if (schema.getAttributeType(Attribute.getBaseName(modification.getAttributeName())) == null) {
+                    problems.add(record.getDN() + ": Attribute type " + modification.getAttributeName()
+                            + " is not defined in the schema");
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks a batch of change records.
+     */
+    private final class Batch implements Callable<List<String>> {
+
+        /**
+         * The change records.
+         */
+        private final List<LDIFChangeRecord> records;
+
+        /**
+         * Initialise the batch.
+         *
+         * @param records The change records.
+         */
+        Batch(final List<LDIFChangeRecord> records) {
+            this.records = records;
+        }
+
+        /**
+         * Check each change record in the batch.
+         *
+         * @return The problems found in the order of the change records.
+         */
+        public List<String> call() {
+            final List<String> problems = new ArrayList<String>();
+            for (final LDIFChangeRecord record : records) {
+                validate(record, problems);
+            }
+            return problems;
+        }
+    }
+
+    /**
+     * Reports an error parsing a change record in sequence with the problems found in the batches.
+     */
+    private static final class ParseError implements Callable<List<String>> {
+
+        /**
+         * The parse error.
+         */
+        private final LDIFException exception;
+
+        /**
+         * Initialise with the parse error.
+         *
+         * @param exception The parse error.
+         */
+        ParseError(final LDIFException exception) {
+            this.exception = exception;
+        }
+
+        /**
+         * Describe the parse error.
+         *
+         * @return The description.
+         */
+        public List<String> call() {
+            return Collections.singletonList("Line " + exception.getLineNumber() + ": " + exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Expands the seed sources configured for the run goal into a list of seed files. A seed source can be a file, a
+ * directory, in which case all the files in the directory are used, or a glob pattern such as
+ * {@code src/test/ldap/*.ldif} or {@code src/test/ldap/**&#47;*.dsml}. The files matched by a directory or glob pattern
+ * are sorted by path.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class SeedSources {
+
+    /**
+     * Utility classes are not instantiated.
+     */
+    private SeedSources() {
+    }
+
+    /**
+     * Expand the seed sources into seed files. Files that do not exist are kept so that the server reports them.
+     *
+     * @param sources The seed sources.
+     * @return The seed files.
+     */
+    static File[] expand(final File[] sources) {
+        final List<File> files = new ArrayList<File>();
+        for (final File source : sources) {
+            final String path = source.getPath().replace(File.separatorChar, '/');
+            final int wildcard = indexOfWildcard(path);
+            if (wildcard >= 0) {
+                final int separator = path.lastIndexOf('/', wildcard);
+                final File base = new File(separator < 0 ? "." : path.substring(0, separator + 1));
+                final Pattern pattern = compile(path.substring(separator + 1));
+                final List<File> matches = new ArrayList<File>();
+                scan(base, "", pattern, matches);
+                Collections.sort(matches);
+                files.addAll(matches);
+            } else if (source.isDirectory()) {
+                final File[] children = source.listFiles();
+                if (children != null) {
+                    Arrays.sort(children);
+                    for (final File child : children) {
+                        if (child.isFile()) {
+                            files.add(child);
+                        }
+                    }
+                }
+            } else {
+                files.add(source);
+            }
+        }
+        return files.toArray(new File[files.size()]);
+    }
+
+    /**
+     * Find the first wildcard character in a path.
+     *
+     * @param path The path.
+     * @return The index of the first wildcard character or {@code -1} if there is none.
+     */
+    private static int indexOfWildcard(final String path) {
+        for (int i = 0; i < path.length(); i++) {
+            final char ch = path.charAt(i);
+            if (ch == '*' || ch == '?') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Convert a glob pattern to a regular expression. {@code **} matches any number of directories, {@code *} matches
+     * any characters within a path segment and {@code ?} matches a single character within a path segment.
+     *
+     * @param glob The glob pattern.
+     * @return The regular expression.
+     */
+    private static Pattern compile(final String glob) {
+        final StringBuilder regex = new StringBuilder();
+        int i = 0;
+        while (i < glob.length()) {
+            final char ch = glob.charAt(i);
+            if (glob.startsWith("**/", i)) {
+                regex.append("(.*/)?");
+                i += 3;
+            } else if (glob.startsWith("**", i)) {
+                regex.append(".*");
+                i += 2;
+            } else {
+                if (ch == '*') {
+                    regex.append("[^/]*");
+                } else if (ch == '?') {
+                    regex.append("[^/]");
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(ch)));
+                }
+                i++;
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Recursively collect the files below a directory whose relative paths match a pattern.
+     *
+     * @param directory The directory.
+     * @param prefix    The path of the directory relative to the base directory.
+     * @param pattern   The pattern.
+     * @param matches   Used to collect the matching files.
+     */
+    private static void scan(final File directory,
+                             final String prefix,
+                             final Pattern pattern,
+                             final List<File> matches) {
+        final File[] children = directory.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                final String relativePath = prefix + child.getName();
+                if (child.isDirectory()) {
+                    scan(child, relativePath + "/", pattern, matches);
+                } else if (pattern.matcher(relativePath).matches()) {
+                    matches.add(child);
+                }
+            }
+        }
+    }
+}
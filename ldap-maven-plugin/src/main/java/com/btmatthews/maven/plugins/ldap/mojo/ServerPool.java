@@ -0,0 +1,218 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.btmatthews.maven.plugins.ldap.LDAPServer;
+import com.btmatthews.utils.monitor.AbstractServer;
+import com.btmatthews.utils.monitor.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of embedded LDAP directory servers that is started and stopped by a single monitor. The servers are started
+ * concurrently so that they seed their directories in parallel.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class ServerPool extends AbstractServer {
+
+    /**
+     * The servers in the pool.
+     */
+    private final List<LDAPServer> servers;
+    /**
+     * If {@code true} the first server is started before the others so that they can restore the directory image it
+     * creates instead of parsing the seed data.
+     */
+    private final boolean startFirstAlone;
+    /**
+     * Released once all the servers have been started.
+     */
+    private final CountDownLatch startLatch = new CountDownLatch(1);
+    /**
+     * The failures that occurred while starting the servers.
+     */
+    private final List<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+
+    /**
+     * Initialise the pool.
+     *
+     * @param servers         The servers in the pool.
+     * @param startFirstAlone If {@code true} the first server is started before the others.
+     */
+    ServerPool(final List<LDAPServer> servers, final boolean startFirstAlone) {
+        this.servers = servers;
+        this.startFirstAlone = startFirstAlone;
+    }
+
+    /**
+     * Get the servers in the pool.
+     *
+     * @return The servers.
+     */
+    List<LDAPServer> getServers() {
+        return servers;
+    }
+
+    /**
+     * Start all the servers in the pool. Any failures are recorded so that they can be reported by the run-pool goal
+     * and the start latch is always released so that it does not wait for a pool that will never start.
+     *
+     * @param logger Used to log informational and error messages.
+     */
+    @Override
+    public void start(final Logger logger) {
+        try {
+            logger.logInfo("Starting pool of " + servers.size() + " LDAP directory servers");
+            final long start = System.currentTimeMillis();
+            int first = 0;
+            if (startFirstAlone) {
+                try {
+                    servers.get(0).start(logger);
+                } catch (final RuntimeException e) {
+                    recordFailure(logger, e);
+                    return;
+                }
+                first = 1;
+            }
+            if (first < servers.size()) {
+                final ExecutorService executor = Executors.newFixedThreadPool(servers.size() - first);
+                try {
+                    final List<Future<?>> futures = new ArrayList<Future<?>>();
+                    for (final LDAPServer server : servers.subList(first, servers.size())) {
+                        futures.add(executor.submit(new Runnable() {
+                            public void run() {
+                                server.start(logger);
+                            }
+                        }));
+                    }
+                    for (final Future<?> future : futures) {
+                        try {
+                            future.get();
+                        } catch (final ExecutionException e) {
+                            recordFailure(logger, e.getCause());
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    recordFailure(logger, e);
+                    Thread.currentThread().interrupt();
+                } finally {
+                    executor.shutdown();
+                }
+            }
+            logger.logInfo("Started pool of " + servers.size() + " LDAP directory servers in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } catch (final RuntimeException e) {
+            recordFailure(logger, e);
+        } finally {
+            startLatch.countDown();
+        }
+    }
+
+    /**
+     * Log and record a failure to start a server in the pool.
+     *
+     * @param logger Used to log informational and error messages.
+     * @param cause  The cause of the failure.
+     */
+    private void recordFailure(final Logger logger, final Throwable cause) {
+        logger.logError("Error starting LDAP directory server", cause);
+        failures.add(cause);
+    }
+
+    /**
+     * Get the failures that occurred while starting the servers in the pool.
+     *
+     * @return The failures or an empty list if there were none.
+     */
+    List<Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Wait for all the servers in the pool to be started.
+     *
+     * @param timeout The maximum time to wait in milliseconds.
+     * @return {@code true} if the servers were started before the timeout expired.
+     */
+    boolean awaitStarted(final long timeout) {
+        try {
+            return startLatch.await(timeout, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Determine if all the servers in the pool have been started.
+     *
+     * @param logger Used to log informational and error messages.
+     * @return {@code true} if all the servers have been started.
+     */
+    @Override
+    public boolean isStarted(final Logger logger) {
+        if (startLatch.getCount() > 0 || !failures.isEmpty()) {
+            return false;
+        }
+        for (final LDAPServer server : servers) {
+            if (!server.isStarted(logger)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop all the servers in the pool.
+     *
+     * @param logger Used to log informational and error messages.
+     */
+    @Override
+    public void stop(final Logger logger) {
+        logger.logInfo("Stopping pool of " + servers.size() + " LDAP directory servers");
+        for (final LDAPServer server : servers) {
+            server.stop(logger);
+        }
+        logger.logInfo("Stopped pool of " + servers.size() + " LDAP directory servers");
+    }
+
+    /**
+     * Determine if all the servers in the pool have been stopped.
+     *
+     * @param logger Used to log informational and error messages.
+     * @return {@code true} if all the servers have been stopped.
+     */
+    @Override
+    public boolean isStopped(final Logger logger) {
+        for (final LDAPServer server : servers) {
+            if (!server.isStopped(logger)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
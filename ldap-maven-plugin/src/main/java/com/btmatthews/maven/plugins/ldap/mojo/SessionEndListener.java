@@ -0,0 +1,270 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Releases the resources that are shared by the executions in a build when the build ends. The listener wraps the
+ * execution listener of the build request so that it is notified when the session ends and passes all the events on to
+ * the listener it wraps.
+ * <p>
+ * Parallel builds clone the Maven session for each module but share the build request, so the request is used to
+ * identify the build.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class SessionEndListener implements ExecutionListener {
+
+    /**
+     * Identifies the build.
+     */
+    private final Object scope;
+    /**
+     * The listener that is wrapped.
+     */
+    private final ExecutionListener delegate;
+
+    /**
+     * Initialise the listener.
+     *
+     * @param scope    Identifies the build.
+     * @param delegate The listener that is wrapped. May be {@code null}.
+     */
+    private SessionEndListener(final Object scope, final ExecutionListener delegate) {
+        this.scope = scope;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Get the object that identifies the build and make sure the shared resources are released when the build ends.
+     * If the session does not have a build request then the session itself identifies the build and the resources are
+     * only released when the JVM exits.
+     *
+     * @param session The Maven session.
+     * @return The object that identifies the build.
+     */
+    static synchronized Object install(final MavenSession session) {
+        final MavenExecutionRequest request = session.getRequest();
+        if (request == null) {
+            return session;
+        }
+        final ExecutionListener listener = request.getExecutionListener();
+        if (!(listener instanceof SessionEndListener)) {
+            request.setExecutionListener(new SessionEndListener(request, listener));
+        }
+        return request;
+    }
+
+    /**
+     * Close the connection pools, discard the cached schemas and stop the shared servers belonging to the build before
+     * passing the event on.
+     *
+     * @param event The execution event.
+     */
+    public void sessionEnded(final ExecutionEvent event) {
+        try {
+            ConnectionPools.close(scope);
+            SchemaCache.close(scope);
+            SharedServers.stopAll(scope);
+        } finally {
+            if (delegate != null) {
+                delegate.sessionEnded(event);
+            }
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void projectDiscoveryStarted(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectDiscoveryStarted(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void sessionStarted(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.sessionStarted(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void projectSkipped(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectSkipped(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void projectStarted(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectStarted(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void projectSucceeded(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectSucceeded(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void projectFailed(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectFailed(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void mojoSkipped(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoSkipped(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void mojoStarted(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoStarted(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void mojoSucceeded(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoSucceeded(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void mojoFailed(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoFailed(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void forkStarted(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkStarted(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void forkSucceeded(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkSucceeded(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void forkFailed(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkFailed(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void forkedProjectStarted(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectStarted(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void forkedProjectSucceeded(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectSucceeded(event);
+        }
+    }
+
+    /**
+     * Pass the event on.
+     *
+     * @param event The execution event.
+     */
+    public void forkedProjectFailed(final ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectFailed(event);
+        }
+    }
+}
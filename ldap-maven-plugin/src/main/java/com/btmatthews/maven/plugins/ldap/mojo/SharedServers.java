@@ -0,0 +1,221 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps track of the embedded LDAP directory servers that are shared by the modules in a build. Each shared server is
+ * identified by an id and counts the run goals that are attached to it so that it is only stopped when the last module
+ * that uses it has finished. Any shared servers that are still running when the build ends are stopped by
+ * {@link SessionEndListener}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class SharedServers {
+
+    /**
+     * The shared servers keyed by build and then by id.
+     */
+    private static final Map<Object, Map<String, SharedServer>> SERVERS =
+            new WeakHashMap<Object, Map<String, SharedServer>>();
+
+    /**
+     * Hide the constructor because this class only has static methods.
+     */
+    private SharedServers() {
+    }
+
+    /**
+     * Attach to a shared server, registering it if this is the first run goal to use it.
+     *
+     * @param session     Identifies the build.
+     * @param id          Identifies the shared server.
+     * @param fingerprint Describes the server configuration.
+     * @param monitor     Used to stop the server if it is still running when the build ends.
+     * @param logger      Used to log informational and error messages when stopping the server.
+     * @return {@code true} if the shared server was registered by this call and the caller must start it.
+     * @throws IllegalStateException If the shared server is running with a different configuration.
+     */
+    static synchronized boolean attach(final Object session, final String id, final String fingerprint,
+                                       final Monitor monitor, final Logger logger) {
+        Map<String, SharedServer> servers = SERVERS.get(session);
+        if (servers == null) {
+            servers = new HashMap<String, SharedServer>();
+            SERVERS.put(session, servers);
+        }
+        SharedServer server = servers.get(id);
+        final boolean registered = server == null;
+        if (registered) {
+            server = new SharedServer(fingerprint, monitor, logger);
+            servers.put(id, server);
+        } else if (!server.fingerprint.equals(fingerprint)) {
+            throw new IllegalStateException("Shared LDAP directory server " + id
+                    + " is already running with a different configuration");
+        }
+        server.references++;
+        return registered;
+    }
+
+    /**
+     * Detach from a shared server.
+     *
+     * @param session Identifies the build.
+     * @param id      Identifies the shared server.
+     * @return The number of run goals that are still attached to the server or {@code -1} if there is no shared server
+     *         with that id.
+     */
+    static synchronized int detach(final Object session, final String id) {
+        final SharedServer server = find(session, id);
+        if (server == null) {
+            return -1;
+        }
+        if (server.references > 0) {
+            server.references--;
+        }
+        return server.references;
+    }
+
+    /**
+     * Forget a shared server after it has been stopped.
+     *
+     * @param session Identifies the build.
+     * @param id      Identifies the shared server.
+     */
+    static synchronized void remove(final Object session, final String id) {
+        final Map<String, SharedServer> servers = SERVERS.get(session);
+        if (servers != null) {
+            servers.remove(id);
+        }
+    }
+
+    /**
+     * Stop the shared servers that are still running when a build ends.
+     *
+     * @param session Identifies the build.
+     */
+    static void stopAll(final Object session) {
+        final Map<String, SharedServer> servers;
+        synchronized (SharedServers.class) {
+            servers = SERVERS.remove(session);
+        }
+        if (servers != null) {
+            for (final Map.Entry<String, SharedServer> entry : servers.entrySet()) {
+                final SharedServer server = entry.getValue();
+                server.logger.logInfo("Stopping shared LDAP directory server " + entry.getKey()
+                        + " at the end of the build");
+                server.monitor.sendCommand("stop", server.logger);
+            }
+        }
+    }
+
+    /**
+     * Get the number of run goals attached to a shared server.
+     *
+     * @param session Identifies the build.
+     * @param id      Identifies the shared server.
+     * @return The number of run goals or {@code -1} if there is no shared server with that id.
+     */
+    static synchronized int getReferences(final Object session, final String id) {
+        final SharedServer server = find(session, id);
+        return server == null ? -1 : server.references;
+    }
+
+    /**
+     * Record the port on which a shared server is listening so that modules attaching to it can publish it.
+     *
+     * @param session Identifies the build.
+     * @param id      Identifies the shared server.
+     * @param port    The port.
+     */
+    static synchronized void setPort(final Object session, final String id, final int port) {
+        final SharedServer server = find(session, id);
+        if (server != null) {
+            server.port = port;
+        }
+    }
+
+    /**
+     * Get the port on which a shared server is listening.
+     *
+     * @param session Identifies the build.
+     * @param id      Identifies the shared server.
+     * @return The port or {@code -1} if there is no shared server with that id or it has not started yet.
+     */
+    static synchronized int getPort(final Object session, final String id) {
+        final SharedServer server = find(session, id);
+        return server == null ? -1 : server.port;
+    }
+
+    /**
+     * Find a shared server.
+     *
+     * @param session Identifies the build.
+     * @param id      Identifies the shared server.
+     * @return The shared server or {@code null} if there is no shared server with that id.
+     */
+    private static SharedServer find(final Object session, final String id) {
+        final Map<String, SharedServer> servers = SERVERS.get(session);
+        return servers == null ? null : servers.get(id);
+    }
+
+    /**
+     * Describes a shared server.
+     */
+    private static final class SharedServer {
+
+        /**
+         * Describes the server configuration.
+         */
+        private final String fingerprint;
+        /**
+         * Used to stop the server.
+         */
+        private final Monitor monitor;
+        /**
+         * Used to log informational and error messages when stopping the server.
+         */
+        private final Logger logger;
+        /**
+         * The number of run goals attached to the server.
+         */
+        private int references;
+        /**
+         * The port on which the server is listening or {@code -1} if it has not started yet.
+         */
+        private int port = -1;
+
+        /**
+         * Initialise the shared server description.
+         *
+         * @param fingerprint Describes the server configuration.
+         * @param monitor     Used to stop the server.
+         * @param logger      Used to log informational and error messages when stopping the server.
+         */
+        SharedServer(final String fingerprint, final Monitor monitor, final Logger logger) {
+            this.fingerprint = fingerprint;
+            this.monitor = monitor;
+            this.logger = logger;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package com.btmatthews.maven.plugins.ldap.mojo;
 
 import java.io.InputStream;
+import java.util.Properties;
 
 /**
  * Interface for LDAP directory entry sources.
@@ -33,4 +34,28 @@ public interface Source {
      * @return The input stream or {@code null} if the file or resource cannot be found.
      */
     InputStream open();
+
+    /**
+     * Get the location of the source on the class path or file system.
+     *
+     * @return The source location.
+     * @since 1.3.3
+     */
+    String getPath();
+
+    /**
+     * Get the name of the format of the source.
+     *
+     * @return The format name or {@code null} if the format should be detected from the file name or content.
+     * @since 1.3.3
+     */
+    String getFormat();
+
+    /**
+     * Get the configuration properties used to customise the format handler for the source.
+     *
+     * @return The configuration properties or {@code null} if the default format handler should be used.
+     * @since 1.3.3
+     */
+    Properties getConfiguration();
 }
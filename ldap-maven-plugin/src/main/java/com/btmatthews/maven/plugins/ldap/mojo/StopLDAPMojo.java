@@ -17,8 +17,17 @@
 package com.btmatthews.maven.plugins.ldap.mojo;
 
 import com.btmatthews.utils.monitor.mojo.AbstractStopMojo;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+import java.util.List;
 
 /**
  * Implement stop goal for the plugin which shuts down the running LDAP directory server.
@@ -28,4 +37,146 @@ import org.apache.maven.plugins.annotations.Mojo;
  */
 @Mojo(name = "stop", defaultPhase = LifecyclePhase.POST_INTEGRATION_TEST)
 public final class StopLDAPMojo extends AbstractStopMojo {
+
+    /**
+     * Identifies this plugin in the build plugins of a module.
+     */
+    private static final String PLUGIN_KEY = "com.btmatthews.maven.plugins:ldap-maven-plugin";
+
+    /**
+     * If {@code true} detach from the server shared by the modules in the build and only stop it if no other module
+     * is attached and there are no later modules in the build that run a server with the same {@link #sharedId}.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.shared", defaultValue = "false")
+    private boolean shared;
+    /**
+     * Identifies the shared server when {@link #shared} is {@code true}.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(property = "ldap.sharedId", defaultValue = "default")
+    private String sharedId;
+    /**
+     * The current Maven session. Shared servers are registered with the build.
+     *
+     * @since 1.3.3
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    /**
+     * Signal the LDAP directory server to stop unless it is a shared server that is still in use. The schemas read from
+     * LDAP directory servers in this build are discarded because a server started later may have a different schema.
+     *
+     * @throws MojoFailureException If the server could not be signalled.
+     */
+    @Override
+    public void execute() throws MojoFailureException {
+        if (shared && session != null) {
+            final Object scope = SessionEndListener.install(session);
+            final int references = SharedServers.detach(scope, sharedId);
+            if (references > 0) {
+                getLog().info("Detached from shared LDAP directory server " + sharedId + " (" + references
+                        + " modules still attached)");
+                return;
+            } else if (references == 0 && hasLaterProjectsSharingServer()) {
+                getLog().info("Keeping shared LDAP directory server " + sharedId + " running for later modules");
+                return;
+            }
+            SharedServers.remove(scope, sharedId);
+        }
+        if (session != null) {
+            SchemaCache.removeServerSchemas(SessionEndListener.install(session));
+        }
+        super.execute();
+    }
+
+    /**
+     * Determine whether any of the modules in the build after the current one run the shared server.
+     *
+     * @return {@code true} if a later module runs a shared server with the same {@link #sharedId}.
+     */
+    private boolean hasLaterProjectsSharingServer() {
+        final List<MavenProject> projects = session.getProjects();
+        if (projects == null) {
+            return false;
+        }
+        final int index = projects.indexOf(session.getCurrentProject());
+        if (index < 0) {
+            return false;
+        }
+        for (final MavenProject project : projects.subList(index + 1, projects.size())) {
+            if (isSharingServer(project)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determine whether a module has an execution of the run goal for a shared server with the same {@link #sharedId}.
+     *
+     * @param project The module.
+     * @return {@code true} if the module runs the shared server.
+     */
+    private boolean isSharingServer(final MavenProject project) {
+        for (final Plugin plugin : project.getBuildPlugins()) {
+            if (PLUGIN_KEY.equals(plugin.getKey())) {
+                for (final PluginExecution execution : plugin.getExecutions()) {
+                    if (execution.getGoals().contains("run")) {
+                        final Object configuration = execution.getConfiguration() == null
+                                ? plugin.getConfiguration() : execution.getConfiguration();
+                        if (Boolean.parseBoolean(getParameter(project, configuration, "shared", "ldap.shared", "false"))
+                                && sharedId.equals(getParameter(project, configuration, "sharedId", "ldap.sharedId",
+                                "default"))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the value of a parameter from the configuration of an execution. If the parameter is not configured then
+     * the value is taken from the property that sets it or is the default value. Simple property references are
+     * resolved using the project and user properties.
+     *
+     * @param project       The module.
+     * @param configuration The execution configuration.
+     * @param name          The parameter name.
+     * @param property      The property that sets the parameter.
+     * @param defaultValue  The default value.
+     * @return The parameter value.
+     */
+    private String getParameter(final MavenProject project, final Object configuration, final String name,
+                                final String property, final String defaultValue) {
+        String value = null;
+        if (configuration instanceof Xpp3Dom) {
+            final Xpp3Dom child = ((Xpp3Dom) configuration).getChild(name);
+            if (child != null) {
+                value = child.getValue();
+            }
+        }
+        if (value == null) {
+            value = "${" + property + "}";
+        }
+        if (value.startsWith("${") && value.endsWith("}")) {
+            final String key = value.substring(2, value.length() - 1);
+            value = null;
+            if (session.getUserProperties() != null) {
+                value = session.getUserProperties().getProperty(key);
+            }
+            if (value == null && project.getProperties() != null) {
+                value = project.getProperties().getProperty(key);
+            }
+            if (value == null) {
+                value = defaultValue;
+            }
+        }
+        return value.trim();
+    }
 }
@@ -19,7 +19,11 @@ package com.btmatthews.maven.plugins.ldap.mojo;
 
 import com.btmatthews.ldapunit.DirectoryServerConfiguration;
 import com.btmatthews.ldapunit.DirectoryServerRule;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -28,7 +32,10 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 
 import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Unit tests for the dump plugin goal.
@@ -95,4 +102,224 @@ public final class TestDumpMojo {
         mojo.execute();
         assertTrue(new File(outputDirectory.getRoot(), "dump.ldif").exists());
     }
+
+    /**
+     * Test the configuration for the dump goal when the bulk dump connection options preset is used.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpLDIFWithBulkDumpPreset() throws Exception {
+        setVariableValueInObject(mojo, "filename", "dump.ldif");
+        setVariableValueInObject(mojo, "format", "ldif");
+        setVariableValueInObject(mojo, "connectionOptions", new ConnectionOptions("bulkDump"));
+        mojo.execute();
+        final File dumpFile = new File(outputDirectory.getRoot(), "dump.ldif");
+        assertTrue(dumpFile.exists());
+        assertTrue(dumpFile.length() > 0);
+    }
+
+    /**
+     * Test the configuration for the dump goal when the dump is pipelined.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpPipelinedLDIF() throws Exception {
+        setVariableValueInObject(mojo, "filename", "dump.ldif");
+        setVariableValueInObject(mojo, "format", "ldif");
+        setVariableValueInObject(mojo, "encoderThreads", 2);
+        mojo.execute();
+        final File dumpFile = new File(outputDirectory.getRoot(), "dump.ldif");
+        assertTrue(dumpFile.exists());
+        assertTrue(dumpFile.length() > 0);
+    }
+
+    /**
+     * Test the configuration for the dump goal when the dump is split into files with a maximum number of directory
+     * entries.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpShardedLDIF() throws Exception {
+        setVariableValueInObject(mojo, "filename", "dump.ldif");
+        setVariableValueInObject(mojo, "format", "ldif");
+        setVariableValueInObject(mojo, "shardMaxEntries", 2L);
+        mojo.execute();
+        assertFalse(new File(outputDirectory.getRoot(), "dump.ldif").exists());
+        assertTrue(new File(outputDirectory.getRoot(), "dump-0001.ldif").exists());
+        assertTrue(new File(outputDirectory.getRoot(), "dump-0002.ldif").exists());
+        assertTrue(new File(outputDirectory.getRoot(), "dump-0003.ldif").exists());
+        final File manifestFile = new File(outputDirectory.getRoot(), "dump.ldif.manifest");
+        assertTrue(manifestFile.exists());
+        final String manifest = FileUtils.fileRead(manifestFile, "UTF-8");
+        assertTrue(manifest.contains("dump-0001.ldif\t2\t"));
+    }
+
+    /**
+     * Test the configuration for the dump goal when the dump is split into files by size and pipelining was requested.
+     * The dump is not pipelined so that every file is closed as soon as it reaches the size limit.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpShardedBySizeIgnoresPipelining() throws Exception {
+        setVariableValueInObject(mojo, "filename", "dump.ldif");
+        setVariableValueInObject(mojo, "format", "ldif");
+        setVariableValueInObject(mojo, "shardMaxBytes", 1L);
+        setVariableValueInObject(mojo, "encoderThreads", 2);
+        mojo.execute();
+        assertTrue(new File(outputDirectory.getRoot(), "dump-0007.ldif").exists());
+        assertFalse(new File(outputDirectory.getRoot(), "dump-0008.ldif").exists());
+    }
+
+    /**
+     * Test the configuration for the dump goal when the dump is split into files for each subtree and only one file
+     * may be open at once.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpShardedBySubtreeWithOneOpenFile() throws Exception {
+        setVariableValueInObject(mojo, "filename", "dump.ldif");
+        setVariableValueInObject(mojo, "format", "ldif");
+        setVariableValueInObject(mojo, "shardBySubtree", true);
+        setVariableValueInObject(mojo, "shardMaxOpenFiles", 1);
+        setVariableValueInObject(mojo, "encoderThreads", 2);
+        mojo.execute();
+        assertTrue(new File(outputDirectory.getRoot(), "dump-0001.ldif").exists());
+        assertTrue(new File(outputDirectory.getRoot(), "dump-ou_people-0001.ldif").exists());
+        final String manifest = FileUtils.fileRead(new File(outputDirectory.getRoot(), "dump.ldif.manifest"), "UTF-8");
+        assertTrue(manifest.contains("dump-0001.ldif\t1\t"));
+    }
+
+    /**
+     * Test the configuration for the dump goal when the dump is split into files for each subtree.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpShardedBySubtreeDSML() throws Exception {
+        setVariableValueInObject(mojo, "filename", "dump.dsml");
+        setVariableValueInObject(mojo, "format", "dsml");
+        setVariableValueInObject(mojo, "shardBySubtree", true);
+        mojo.execute();
+        assertTrue(new File(outputDirectory.getRoot(), "dump-ou_people-0001.dsml").exists());
+        assertTrue(new File(outputDirectory.getRoot(), "dump.dsml.manifest").exists());
+    }
+
+    /**
+     * Test that subtrees whose names only differ by characters that are not safe in file names are written to
+     * different files.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpShardedBySubtreeWithCollidingNames() throws Exception {
+        final LDAPConnection connection = new LDAPConnection("localhost", 10389, "uid=admin,ou=system", "secret");
+        try {
+            connection.add("cn=Bart_Simpson,ou=People,dc=btmatthews,dc=com",
+                    new Attribute("objectclass", "person"),
+                    new Attribute("cn", "Bart_Simpson"),
+                    new Attribute("sn", "Simpson"));
+        } finally {
+            connection.close();
+        }
+        setVariableValueInObject(mojo, "searchBase", "ou=People,dc=btmatthews,dc=com");
+        setVariableValueInObject(mojo, "filename", "dump.ldif");
+        setVariableValueInObject(mojo, "format", "ldif");
+        setVariableValueInObject(mojo, "shardBySubtree", true);
+        mojo.execute();
+        assertTrue(new File(outputDirectory.getRoot(), "dump-cn_bart_simpson-0001.ldif").exists());
+        assertTrue(new File(outputDirectory.getRoot(), "dump-cn_bart_simpson_2-0001.ldif").exists());
+        final String manifest = FileUtils.fileRead(new File(outputDirectory.getRoot(), "dump.ldif.manifest"), "UTF-8");
+        assertTrue(manifest.contains("dump-cn_bart_simpson-0001.ldif\t1\t"));
+        assertTrue(manifest.contains("dump-cn_bart_simpson_2-0001.ldif\t1\t"));
+    }
+
+    /**
+     * Test the configuration for the dump goal when the directory entries are dumped to several output files and
+     * a manifest.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpLDIFAndDSML() throws Exception {
+        setVariableValueInObject(mojo, "filename", "dump.ldif");
+        setVariableValueInObject(mojo, "format", "ldif");
+        setVariableValueInObject(mojo, "outputs", new Output[]{new Output("dsml", "dump.dsml")});
+        setVariableValueInObject(mojo, "manifestFilename", "dump.manifest");
+        mojo.execute();
+        assertTrue(new File(outputDirectory.getRoot(), "dump.ldif").exists());
+        assertTrue(new File(outputDirectory.getRoot(), "dump.dsml").exists());
+        final String manifest = FileUtils.fileRead(new File(outputDirectory.getRoot(), "dump.manifest"), "UTF-8");
+        assertTrue(manifest.contains("dump.ldif\t7\t"));
+        assertTrue(manifest.contains("dump.dsml\t7\t"));
+    }
+
+    /**
+     * Verify that the dump goal fails and does not write the manifest when the search fails.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpFailureSkipsManifest() throws Exception {
+        setVariableValueInObject(mojo, "searchBase", "dc=missing,dc=com");
+        setVariableValueInObject(mojo, "filename", "dump.ldif");
+        setVariableValueInObject(mojo, "format", "ldif");
+        setVariableValueInObject(mojo, "manifestFilename", "dump.manifest");
+        try {
+            mojo.execute();
+            fail("Expected a MojoExecutionException");
+        } catch (final MojoExecutionException e) {
+            // expected
+        }
+        assertFalse(new File(outputDirectory.getRoot(), "dump.manifest").exists());
+    }
+
+    /**
+     * Test the configuration for the dump goal when dumping to a binary snapshot.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpBinary() throws Exception {
+        setVariableValueInObject(mojo, "filename", "dump.snapshot");
+        setVariableValueInObject(mojo, "format", "binary");
+        mojo.execute();
+        final File dumpFile = new File(outputDirectory.getRoot(), "dump.snapshot");
+        assertTrue(dumpFile.exists());
+        assertTrue(dumpFile.length() > 0);
+    }
+
+    /**
+     * Test the configuration for the dump goal when dumping to JSON Lines using a pipeline.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpPipelinedJSONLines() throws Exception {
+        setVariableValueInObject(mojo, "filename", "dump.jsonl");
+        setVariableValueInObject(mojo, "format", "jsonl");
+        setVariableValueInObject(mojo, "encoderThreads", 2);
+        mojo.execute();
+        final File dumpFile = new File(outputDirectory.getRoot(), "dump.jsonl");
+        assertTrue(dumpFile.exists());
+        assertEquals(7, FileUtils.fileRead(dumpFile, "UTF-8").split("\n").length);
+    }
+
+    /**
+     * Test the configuration for the dump goal when dumping to a DSMLv2 batch request.
+     *
+     * @throws Exception If something unexpected happens.
+     */
+    @Test
+    public void dumpDSMLv2() throws Exception {
+        setVariableValueInObject(mojo, "filename", "dump.xml");
+        setVariableValueInObject(mojo, "format", "dsmlv2");
+        mojo.execute();
+        final File dumpFile = new File(outputDirectory.getRoot(), "dump.xml");
+        assertTrue(FileUtils.fileRead(dumpFile, "UTF-8").contains("<addRequest dn=\"ou=People,dc=btmatthews,dc=com\">"));
+    }
 }
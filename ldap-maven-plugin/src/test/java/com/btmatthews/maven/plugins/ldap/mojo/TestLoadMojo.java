@@ -18,12 +18,50 @@ package com.btmatthews.maven.plugins.ldap.mojo;
 
 import com.btmatthews.ldapunit.DirectoryServerConfiguration;
 import com.btmatthews.ldapunit.DirectoryServerRule;
+import com.btmatthews.maven.plugins.ldap.FormatWriter;
+import com.btmatthews.maven.plugins.ldap.TestUtils;
+import com.btmatthews.maven.plugins.ldap.binary.BinaryFormatWriter;
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPConnectionPool;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.OperationType;
+import com.unboundid.ldap.sdk.RoundRobinServerSet;
+import com.unboundid.ldap.sdk.schema.Schema;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Unit tests for the load plugin goal.
@@ -39,6 +77,12 @@ public final class TestLoadMojo {
      */
     private final LoadMojo mojo = new LoadMojo();
 
+    /**
+     * Temporary folder in which binary snapshot files are created.
+     */
+    @Rule
+    public final TemporaryFolder outputDirectory = new TemporaryFolder();
+
     @Rule
     public final DirectoryServerRule directoryServerRule = new DirectoryServerRule();
 
@@ -92,6 +136,33 @@ public final class TestLoadMojo {
         mojo.execute();
     }
 
+    /**
+     * Verify that we can load LDIF file using the bulk load connection options preset with overridden options.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testAddLDIFWithBulkLoadPreset() throws Exception {
+        final ConnectionOptions connectionOptions = new ConnectionOptions("bulkLoad");
+        setVariableValueInObject(connectionOptions, "responseTimeout", 10000L);
+        assertFalse(connectionOptions.toLDAPConnectionOptions().useSynchronousMode());
+        setVariableValueInObject(mojo, "connectionOptions", connectionOptions);
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+        mojo.execute();
+    }
+
+    /**
+     * Verify that an unknown connection options preset is rejected.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test(expected = MojoExecutionException.class)
+    public void testUnknownConnectionOptionsPreset() throws Exception {
+        setVariableValueInObject(mojo, "connectionOptions", new ConnectionOptions("fastest"));
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+        mojo.execute();
+    }
+
     /**
      * Verify that we can load LDIF file that modifies an entry in the LDAP directory.
      *
@@ -115,4 +186,451 @@ public final class TestLoadMojo {
         setVariableValueInObject(mojo, "continueOnError", Boolean.FALSE);
         mojo.execute();
     }
+
+    /**
+     * Verify that we can load a binary snapshot file that adds an entry to the LDAP directory.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testAddBinary() throws Exception {
+        final File snapshotFile = outputDirectory.newFile("add.snapshot");
+        final OutputStream outputStream = new FileOutputStream(snapshotFile);
+        try {
+            final FormatWriter writer = new BinaryFormatWriter(outputStream);
+            writer.printEntry(new Entry("ou=Groups,dc=btmatthews,dc=com",
+                    new Attribute("objectclass", "organizationalUnit"),
+                    new Attribute("ou", "Groups")));
+            writer.close();
+        } finally {
+            outputStream.close();
+        }
+        setVariableValueInObject(mojo, "sources", new Source[]{new Binary(snapshotFile.getAbsolutePath())});
+        setVariableValueInObject(mojo, "continueOnError", Boolean.FALSE);
+        mojo.execute();
+    }
+
+    /**
+     * Verify that we can load a JSON Lines file that adds an entry to the LDAP directory.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testAddJSONLines() throws Exception {
+        setVariableValueInObject(mojo, "sources", new Source[]{new Jsonl("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.jsonl")});
+        setVariableValueInObject(mojo, "continueOnError", Boolean.FALSE);
+        mojo.execute();
+    }
+
+    /**
+     * Verify that we can apply a DSMLv2 batch request in parallel.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testBatchDSMLv2() throws Exception {
+        setVariableValueInObject(mojo, "sources", new Source[]{new Dsmlv2("classpath:com/btmatthews/maven/plugins/ldap/mojo/batch.dsml")});
+        setVariableValueInObject(mojo, "continueOnError", Boolean.FALSE);
+        mojo.execute();
+    }
+
+    /**
+     * Verify that the format of a source is detected from its content when the file extension is ambiguous.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testDetectFormat() throws Exception {
+        setVariableValueInObject(mojo, "sources", new Source[]{new Resource("classpath:com/btmatthews/maven/plugins/ldap/mojo/batch.dsml")});
+        setVariableValueInObject(mojo, "continueOnError", Boolean.FALSE);
+        mojo.execute();
+        directoryServerRule.assertDNExists("ou=Groups,dc=btmatthews,dc=com");
+    }
+
+    /**
+     * Verify that we can load a CSV file mapping columns onto attributes and splitting multi-valued columns.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testAddCSV() throws Exception {
+        final Csv source = new Csv("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.csv");
+        final Map<String, String> columns = new HashMap<String, String>();
+        columns.put("surname", "sn");
+        columns.put("name", "cn");
+        setVariableValueInObject(source, "dnTemplate", "uid={uid},ou=People,dc=btmatthews,dc=com");
+        setVariableValueInObject(source, "multiValueDelimiter", "|");
+        setVariableValueInObject(source, "multiValuedColumns", new String[]{"title"});
+        setVariableValueInObject(source, "objectClasses", new String[]{"inetOrgPerson"});
+        setVariableValueInObject(source, "columns", columns);
+        setVariableValueInObject(mojo, "sources", new Source[]{source});
+        setVariableValueInObject(mojo, "continueOnError", Boolean.FALSE);
+        mojo.execute();
+        directoryServerRule.assertDNHasAttributeValue("uid=mszyslak,ou=People,dc=btmatthews,dc=com", "title", "Bartender,Owner");
+        directoryServerRule.assertDNHasAttributeValue("uid=mburns,ou=People,dc=btmatthews,dc=com", "title", "Owner", "Tycoon");
+        directoryServerRule.assertDNHasAttributeValue("uid=mburns,ou=People,dc=btmatthews,dc=com", "sn", "Burns");
+    }
+
+    /**
+     * Verify that validation produces a full report of the schema problems and fails the build without loading
+     * anything.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void testValidateOnlyReportsAllProblems() throws Exception {
+        final File report = new File(outputDirectory.getRoot(), "validation.txt");
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/invalid.ldif")});
+        setVariableValueInObject(mojo, "validateOnly", Boolean.TRUE);
+        setVariableValueInObject(mojo, "validationReport", report);
+        try {
+            mojo.execute();
+            fail("Expected a MojoExecutionException");
+        } catch (final MojoExecutionException e) {
+            assertTrue(e.getMessage().startsWith("Validated 2 change records"));
+        }
+        final String content = FileUtils.fileRead(report, "UTF-8");
+        assertTrue(content.contains("uid=ssimpson,ou=People,dc=btmatthews,dc=com"));
+        assertTrue(content.contains("uid=mhibbert,ou=People,dc=btmatthews,dc=com"));
+        assertFalse(directoryServerRule.verifyDNExists("uid=mhibbert,ou=People,dc=btmatthews,dc=com"));
+    }
+
+    /**
+     * Verify that valid change records are loaded after they have been checked against the schema.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testValidateBeforeLoading() throws Exception {
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+        setVariableValueInObject(mojo, "validate", Boolean.TRUE);
+        setVariableValueInObject(mojo, "validationThreads", 2);
+        mojo.execute();
+    }
+
+    /**
+     * Verify that attribute options in modify change records are ignored when looking up the attribute type.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void testValidateModificationWithAttributeOptions() throws Exception {
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/modify-options.ldif")});
+        setVariableValueInObject(mojo, "validateOnly", Boolean.TRUE);
+        mojo.execute();
+    }
+
+    /**
+     * Verify that schemas read from the LDAP directory server are cached for the build and discarded when the build
+     * ends or the server is stopped.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void testSchemaCacheScopedToBuild() throws Exception {
+        final Object scope = new Object();
+        final Object otherScope = new Object();
+        final LDAPConnection connection = new LDAPConnection("localhost", 10389, "uid=admin,ou=system", "secret");
+        try {
+            final Schema schema = SchemaCache.getSchema(scope, connection, "localhost:10389");
+            assertSame(schema, SchemaCache.getSchema(scope, connection, "localhost:10389"));
+            assertNotSame(schema, SchemaCache.getSchema(otherScope, connection, "localhost:10389"));
+            assertNotSame(schema, SchemaCache.getSchema(null, connection, "localhost:10389"));
+            SchemaCache.removeServerSchemas(scope);
+            final Schema reloaded = SchemaCache.getSchema(scope, connection, "localhost:10389");
+            assertNotSame(schema, reloaded);
+            SchemaCache.close(scope);
+            assertNotSame(reloaded, SchemaCache.getSchema(scope, connection, "localhost:10389"));
+        } finally {
+            SchemaCache.close(scope);
+            SchemaCache.close(otherScope);
+            connection.close();
+        }
+    }
+
+    /**
+     * Verify that executions in the same Maven session share a connection pool.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testConnectionPoolSharedAcrossExecutions() throws Exception {
+        final MavenSession session = mock(MavenSession.class);
+        final LoadMojo other = new LoadMojo();
+        other.setLog(new SystemStreamLog());
+        setVariableValueInObject(other, "host", "localhost");
+        setVariableValueInObject(other, "port", 10389);
+        setVariableValueInObject(other, "authDn", "uid=admin,ou=system");
+        setVariableValueInObject(other, "passwd", "secret");
+        setVariableValueInObject(mojo, "session", session);
+        setVariableValueInObject(other, "session", session);
+        setVariableValueInObject(mojo, "connectionPoolSize", 10);
+        setVariableValueInObject(other, "connectionPoolSize", 10);
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+        setVariableValueInObject(other, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/modify.ldif")});
+        try {
+            mojo.execute();
+            final LDAPConnectionPool pool = ConnectionPools.get(session, mojo.getConnectionPoolKey());
+            assertNotNull(pool);
+            other.execute();
+            assertSame(pool, ConnectionPools.get(session, other.getConnectionPoolKey()));
+        } finally {
+            ConnectionPools.closeAll();
+        }
+    }
+
+    /**
+     * Verify that starting a second build does not close the connection pools belonging to the first build.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testConnectionPoolNotClosedByOtherBuild() throws Exception {
+        final MavenSession session = mock(MavenSession.class);
+        final MavenSession otherSession = mock(MavenSession.class);
+        final LoadMojo other = new LoadMojo();
+        other.setLog(new SystemStreamLog());
+        setVariableValueInObject(other, "host", "localhost");
+        setVariableValueInObject(other, "port", 10389);
+        setVariableValueInObject(other, "authDn", "uid=admin,ou=system");
+        setVariableValueInObject(other, "passwd", "secret");
+        setVariableValueInObject(mojo, "session", session);
+        setVariableValueInObject(other, "session", otherSession);
+        setVariableValueInObject(mojo, "connectionPoolSize", 10);
+        setVariableValueInObject(other, "connectionPoolSize", 10);
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+        setVariableValueInObject(other, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/modify.ldif")});
+        try {
+            mojo.execute();
+            final LDAPConnectionPool pool = ConnectionPools.get(session, mojo.getConnectionPoolKey());
+            assertNotNull(pool);
+            other.execute();
+            assertFalse(pool.isClosed());
+            ConnectionPools.close(otherSession);
+            assertSame(pool, ConnectionPools.get(session, mojo.getConnectionPoolKey()));
+        } finally {
+            ConnectionPools.closeAll();
+        }
+    }
+
+    /**
+     * Verify that the connection pools belonging to a build are closed when the build ends.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testConnectionPoolClosedWhenSessionEnds() throws Exception {
+        final MavenSession session = mock(MavenSession.class);
+        final MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+        when(session.getRequest()).thenReturn(request);
+        setVariableValueInObject(mojo, "session", session);
+        setVariableValueInObject(mojo, "connectionPoolSize", 10);
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+        try {
+            mojo.execute();
+            final LDAPConnectionPool pool = ConnectionPools.get(request, mojo.getConnectionPoolKey());
+            assertNotNull(pool);
+            request.getExecutionListener().sessionEnded(null);
+            assertTrue(pool.isClosed());
+        } finally {
+            ConnectionPools.closeAll();
+        }
+    }
+
+    /**
+     * Verify that the connection pool key does not contain the password but changes with it and with the connection
+     * options.
+     *
+     * @throws Exception If the key could not be calculated.
+     */
+    @Test
+    public void testConnectionPoolKey() throws Exception {
+        final String key = mojo.getConnectionPoolKey();
+        assertFalse(key.contains("secret"));
+        setVariableValueInObject(mojo, "passwd", "other");
+        final String passwordKey = mojo.getConnectionPoolKey();
+        assertFalse(key.equals(passwordKey));
+        setVariableValueInObject(mojo, "connectionOptions", new ConnectionOptions("bulkDump"));
+        assertFalse(passwordKey.equals(mojo.getConnectionPoolKey()));
+    }
+
+    /**
+     * Verify that connecting to a server that is not listening gives up when the connection deadline expires.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testConnectionDeadline() throws Exception {
+        setVariableValueInObject(mojo, "port", 10390);
+        setVariableValueInObject(mojo, "connectionDeadline", 500L);
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+        final long start = System.currentTimeMillis();
+        try {
+            mojo.execute();
+            fail();
+        } catch (final MojoExecutionException e) {
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        }
+    }
+
+    /**
+     * Verify that a server that refuses anonymous reads of the root DSE is treated as ready instead of being retried
+     * until the connection deadline expires.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testServerRefusingRootDSEIsReady() throws Exception {
+        final InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig("dc=btmatthews,dc=com");
+        config.addAdditionalBindCredentials("uid=admin,ou=system", "secret");
+        config.setAuthenticationRequiredOperationTypes(EnumSet.of(OperationType.SEARCH));
+        config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", 0));
+        final InMemoryDirectoryServer server = new InMemoryDirectoryServer(config);
+        server.add("dc=btmatthews,dc=com", new Attribute("objectClass", "domain"), new Attribute("dc", "btmatthews"));
+        server.add("ou=People,dc=btmatthews,dc=com", new Attribute("objectClass", "organizationalUnit"),
+                new Attribute("ou", "People"));
+        server.startListening();
+        try {
+            setVariableValueInObject(mojo, "port", server.getListenPort());
+            setVariableValueInObject(mojo, "connectionDeadline", 30000L);
+            setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+            final long start = System.currentTimeMillis();
+            mojo.execute();
+            assertTrue(System.currentTimeMillis() - start < 10000);
+            assertNotNull(server.getEntry("uid=msimpson1,ou=People,dc=btmatthews,dc=com"));
+        } finally {
+            server.shutDown(true);
+        }
+    }
+
+    /**
+     * Verify that a pooled load waits for a server that is still starting when the goal runs.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testConnectionPoolWaitsForServer() throws Exception {
+        final int port = TestUtils.getUnusedPort(10400);
+        final InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig("dc=btmatthews,dc=com");
+        config.addAdditionalBindCredentials("uid=admin,ou=system", "secret");
+        config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", port));
+        final InMemoryDirectoryServer server = new InMemoryDirectoryServer(config);
+        server.add("dc=btmatthews,dc=com", new Attribute("objectClass", "domain"), new Attribute("dc", "btmatthews"));
+        server.add("ou=People,dc=btmatthews,dc=com", new Attribute("objectClass", "organizationalUnit"),
+                new Attribute("ou", "People"));
+        final Timer timer = new Timer();
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    server.startListening();
+                } catch (final LDAPException e) {
+                    e.printStackTrace();
+                }
+            }
+        }, 1000L);
+        try {
+            setVariableValueInObject(mojo, "port", port);
+            setVariableValueInObject(mojo, "connectionDeadline", 30000L);
+            setVariableValueInObject(mojo, "session", mock(MavenSession.class));
+            setVariableValueInObject(mojo, "connectionPoolSize", 10);
+            setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+            mojo.execute();
+            assertNotNull(server.getEntry("uid=msimpson1,ou=People,dc=btmatthews,dc=com"));
+        } finally {
+            timer.cancel();
+            ConnectionPools.closeAll();
+            server.shutDown(true);
+        }
+    }
+
+    /**
+     * Verify that the load fails over to the next LDAP directory server when the first one is not available.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testFailoverServerSet() throws Exception {
+        setVariableValueInObject(mojo, "servers", new String[]{"localhost:10390", "localhost:10389"});
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+        mojo.execute();
+    }
+
+    /**
+     * Verify that a pooled load can distribute its connections over a round robin server set.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testRoundRobinServerSet() throws Exception {
+        setVariableValueInObject(mojo, "session", mock(MavenSession.class));
+        setVariableValueInObject(mojo, "connectionPoolSize", 10);
+        setVariableValueInObject(mojo, "servers", new String[]{"localhost:10389", "127.0.0.1:10389"});
+        setVariableValueInObject(mojo, "serverSetStrategy", "roundRobin");
+        setVariableValueInObject(mojo, "sources", new Source[]{new Dsmlv2("classpath:com/btmatthews/maven/plugins/ldap/mojo/batch.dsml")});
+        try {
+            mojo.execute();
+        } finally {
+            ConnectionPools.closeAll();
+        }
+    }
+
+    /**
+     * Verify that connection pooling is enabled when connections are distributed over more than one server using a
+     * round robin server set and the pool size is not set.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test
+    public void testRoundRobinServerSetEnablesPooling() throws Exception {
+        final MavenSession session = mock(MavenSession.class);
+        setVariableValueInObject(mojo, "session", session);
+        setVariableValueInObject(mojo, "servers", new String[]{"localhost:10389", "127.0.0.1:10389"});
+        setVariableValueInObject(mojo, "serverSetStrategy", "roundRobin");
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+        try {
+            mojo.execute();
+            assertNotNull(ConnectionPools.get(session, mojo.getConnectionPoolKey()));
+        } finally {
+            ConnectionPools.closeAll();
+        }
+    }
+
+    /**
+     * Verify that server addresses can be IPv6 addresses with or without square brackets and port numbers.
+     *
+     * @throws Exception If the server set could not be created.
+     */
+    @Test
+    public void testIPv6ServerAddresses() throws Exception {
+        setVariableValueInObject(mojo, "servers", new String[]{"[::1]:10389", "[fe80::1]", "::1", "localhost:10390", "localhost"});
+        setVariableValueInObject(mojo, "serverSetStrategy", "roundRobin");
+        final RoundRobinServerSet serverSet = (RoundRobinServerSet) mojo.createServerSet(5000L);
+        assertArrayEquals(new String[]{"::1", "fe80::1", "::1", "localhost", "localhost"}, serverSet.getAddresses());
+        assertArrayEquals(new int[]{10389, 389, 389, 10390, 389}, serverSet.getPorts());
+    }
+
+    /**
+     * Verify that an IPv6 server address in square brackets must be followed by nothing or a port number.
+     *
+     * @throws Exception If the server set could not be created.
+     */
+    @Test(expected = MojoExecutionException.class)
+    public void testInvalidIPv6ServerAddress() throws Exception {
+        setVariableValueInObject(mojo, "servers", new String[]{"[::1]10389"});
+        mojo.createServerSet(5000L);
+    }
+
+    /**
+     * Verify that an unknown server set strategy is rejected.
+     *
+     * @throws Exception If the mojo execution failed.
+     */
+    @Test(expected = MojoExecutionException.class)
+    public void testUnknownServerSetStrategy() throws Exception {
+        setVariableValueInObject(mojo, "servers", new String[]{"localhost:10389"});
+        setVariableValueInObject(mojo, "serverSetStrategy", "random");
+        setVariableValueInObject(mojo, "sources", new Source[]{new Ldif("classpath:com/btmatthews/maven/plugins/ldap/mojo/add.ldif")});
+        mojo.execute();
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.btmatthews.maven.plugins.ldap.ControlChannel;
+import com.btmatthews.maven.plugins.ldap.LDAPServer;
+import com.btmatthews.maven.plugins.ldap.TestUtils;
+import com.btmatthews.utils.monitor.Logger;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Unit tests for the Mojo that implements the reset goal.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public class TestResetMojo {
+
+    /**
+     * Mock the directory server.
+     */
+    @Mock
+    private LDAPServer server;
+    /**
+     * Mock the logger.
+     */
+    @Mock
+    private Logger logger;
+    /**
+     * The mojo being tested.
+     */
+    private final ResetLDAPMojo mojo = new ResetLDAPMojo();
+
+    /**
+     * Prepare for test execution by initialising the mock objects and test fixture.
+     *
+     * @throws Exception If there was an error configuring the test fixture.
+     */
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        mojo.setLog(new SystemStreamLog());
+        setVariableValueInObject(mojo, "controlKey", "ldap");
+        setVariableValueInObject(mojo, "resetTimeout", 5000);
+    }
+
+    /**
+     * Verify that the reset goal resets the server through the control channel.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testReset() throws Exception {
+        when(server.isStarted(any(Logger.class))).thenReturn(Boolean.TRUE);
+        final ControlChannel channel = new ControlChannel(server, 0, "ldap", logger);
+        channel.start();
+        try {
+            setVariableValueInObject(mojo, "controlPort", channel.getPort());
+            mojo.execute();
+            verify(server).reset(same(logger));
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Verify that the reset goal fails if the control channel is not listening.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test(expected = MojoExecutionException.class)
+    public void testResetWithoutControlChannel() throws Exception {
+        setVariableValueInObject(mojo, "controlPort", TestUtils.getUnusedPort(11389));
+        mojo.execute();
+    }
+}
@@ -19,17 +19,37 @@ package com.btmatthews.maven.plugins.ldap.mojo;
 import com.btmatthews.maven.plugins.ldap.TestUtils;
 import com.btmatthews.utils.monitor.Logger;
 import com.btmatthews.utils.monitor.Monitor;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.Mojo;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 
+import java.io.File;
+import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
 
 import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 /**
@@ -118,6 +138,244 @@ public class TestRunMojo {
         signalStop();
     }
 
+    /**
+     * Verify that seed sources given as files, directories and glob patterns are expanded into seed files.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testSeedSources() throws Exception {
+        final File seedDirectory = outputDirectory.newFolder();
+        final File peopleFile = new File(seedDirectory, "people.ldif");
+        final File groupsFile = new File(seedDirectory, "groups.ldif");
+        final File usersDirectory = new File(seedDirectory, "users");
+        final File usersFile = new File(usersDirectory, "users.dsml");
+        final File adminsFile = new File(new File(usersDirectory, "admin"), "admins.dsml");
+        final File missingFile = new File(seedDirectory, "missing.ldif");
+        for (final File file : new File[]{peopleFile, groupsFile, usersFile, adminsFile}) {
+            file.getParentFile().mkdirs();
+            file.createNewFile();
+        }
+        setVariableValueInObject(mojo, "seeds", new File[]{
+                new File(seedDirectory, "*.ldif"),
+                new File(seedDirectory, "**/*.dsml"),
+                usersDirectory,
+                missingFile});
+        final Object seedFiles = ((RunLDAPMojo) mojo).getServerConfig().get("seedFiles");
+        assertArrayEquals(new File[]{groupsFile, peopleFile, adminsFile, usersFile, usersFile, missingFile},
+                (File[]) seedFiles);
+    }
+
+    /**
+     * Verify that the server binds an ephemeral port when the port is zero and publishes it as a project property and
+     * in the port file.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testEphemeralPort() throws Exception {
+        final MavenProject project = new MavenProject();
+        final File portFile = new File(outputDirectory.newFolder(), "ldap.port");
+        setVariableValueInObject(mojo, "serverType", "unboundid");
+        setVariableValueInObject(mojo, "ldapPort", 0);
+        setVariableValueInObject(mojo, "authDn", "uid=admin,ou=system");
+        setVariableValueInObject(mojo, "passwd", "secret");
+        setVariableValueInObject(mojo, "daemon", Boolean.TRUE);
+        setVariableValueInObject(mojo, "portProperty", "ldap.port");
+        setVariableValueInObject(mojo, "portFile", portFile);
+        setVariableValueInObject(mojo, "project", project);
+        mojo.execute();
+        try {
+            final String port = project.getProperties().getProperty("ldap.port");
+            assertEquals(port, FileUtils.fileRead(portFile));
+            final LDAPConnection connection = new LDAPConnection("localhost", Integer.parseInt(port),
+                    "uid=admin,ou=system", "secret");
+            try {
+                assertNotNull(connection.getEntry("dc=btmatthews,dc=com"));
+            } finally {
+                connection.close();
+            }
+        } finally {
+            signalStop();
+        }
+    }
+
+    /**
+     * Verify that the goal fails instead of waiting for the port when a daemon server that binds an ephemeral port
+     * does not start.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testEphemeralPortServerDoesNotStart() throws Exception {
+        setVariableValueInObject(mojo, "ldapPort", 0);
+        setVariableValueInObject(mojo, "daemon", Boolean.TRUE);
+        setVariableValueInObject(mojo, "startTimeout", 60000L);
+        final long start = System.currentTimeMillis();
+        try {
+            mojo.execute();
+            fail();
+        } catch (final MojoFailureException e) {
+            assertEquals("The LDAP directory server did not start", e.getMessage());
+        }
+        assertTrue(System.currentTimeMillis() - start < 30000L);
+    }
+
+    /**
+     * Verify that run goals in the same session attach to a shared server and that the server is only stopped by the
+     * stop goal of the last module.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testSharedServer() throws Exception {
+        final MavenSession session = mock(MavenSession.class);
+        final MavenProject first = new MavenProject();
+        final MavenProject last = new MavenProject();
+        first.setArtifactId("first");
+        last.setArtifactId("last");
+        addSharedRunExecution(last, "test");
+        when(session.getProjects()).thenReturn(Arrays.asList(first, last));
+        when(session.getCurrentProject()).thenReturn(first);
+
+        setVariableValueInObject(mojo, "daemon", Boolean.TRUE);
+        setVariableValueInObject(mojo, "shared", Boolean.TRUE);
+        setVariableValueInObject(mojo, "sharedId", "test");
+        setVariableValueInObject(mojo, "session", session);
+        mojo.execute();
+        assertEquals(1, SharedServers.getReferences(session, "test"));
+
+        final Mojo other = new RunLDAPMojo();
+        setVariableValueInObject(other, "monitorPort", ports[1]);
+        setVariableValueInObject(other, "monitorKey", "ldap");
+        setVariableValueInObject(other, "serverType", "mock");
+        setVariableValueInObject(other, "rootDn", "dc=btmatthews,dc=com");
+        setVariableValueInObject(other, "ldapPort", ports[0]);
+        setVariableValueInObject(other, "outputDirectory", outputDirectory.newFolder());
+        setVariableValueInObject(other, "daemon", Boolean.TRUE);
+        setVariableValueInObject(other, "shared", Boolean.TRUE);
+        setVariableValueInObject(other, "sharedId", "test");
+        setVariableValueInObject(other, "session", session);
+        other.execute();
+        assertEquals(2, SharedServers.getReferences(session, "test"));
+
+        createStopMojo(session).execute();
+        assertEquals(1, SharedServers.getReferences(session, "test"));
+        createStopMojo(session).execute();
+        assertEquals(0, SharedServers.getReferences(session, "test"));
+
+        when(session.getCurrentProject()).thenReturn(last);
+        other.execute();
+        assertEquals(1, SharedServers.getReferences(session, "test"));
+        createStopMojo(session).execute();
+        assertEquals(-1, SharedServers.getReferences(session, "test"));
+    }
+
+    /**
+     * Verify that the stop goal does not keep a shared server running for later modules that do not use it.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testSharedServerNotKeptForOtherSharedId() throws Exception {
+        final MavenSession session = mock(MavenSession.class);
+        final MavenProject first = new MavenProject();
+        final MavenProject last = new MavenProject();
+        first.setArtifactId("first");
+        last.setArtifactId("last");
+        addSharedRunExecution(last, "other");
+        when(session.getProjects()).thenReturn(Arrays.asList(first, last));
+        when(session.getCurrentProject()).thenReturn(first);
+
+        setVariableValueInObject(mojo, "daemon", Boolean.TRUE);
+        setVariableValueInObject(mojo, "shared", Boolean.TRUE);
+        setVariableValueInObject(mojo, "sharedId", "test");
+        setVariableValueInObject(mojo, "session", session);
+        mojo.execute();
+        assertEquals(1, SharedServers.getReferences(session, "test"));
+
+        createStopMojo(session).execute();
+        assertEquals(-1, SharedServers.getReferences(session, "test"));
+    }
+
+    /**
+     * Verify that a shared server that is still running when the build ends is stopped.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testSharedServerStoppedWhenBuildEnds() throws Exception {
+        final MavenSession session = mock(MavenSession.class);
+        final MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+        when(session.getRequest()).thenReturn(request);
+
+        setVariableValueInObject(mojo, "daemon", Boolean.TRUE);
+        setVariableValueInObject(mojo, "shared", Boolean.TRUE);
+        setVariableValueInObject(mojo, "sharedId", "test");
+        setVariableValueInObject(mojo, "session", session);
+        mojo.execute();
+        assertEquals(1, SharedServers.getReferences(request, "test"));
+
+        request.getExecutionListener().sessionEnded(null);
+        assertEquals(-1, SharedServers.getReferences(request, "test"));
+    }
+
+    /**
+     * Verify that a shared server must be run as a daemon.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test(expected = MojoFailureException.class)
+    public void testSharedServerRequiresDaemon() throws Exception {
+        setVariableValueInObject(mojo, "daemon", Boolean.FALSE);
+        setVariableValueInObject(mojo, "shared", Boolean.TRUE);
+        setVariableValueInObject(mojo, "sharedId", "test");
+        setVariableValueInObject(mojo, "session", mock(MavenSession.class));
+        mojo.execute();
+    }
+
+    /**
+     * Add an execution of the run goal for a shared server to a module.
+     *
+     * @param project  The module.
+     * @param sharedId Identifies the shared server.
+     */
+    private void addSharedRunExecution(final MavenProject project, final String sharedId) {
+        final Xpp3Dom configuration = new Xpp3Dom("configuration");
+        final Xpp3Dom shared = new Xpp3Dom("shared");
+        shared.setValue("true");
+        configuration.addChild(shared);
+        final Xpp3Dom id = new Xpp3Dom("sharedId");
+        id.setValue(sharedId);
+        configuration.addChild(id);
+        final PluginExecution execution = new PluginExecution();
+        execution.addGoal("run");
+        execution.setConfiguration(configuration);
+        final Plugin plugin = new Plugin();
+        plugin.setGroupId("com.btmatthews.maven.plugins");
+        plugin.setArtifactId("ldap-maven-plugin");
+        plugin.addExecution(execution);
+        project.getModel().setBuild(new Build());
+        project.getBuild().addPlugin(plugin);
+    }
+
+    /**
+     * Create a stop goal that detaches from the shared server.
+     *
+     * @param session The Maven session.
+     * @return The stop goal.
+     * @throws Exception If there was an error configuring the stop goal.
+     */
+    private Mojo createStopMojo(final MavenSession session) throws Exception {
+        final Mojo stopMojo = new StopLDAPMojo();
+        setVariableValueInObject(stopMojo, "monitorPort", ports[1]);
+        setVariableValueInObject(stopMojo, "monitorKey", "ldap");
+        setVariableValueInObject(stopMojo, "shared", Boolean.TRUE);
+        setVariableValueInObject(stopMojo, "sharedId", "test");
+        setVariableValueInObject(stopMojo, "session", session);
+        return stopMojo;
+    }
+
     /**
      * Send a stop signal to monitor controlling the server.
      */
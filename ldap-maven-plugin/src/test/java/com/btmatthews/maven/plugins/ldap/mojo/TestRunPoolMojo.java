@@ -0,0 +1,231 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.mojo;
+
+import com.btmatthews.maven.plugins.ldap.TestUtils;
+import com.btmatthews.utils.monitor.Logger;
+import com.btmatthews.utils.monitor.Monitor;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Unit tests for the Mojo that implements the run-pool goal.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public class TestRunPoolMojo {
+
+    /**
+     * Used to create temporary directories used by the unit tests.
+     */
+    @Rule
+    public TemporaryFolder outputDirectory = new TemporaryFolder();
+    /**
+     * Mock the logger.
+     */
+    @Mock
+    private Logger logger;
+    /**
+     * The mojo being tested.
+     */
+    private RunPoolLDAPMojo mojo;
+    /**
+     * The project in which the ports are published.
+     */
+    private MavenProject project;
+    /**
+     * The port used by the monitor.
+     */
+    private int monitorPort;
+
+    /**
+     * Prepare for test execution by initialising the mock objects and test fixture.
+     *
+     * @throws Exception If there was an error configuring the test fixture.
+     */
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        monitorPort = TestUtils.getUnusedPort(10389);
+        project = new MavenProject();
+        mojo = new RunPoolLDAPMojo();
+        setVariableValueInObject(mojo, "monitorPort", monitorPort);
+        setVariableValueInObject(mojo, "monitorKey", "ldap");
+        setVariableValueInObject(mojo, "serverType", "unboundid");
+        setVariableValueInObject(mojo, "rootDn", "dc=btmatthews,dc=com");
+        setVariableValueInObject(mojo, "authDn", "uid=admin,ou=system");
+        setVariableValueInObject(mojo, "passwd", "secret");
+        setVariableValueInObject(mojo, "ldifFile", new File("target/test-classes/com/btmatthews/maven/plugins/ldap/mojo/initial.ldif"));
+        setVariableValueInObject(mojo, "ldapPort", 0);
+        setVariableValueInObject(mojo, "portProperty", "ldap.port");
+        setVariableValueInObject(mojo, "portsProperty", "ldap.ports");
+        setVariableValueInObject(mojo, "poolStartTimeout", 60000L);
+        setVariableValueInObject(mojo, "outputDirectory", outputDirectory.newFolder());
+        setVariableValueInObject(mojo, "project", project);
+    }
+
+    /**
+     * Verify that each server in the pool is seeded and listens on its own published port.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testRunPool() throws Exception {
+        setVariableValueInObject(mojo, "poolSize", 3);
+        mojo.execute();
+        try {
+            verifyPool(3);
+        } finally {
+            signalStop();
+        }
+    }
+
+    /**
+     * Verify that the servers in the pool share a directory image when a snapshot directory is configured.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testRunPoolFromSnapshot() throws Exception {
+        final File snapshotDirectory = outputDirectory.newFolder();
+        setVariableValueInObject(mojo, "poolSize", 2);
+        setVariableValueInObject(mojo, "snapshotDirectory", snapshotDirectory);
+        mojo.execute();
+        try {
+            verifyPool(2);
+            assertEquals(1, snapshotDirectory.listFiles().length);
+        } finally {
+            signalStop();
+        }
+    }
+
+    /**
+     * Verify that each server in the pool writes its operation metrics to its own file when it is stopped.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testRunPoolWithMetrics() throws Exception {
+        final File metricsDirectory = outputDirectory.newFolder();
+        setVariableValueInObject(mojo, "poolSize", 2);
+        setVariableValueInObject(mojo, "metrics", true);
+        setVariableValueInObject(mojo, "metricsFile", new File(metricsDirectory, "ldap-metrics.txt"));
+        mojo.execute();
+        try {
+            verifyPool(2);
+        } finally {
+            signalStop();
+        }
+        final File metricsFile1 = new File(metricsDirectory, "ldap-metrics-1.txt");
+        final File metricsFile2 = new File(metricsDirectory, "ldap-metrics-2.txt");
+        final long deadline = System.currentTimeMillis() + 10000L;
+        while (!(metricsFile1.exists() && metricsFile2.exists()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100L);
+        }
+        assertTrue(metricsFile1.exists());
+        assertTrue(metricsFile2.exists());
+    }
+
+    /**
+     * Verify that the pool size must be positive.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test(expected = MojoFailureException.class)
+    public void testInvalidPoolSize() throws Exception {
+        setVariableValueInObject(mojo, "poolSize", 0);
+        mojo.execute();
+    }
+
+    /**
+     * Verify that the goal fails without waiting for the start timeout when a server in the pool does not start.
+     *
+     * @throws Exception If there was an error.
+     */
+    @Test
+    public void testServerDoesNotStart() throws Exception {
+        final ServerSocket socket = new ServerSocket(0);
+        try {
+            setVariableValueInObject(mojo, "poolSize", 1);
+            setVariableValueInObject(mojo, "ldapPort", socket.getLocalPort());
+            final long start = System.currentTimeMillis();
+            try {
+                mojo.execute();
+                fail();
+            } catch (final MojoFailureException e) {
+                assertTrue(System.currentTimeMillis() - start < 60000L);
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Verify that the ports of the servers in the pool were published and that each server has been seeded.
+     *
+     * @param poolSize The number of servers in the pool.
+     * @throws Exception If there was an error.
+     */
+    private void verifyPool(final int poolSize) throws Exception {
+        final Set<String> ports = new HashSet<String>();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 1; i <= poolSize; i++) {
+            final String port = project.getProperties().getProperty("ldap.port." + i);
+            assertNotNull(port);
+            ports.add(port);
+            if (i > 1) {
+                expected.append(',');
+            }
+            expected.append(port);
+            final LDAPConnection connection = new LDAPConnection("localhost", Integer.parseInt(port),
+                    "uid=admin,ou=system", "secret");
+            try {
+                assertNotNull(connection.getEntry("uid=hsimpson,ou=People,dc=btmatthews,dc=com"));
+            } finally {
+                connection.close();
+            }
+        }
+        assertEquals(poolSize, ports.size());
+        assertEquals(expected.toString(), project.getProperties().getProperty("ldap.ports"));
+    }
+
+    /**
+     * Send a stop signal to monitor controlling the pool.
+     */
+    private void signalStop() {
+        new Monitor("ldap", monitorPort).sendCommand("stop", logger);
+    }
+}
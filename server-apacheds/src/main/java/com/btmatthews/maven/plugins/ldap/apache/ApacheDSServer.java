@@ -17,36 +17,64 @@
 package com.btmatthews.maven.plugins.ldap.apache;
 
 import com.btmatthews.maven.plugins.ldap.AbstractLDAPServer;
+import com.btmatthews.maven.plugins.ldap.OperationMetrics;
+import com.btmatthews.maven.plugins.ldap.SeedFiles;
+import com.btmatthews.maven.plugins.ldap.SeedParser;
 import com.btmatthews.utils.monitor.Logger;
 import org.apache.directory.server.core.DefaultDirectoryService;
 import org.apache.directory.server.core.DirectoryService;
 import org.apache.directory.server.core.authn.AuthenticationInterceptor;
+import org.apache.directory.server.core.entry.DefaultServerEntry;
 import org.apache.directory.server.core.entry.ServerEntry;
 import org.apache.directory.server.core.exception.ExceptionInterceptor;
 import org.apache.directory.server.core.interceptor.Interceptor;
 import org.apache.directory.server.core.normalization.NormalizationInterceptor;
 import org.apache.directory.server.core.operational.OperationalAttributeInterceptor;
 import org.apache.directory.server.core.partition.Partition;
+import org.apache.directory.server.core.partition.impl.btree.jdbm.JdbmIndex;
 import org.apache.directory.server.core.partition.impl.btree.jdbm.JdbmPartition;
 import org.apache.directory.server.core.referral.ReferralInterceptor;
 import org.apache.directory.server.core.subtree.SubentryInterceptor;
 import org.apache.directory.server.ldap.LdapServer;
-import org.apache.directory.server.protocol.shared.store.LdifFileLoader;
 import org.apache.directory.server.protocol.shared.transport.TcpTransport;
+import org.apache.directory.server.xdbm.Index;
 import org.apache.directory.shared.ldap.exception.LdapNameNotFoundException;
+import org.apache.directory.shared.ldap.ldif.LdifEntry;
+import org.apache.directory.shared.ldap.ldif.LdifReader;
 import org.apache.directory.shared.ldap.name.LdapDN;
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.filterchain.IoFilterChainBuilder;
+import org.apache.mina.transport.socket.SocketAcceptor;
+import org.apache.mina.transport.socket.SocketSessionConfig;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * Implements an embedded ApacheDS LDAP apache.
+ * Implements an embedded ApacheDS LDAP apache. ApacheDS 1.5.5 only provides a JDBM partition so when the server runs in
+ * memory the partition is kept in a temporary directory that is deleted when the server stops or the JVM exits, and
+ * the partition is not synchronised to disk after each write or periodically by the directory service.
  *
  * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
  * @since 1.1.0
  */
 public final class ApacheDSServer extends AbstractLDAPServer {
 
+    /**
+     * The number of worker threads used if none were configured. This is the ApacheDS default.
+     */
+    private static final int DEFAULT_WORKER_THREADS = 3;
+    /**
+     * The connection backlog used if none was configured. This is the ApacheDS default.
+     */
+    private static final int DEFAULT_CONNECTION_BACKLOG = 50;
+
     /**
      * The LDAP directory service.
      */
@@ -55,6 +83,15 @@ public final class ApacheDSServer extends AbstractLDAPServer {
      * The server that listens for LDAP requests and forwards them to the directory service.
      */
     private LdapServer server;
+    /**
+     * The directory that holds the partition files. This is a temporary directory if the server runs in memory.
+     */
+    private File directory;
+    /**
+     * The shutdown hook that deletes the temporary directory if the JVM exits without the in memory server being
+     * stopped.
+     */
+    private Thread cleanupHook;
 
     /**
      * Configure and start the embedded ApacheDS server creating the root DN and loading the LDIF seed data.
@@ -65,7 +102,8 @@ public final class ApacheDSServer extends AbstractLDAPServer {
     public void start(final Logger logger) {
         try {
             logger.logInfo("Starting ApacheDS server");
-            service = new DefaultDirectoryService();
+            final DefaultDirectoryService directoryService = new DefaultDirectoryService();
+            service = directoryService;
 
             final List<Interceptor> list = new ArrayList<Interceptor>();
 
@@ -84,11 +122,20 @@ public final class ApacheDSServer extends AbstractLDAPServer {
             // list.add( new TriggerInterceptor() );
             // list.add( new JournalInterceptor() );
             service.setInterceptors(list);
-            service.setWorkingDirectory(getWorkingDirectory());
+            if (isInMemory()) {
+                directory = createTemporaryDirectory();
+                addCleanupHook(directory, logger);
+                directoryService.setSyncPeriodMillis(Long.MAX_VALUE);
+                logger.logInfo("Using temporary directory for in memory ApacheDS server: " + directory);
+            } else {
+                directory = getWorkingDirectory();
+            }
+            service.setWorkingDirectory(directory);
 
             final JdbmPartition partition = new JdbmPartition();
             partition.setId("rootPartition");
             partition.setSuffix(getRoot());
+            configurePartition(partition);
             service.addPartition(partition);
             service.setExitVmOnShutdown(false);
             service.setShutdownHookEnabled(false);
@@ -97,14 +144,21 @@ public final class ApacheDSServer extends AbstractLDAPServer {
 
             server = new LdapServer();
             server.setDirectoryService(service);
-            server.setTransports(new TcpTransport(getServerPort()));
+            final TcpTransport transport = createTransport(logger);
+            server.setTransports(transport);
 
+            final OperationMetrics metrics = openMetrics(logger);
             service.startup();
             server.start();
+            if (metrics != null) {
+                addMetricsFilter(transport, metrics, logger);
+            }
+            setBoundPort(transport.getSocketAcceptor().getLocalAddress().getPort(), logger);
+            registerMetrics(logger);
 
             createRoot(partition);
 
-            loadLdifFile();
+            loadSeedFiles(logger);
 
             logger.logInfo("Started ApacheDS server");
 
@@ -113,6 +167,137 @@ public final class ApacheDSServer extends AbstractLDAPServer {
         }
     }
 
+    /**
+     * Apply the configured attribute indexes, cache sizes and sync on write setting to the partition. Settings that
+     * were not configured keep the ApacheDS defaults.
+     *
+     * @param partition The partition.
+     */
+    private void configurePartition(final JdbmPartition partition) {
+        if (getIndexAttributes() != null) {
+            final Set<Index<?, ServerEntry>> indexes = new HashSet<Index<?, ServerEntry>>();
+            for (final String attribute : getIndexAttributes()) {
+                final JdbmIndex<String, ServerEntry> index = new JdbmIndex<String, ServerEntry>(attribute);
+                if (getIndexCacheSize() != null) {
+                    index.setCacheSize(getIndexCacheSize());
+                }
+                indexes.add(index);
+            }
+            partition.setIndexedAttributes(indexes);
+        }
+        if (getEntryCacheSize() != null) {
+            partition.setCacheSize(getEntryCacheSize());
+        }
+        if (getSyncOnWrite() != null) {
+            partition.setSyncOnWrite(getSyncOnWrite());
+        } else if (isInMemory()) {
+            partition.setSyncOnWrite(false);
+        }
+    }
+
+    /**
+     * Determine whether the server runs in memory.
+     *
+     * @return {@code true} if the server runs in memory.
+     */
+    private boolean isInMemory() {
+        return Boolean.TRUE.equals(getInMemory());
+    }
+
+    /**
+     * Create an empty temporary directory to hold the partition files when the server runs in memory.
+     *
+     * @return The temporary directory.
+     * @throws IOException If the temporary directory could not be created.
+     */
+    private File createTemporaryDirectory() throws IOException {
+        final File temporaryDirectory = File.createTempFile("apacheds", "");
+        if (!temporaryDirectory.delete() || !temporaryDirectory.mkdir()) {
+            throw new IOException("Could not create temporary directory " + temporaryDirectory);
+        }
+        return temporaryDirectory;
+    }
+
+    /**
+     * Create the TCP transport applying the configured worker threads, connection backlog, socket options and
+     * connection limit. The worker threads are used both by the MINA acceptor and by the executor that processes
+     * LDAP requests.
+     *
+     * @param logger Used to log connections that are rejected because the connection limit was reached.
+     * @return The TCP transport.
+     */
+    private TcpTransport createTransport(final Logger logger) {
+        final int workerThreads = getWorkerThreads() == null ? DEFAULT_WORKER_THREADS : getWorkerThreads();
+        final int backlog = getConnectionBacklog() == null ? DEFAULT_CONNECTION_BACKLOG : getConnectionBacklog();
+        final TcpTransport transport = new TcpTransport(getServerPort(), workerThreads, backlog);
+        final SocketAcceptor acceptor = transport.getSocketAcceptor();
+        final SocketSessionConfig sessionConfig = acceptor.getSessionConfig();
+        if (getTcpNoDelay() != null) {
+            sessionConfig.setTcpNoDelay(getTcpNoDelay());
+        }
+        if (getKeepAlive() != null) {
+            sessionConfig.setKeepAlive(getKeepAlive());
+        }
+        if (getReceiveBufferSize() != null) {
+            sessionConfig.setReceiveBufferSize(getReceiveBufferSize());
+        }
+        if (getSendBufferSize() != null) {
+            sessionConfig.setSendBufferSize(getSendBufferSize());
+        }
+        if (getMaxConnections() != null) {
+            acceptor.addListener(new ConnectionLimiter(acceptor, getMaxConnections(), logger));
+        }
+        return transport;
+    }
+
+    /**
+     * Register a shutdown hook that deletes the temporary directory of an in memory server so that it does not remain
+     * in {@code java.io.tmpdir} if the JVM exits without the server being stopped.
+     *
+     * @param temporaryDirectory The temporary directory.
+     * @param logger             Used to log an error if the temporary directory cannot be deleted.
+     */
+    private void addCleanupHook(final File temporaryDirectory, final Logger logger) {
+        cleanupHook = new Thread(new Runnable() {
+            public void run() {
+                delete(temporaryDirectory, logger);
+            }
+        }, "ApacheDS temporary directory cleanup");
+        Runtime.getRuntime().addShutdownHook(cleanupHook);
+    }
+
+    /**
+     * Unregister the shutdown hook because stopping the server deletes the temporary directory itself. The
+     * hook cannot be removed if the JVM is already shutting down, in which case it will run anyway.
+     */
+    private void removeCleanupHook() {
+        if (cleanupHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(cleanupHook);
+            } catch (final IllegalStateException e) {
+                // The JVM is shutting down and the hook will delete the temporary directory.
+            }
+            cleanupHook = null;
+        }
+    }
+
+    /**
+     * Add the filter that reports the operations to the metrics to the end of the filter chain that the LDAP server
+     * installed on the transport.
+     *
+     * @param transport The TCP transport.
+     * @param metrics   The operation metrics.
+     * @param logger    Used to log an error if the filter chain cannot be extended.
+     */
+    private void addMetricsFilter(final TcpTransport transport, final OperationMetrics metrics, final Logger logger) {
+        final IoFilterChainBuilder builder = transport.getAcceptor().getFilterChainBuilder();
+        if (builder instanceof DefaultIoFilterChainBuilder) {
+            ((DefaultIoFilterChainBuilder) builder).addLast("metrics", new MetricsFilter(metrics));
+        } else {
+            logger.logError("Could not add operation metrics to the ApacheDS filter chain");
+        }
+    }
+
     /**
      * Shutdown the the embedded ApacheDS server.
      *
@@ -124,12 +309,51 @@ public final class ApacheDSServer extends AbstractLDAPServer {
             logger.logInfo("Stopping ApacheDS server");
             server.stop();
             service.shutdown();
+            if (isInMemory()) {
+                removeCleanupHook();
+                delete(directory, logger);
+            }
+            closeMetrics(logger);
             logger.logInfo("Stopped ApacheDS server");
         } catch (final Exception e) {
             logger.logError("Error stopping ApacheDS server", e);
         }
     }
 
+    /**
+     * Reset the embedded ApacheDS server. The partition is persisted in the working directory so the server is stopped,
+     * the working directory is cleared and then the server is started and seeded again within the same process. An in
+     * memory server discards its temporary directory when it is stopped so only the restart is needed.
+     *
+     * @param logger Used to log informational and error messages.
+     * @since 1.3.3
+     */
+    @Override
+    public void reset(final Logger logger) {
+        logger.logInfo("Resetting ApacheDS server");
+        super.reset(logger);
+        logger.logInfo("Reset ApacheDS server");
+    }
+
+    /**
+     * Clear the working directory after the server has been stopped by {@link #reset(Logger)} so that it is seeded
+     * again when it is started.
+     *
+     * @param logger Used to log informational and error messages.
+     * @since 1.3.3
+     */
+    @Override
+    protected void prepareRestart(final Logger logger) {
+        if (!isInMemory()) {
+            final File[] files = getWorkingDirectory().listFiles();
+            if (files != null) {
+                for (final File file : files) {
+                    delete(file, logger);
+                }
+            }
+        }
+    }
+
     @Override
     public boolean isStarted(final Logger logger) {
         return server != null && server.isStarted();
@@ -161,12 +385,68 @@ public final class ApacheDSServer extends AbstractLDAPServer {
     }
 
     /**
-     * Load the LDIF file used to seed the directory.
+     * Delete a file or a directory and its contents.
      *
+     * @param file   The file or directory.
+     * @param logger Used to log error messages.
+     */
+    private void delete(final File file, final Logger logger) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (final File child : files) {
+                delete(child, logger);
+            }
+        }
+        if (!file.delete()) {
+            logger.logError("Could not delete " + file);
+        }
+    }
+
+    /**
+     * Load the LDIF files used to seed the directory. The files are parsed concurrently and the entries are added with
+     * parent entries before their children. Entries that already exist are skipped.
+     *
+     * @param logger Used to log the time taken to parse and import the seed files.
      * @throws Exception If there was an error.
      */
-    private void loadLdifFile() throws Exception {
-        new LdifFileLoader(service.getAdminSession(), getLdifFile(), null)
-                .execute();
+    private void loadSeedFiles(final Logger logger) throws Exception {
+        final List<File> seedFiles = getSeedFiles();
+        if (!seedFiles.isEmpty()) {
+            final List<LdifEntry> entries = SeedFiles.parse(seedFiles, new SeedParser<LdifEntry>() {
+                public List<LdifEntry> parse(final File file) throws Exception {
+                    final List<LdifEntry> entries = new ArrayList<LdifEntry>();
+                    final InputStream in = new FileInputStream(file);
+                    try {
+                        final LdifReader reader = new LdifReader(in);
+                        for (final LdifEntry entry : reader) {
+                            if (entry.isEntry()) {
+                                entries.add(entry);
+                            }
+                        }
+                        if (reader.hasError()) {
+                            throw reader.getError();
+                        }
+                    } finally {
+                        in.close();
+                    }
+                    return entries;
+                }
+
+                public int getDepth(final LdifEntry entry) {
+                    return entry.getDn().size();
+                }
+            }, logger);
+            final long start = System.currentTimeMillis();
+            int count = 0;
+            for (final LdifEntry entry : entries) {
+                try {
+                    service.getAdminSession().lookup(entry.getDn());
+                } catch (final LdapNameNotFoundException e) {
+                    service.getAdminSession().add(new DefaultServerEntry(service.getRegistries(), entry.getEntry()));
+                    count++;
+                }
+            }
+            logger.logInfo("Imported " + count + " seed entries in " + (System.currentTimeMillis() - start) + "ms");
+        }
     }
 }
\ No newline at end of file
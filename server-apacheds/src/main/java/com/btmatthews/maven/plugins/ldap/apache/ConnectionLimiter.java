@@ -0,0 +1,105 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.apache;
+
+import com.btmatthews.utils.monitor.Logger;
+import org.apache.mina.core.service.IoService;
+import org.apache.mina.core.service.IoServiceListener;
+import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.IoSession;
+
+/**
+ * Enforces the maximum number of concurrent client connections for the ApacheDS server, which has no connection limit
+ * of its own. New connections are closed as soon as they are created if the limit has already been reached.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class ConnectionLimiter implements IoServiceListener {
+
+    /**
+     * The service that accepts the client connections.
+     */
+    private final IoService service;
+    /**
+     * The maximum number of concurrent client connections.
+     */
+    private final int maxConnections;
+    /**
+     * Used to log rejected connections.
+     */
+    private final Logger logger;
+
+    /**
+     * Initialise the connection limiter.
+     *
+     * @param service        The service that accepts the client connections.
+     * @param maxConnections The maximum number of concurrent client connections.
+     * @param logger         Used to log rejected connections.
+     */
+    ConnectionLimiter(final IoService service, final int maxConnections, final Logger logger) {
+        this.service = service;
+        this.maxConnections = maxConnections;
+        this.logger = logger;
+    }
+
+    /**
+     * Invoked when the service is activated.
+     *
+     * @param ioService The service.
+     */
+    public void serviceActivated(final IoService ioService) {
+    }
+
+    /**
+     * Invoked when the service is idle.
+     *
+     * @param ioService  The service.
+     * @param idleStatus The idle status.
+     */
+    public void serviceIdle(final IoService ioService, final IdleStatus idleStatus) {
+    }
+
+    /**
+     * Invoked when the service is deactivated.
+     *
+     * @param ioService The service.
+     */
+    public void serviceDeactivated(final IoService ioService) {
+    }
+
+    /**
+     * Close a new client connection if it takes the number of managed sessions over the limit.
+     *
+     * @param session The new session.
+     */
+    public void sessionCreated(final IoSession session) {
+        if (service.getManagedSessionCount() > maxConnections) {
+            logger.logError("Rejected connection from " + session.getRemoteAddress()
+                    + " because the connection limit was reached");
+            session.close(true);
+        }
+    }
+
+    /**
+     * Invoked when a client connection is closed.
+     *
+     * @param session The session.
+     */
+    public void sessionDestroyed(final IoSession session) {
+    }
+}
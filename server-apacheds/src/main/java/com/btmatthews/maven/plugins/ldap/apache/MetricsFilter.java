@@ -0,0 +1,249 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.apache;
+
+import com.btmatthews.maven.plugins.ldap.OperationMetrics;
+import org.apache.directory.shared.ldap.message.InternalAddRequest;
+import org.apache.directory.shared.ldap.message.InternalBindRequest;
+import org.apache.directory.shared.ldap.message.InternalCompareRequest;
+import org.apache.directory.shared.ldap.message.InternalDeleteRequest;
+import org.apache.directory.shared.ldap.message.InternalExtendedRequest;
+import org.apache.directory.shared.ldap.message.InternalModifyDnRequest;
+import org.apache.directory.shared.ldap.message.InternalModifyRequest;
+import org.apache.directory.shared.ldap.message.InternalRequest;
+import org.apache.directory.shared.ldap.message.InternalResultResponse;
+import org.apache.directory.shared.ldap.message.InternalSearchRequest;
+import org.apache.directory.shared.ldap.message.ResultCodeEnum;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.WriteRequest;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Times the operations processed by the ApacheDS LDAP server and reports them to the operation metrics. The filter is
+ * added to the end of the MINA filter chain so it sees decoded requests and responses. An operation is timed from
+ * when its request is received until its final result is written, so the latency of a search includes sending the
+ * matching entries.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class MetricsFilter extends IoFilterAdapter {
+
+    /**
+     * The name of the session attribute that holds the operations that are in progress.
+     */
+    private static final String PENDING = MetricsFilter.class.getName() + ".pending";
+    /**
+     * The operation metrics.
+     */
+    private final OperationMetrics metrics;
+
+    /**
+     * Initialise the filter.
+     *
+     * @param metrics The operation metrics.
+     */
+    MetricsFilter(final OperationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Report that a client connection was opened.
+     *
+     * @param nextFilter The next filter in the chain.
+     * @param session    The session for the client connection.
+     * @throws Exception If the next filter failed.
+     */
+    @Override
+    public void sessionOpened(final NextFilter nextFilter, final IoSession session) throws Exception {
+        session.setAttribute(PENDING, new ConcurrentHashMap<Integer, Operation>());
+        metrics.connectionOpened(String.valueOf(session.getRemoteAddress()));
+        nextFilter.sessionOpened(session);
+    }
+
+    /**
+     * Report that a client connection was closed.
+     *
+     * @param nextFilter The next filter in the chain.
+     * @param session    The session for the client connection.
+     * @throws Exception If the next filter failed.
+     */
+    @Override
+    public void sessionClosed(final NextFilter nextFilter, final IoSession session) throws Exception {
+        if (session.removeAttribute(PENDING) != null) {
+            metrics.connectionClosed(String.valueOf(session.getRemoteAddress()));
+        }
+        nextFilter.sessionClosed(session);
+    }
+
+    /**
+     * Record the start time of each request that expects a result.
+     *
+     * @param nextFilter The next filter in the chain.
+     * @param session    The session for the client connection.
+     * @param message    The decoded message.
+     * @throws Exception If the next filter failed.
+     */
+    @Override
+    public void messageReceived(final NextFilter nextFilter,
+                                final IoSession session,
+                                final Object message) throws Exception {
+        final ConcurrentMap<Integer, Operation> pending = getPending(session);
+        if (pending != null && message instanceof InternalRequest && ((InternalRequest) message).hasResponse()) {
+            final InternalRequest request = (InternalRequest) message;
+            final String operation = getOperation(request);
+            if (operation != null) {
+                pending.put(request.getMessageId(), new Operation(operation, getTarget(request), System.nanoTime()));
+            }
+        }
+        nextFilter.messageReceived(session, message);
+    }
+
+    /**
+     * Report an operation to the metrics when its final result is written.
+     *
+     * @param nextFilter   The next filter in the chain.
+     * @param session      The session for the client connection.
+     * @param writeRequest The write request holding the response.
+     * @throws Exception If the next filter failed.
+     */
+    @Override
+    public void filterWrite(final NextFilter nextFilter,
+                            final IoSession session,
+                            final WriteRequest writeRequest) throws Exception {
+        final ConcurrentMap<Integer, Operation> pending = getPending(session);
+        final Object message = writeRequest.getMessage();
+        if (pending != null && message instanceof InternalResultResponse) {
+            final InternalResultResponse response = (InternalResultResponse) message;
+            final Operation operation = pending.remove(response.getMessageId());
+            if (operation != null) {
+                final ResultCodeEnum resultCode = response.getLdapResult().getResultCode();
+                final boolean success = resultCode == ResultCodeEnum.SUCCESS
+                        || resultCode == ResultCodeEnum.COMPARE_TRUE
+                        || resultCode == ResultCodeEnum.COMPARE_FALSE;
+                metrics.operationCompleted(session.getId(), operation.name, operation.target,
+                        resultCode.getResultCode() + " (" + resultCode + ")", success,
+                        System.nanoTime() - operation.startTime);
+            }
+        }
+        nextFilter.filterWrite(session, writeRequest);
+    }
+
+    /**
+     * Get the operations that are in progress for a client connection.
+     *
+     * @param session The session for the client connection.
+     * @return The operations in progress keyed by message identifier or {@code null} if the session was opened before
+     *         the filter was added.
+     */
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMap<Integer, Operation> getPending(final IoSession session) {
+        return (ConcurrentMap<Integer, Operation>) session.getAttribute(PENDING);
+    }
+
+    /**
+     * Get the operation type name for a request.
+     *
+     * @param request The request.
+     * @return The operation type name or {@code null} if the request is not timed.
+     */
+    private static String getOperation(final InternalRequest request) {
+        switch (request.getType()) {
+            case ADD_REQUEST:
+                return OperationMetrics.ADD;
+            case BIND_REQUEST:
+                return OperationMetrics.BIND;
+            case COMPARE_REQUEST:
+                return OperationMetrics.COMPARE;
+            case DEL_REQUEST:
+                return OperationMetrics.DELETE;
+            case EXTENDED_REQ:
+                return OperationMetrics.EXTENDED;
+            case MODIFY_REQUEST:
+                return OperationMetrics.MODIFY;
+            case MOD_DN_REQUEST:
+                return OperationMetrics.MODIFY_DN;
+            case SEARCH_REQUEST:
+                return OperationMetrics.SEARCH;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get the DN targeted by a request and for searches the filter.
+     *
+     * @param request The request.
+     * @return The target or {@code null} if the request does not have one.
+     */
+    private static String getTarget(final InternalRequest request) {
+        if (request instanceof InternalSearchRequest) {
+            final InternalSearchRequest searchRequest = (InternalSearchRequest) request;
+            return searchRequest.getBase() + " " + searchRequest.getFilter();
+        } else if (request instanceof InternalAddRequest) {
+            return String.valueOf(((InternalAddRequest) request).getEntryDn());
+        } else if (request instanceof InternalBindRequest) {
+            return String.valueOf(((InternalBindRequest) request).getName());
+        } else if (request instanceof InternalCompareRequest) {
+            return String.valueOf(((InternalCompareRequest) request).getName());
+        } else if (request instanceof InternalDeleteRequest) {
+            return String.valueOf(((InternalDeleteRequest) request).getName());
+        } else if (request instanceof InternalModifyRequest) {
+            return String.valueOf(((InternalModifyRequest) request).getName());
+        } else if (request instanceof InternalModifyDnRequest) {
+            return String.valueOf(((InternalModifyDnRequest) request).getName());
+        } else if (request instanceof InternalExtendedRequest) {
+            return ((InternalExtendedRequest) request).getOid();
+        }
+        return null;
+    }
+
+    /**
+     * An operation that is in progress.
+     */
+    private static final class Operation {
+
+        /**
+         * The operation type name.
+         */
+        private final String name;
+        /**
+         * The DN targeted by the operation and for searches the filter.
+         */
+        private final String target;
+        /**
+         * The time the request was received.
+         */
+        private final long startTime;
+
+        /**
+         * Initialise the operation.
+         *
+         * @param name      The operation type name.
+         * @param target    The DN targeted by the operation and for searches the filter.
+         * @param startTime The time the request was received.
+         */
+        Operation(final String name, final String target, final long startTime) {
+            this.name = name;
+            this.target = target;
+            this.startTime = startTime;
+        }
+    }
+}
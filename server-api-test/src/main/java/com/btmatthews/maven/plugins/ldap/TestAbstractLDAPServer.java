@@ -25,8 +25,10 @@ import org.mockito.Mock;
 
 import java.io.File;
 import java.net.MalformedURLException;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -115,6 +117,110 @@ public class TestAbstractLDAPServer {
         assertSame(ldifFile, server.getLdifFile());
     }
 
+    /**
+     * Verify the configuration of additional seed files and that they follow the LDIF file.
+     */
+    @Test
+    public void configureSeedFiles() {
+        final File ldifFile = new File("initial.ldif");
+        final File dsmlFile = new File("users.dsml");
+        server.configure("ldifFile", ldifFile, logger);
+        server.configure("seedFiles", new File[]{dsmlFile}, logger);
+        verify(logger).logInfo("Configured seed data sources for directory server: [users.dsml]");
+        assertEquals(Arrays.asList(ldifFile, dsmlFile), server.getSeedFiles());
+    }
+
+    /**
+     * Verify the configuration of the index, limit, schema enforcement and change log settings.
+     */
+    @Test
+    public void configureTuning() {
+        server.configure("indexAttributes", new String[]{"uid", "mail"}, logger);
+        server.configure("sizeLimit", 100, logger);
+        server.configure("maxConnections", 50, logger);
+        server.configure("schemaEnforcement", Boolean.FALSE, logger);
+        server.configure("maxChangeLogEntries", 1000, logger);
+        verify(logger).logInfo("Configured index attributes for directory server: [uid, mail]");
+        verify(logger).logInfo("Configured size limit for directory server: 100");
+        verify(logger).logInfo("Configured maximum connections for directory server: 50");
+        verify(logger).logInfo("Configured schema enforcement for directory server: false");
+        verify(logger).logInfo("Configured maximum change log entries for directory server: 1000");
+        final AbstractLDAPServer abstractServer = (AbstractLDAPServer) server;
+        assertEquals(Arrays.asList("uid", "mail"), Arrays.asList(abstractServer.getIndexAttributes()));
+        assertEquals(Integer.valueOf(100), abstractServer.getSizeLimit());
+        assertEquals(Integer.valueOf(50), abstractServer.getMaxConnections());
+        assertEquals(Boolean.FALSE, abstractServer.getSchemaEnforcement());
+        assertEquals(Integer.valueOf(1000), abstractServer.getMaxChangeLogEntries());
+    }
+
+    /**
+     * Verify the configuration of the listener threading and socket options.
+     */
+    @Test
+    public void configureListener() {
+        server.configure("workerThreads", 8, logger);
+        server.configure("connectionBacklog", 512, logger);
+        server.configure("tcpNoDelay", Boolean.TRUE, logger);
+        server.configure("keepAlive", Boolean.FALSE, logger);
+        server.configure("receiveBufferSize", 65536, logger);
+        server.configure("sendBufferSize", 32768, logger);
+        verify(logger).logInfo("Configured worker threads for directory server: 8");
+        verify(logger).logInfo("Configured connection backlog for directory server: 512");
+        verify(logger).logInfo("Configured TCP no delay for directory server: true");
+        verify(logger).logInfo("Configured TCP keep-alive for directory server: false");
+        verify(logger).logInfo("Configured receive buffer size for directory server: 65536");
+        verify(logger).logInfo("Configured send buffer size for directory server: 32768");
+        final AbstractLDAPServer abstractServer = (AbstractLDAPServer) server;
+        assertEquals(Integer.valueOf(8), abstractServer.getWorkerThreads());
+        assertEquals(Integer.valueOf(512), abstractServer.getConnectionBacklog());
+        assertEquals(Boolean.TRUE, abstractServer.getTcpNoDelay());
+        assertEquals(Boolean.FALSE, abstractServer.getKeepAlive());
+        assertEquals(Integer.valueOf(65536), abstractServer.getReceiveBufferSize());
+        assertEquals(Integer.valueOf(32768), abstractServer.getSendBufferSize());
+    }
+
+    /**
+     * Verify the configuration of the metrics file and access log file.
+     */
+    @Test
+    public void configureMetrics() {
+        final File metricsFile = new File("target/ldap-metrics.txt");
+        final File accessLogFile = new File("target/ldap-access.log");
+        server.configure("metricsFile", metricsFile, logger);
+        server.configure("accessLogFile", accessLogFile, logger);
+        verify(logger).logInfo("Configured metrics file for directory server: " + metricsFile);
+        verify(logger).logInfo("Configured access log file for directory server: " + accessLogFile);
+        assertNull(((AbstractLDAPServer) server).getMetrics());
+    }
+
+    /**
+     * Verify the configuration of the partition cache sizes and sync on write setting.
+     */
+    @Test
+    public void configurePartition() {
+        server.configure("entryCacheSize", 5000, logger);
+        server.configure("indexCacheSize", 500, logger);
+        server.configure("syncOnWrite", Boolean.FALSE, logger);
+        verify(logger).logInfo("Configured entry cache size for directory server: 5000");
+        verify(logger).logInfo("Configured index cache size for directory server: 500");
+        verify(logger).logInfo("Configured sync on write for directory server: false");
+        final AbstractLDAPServer abstractServer = (AbstractLDAPServer) server;
+        assertEquals(Integer.valueOf(5000), abstractServer.getEntryCacheSize());
+        assertEquals(Integer.valueOf(500), abstractServer.getIndexCacheSize());
+        assertEquals(Boolean.FALSE, abstractServer.getSyncOnWrite());
+    }
+
+    /**
+     * Verify the configuration of the in memory setting.
+     */
+    @Test
+    public void configureInMemory() {
+        assertNull(((AbstractLDAPServer) server).getInMemory());
+        server.configure("inMemory", Boolean.TRUE, logger);
+        verify(logger).logInfo("Configured in memory for directory server: true");
+        assertEquals(Boolean.TRUE, ((AbstractLDAPServer) server).getInMemory());
+    }
+
     /**
      * Verify the configuration of the LDAP port.
      */
@@ -124,4 +230,15 @@ public class TestAbstractLDAPServer {
         verify(logger).logInfo("Configured TCP port for directory server: 10389");
         assertEquals(10389, server.getServerPort());
     }
-}
\ No newline at end of file
+
+    /**
+     * Verify the configuration of the snapshot directory.
+     */
+    @Test
+    public void configureSnapshotDirectory() {
+        final File snapshotDir = new File("snapshots");
+        server.configure("snapshotDirectory", snapshotDir, logger);
+        verify(logger).logInfo("Configured snapshot directory for directory server: snapshots");
+        assertSame(snapshotDir, ((AbstractLDAPServer) server).getSnapshotDirectory());
+    }
+}
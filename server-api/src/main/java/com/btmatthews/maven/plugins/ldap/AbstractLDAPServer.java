@@ -19,7 +19,14 @@ package com.btmatthews.maven.plugins.ldap;
 import com.btmatthews.utils.monitor.AbstractServer;
 import com.btmatthews.utils.monitor.Logger;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Abstract base class for {@link LDAPServer} implementations.
@@ -29,6 +36,10 @@ import java.io.File;
  */
 public abstract class AbstractLDAPServer extends AbstractServer implements LDAPServer {
 
+    /**
+     * The JMX domain in which the operation metrics are registered.
+     */
+    private static final String METRICS_DOMAIN = "com.btmatthews.maven.plugins.ldap";
     /**
      * The root DN of the LDAP directory.
      */
@@ -53,10 +64,103 @@ public abstract class AbstractLDAPServer extends AbstractServer implements LDAPS
      * The LDIF file used to seed the LDAP directory.
      */
     private File ldifFile;
+    /**
+     * Additional files used to seed the LDAP directory.
+     */
+    private File[] seedFiles;
     /**
      * The TCP port on which the server is listening for LDAP traffic.
      */
     private int serverPort;
+    /**
+     * The directory in which images of the seeded directory are cached.
+     */
+    private File snapshotDirectory;
+    /**
+     * The attributes that are indexed for equality searches.
+     */
+    private String[] indexAttributes;
+    /**
+     * The maximum number of entries returned by a search.
+     */
+    private Integer sizeLimit;
+    /**
+     * The maximum number of concurrent client connections.
+     */
+    private Integer maxConnections;
+    /**
+     * Whether entries are checked against the schema.
+     */
+    private Boolean schemaEnforcement;
+    /**
+     * The maximum number of entries kept in the change log.
+     */
+    private Integer maxChangeLogEntries;
+    /**
+     * The number of threads that process client requests.
+     */
+    private Integer workerThreads;
+    /**
+     * The maximum number of pending connections queued by the listener.
+     */
+    private Integer connectionBacklog;
+    /**
+     * Whether Nagle's algorithm is disabled on client connections.
+     */
+    private Boolean tcpNoDelay;
+    /**
+     * Whether TCP keep-alive is enabled on client connections.
+     */
+    private Boolean keepAlive;
+    /**
+     * The size in bytes of the socket receive buffer.
+     */
+    private Integer receiveBufferSize;
+    /**
+     * The size in bytes of the socket send buffer.
+     */
+    private Integer sendBufferSize;
+    /**
+     * The file to which a summary of the operation metrics is written when the server is stopped.
+     */
+    private File metricsFile;
+    /**
+     * The file to which the client connections and operations are logged.
+     */
+    private File accessLogFile;
+    /**
+     * The number of entries cached by the directory partition.
+     */
+    private Integer entryCacheSize;
+    /**
+     * The number of records cached by each attribute index.
+     */
+    private Integer indexCacheSize;
+    /**
+     * Whether the directory partition is synchronised to disk after every write.
+     */
+    private Boolean syncOnWrite;
+    /**
+     * Whether the directory is held in memory and discarded when the server is stopped.
+     */
+    private Boolean inMemory;
+    /**
+     * The operation metrics or {@code null} if they are not being collected.
+     */
+    private OperationMetrics metrics;
+    /**
+     * The access log or {@code null} if it is not being written.
+     */
+    private AccessLog accessLog;
+    /**
+     * The name under which the operation metrics are registered with the platform MBean server.
+     */
+    private ObjectName metricsName;
+    /**
+     * Set while the server is being restarted by {@link #reset(Logger)} so that the operation metrics and access log
+     * are kept open across the restart.
+     */
+    private boolean resetting;
 
     /**
      * Used to configure the root DN of the LDAP directory, the working directory used by the directory service to
@@ -99,14 +203,139 @@ public abstract class AbstractLDAPServer extends AbstractServer implements LDAPS
                 ldifFile = (File) value;
                 logger.logInfo("Configured LDIF seed data source for directory server: " + ldifFile);
             }
+        } else if (SEED_FILES.equals(name)) {
+            if (value instanceof File[]) {
+                seedFiles = (File[]) value;
+                logger.logInfo("Configured seed data sources for directory server: " + Arrays.toString(seedFiles));
+            }
         } else if (LDAP_PORT.equals(name)) {
             if (value instanceof Integer) {
                 serverPort = (Integer) value;
                 logger.logInfo("Configured TCP port for directory server: " + serverPort);
             }
+        } else if (SNAPSHOT_DIR.equals(name)) {
+            if (value instanceof File) {
+                snapshotDirectory = (File) value;
+                logger.logInfo("Configured snapshot directory for directory server: " + snapshotDirectory);
+            }
+        } else if (INDEX_ATTRIBUTES.equals(name)) {
+            if (value instanceof String[]) {
+                indexAttributes = (String[]) value;
+                logger.logInfo("Configured index attributes for directory server: " + Arrays.toString(indexAttributes));
+            }
+        } else if (SIZE_LIMIT.equals(name)) {
+            if (value instanceof Integer) {
+                sizeLimit = (Integer) value;
+                logger.logInfo("Configured size limit for directory server: " + sizeLimit);
+            }
+        } else if (MAX_CONNECTIONS.equals(name)) {
+            if (value instanceof Integer) {
+                maxConnections = (Integer) value;
+                logger.logInfo("Configured maximum connections for directory server: " + maxConnections);
+            }
+        } else if (SCHEMA_ENFORCEMENT.equals(name)) {
+            if (value instanceof Boolean) {
+                schemaEnforcement = (Boolean) value;
+                logger.logInfo("Configured schema enforcement for directory server: " + schemaEnforcement);
+            }
+        } else if (MAX_CHANGELOG_ENTRIES.equals(name)) {
+            if (value instanceof Integer) {
+                maxChangeLogEntries = (Integer) value;
+                logger.logInfo("Configured maximum change log entries for directory server: " + maxChangeLogEntries);
+            }
+        } else if (WORKER_THREADS.equals(name)) {
+            if (value instanceof Integer) {
+                workerThreads = (Integer) value;
+                logger.logInfo("Configured worker threads for directory server: " + workerThreads);
+            }
+        } else if (CONNECTION_BACKLOG.equals(name)) {
+            if (value instanceof Integer) {
+                connectionBacklog = (Integer) value;
+                logger.logInfo("Configured connection backlog for directory server: " + connectionBacklog);
+            }
+        } else if (TCP_NO_DELAY.equals(name)) {
+            if (value instanceof Boolean) {
+                tcpNoDelay = (Boolean) value;
+                logger.logInfo("Configured TCP no delay for directory server: " + tcpNoDelay);
+            }
+        } else if (KEEP_ALIVE.equals(name)) {
+            if (value instanceof Boolean) {
+                keepAlive = (Boolean) value;
+                logger.logInfo("Configured TCP keep-alive for directory server: " + keepAlive);
+            }
+        } else if (RECEIVE_BUFFER_SIZE.equals(name)) {
+            if (value instanceof Integer) {
+                receiveBufferSize = (Integer) value;
+                logger.logInfo("Configured receive buffer size for directory server: " + receiveBufferSize);
+            }
+        } else if (SEND_BUFFER_SIZE.equals(name)) {
+            if (value instanceof Integer) {
+                sendBufferSize = (Integer) value;
+                logger.logInfo("Configured send buffer size for directory server: " + sendBufferSize);
+            }
+        } else if (METRICS_FILE.equals(name)) {
+            if (value instanceof File) {
+                metricsFile = (File) value;
+                logger.logInfo("Configured metrics file for directory server: " + metricsFile);
+            }
+        } else if (ACCESS_LOG_FILE.equals(name)) {
+            if (value instanceof File) {
+                accessLogFile = (File) value;
+                logger.logInfo("Configured access log file for directory server: " + accessLogFile);
+            }
+        } else if (ENTRY_CACHE_SIZE.equals(name)) {
+            if (value instanceof Integer) {
+                entryCacheSize = (Integer) value;
+                logger.logInfo("Configured entry cache size for directory server: " + entryCacheSize);
+            }
+        } else if (INDEX_CACHE_SIZE.equals(name)) {
+            if (value instanceof Integer) {
+                indexCacheSize = (Integer) value;
+                logger.logInfo("Configured index cache size for directory server: " + indexCacheSize);
+            }
+        } else if (SYNC_ON_WRITE.equals(name)) {
+            if (value instanceof Boolean) {
+                syncOnWrite = (Boolean) value;
+                logger.logInfo("Configured sync on write for directory server: " + syncOnWrite);
+            }
+        } else if (IN_MEMORY.equals(name)) {
+            if (value instanceof Boolean) {
+                inMemory = (Boolean) value;
+                logger.logInfo("Configured in memory for directory server: " + inMemory);
+            }
+        }
+    }
+
+    /**
+     * Restore the directory to the state it was in immediately after it was started and seeded. By default this is
+     * done by stopping and starting the server again within the same process. The operation metrics and access log are
+     * kept open while the server is restarted. Implementations that can restore the seeded state more quickly should
+     * override this method.
+     *
+     * @param logger Used to log informational and error messages.
+     * @since 1.3.3
+     */
+    public void reset(final Logger logger) {
+        resetting = true;
+        try {
+            stop(logger);
+            prepareRestart(logger);
+            start(logger);
+        } finally {
+            resetting = false;
         }
     }
 
+    /**
+     * Called by {@link #reset(Logger)} after the server has been stopped and before it is started again. The default
+     * implementation does nothing.
+     *
+     * @param logger Used to log informational and error messages.
+     * @since 1.3.3
+     */
+    protected void prepareRestart(final Logger logger) {
+    }
+
     /**
      * Get the configured directory root.
      *
@@ -162,11 +391,299 @@ public abstract class AbstractLDAPServer extends AbstractServer implements LDAPS
     }
 
     /**
-     * Get the port on which the LDAP server is listening.
+     * Get all the files that contain the data used to seed the directory. This includes the LDIF file, if there is
+     * one, followed by the additional seed files.
+     *
+     * @return The seed files.
+     * @since 1.3.3
+     */
+    public final List<File> getSeedFiles() {
+        final List<File> files = new ArrayList<File>();
+        if (ldifFile != null) {
+            files.add(ldifFile);
+        }
+        if (seedFiles != null) {
+            files.addAll(Arrays.asList(seedFiles));
+        }
+        return files;
+    }
+
+    /**
+     * Get the port on which the LDAP server is listening. If the server was configured with port {@code 0} then this is
+     * the ephemeral port that was bound once the server has started.
      *
      * @return The port.
      */
     public final int getServerPort() {
         return serverPort;
     }
+
+    /**
+     * Record the port that the server actually bound. If the configured port was {@code 0} then an ephemeral port was
+     * bound and {@link #getServerPort()} returns it from now on, so a restart binds the same port again.
+     *
+     * @param port   The port that was bound.
+     * @param logger Used to log the port if it is different from the configured port.
+     * @since 1.3.3
+     */
+    protected final void setBoundPort(final int port, final Logger logger) {
+        if (port != serverPort) {
+            serverPort = port;
+            logger.logInfo("Bound TCP port for directory server: " + serverPort);
+        }
+    }
+
+    /**
+     * Start collecting the operation metrics if a metrics file or access log file was configured. The servers call
+     * this before they start listening so that they can hook the metrics into the request processing. When the server
+     * is being reset the metrics that are already being collected are returned.
+     *
+     * @param logger Used to log errors opening the access log.
+     * @return The operation metrics or {@code null} if they are not being collected.
+     * @since 1.3.3
+     */
+    protected final OperationMetrics openMetrics(final Logger logger) {
+        if (metricsFile == null && accessLogFile == null) {
+            return null;
+        }
+        if (resetting && metrics != null) {
+            return metrics;
+        }
+        if (accessLogFile != null) {
+            try {
+                accessLog = new AccessLog(accessLogFile, logger);
+            } catch (final IOException e) {
+                logger.logError("Could not open access log " + accessLogFile, e);
+            }
+        }
+        metrics = new OperationMetrics(accessLog);
+        return metrics;
+    }
+
+    /**
+     * Register the operation metrics with the platform MBean server. The servers call this once the port is bound
+     * because the port is used to name the MBean.
+     *
+     * @param logger Used to log the name of the MBean.
+     * @since 1.3.3
+     */
+    protected final void registerMetrics(final Logger logger) {
+        if (metrics != null) {
+            try {
+                final ObjectName name = new ObjectName(METRICS_DOMAIN + ":type=OperationMetrics,port=" + serverPort);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+                metricsName = name;
+                logger.logInfo("Registered operation metrics MBean " + metricsName);
+            } catch (final JMException e) {
+                logger.logError("Could not register operation metrics MBean", e);
+            }
+        }
+    }
+
+    /**
+     * Stop collecting the operation metrics. The MBean is unregistered, the summary is written to the metrics file
+     * and the access log is closed. When the server is being reset only the MBean is unregistered so that it can be
+     * registered again once the server has restarted.
+     *
+     * @param logger Used to log the summary file and any errors.
+     * @since 1.3.3
+     */
+    protected final void closeMetrics(final Logger logger) {
+        if (metrics != null) {
+            if (metricsName != null) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+                } catch (final JMException e) {
+                    logger.logError("Could not unregister operation metrics MBean", e);
+                }
+                metricsName = null;
+            }
+            if (resetting) {
+                return;
+            }
+            if (metricsFile != null) {
+                try {
+                    metrics.writeSummary(metricsFile);
+                    logger.logInfo("Wrote operation metrics to " + metricsFile);
+                } catch (final IOException e) {
+                    logger.logError("Could not write operation metrics to " + metricsFile, e);
+                }
+            }
+            if (accessLog != null) {
+                accessLog.close();
+                accessLog = null;
+            }
+            metrics = null;
+        }
+    }
+
+    /**
+     * Get the operation metrics.
+     *
+     * @return The operation metrics or {@code null} if they are not being collected.
+     * @since 1.3.3
+     */
+    public final OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the directory in which images of the seeded directory are cached.
+     *
+     * @return The snapshot directory or {@code null} if snapshot images are not used.
+     * @since 1.3.3
+     */
+    public final File getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+    /**
+     * Get the attributes that are indexed for equality searches.
+     *
+     * @return The attribute names or {@code null} if they were not configured.
+     * @since 1.3.3
+     */
+    public final String[] getIndexAttributes() {
+        return indexAttributes;
+    }
+
+    /**
+     * Get the maximum number of entries returned by a search.
+     *
+     * @return The size limit or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Integer getSizeLimit() {
+        return sizeLimit;
+    }
+
+    /**
+     * Get the maximum number of concurrent client connections.
+     *
+     * @return The maximum number of connections or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Determine whether entries are checked against the schema.
+     *
+     * @return {@code Boolean.FALSE} if schema checking was disabled or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Boolean getSchemaEnforcement() {
+        return schemaEnforcement;
+    }
+
+    /**
+     * Get the maximum number of entries kept in the change log.
+     *
+     * @return The maximum number of change log entries or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Integer getMaxChangeLogEntries() {
+        return maxChangeLogEntries;
+    }
+
+    /**
+     * Get the number of threads that process client requests.
+     *
+     * @return The number of worker threads or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Integer getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Get the maximum number of pending connections queued by the listener.
+     *
+     * @return The connection backlog or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Integer getConnectionBacklog() {
+        return connectionBacklog;
+    }
+
+    /**
+     * Determine whether Nagle's algorithm is disabled on client connections.
+     *
+     * @return The TCP no delay setting or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Boolean getTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    /**
+     * Determine whether TCP keep-alive is enabled on client connections.
+     *
+     * @return The keep-alive setting or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Boolean getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Get the size of the socket receive buffer.
+     *
+     * @return The size in bytes or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Integer getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * Get the size of the socket send buffer.
+     *
+     * @return The size in bytes or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Integer getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    /**
+     * Get the number of entries cached by the directory partition.
+     *
+     * @return The entry cache size or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Integer getEntryCacheSize() {
+        return entryCacheSize;
+    }
+
+    /**
+     * Get the number of records cached by each attribute index.
+     *
+     * @return The index cache size or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Integer getIndexCacheSize() {
+        return indexCacheSize;
+    }
+
+    /**
+     * Determine whether the directory partition is synchronised to disk after every write.
+     *
+     * @return The sync on write setting or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Boolean getSyncOnWrite() {
+        return syncOnWrite;
+    }
+
+    /**
+     * Determine whether the directory is held in memory and discarded when the server is stopped.
+     *
+     * @return The in memory setting or {@code null} if it was not configured.
+     * @since 1.3.3
+     */
+    public final Boolean getInMemory() {
+        return inMemory;
+    }
 }
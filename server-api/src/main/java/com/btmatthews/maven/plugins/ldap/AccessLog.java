@@ -0,0 +1,179 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import com.btmatthews.utils.monitor.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes an access log for an LDAP directory server. Messages are queued by the threads that process the client
+ * requests and are written by a background thread so that logging does not add to the latency of the operations.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class AccessLog {
+
+    /**
+     * The maximum time in milliseconds to wait for queued messages to be written when the access log is closed.
+     */
+    private static final long CLOSE_TIMEOUT = 10000L;
+    /**
+     * The record queued to tell the background thread to stop.
+     */
+    private static final Record END = new Record(0L, null);
+    /**
+     * The messages waiting to be written.
+     */
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<Record>();
+    /**
+     * The access log file.
+     */
+    private final File file;
+    /**
+     * Used to write the access log file.
+     */
+    private final Writer writer;
+    /**
+     * Used to log errors writing the access log file.
+     */
+    private final Logger logger;
+    /**
+     * The background thread that writes the queued messages.
+     */
+    private final Thread thread;
+
+    /**
+     * Open the access log file, replacing any existing file, and start the background thread.
+     *
+     * @param file   The access log file.
+     * @param logger Used to log errors writing the access log file.
+     * @throws IOException If the access log file could not be opened.
+     */
+    public AccessLog(final File file, final Logger logger) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        this.file = file;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        this.logger = logger;
+        this.thread = new Thread(new Runnable() {
+            public void run() {
+                drain();
+            }
+        }, "ldap-access-log");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a message to be written to the access log. The message is time stamped when it is queued.
+     *
+     * @param message The message.
+     */
+    public void log(final String message) {
+        queue.add(new Record(System.currentTimeMillis(), message));
+    }
+
+    /**
+     * Write the messages that are still queued and close the access log file.
+     */
+    public void close() {
+        queue.add(END);
+        try {
+            thread.join(CLOSE_TIMEOUT);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.close();
+        } catch (final IOException e) {
+            logger.logError("Could not close access log " + file, e);
+        }
+    }
+
+    /**
+     * Write the queued messages until the access log is closed. The file is flushed whenever the queue is empty.
+     */
+    private void drain() {
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+        boolean failed = false;
+        try {
+            Record record = queue.take();
+            while (record != END) {
+                if (!failed) {
+                    try {
+                        writer.write('[');
+                        writer.write(format.format(new Date(record.time)));
+                        writer.write("] ");
+                        writer.write(record.message);
+                        writer.write(System.getProperty("line.separator"));
+                        if (queue.isEmpty()) {
+                            writer.flush();
+                        }
+                    } catch (final IOException e) {
+                        logger.logError("Could not write access log " + file, e);
+                        failed = true;
+                    }
+                }
+                record = queue.take();
+            }
+            writer.flush();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException e) {
+            logger.logError("Could not write access log " + file, e);
+        }
+    }
+
+    /**
+     * A message waiting to be written to the access log.
+     */
+    private static final class Record {
+
+        /**
+         * The time the message was queued.
+         */
+        private final long time;
+        /**
+         * The message.
+         */
+        private final String message;
+
+        /**
+         * Initialise the record.
+         *
+         * @param time    The time the message was queued.
+         * @param message The message.
+         */
+        Record(final long time, final String message) {
+            this.time = time;
+            this.message = message;
+        }
+    }
+}
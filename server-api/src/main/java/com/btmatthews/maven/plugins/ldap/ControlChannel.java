@@ -0,0 +1,240 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import com.btmatthews.utils.monitor.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * A small control channel that lets build goals and test code send commands to a running LDAP directory server and
+ * wait for them to complete. Unlike the monitor, which only acknowledges that a command was received, each command
+ * is answered with {@code OK} once it has been executed or {@code ERROR} followed by a message if it failed.
+ * <p>
+ * The channel only listens on the loopback interface. A client sends the control key and then the command, each on
+ * its own line, and reads a single line response. The following commands are supported:
+ * <ul>
+ * <li>{@code ping} - check that the server is running</li>
+ * <li>{@code reset} - restore the directory to the state it was in after it was seeded</li>
+ * </ul>
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class ControlChannel implements Runnable {
+
+    /**
+     * The command used to check that the server is running.
+     */
+    public static final String PING = "ping";
+    /**
+     * The command used to reset the directory.
+     */
+    public static final String RESET = "reset";
+    /**
+     * The response sent when a command was executed successfully.
+     */
+    public static final String OK = "OK";
+    /**
+     * The prefix of the response sent when a command failed.
+     */
+    public static final String ERROR = "ERROR";
+    /**
+     * The default maximum time in milliseconds that {@link #reset(int, String)} waits for the reset to complete.
+     */
+    public static final int DEFAULT_TIMEOUT = 60000;
+    /**
+     * The maximum time in milliseconds to wait for a client to send the control key and command after connecting.
+     */
+    private static final int READ_TIMEOUT = 10000;
+    /**
+     * The server that executes the commands.
+     */
+    private final LDAPServer server;
+    /**
+     * The key that clients must send before a command.
+     */
+    private final String key;
+    /**
+     * Used to log informational and error messages.
+     */
+    private final Logger logger;
+    /**
+     * The socket on which the control channel listens for commands.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Open the control channel. The channel does not accept commands until {@link #start()} is called.
+     *
+     * @param server The server that executes the commands.
+     * @param port   The port on which to listen for commands or {@code 0} to use any free port.
+     * @param key    The key that clients must send before a command.
+     * @param logger Used to log informational and error messages.
+     * @throws IOException If the control channel could not be opened.
+     */
+    public ControlChannel(final LDAPServer server, final int port, final String key, final Logger logger)
+            throws IOException {
+        this.server = server;
+        this.key = key;
+        this.logger = logger;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+    }
+
+    /**
+     * Get the port on which the control channel is listening.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Start accepting commands on a daemon thread.
+     */
+    public void start() {
+        final Thread thread = new Thread(this, "ldap-control-channel");
+        thread.setDaemon(true);
+        thread.start();
+        logger.logInfo("Listening for control commands on port " + getPort());
+    }
+
+    /**
+     * Stop accepting commands.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (final IOException e) {
+            logger.logError("Error closing control channel", e);
+        }
+    }
+
+    /**
+     * Accept connections and execute commands until the control channel is closed.
+     */
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                try {
+                    socket.setSoTimeout(READ_TIMEOUT);
+                    final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                            "UTF-8"));
+                    final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),
+                            "UTF-8"));
+                    final String clientKey = reader.readLine();
+                    final String command = reader.readLine();
+                    String response;
+                    try {
+                        response = execute(clientKey, command);
+                    } catch (final RuntimeException e) {
+                        logger.logError("Error executing control command " + command, e);
+                        response = ERROR + " " + e;
+                    }
+                    writer.println(response);
+                    writer.flush();
+                } finally {
+                    socket.close();
+                }
+            } catch (final SocketException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.logError("Error in control channel", e);
+                }
+            } catch (final IOException e) {
+                logger.logError("Error in control channel", e);
+            }
+        }
+    }
+
+    /**
+     * Execute a command received by the control channel.
+     *
+     * @param clientKey The key sent by the client.
+     * @param command   The command.
+     * @return The response.
+     */
+    private String execute(final String clientKey, final String command) {
+        if (!key.equals(clientKey)) {
+            logger.logError("Invalid control key");
+            return ERROR + " Invalid control key";
+        } else if (PING.equals(command)) {
+            return server.isStarted(logger) ? OK : ERROR + " Server is not running";
+        } else if (RESET.equals(command)) {
+            final long start = System.currentTimeMillis();
+            server.reset(logger);
+            if (!server.isStarted(logger)) {
+                return ERROR + " Server did not restart after reset";
+            }
+            logger.logInfo("Reset directory server in " + (System.currentTimeMillis() - start) + "ms");
+            return OK;
+        } else {
+            return ERROR + " Unknown command: " + command;
+        }
+    }
+
+    /**
+     * Send a command to the control channel of a server running on the local machine and wait for it to complete.
+     *
+     * @param port    The port on which the control channel is listening.
+     * @param key     The control key.
+     * @param command The command.
+     * @param timeout The maximum time in milliseconds to wait for the command to complete or {@code 0} to wait
+     *                indefinitely.
+     * @throws IOException If the command could not be sent or failed.
+     */
+    public static void sendCommand(final int port, final String key, final String command, final int timeout)
+            throws IOException {
+        final Socket socket = new Socket(InetAddress.getByName(null), port);
+        try {
+            socket.setSoTimeout(timeout);
+            final PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+            writer.println(key);
+            writer.println(command);
+            writer.flush();
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    "UTF-8"));
+            final String response = reader.readLine();
+            if (!OK.equals(response)) {
+                throw new IOException("Command " + command + " failed: " + response);
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Reset a server running on the local machine. This is intended to be called from test code between test
+     * classes. The call gives up if the reset does not complete within {@link #DEFAULT_TIMEOUT} milliseconds.
+     *
+     * @param port The port on which the control channel is listening.
+     * @param key  The control key.
+     * @throws IOException If the reset failed or timed out.
+     */
+    public static void reset(final int port, final String key) throws IOException {
+        sendCommand(port, key, RESET, DEFAULT_TIMEOUT);
+    }
+}
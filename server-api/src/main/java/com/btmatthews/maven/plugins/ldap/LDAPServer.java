@@ -16,9 +16,11 @@
 
 package com.btmatthews.maven.plugins.ldap;
 
+import com.btmatthews.utils.monitor.Logger;
 import com.btmatthews.utils.monitor.Server;
 
 import java.io.File;
+import java.util.List;
 
 /**
  * The interface that must be implemented by LDAP servers.
@@ -53,9 +55,141 @@ public interface LDAPServer extends Server {
      */
     String LDIF_FILE = "ldifFile";
     /**
-     * The name of the parameter that specifies the port on which the LDAP service will listen for traffic.
+     * The name of the parameter that specifies the port on which the LDAP service will listen for traffic. If the port
+     * is {@code 0} then the server binds an ephemeral port.
      */
     String LDAP_PORT = "ldapPort";
+    /**
+     * The name of the parameter that specifies the directory in which images of the seeded directory are cached so
+     * that later starts can skip parsing the seed data. Servers that do not support snapshot images ignore it.
+     *
+     * @since 1.3.3
+     */
+    String SNAPSHOT_DIR = "snapshotDirectory";
+    /**
+     * The name of the parameter that specifies additional files containing seed data. They are loaded after the
+     * {@link #LDIF_FILE}.
+     *
+     * @since 1.3.3
+     */
+    String SEED_FILES = "seedFiles";
+    /**
+     * The name of the parameter that specifies the attributes that are indexed for equality searches. Servers that
+     * do not support attribute indexes ignore it.
+     *
+     * @since 1.3.3
+     */
+    String INDEX_ATTRIBUTES = "indexAttributes";
+    /**
+     * The name of the parameter that specifies the maximum number of entries returned by a search. Servers that do
+     * not support size limits ignore it.
+     *
+     * @since 1.3.3
+     */
+    String SIZE_LIMIT = "sizeLimit";
+    /**
+     * The name of the parameter that specifies the maximum number of concurrent client connections. Servers that do
+     * not support connection limits ignore it.
+     *
+     * @since 1.3.3
+     */
+    String MAX_CONNECTIONS = "maxConnections";
+    /**
+     * The name of the parameter that specifies whether entries are checked against the schema. Servers that cannot
+     * disable schema checking ignore it.
+     *
+     * @since 1.3.3
+     */
+    String SCHEMA_ENFORCEMENT = "schemaEnforcement";
+    /**
+     * The name of the parameter that specifies the maximum number of entries kept in the change log. The change log
+     * is disabled if it is zero. Servers that do not support a change log ignore it.
+     *
+     * @since 1.3.3
+     */
+    String MAX_CHANGELOG_ENTRIES = "maxChangeLogEntries";
+    /**
+     * The name of the parameter that specifies the number of threads that process client requests. Servers that use
+     * a thread per connection ignore it.
+     *
+     * @since 1.3.3
+     */
+    String WORKER_THREADS = "workerThreads";
+    /**
+     * The name of the parameter that specifies the maximum number of pending connections that are queued by the
+     * listener before they are accepted.
+     *
+     * @since 1.3.3
+     */
+    String CONNECTION_BACKLOG = "connectionBacklog";
+    /**
+     * The name of the parameter that specifies whether Nagle's algorithm is disabled on client connections. Servers
+     * that do not support it ignore it.
+     *
+     * @since 1.3.3
+     */
+    String TCP_NO_DELAY = "tcpNoDelay";
+    /**
+     * The name of the parameter that specifies whether TCP keep-alive is enabled on client connections. Servers that
+     * do not support it ignore it.
+     *
+     * @since 1.3.3
+     */
+    String KEEP_ALIVE = "keepAlive";
+    /**
+     * The name of the parameter that specifies the size in bytes of the socket receive buffer for client connections.
+     *
+     * @since 1.3.3
+     */
+    String RECEIVE_BUFFER_SIZE = "receiveBufferSize";
+    /**
+     * The name of the parameter that specifies the size in bytes of the socket send buffer for client connections.
+     *
+     * @since 1.3.3
+     */
+    String SEND_BUFFER_SIZE = "sendBufferSize";
+    /**
+     * The name of the parameter that specifies the file to which a summary of the operation metrics is written when
+     * the server is stopped. The operation metrics are collected and published through JMX if either this or
+     * {@link #ACCESS_LOG_FILE} is configured.
+     *
+     * @since 1.3.3
+     */
+    String METRICS_FILE = "metricsFile";
+    /**
+     * The name of the parameter that specifies the file to which the client connections and operations are logged.
+     *
+     * @since 1.3.3
+     */
+    String ACCESS_LOG_FILE = "accessLogFile";
+    /**
+     * The name of the parameter that specifies the number of entries cached by the directory partition. Servers that
+     * do not cache entries ignore it.
+     *
+     * @since 1.3.3
+     */
+    String ENTRY_CACHE_SIZE = "entryCacheSize";
+    /**
+     * The name of the parameter that specifies the number of records cached by each attribute index. Servers that do
+     * not cache index records ignore it.
+     *
+     * @since 1.3.3
+     */
+    String INDEX_CACHE_SIZE = "indexCacheSize";
+    /**
+     * The name of the parameter that specifies whether the directory partition is synchronised to disk after every
+     * write. Servers that do not persist the directory ignore it.
+     *
+     * @since 1.3.3
+     */
+    String SYNC_ON_WRITE = "syncOnWrite";
+    /**
+     * The name of the parameter that specifies whether the directory is held in memory and discarded when the server
+     * is stopped. Servers that always hold the directory in memory ignore it.
+     *
+     * @since 1.3.3
+     */
+    String IN_MEMORY = "inMemory";
 
     /**
      * Get the configured directory root.
@@ -93,9 +227,28 @@ public interface LDAPServer extends Server {
     File getLdifFile();
 
     /**
-     * Get the port on which the LDAP server is listening.
+     * Get all the files that contain the data used to seed the directory. This includes the LDIF file, if there is
+     * one, followed by the additional seed files.
+     *
+     * @return The seed files.
+     * @since 1.3.3
+     */
+    List<File> getSeedFiles();
+
+    /**
+     * Get the port on which the LDAP server is listening. If the server was configured with port {@code 0} then this is
+     * the ephemeral port that was bound once the server has started.
      *
      * @return The port.
      */
     int getServerPort();
+
+    /**
+     * Restore the directory to the state it was in immediately after it was started and seeded, discarding all the
+     * changes made since.
+     *
+     * @param logger Used to log informational and error messages.
+     * @since 1.3.3
+     */
+    void reset(Logger logger);
 }
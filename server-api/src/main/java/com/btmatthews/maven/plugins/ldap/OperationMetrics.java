@@ -0,0 +1,495 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the operation metrics for an LDAP directory server. The servers report each completed operation and each
+ * client connection that is opened or closed. For each type of operation the number of operations, the number that
+ * failed and a latency histogram are kept along with samples of the slowest operations. If an access log is used then
+ * the operations and connections are also written to it.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+
+    /**
+     * The name of the add operation.
+     */
+    public static final String ADD = "ADD";
+    /**
+     * The name of the bind operation.
+     */
+    public static final String BIND = "BIND";
+    /**
+     * The name of the compare operation.
+     */
+    public static final String COMPARE = "COMPARE";
+    /**
+     * The name of the delete operation.
+     */
+    public static final String DELETE = "DELETE";
+    /**
+     * The name of the extended operation.
+     */
+    public static final String EXTENDED = "EXTENDED";
+    /**
+     * The name of the modify operation.
+     */
+    public static final String MODIFY = "MODIFY";
+    /**
+     * The name of the modify DN operation.
+     */
+    public static final String MODIFY_DN = "MODIFY_DN";
+    /**
+     * The name of the search operation.
+     */
+    public static final String SEARCH = "SEARCH";
+    /**
+     * The upper bounds in microseconds of the latency histogram buckets. The last bucket has no upper bound.
+     */
+    private static final long[] BUCKET_LIMITS = {100L, 500L, 1000L, 5000L, 10000L, 50000L, 100000L, 500000L, 1000000L};
+    /**
+     * The labels of the latency histogram buckets.
+     */
+    private static final String[] BUCKET_LABELS = {
+            "<0.1ms", "<0.5ms", "<1ms", "<5ms", "<10ms", "<50ms", "<100ms", "<500ms", "<1s", ">=1s"};
+    /**
+     * The number of slowest operations that are sampled.
+     */
+    private static final int SLOWEST_SAMPLES = 10;
+    /**
+     * The statistics for each type of operation.
+     */
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<String, Statistics>();
+    /**
+     * The slowest operations, fastest first.
+     */
+    private final PriorityQueue<Sample> slowest = new PriorityQueue<Sample>();
+    /**
+     * The latency in nanoseconds an operation must exceed to be sampled once the slowest operations are full.
+     */
+    private volatile long slowestThreshold;
+    /**
+     * The number of client connections that have been accepted.
+     */
+    private final AtomicLong totalConnections = new AtomicLong();
+    /**
+     * The number of client connections that are currently open.
+     */
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    /**
+     * The largest number of client connections that were open at the same time.
+     */
+    private final AtomicInteger peakConnections = new AtomicInteger();
+    /**
+     * The access log or {@code null} if the operations are not logged.
+     */
+    private final AccessLog accessLog;
+
+    /**
+     * Initialise the metrics.
+     *
+     * @param accessLog The access log or {@code null} if the operations are not logged.
+     */
+    public OperationMetrics(final AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    /**
+     * Record that a client connection was opened.
+     *
+     * @param client The address of the client.
+     */
+    public void connectionOpened(final String client) {
+        totalConnections.incrementAndGet();
+        final int active = activeConnections.incrementAndGet();
+        int peak = peakConnections.get();
+        while (active > peak && !peakConnections.compareAndSet(peak, active)) {
+            peak = peakConnections.get();
+        }
+        if (accessLog != null) {
+            accessLog.log("CONNECT from=" + client);
+        }
+    }
+
+    /**
+     * Record that a client connection was closed.
+     *
+     * @param client The address of the client.
+     */
+    public void connectionClosed(final String client) {
+        activeConnections.decrementAndGet();
+        if (accessLog != null) {
+            accessLog.log("DISCONNECT from=" + client);
+        }
+    }
+
+    /**
+     * Record a completed operation.
+     *
+     * @param connectionId The identifier of the client connection or {@code -1} if it is not known.
+     * @param operation    The name of the operation type.
+     * @param target       The DN the operation targeted and for searches the filter.
+     * @param result       The result code.
+     * @param success      {@code true} if the operation succeeded.
+     * @param elapsed      The time taken in nanoseconds.
+     */
+    public void operationCompleted(final long connectionId,
+                                   final String operation,
+                                   final String target,
+                                   final String result,
+                                   final boolean success,
+                                   final long elapsed) {
+        Statistics stats = statistics.get(operation);
+        if (stats == null) {
+            final Statistics newStats = new Statistics();
+            stats = statistics.putIfAbsent(operation, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        stats.record(elapsed, success);
+        if (elapsed > slowestThreshold) {
+            sample(new Sample(connectionId, operation, target, result, elapsed));
+        }
+        if (accessLog != null) {
+            accessLog.log(describe(connectionId, operation, target, result, elapsed));
+        }
+    }
+
+    /**
+     * Get the number of client connections that have been accepted.
+     *
+     * @return The number of connections.
+     */
+    public long getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * Get the number of client connections that are currently open.
+     *
+     * @return The number of connections.
+     */
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /**
+     * Get the largest number of client connections that were open at the same time.
+     *
+     * @return The number of connections.
+     */
+    public int getPeakConnections() {
+        return peakConnections.get();
+    }
+
+    /**
+     * Get the number of operations that have completed.
+     *
+     * @return The number of operations.
+     */
+    public long getTotalOperations() {
+        long total = 0L;
+        for (final Statistics stats : statistics.values()) {
+            total += stats.count.get();
+        }
+        return total;
+    }
+
+    /**
+     * Get the number of operations of a given type that have completed.
+     *
+     * @param operation The name of the operation type.
+     * @return The number of operations.
+     */
+    public long getOperationCount(final String operation) {
+        final Statistics stats = statistics.get(operation);
+        return stats == null ? 0L : stats.count.get();
+    }
+
+    /**
+     * Get the count, error count, latency and latency histogram for each type of operation.
+     *
+     * @return One line per operation type ordered by operation name.
+     */
+    public String[] getOperationStatistics() {
+        final List<String> lines = new ArrayList<String>();
+        for (final Map.Entry<String, Statistics> entry : new TreeMap<String, Statistics>(statistics).entrySet()) {
+            final Statistics stats = entry.getValue();
+            final long count = stats.count.get();
+            final StringBuilder line = new StringBuilder(entry.getKey());
+            line.append(" count=").append(count);
+            line.append(" errors=").append(stats.errors.get());
+            line.append(" mean=").append(millis(count == 0L ? 0L : stats.totalNanos.get() / count));
+            line.append(" max=").append(millis(stats.maxNanos.get()));
+            for (int i = 0; i < BUCKET_LABELS.length; i++) {
+                line.append(' ').append(BUCKET_LABELS[i]).append('=').append(stats.buckets.get(i));
+            }
+            lines.add(line.toString());
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Get the slowest operations, slowest first.
+     *
+     * @return One line per operation.
+     */
+    public String[] getSlowestOperations() {
+        final List<Sample> samples;
+        synchronized (slowest) {
+            samples = new ArrayList<Sample>(slowest);
+        }
+        Collections.sort(samples, Collections.reverseOrder());
+        final String[] lines = new String[samples.size()];
+        for (int i = 0; i < lines.length; i++) {
+            final Sample sample = samples.get(i);
+            lines[i] = describe(sample.connectionId, sample.operation, sample.target, sample.result, sample.elapsed);
+        }
+        return lines;
+    }
+
+    /**
+     * Discard all the metrics collected so far except the number of open connections.
+     */
+    public void reset() {
+        statistics.clear();
+        synchronized (slowest) {
+            slowest.clear();
+            slowestThreshold = 0L;
+        }
+        totalConnections.set(0L);
+        peakConnections.set(activeConnections.get());
+    }
+
+    /**
+     * Write a summary of the metrics to a file, replacing any existing file.
+     *
+     * @param file The summary file.
+     * @throws IOException If the summary file could not be written.
+     */
+    public void writeSummary(final File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        final PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writer.println("Connections: total=" + getTotalConnections() + " active=" + getActiveConnections()
+                    + " peak=" + getPeakConnections());
+            writer.println("Operations: total=" + getTotalOperations());
+            for (final String line : getOperationStatistics()) {
+                writer.println("  " + line);
+            }
+            writer.println("Slowest operations:");
+            for (final String line : getSlowestOperations()) {
+                writer.println("  " + line);
+            }
+        } finally {
+            writer.close();
+        }
+        if (writer.checkError()) {
+            throw new IOException("Could not write " + file);
+        }
+    }
+
+    /**
+     * Add an operation to the slowest operations if it is slower than the fastest of them.
+     *
+     * @param sample The operation.
+     */
+    private void sample(final Sample sample) {
+        synchronized (slowest) {
+            if (slowest.size() < SLOWEST_SAMPLES) {
+                slowest.add(sample);
+            } else if (sample.elapsed > slowest.peek().elapsed) {
+                slowest.poll();
+                slowest.add(sample);
+            }
+            if (slowest.size() == SLOWEST_SAMPLES) {
+                slowestThreshold = slowest.peek().elapsed;
+            }
+        }
+    }
+
+    /**
+     * Describe an operation for the access log and the slowest operation samples.
+     *
+     * @param connectionId The identifier of the client connection or {@code -1} if it is not known.
+     * @param operation    The name of the operation type.
+     * @param target       The DN the operation targeted and for searches the filter.
+     * @param result       The result code.
+     * @param elapsed      The time taken in nanoseconds.
+     * @return The description.
+     */
+    private static String describe(final long connectionId,
+                                   final String operation,
+                                   final String target,
+                                   final String result,
+                                   final long elapsed) {
+        final StringBuilder builder = new StringBuilder();
+        if (connectionId >= 0L) {
+            builder.append("conn=").append(connectionId).append(' ');
+        }
+        builder.append(operation);
+        if (target != null) {
+            builder.append(" target=\"").append(target).append('"');
+        }
+        builder.append(" result=").append(result);
+        builder.append(" etime=").append(millis(elapsed));
+        return builder.toString();
+    }
+
+    /**
+     * Format a time in nanoseconds as milliseconds.
+     *
+     * @param nanos The time in nanoseconds.
+     * @return The formatted time.
+     */
+    private static String millis(final long nanos) {
+        return String.format(Locale.ENGLISH, "%.3fms", nanos / 1000000.0);
+    }
+
+    /**
+     * The statistics for one type of operation.
+     */
+    private static final class Statistics {
+
+        /**
+         * The number of operations.
+         */
+        private final AtomicLong count = new AtomicLong();
+        /**
+         * The number of operations that failed.
+         */
+        private final AtomicLong errors = new AtomicLong();
+        /**
+         * The total time taken in nanoseconds.
+         */
+        private final AtomicLong totalNanos = new AtomicLong();
+        /**
+         * The longest time taken in nanoseconds.
+         */
+        private final AtomicLong maxNanos = new AtomicLong();
+        /**
+         * The number of operations in each latency histogram bucket.
+         */
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_LABELS.length);
+
+        /**
+         * Record an operation.
+         *
+         * @param elapsed The time taken in nanoseconds.
+         * @param success {@code true} if the operation succeeded.
+         */
+        void record(final long elapsed, final boolean success) {
+            count.incrementAndGet();
+            if (!success) {
+                errors.incrementAndGet();
+            }
+            totalNanos.addAndGet(elapsed);
+            long max = maxNanos.get();
+            while (elapsed > max && !maxNanos.compareAndSet(max, elapsed)) {
+                max = maxNanos.get();
+            }
+            final long micros = elapsed / 1000L;
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS.length && micros >= BUCKET_LIMITS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+        }
+    }
+
+    /**
+     * A sample of a slow operation.
+     */
+    private static final class Sample implements Comparable<Sample> {
+
+        /**
+         * The identifier of the client connection or {@code -1} if it is not known.
+         */
+        private final long connectionId;
+        /**
+         * The name of the operation type.
+         */
+        private final String operation;
+        /**
+         * The DN the operation targeted and for searches the filter.
+         */
+        private final String target;
+        /**
+         * The result code.
+         */
+        private final String result;
+        /**
+         * The time taken in nanoseconds.
+         */
+        private final long elapsed;
+
+        /**
+         * Initialise the sample.
+         *
+         * @param connectionId The identifier of the client connection or {@code -1} if it is not known.
+         * @param operation    The name of the operation type.
+         * @param target       The DN the operation targeted and for searches the filter.
+         * @param result       The result code.
+         * @param elapsed      The time taken in nanoseconds.
+         */
+        Sample(final long connectionId,
+               final String operation,
+               final String target,
+               final String result,
+               final long elapsed) {
+            this.connectionId = connectionId;
+            this.operation = operation;
+            this.target = target;
+            this.result = result;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * Order samples by the time taken.
+         *
+         * @param other The other sample.
+         * @return A negative number, zero or a positive number if this sample was faster, as fast or slower.
+         */
+        public int compareTo(final Sample other) {
+            return elapsed < other.elapsed ? -1 : (elapsed == other.elapsed ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+/**
+ * The management interface used to expose the operation metrics of an LDAP directory server through JMX.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public interface OperationMetricsMBean {
+
+    /**
+     * Get the number of client connections that have been accepted.
+     *
+     * @return The number of connections.
+     */
+    long getTotalConnections();
+
+    /**
+     * Get the number of client connections that are currently open.
+     *
+     * @return The number of connections.
+     */
+    int getActiveConnections();
+
+    /**
+     * Get the largest number of client connections that were open at the same time.
+     *
+     * @return The number of connections.
+     */
+    int getPeakConnections();
+
+    /**
+     * Get the number of operations that have completed.
+     *
+     * @return The number of operations.
+     */
+    long getTotalOperations();
+
+    /**
+     * Get the count, error count, latency and latency histogram for each type of operation.
+     *
+     * @return One line per operation type.
+     */
+    String[] getOperationStatistics();
+
+    /**
+     * Get the slowest operations, slowest first.
+     *
+     * @return One line per operation.
+     */
+    String[] getSlowestOperations();
+
+    /**
+     * Discard all the metrics collected so far except the number of open connections.
+     */
+    void reset();
+}
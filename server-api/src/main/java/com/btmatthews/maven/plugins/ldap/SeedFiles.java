@@ -0,0 +1,156 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import com.btmatthews.utils.monitor.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses the seed files for an LDAP server. When there is more than one seed file they are parsed concurrently and the
+ * time taken to parse each file is logged. The entries from all the files are then ordered so that parent entries
+ * come before their children regardless of which file they were read from.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public final class SeedFiles {
+
+    /**
+     * Utility classes are not instantiated.
+     */
+    private SeedFiles() {
+    }
+
+    /**
+     * Parse the seed files and return their entries in import order. Entries are ordered by depth. Entries of the same
+     * depth keep the order of the seed files and the order within each file.
+     *
+     * @param files  The seed files.
+     * @param parser Used to parse each seed file.
+     * @param logger Used to log the time taken to parse each seed file.
+     * @param <T>    The entry type.
+     * @return The entries in import order.
+     * @throws IOException If any of the seed files could not be read or parsed.
+     */
+    public static <T> List<T> parse(final List<File> files,
+                                    final SeedParser<T> parser,
+                                    final Logger logger) throws IOException {
+        final List<T> entries = new ArrayList<T>();
+        if (files.size() == 1) {
+            entries.addAll(new ParseTask<T>(files.get(0), parser, logger).call());
+        } else if (files.size() > 1) {
+            final int threads = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                final List<Future<List<T>>> futures = new ArrayList<Future<List<T>>>(files.size());
+                for (final File file : files) {
+                    futures.add(executor.submit(new ParseTask<T>(file, parser, logger)));
+                }
+                for (final Future<List<T>> future : futures) {
+                    entries.addAll(future.get());
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while parsing seed files");
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw (IOException) e.getCause();
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        Collections.sort(entries, new Comparator<T>() {
+            public int compare(final T entry1, final T entry2) {
+                final int depth1 = parser.getDepth(entry1);
+                final int depth2 = parser.getDepth(entry2);
+                return depth1 < depth2 ? -1 : (depth1 == depth2 ? 0 : 1);
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Parses a single seed file and logs the time taken.
+     *
+     * @param <T> The entry type.
+     */
+    private static final class ParseTask<T> implements Callable<List<T>> {
+
+        /**
+         * The seed file.
+         */
+        private final File file;
+        /**
+         * Used to parse the seed file.
+         */
+        private final SeedParser<T> parser;
+        /**
+         * Used to log the time taken.
+         */
+        private final Logger logger;
+
+        /**
+         * Initialise the task.
+         *
+         * @param file   The seed file.
+         * @param parser Used to parse the seed file.
+         * @param logger Used to log the time taken.
+         */
+        ParseTask(final File file, final SeedParser<T> parser, final Logger logger) {
+            this.file = file;
+            this.parser = parser;
+            this.logger = logger;
+        }
+
+        /**
+         * Parse the seed file.
+         *
+         * @return The entries in the order they appear in the file.
+         * @throws IOException If the seed file could not be read or parsed.
+         */
+        public List<T> call() throws IOException {
+            final long start = System.currentTimeMillis();
+            final List<T> entries;
+            try {
+                entries = parser.parse(file);
+            } catch (final IOException e) {
+                throw e;
+            } catch (final Exception e) {
+                final IOException exception = new IOException("Could not parse seed file " + file + ": "
+                        + e.getMessage());
+                exception.initCause(e);
+                throw exception;
+            }
+            logger.logInfo("Parsed " + entries.size() + " entries from seed file " + file + " in "
+                    + (System.currentTimeMillis() - start) + "ms");
+            return entries;
+        }
+    }
+}
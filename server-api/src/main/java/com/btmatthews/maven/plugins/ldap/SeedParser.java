@@ -0,0 +1,48 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Implemented by LDAP servers to parse seed files into the entry representation used by their directory SDK.
+ *
+ * @param <T> The entry type.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+public interface SeedParser<T> {
+
+    /**
+     * Parse all the entries in a seed file. This method may be called concurrently for different files.
+     *
+     * @param file The seed file.
+     * @return The entries in the order they appear in the file.
+     * @throws Exception If the seed file could not be read or parsed.
+     */
+    List<T> parse(File file) throws Exception;
+
+    /**
+     * Get the number of RDN components in the distinguished name of an entry. Entries are imported in order of
+     * increasing depth so that parent entries are created before their children.
+     *
+     * @param entry The entry.
+     * @return The depth of the entry.
+     */
+    int getDepth(T entry);
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2008-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.opendj;
+
+import com.btmatthews.maven.plugins.ldap.OperationMetrics;
+import org.forgerock.opendj.ldap.ErrorResultException;
+import org.forgerock.opendj.ldap.IntermediateResponseHandler;
+import org.forgerock.opendj.ldap.RequestContext;
+import org.forgerock.opendj.ldap.RequestHandler;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.ResultHandler;
+import org.forgerock.opendj.ldap.SearchResultHandler;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.BindRequest;
+import org.forgerock.opendj.ldap.requests.CompareRequest;
+import org.forgerock.opendj.ldap.requests.DeleteRequest;
+import org.forgerock.opendj.ldap.requests.ExtendedRequest;
+import org.forgerock.opendj.ldap.requests.ModifyDNRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.responses.BindResult;
+import org.forgerock.opendj.ldap.responses.CompareResult;
+import org.forgerock.opendj.ldap.responses.ExtendedResult;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.responses.SearchResultEntry;
+import org.forgerock.opendj.ldap.responses.SearchResultReference;
+
+/**
+ * Times the operations processed by the OpenDJ in-memory backend and reports them to the operation metrics. Each
+ * request is passed to the backend with a result handler that reports the operation when the result is returned, so
+ * the latency of a search includes sending the matching entries. The OpenDJ SDK does not identify the client
+ * connection to the request handler so the operations are reported without a connection identifier.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class MetricsRequestHandler implements RequestHandler<RequestContext> {
+
+    /**
+     * The request handler that processes the requests.
+     */
+    private final RequestHandler<RequestContext> handler;
+    /**
+     * The operation metrics.
+     */
+    private final OperationMetrics metrics;
+
+    /**
+     * Initialise the request handler.
+     *
+     * @param handler The request handler that processes the requests.
+     * @param metrics The operation metrics.
+     */
+    MetricsRequestHandler(final RequestHandler<RequestContext> handler, final OperationMetrics metrics) {
+        this.handler = handler;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Time an add request.
+     *
+     * @param requestContext              The request context.
+     * @param request                     The add request.
+     * @param intermediateResponseHandler Receives intermediate responses.
+     * @param resultHandler               Receives the result.
+     */
+    public void handleAdd(final RequestContext requestContext,
+                          final AddRequest request,
+                          final IntermediateResponseHandler intermediateResponseHandler,
+                          final ResultHandler<Result> resultHandler) {
+        handler.handleAdd(requestContext, request, intermediateResponseHandler,
+                new TimedResultHandler<Result>(OperationMetrics.ADD, String.valueOf(request.getName()), resultHandler));
+    }
+
+    /**
+     * Time a bind request.
+     *
+     * @param requestContext              The request context.
+     * @param version                     The LDAP protocol version.
+     * @param request                     The bind request.
+     * @param intermediateResponseHandler Receives intermediate responses.
+     * @param resultHandler               Receives the result.
+     */
+    public void handleBind(final RequestContext requestContext,
+                           final int version,
+                           final BindRequest request,
+                           final IntermediateResponseHandler intermediateResponseHandler,
+                           final ResultHandler<BindResult> resultHandler) {
+        handler.handleBind(requestContext, version, request, intermediateResponseHandler,
+                new TimedResultHandler<BindResult>(OperationMetrics.BIND, request.getName(), resultHandler));
+    }
+
+    /**
+     * Time a compare request.
+     *
+     * @param requestContext              The request context.
+     * @param request                     The compare request.
+     * @param intermediateResponseHandler Receives intermediate responses.
+     * @param resultHandler               Receives the result.
+     */
+    public void handleCompare(final RequestContext requestContext,
+                              final CompareRequest request,
+                              final IntermediateResponseHandler intermediateResponseHandler,
+                              final ResultHandler<CompareResult> resultHandler) {
+        handler.handleCompare(requestContext, request, intermediateResponseHandler,
+                new TimedResultHandler<CompareResult>(OperationMetrics.COMPARE, String.valueOf(request.getName()),
+                        resultHandler));
+    }
+
+    /**
+     * Time a delete request.
+     *
+     * @param requestContext              The request context.
+     * @param request                     The delete request.
+     * @param intermediateResponseHandler Receives intermediate responses.
+     * @param resultHandler               Receives the result.
+     */
+    public void handleDelete(final RequestContext requestContext,
+                             final DeleteRequest request,
+                             final IntermediateResponseHandler intermediateResponseHandler,
+                             final ResultHandler<Result> resultHandler) {
+        handler.handleDelete(requestContext, request, intermediateResponseHandler,
+                new TimedResultHandler<Result>(OperationMetrics.DELETE, String.valueOf(request.getName()),
+                        resultHandler));
+    }
+
+    /**
+     * Time an extended request.
+     *
+     * @param requestContext              The request context.
+     * @param request                     The extended request.
+     * @param intermediateResponseHandler Receives intermediate responses.
+     * @param resultHandler               Receives the result.
+     * @param <R>                         The type of the extended result.
+     */
+    public <R extends ExtendedResult> void handleExtendedRequest(
+            final RequestContext requestContext,
+            final ExtendedRequest<R> request,
+            final IntermediateResponseHandler intermediateResponseHandler,
+            final ResultHandler<R> resultHandler) {
+        handler.handleExtendedRequest(requestContext, request, intermediateResponseHandler,
+                new TimedResultHandler<R>(OperationMetrics.EXTENDED, request.getOID(), resultHandler));
+    }
+
+    /**
+     * Time a modify request.
+     *
+     * @param requestContext              The request context.
+     * @param request                     The modify request.
+     * @param intermediateResponseHandler Receives intermediate responses.
+     * @param resultHandler               Receives the result.
+     */
+    public void handleModify(final RequestContext requestContext,
+                             final ModifyRequest request,
+                             final IntermediateResponseHandler intermediateResponseHandler,
+                             final ResultHandler<Result> resultHandler) {
+        handler.handleModify(requestContext, request, intermediateResponseHandler,
+                new TimedResultHandler<Result>(OperationMetrics.MODIFY, String.valueOf(request.getName()),
+                        resultHandler));
+    }
+
+    /**
+     * Time a modify DN request.
+     *
+     * @param requestContext              The request context.
+     * @param request                     The modify DN request.
+     * @param intermediateResponseHandler Receives intermediate responses.
+     * @param resultHandler               Receives the result.
+     */
+    public void handleModifyDN(final RequestContext requestContext,
+                               final ModifyDNRequest request,
+                               final IntermediateResponseHandler intermediateResponseHandler,
+                               final ResultHandler<Result> resultHandler) {
+        handler.handleModifyDN(requestContext, request, intermediateResponseHandler,
+                new TimedResultHandler<Result>(OperationMetrics.MODIFY_DN, String.valueOf(request.getName()),
+                        resultHandler));
+    }
+
+    /**
+     * Time a search request.
+     *
+     * @param requestContext              The request context.
+     * @param request                     The search request.
+     * @param intermediateResponseHandler Receives intermediate responses.
+     * @param resultHandler               Receives the matching entries and the result.
+     */
+    public void handleSearch(final RequestContext requestContext,
+                             final SearchRequest request,
+                             final IntermediateResponseHandler intermediateResponseHandler,
+                             final SearchResultHandler resultHandler) {
+        handler.handleSearch(requestContext, request, intermediateResponseHandler,
+                new TimedSearchResultHandler(request.getName() + " " + request.getFilter(), resultHandler));
+    }
+
+    /**
+     * Report a completed operation to the metrics.
+     *
+     * @param operation The operation type name.
+     * @param target    The DN targeted by the operation and for searches the filter.
+     * @param result    The result.
+     * @param startTime The time the request was received.
+     */
+    private void complete(final String operation, final String target, final Result result, final long startTime) {
+        final ResultCode resultCode = result.getResultCode();
+        final boolean success = resultCode == ResultCode.SUCCESS
+                || resultCode == ResultCode.COMPARE_TRUE
+                || resultCode == ResultCode.COMPARE_FALSE;
+        metrics.operationCompleted(-1L, operation, target, resultCode.intValue() + " (" + resultCode + ")", success,
+                System.nanoTime() - startTime);
+    }
+
+    /**
+     * A result handler that reports the operation before passing on the result.
+     *
+     * @param <S> The type of result.
+     */
+    private class TimedResultHandler<S extends Result> implements ResultHandler<S> {
+
+        /**
+         * The operation type name.
+         */
+        private final String operation;
+        /**
+         * The DN targeted by the operation and for searches the filter.
+         */
+        private final String target;
+        /**
+         * The result handler that receives the result.
+         */
+        private final ResultHandler<? super S> resultHandler;
+        /**
+         * The time the request was received.
+         */
+        private final long startTime = System.nanoTime();
+
+        /**
+         * Initialise the result handler.
+         *
+         * @param operation     The operation type name.
+         * @param target        The DN targeted by the operation and for searches the filter.
+         * @param resultHandler The result handler that receives the result.
+         */
+        TimedResultHandler(final String operation, final String target, final ResultHandler<? super S> resultHandler) {
+            this.operation = operation;
+            this.target = target;
+            this.resultHandler = resultHandler;
+        }
+
+        /**
+         * Report a failed operation and pass on the error.
+         *
+         * @param error The error result.
+         */
+        public void handleErrorResult(final ErrorResultException error) {
+            complete(operation, target, error.getResult(), startTime);
+            resultHandler.handleErrorResult(error);
+        }
+
+        /**
+         * Report a successful operation and pass on the result.
+         *
+         * @param result The result.
+         */
+        public void handleResult(final S result) {
+            complete(operation, target, result, startTime);
+            resultHandler.handleResult(result);
+        }
+    }
+
+    /**
+     * A search result handler that passes on the matching entries and reports the operation when the search is done.
+     */
+    private final class TimedSearchResultHandler extends TimedResultHandler<Result> implements SearchResultHandler {
+
+        /**
+         * The search result handler that receives the matching entries and the result.
+         */
+        private final SearchResultHandler searchResultHandler;
+
+        /**
+         * Initialise the search result handler.
+         *
+         * @param target              The base DN and filter of the search.
+         * @param searchResultHandler The search result handler that receives the matching entries and the result.
+         */
+        TimedSearchResultHandler(final String target, final SearchResultHandler searchResultHandler) {
+            super(OperationMetrics.SEARCH, target, searchResultHandler);
+            this.searchResultHandler = searchResultHandler;
+        }
+
+        /**
+         * Pass on a matching entry.
+         *
+         * @param entry The entry.
+         * @return {@code true} if the search should continue.
+         */
+        public boolean handleEntry(final SearchResultEntry entry) {
+            return searchResultHandler.handleEntry(entry);
+        }
+
+        /**
+         * Pass on a search reference.
+         *
+         * @param reference The search reference.
+         * @return {@code true} if the search should continue.
+         */
+        public boolean handleReference(final SearchResultReference reference) {
+            return searchResultHandler.handleReference(reference);
+        }
+    }
+}
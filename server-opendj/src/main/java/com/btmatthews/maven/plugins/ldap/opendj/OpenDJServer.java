@@ -17,13 +17,24 @@
 package com.btmatthews.maven.plugins.ldap.opendj;
 
 import com.btmatthews.maven.plugins.ldap.AbstractLDAPServer;
+import com.btmatthews.maven.plugins.ldap.OperationMetrics;
+import com.btmatthews.maven.plugins.ldap.SeedFiles;
+import com.btmatthews.maven.plugins.ldap.SeedParser;
 import com.btmatthews.utils.monitor.Logger;
 import org.forgerock.opendj.ldap.*;
+import org.forgerock.opendj.ldif.LDIF;
 import org.forgerock.opendj.ldif.LDIFEntryReader;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Implements an in-memory LDAP directory server using OpenDJ SDK. See
@@ -35,10 +46,19 @@ import java.io.InputStream;
  */
 public final class OpenDJServer extends AbstractLDAPServer {
 
+    /**
+     * The connection backlog used if none was configured.
+     */
+    private static final int DEFAULT_CONNECTION_BACKLOG = 4096;
     /**
      * The listener that accepts and dispatches LDAP requests.
      */
     private LDAPListener listener;
+    /**
+     * The Grizzly transport used by the listener if worker threads or socket options were configured. Otherwise the
+     * listener uses the OpenDJ SDK's shared transport.
+     */
+    private TCPNIOTransport transport;
 
     /**
      * Start the OpenDJ in-memory directory server.
@@ -50,22 +70,96 @@ public final class OpenDJServer extends AbstractLDAPServer {
         try {
             logger.logInfo("Starting OpenDJ server");
             final MemoryBackend backend;
-            if (getLdifFile() == null) {
+            final List<File> seedFiles = getSeedFiles();
+            if (seedFiles.isEmpty()) {
                 backend = new MemoryBackend();
             } else {
-                final InputStream inputStream = new FileInputStream(getLdifFile());
-                final LDIFEntryReader reader = new LDIFEntryReader(inputStream);
-                backend = new MemoryBackend(reader);
+                final List<Entry> entries = SeedFiles.parse(seedFiles, new SeedParser<Entry>() {
+                    public List<Entry> parse(final File file) throws Exception {
+                        final List<Entry> entries = new ArrayList<Entry>();
+                        final InputStream inputStream = new FileInputStream(file);
+                        try {
+                            final LDIFEntryReader reader = new LDIFEntryReader(inputStream);
+                            while (reader.hasNext()) {
+                                entries.add(reader.readEntry());
+                            }
+                        } finally {
+                            inputStream.close();
+                        }
+                        return entries;
+                    }
+
+                    public int getDepth(final Entry entry) {
+                        return entry.getName().size();
+                    }
+                }, logger);
+                final long start = System.currentTimeMillis();
+                backend = new MemoryBackend(LDIF.newEntryCollectionReader(entries));
+                logger.logInfo("Imported " + entries.size() + " seed entries in "
+                        + (System.currentTimeMillis() - start) + "ms");
+            }
+            final OperationMetrics metrics = openMetrics(logger);
+            final RequestHandler<RequestContext> requestHandler;
+            if (metrics == null) {
+                requestHandler = backend;
+            } else {
+                requestHandler = new MetricsRequestHandler(backend, metrics);
+            }
+            final ServerConnectionFactory<LDAPClientContext, Integer> connectionHandler = Connections.newServerConnectionFactory(requestHandler);
+            final int backlog = getConnectionBacklog() == null ? DEFAULT_CONNECTION_BACKLOG : getConnectionBacklog();
+            final LDAPListenerOptions options = new LDAPListenerOptions().setBacklog(backlog);
+            transport = createTransport();
+            if (transport != null) {
+                options.setTCPNIOTransport(transport);
             }
-            final ServerConnectionFactory<LDAPClientContext, Integer> connectionHandler = Connections.newServerConnectionFactory(backend);
-            final LDAPListenerOptions options = new LDAPListenerOptions().setBacklog(4096);
             listener = new LDAPListener("localhost", getServerPort(), connectionHandler, options);
+            setBoundPort(listener.getPort(), logger);
+            registerMetrics(logger);
             logger.logInfo("Started OpenDJ server");
         } catch (final IOException e) {
             logger.logError("Error starting OpenDJ server", e);
         }
     }
 
+    /**
+     * Create and start a Grizzly transport that applies the configured worker threads and socket options. Like the
+     * OpenDJ SDK's shared transport, requests are processed on the selector threads so the worker threads are the
+     * selector runners.
+     *
+     * @return The transport or {@code null} if none of the settings were configured.
+     * @throws IOException If the transport could not be started.
+     */
+    private TCPNIOTransport createTransport() throws IOException {
+        if (getWorkerThreads() == null && getTcpNoDelay() == null && getKeepAlive() == null
+                && getReceiveBufferSize() == null && getSendBufferSize() == null) {
+            return null;
+        }
+        final TCPNIOTransportBuilder builder = TCPNIOTransportBuilder.newInstance();
+        builder.setIOStrategy(SameThreadIOStrategy.getInstance());
+        if (getWorkerThreads() != null) {
+            builder.setSelectorRunnersCount(getWorkerThreads());
+            builder.setSelectorThreadPoolConfig(ThreadPoolConfig.defaultConfig()
+                    .setCorePoolSize(getWorkerThreads())
+                    .setMaxPoolSize(getWorkerThreads())
+                    .setPoolName("OpenDJ LDAP server"));
+        }
+        if (getTcpNoDelay() != null) {
+            builder.setTcpNoDelay(getTcpNoDelay());
+        }
+        if (getKeepAlive() != null) {
+            builder.setKeepAlive(getKeepAlive());
+        }
+        final TCPNIOTransport tcpTransport = builder.build();
+        if (getReceiveBufferSize() != null) {
+            tcpTransport.setReadBufferSize(getReceiveBufferSize());
+        }
+        if (getSendBufferSize() != null) {
+            tcpTransport.setWriteBufferSize(getSendBufferSize());
+        }
+        tcpTransport.start();
+        return tcpTransport;
+    }
+
     /**
      * Stop the OpenDJ in-memory directory server.
      *
@@ -77,6 +171,15 @@ public final class OpenDJServer extends AbstractLDAPServer {
         if (listener != null) {
             listener.close();
         }
+        if (transport != null) {
+            try {
+                transport.shutdownNow();
+            } catch (final IOException e) {
+                logger.logError("Error stopping OpenDJ server transport", e);
+            }
+            transport = null;
+        }
+        closeMetrics(logger);
         logger.logInfo("Stopped OpenDJ server");
     }
 }
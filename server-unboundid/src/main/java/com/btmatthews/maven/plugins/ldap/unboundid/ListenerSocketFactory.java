@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.unboundid;
+
+import com.btmatthews.maven.plugins.ldap.OperationMetrics;
+
+import javax.net.ServerSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Creates the server socket for the UnboundID listener. The in-memory directory server does not expose the listener
+ * socket options, so this factory applies the configured connection backlog and receive buffer size to the server
+ * socket and the configured send buffer size to each accepted client socket. If operation metrics are being collected
+ * then the client sockets report when they are opened and closed.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class ListenerSocketFactory extends ServerSocketFactory {
+
+    /**
+     * The maximum number of pending connections or {@code null} to use the backlog requested by the listener.
+     */
+    private final Integer backlog;
+    /**
+     * The size in bytes of the socket receive buffer or {@code null} to use the system default.
+     */
+    private final Integer receiveBufferSize;
+    /**
+     * The size in bytes of the socket send buffer or {@code null} to use the system default.
+     */
+    private final Integer sendBufferSize;
+    /**
+     * The operation metrics or {@code null} if they are not being collected.
+     */
+    private final OperationMetrics metrics;
+
+    /**
+     * Initialise the factory.
+     *
+     * @param backlog           The maximum number of pending connections or {@code null}.
+     * @param receiveBufferSize The size in bytes of the socket receive buffer or {@code null}.
+     * @param sendBufferSize    The size in bytes of the socket send buffer or {@code null}.
+     * @param metrics           The operation metrics or {@code null}.
+     */
+    ListenerSocketFactory(final Integer backlog,
+                          final Integer receiveBufferSize,
+                          final Integer sendBufferSize,
+                          final OperationMetrics metrics) {
+        this.backlog = backlog;
+        this.receiveBufferSize = receiveBufferSize;
+        this.sendBufferSize = sendBufferSize;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Create an unbound server socket.
+     *
+     * @return The server socket.
+     * @throws IOException If the server socket could not be created.
+     */
+    @Override
+    public ServerSocket createServerSocket() throws IOException {
+        final ServerSocket socket = new ListenerSocket();
+        if (receiveBufferSize != null) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+        return socket;
+    }
+
+    /**
+     * Create a server socket bound to a port on all local addresses.
+     *
+     * @param port The port or {@code 0} to bind an ephemeral port.
+     * @return The server socket.
+     * @throws IOException If the server socket could not be created or bound.
+     */
+    @Override
+    public ServerSocket createServerSocket(final int port) throws IOException {
+        return createServerSocket(port, 0, null);
+    }
+
+    /**
+     * Create a server socket bound to a port on all local addresses.
+     *
+     * @param port    The port or {@code 0} to bind an ephemeral port.
+     * @param backlog The backlog requested by the listener.
+     * @return The server socket.
+     * @throws IOException If the server socket could not be created or bound.
+     */
+    @Override
+    public ServerSocket createServerSocket(final int port, final int backlog) throws IOException {
+        return createServerSocket(port, backlog, null);
+    }
+
+    /**
+     * Create a server socket bound to a port on a local address. The receive buffer size is set before the socket is
+     * bound so that it applies to the TCP window advertised to clients.
+     *
+     * @param port    The port or {@code 0} to bind an ephemeral port.
+     * @param backlog The backlog requested by the listener.
+     * @param address The local address or {@code null} for all local addresses.
+     * @return The server socket.
+     * @throws IOException If the server socket could not be created or bound.
+     */
+    @Override
+    public ServerSocket createServerSocket(final int port,
+                                          final int backlog,
+                                          final InetAddress address) throws IOException {
+        final ServerSocket socket = createServerSocket();
+        try {
+            socket.bind(new InetSocketAddress(address, port), this.backlog == null ? backlog : this.backlog);
+        } catch (final IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    /**
+     * A server socket that applies the send buffer size to the client sockets it accepts and meters them if operation
+     * metrics are being collected.
+     */
+    private final class ListenerSocket extends ServerSocket {
+
+        /**
+         * Create an unbound server socket.
+         *
+         * @throws IOException If the server socket could not be created.
+         */
+        ListenerSocket() throws IOException {
+        }
+
+        /**
+         * Accept a client connection.
+         *
+         * @return The client socket.
+         * @throws IOException If the client connection could not be accepted.
+         */
+        @Override
+        public Socket accept() throws IOException {
+            final Socket socket;
+            if (metrics == null) {
+                socket = super.accept();
+            } else {
+                final MeteredSocket meteredSocket = new MeteredSocket();
+                implAccept(meteredSocket);
+                meteredSocket.opened();
+                socket = meteredSocket;
+            }
+            if (sendBufferSize != null) {
+                socket.setSendBufferSize(sendBufferSize);
+            }
+            return socket;
+        }
+    }
+
+    /**
+     * A client socket that reports to the operation metrics when it is opened and closed.
+     */
+    private final class MeteredSocket extends Socket {
+
+        /**
+         * Set when the socket is closed so that it is only reported once.
+         */
+        private final AtomicBoolean closed = new AtomicBoolean();
+        /**
+         * The address of the client.
+         */
+        private String client;
+
+        /**
+         * Report that the client connection was accepted.
+         */
+        void opened() {
+            client = String.valueOf(getRemoteSocketAddress());
+            metrics.connectionOpened(client);
+        }
+
+        /**
+         * Close the socket and report that the client connection was closed.
+         *
+         * @throws IOException If there was an error closing the socket.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (client != null && closed.compareAndSet(false, true)) {
+                    metrics.connectionClosed(client);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.unboundid;
+
+import com.btmatthews.maven.plugins.ldap.OperationMetrics;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedAddRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedAddResult;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedCompareRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedCompareResult;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedDeleteRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedDeleteResult;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedExtendedRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedExtendedResult;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedModifyDNRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedModifyDNResult;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedModifyRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedModifyResult;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedResult;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSASLBindRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSASLBindResult;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSearchRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSearchResult;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSimpleBindRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSimpleBindResult;
+import com.unboundid.ldap.listener.interceptor.InMemoryOperationInterceptor;
+import com.unboundid.ldap.sdk.LDAPResult;
+import com.unboundid.ldap.sdk.ResultCode;
+
+/**
+ * Times the operations processed by the UnboundID in-memory directory server and reports them to the operation
+ * metrics. The start time is attached to each request as a property and read back when the result is returned, so
+ * the latency of a search includes sending the matching entries.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class MetricsInterceptor extends InMemoryOperationInterceptor {
+
+    /**
+     * The name of the request property that holds the start time.
+     */
+    private static final String START_TIME = MetricsInterceptor.class.getName() + ".startTime";
+    /**
+     * The operation metrics.
+     */
+    private final OperationMetrics metrics;
+
+    /**
+     * Initialise the interceptor.
+     *
+     * @param metrics The operation metrics.
+     */
+    MetricsInterceptor(final OperationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Record the start time of an add request.
+     *
+     * @param request The add request.
+     */
+    @Override
+    public void processAddRequest(final InMemoryInterceptedAddRequest request) {
+        start(request);
+    }
+
+    /**
+     * Record the result of an add request.
+     *
+     * @param result The add result.
+     */
+    @Override
+    public void processAddResult(final InMemoryInterceptedAddResult result) {
+        complete(result, OperationMetrics.ADD, result.getRequest().getDN(), result.getResult());
+    }
+
+    /**
+     * Record the start time of a simple bind request.
+     *
+     * @param request The bind request.
+     */
+    @Override
+    public void processSimpleBindRequest(final InMemoryInterceptedSimpleBindRequest request) {
+        start(request);
+    }
+
+    /**
+     * Record the result of a simple bind request.
+     *
+     * @param result The bind result.
+     */
+    @Override
+    public void processSimpleBindResult(final InMemoryInterceptedSimpleBindResult result) {
+        complete(result, OperationMetrics.BIND, result.getRequest().getBindDN(), result.getResult());
+    }
+
+    /**
+     * Record the start time of a SASL bind request.
+     *
+     * @param request The bind request.
+     */
+    @Override
+    public void processSASLBindRequest(final InMemoryInterceptedSASLBindRequest request) {
+        start(request);
+    }
+
+    /**
+     * Record the result of a SASL bind request.
+     *
+     * @param result The bind result.
+     */
+    @Override
+    public void processSASLBindResult(final InMemoryInterceptedSASLBindResult result) {
+        complete(result, OperationMetrics.BIND, result.getRequest().getSASLMechanismName(), result.getResult());
+    }
+
+    /**
+     * Record the start time of a compare request.
+     *
+     * @param request The compare request.
+     */
+    @Override
+    public void processCompareRequest(final InMemoryInterceptedCompareRequest request) {
+        start(request);
+    }
+
+    /**
+     * Record the result of a compare request.
+     *
+     * @param result The compare result.
+     */
+    @Override
+    public void processCompareResult(final InMemoryInterceptedCompareResult result) {
+        complete(result, OperationMetrics.COMPARE, result.getRequest().getDN(), result.getResult());
+    }
+
+    /**
+     * Record the start time of a delete request.
+     *
+     * @param request The delete request.
+     */
+    @Override
+    public void processDeleteRequest(final InMemoryInterceptedDeleteRequest request) {
+        start(request);
+    }
+
+    /**
+     * Record the result of a delete request.
+     *
+     * @param result The delete result.
+     */
+    @Override
+    public void processDeleteResult(final InMemoryInterceptedDeleteResult result) {
+        complete(result, OperationMetrics.DELETE, result.getRequest().getDN(), result.getResult());
+    }
+
+    /**
+     * Record the start time of an extended request.
+     *
+     * @param request The extended request.
+     */
+    @Override
+    public void processExtendedRequest(final InMemoryInterceptedExtendedRequest request) {
+        start(request);
+    }
+
+    /**
+     * Record the result of an extended request.
+     *
+     * @param result The extended result.
+     */
+    @Override
+    public void processExtendedResult(final InMemoryInterceptedExtendedResult result) {
+        complete(result, OperationMetrics.EXTENDED, result.getRequest().getOID(), result.getResult());
+    }
+
+    /**
+     * Record the start time of a modify request.
+     *
+     * @param request The modify request.
+     */
+    @Override
+    public void processModifyRequest(final InMemoryInterceptedModifyRequest request) {
+        start(request);
+    }
+
+    /**
+     * Record the result of a modify request.
+     *
+     * @param result The modify result.
+     */
+    @Override
+    public void processModifyResult(final InMemoryInterceptedModifyResult result) {
+        complete(result, OperationMetrics.MODIFY, result.getRequest().getDN(), result.getResult());
+    }
+
+    /**
+     * Record the start time of a modify DN request.
+     *
+     * @param request The modify DN request.
+     */
+    @Override
+    public void processModifyDNRequest(final InMemoryInterceptedModifyDNRequest request) {
+        start(request);
+    }
+
+    /**
+     * Record the result of a modify DN request.
+     *
+     * @param result The modify DN result.
+     */
+    @Override
+    public void processModifyDNResult(final InMemoryInterceptedModifyDNResult result) {
+        complete(result, OperationMetrics.MODIFY_DN, result.getRequest().getDN(), result.getResult());
+    }
+
+    /**
+     * Record the start time of a search request.
+     *
+     * @param request The search request.
+     */
+    @Override
+    public void processSearchRequest(final InMemoryInterceptedSearchRequest request) {
+        start(request);
+    }
+
+    /**
+     * Record the result of a search request.
+     *
+     * @param result The search result.
+     */
+    @Override
+    public void processSearchResult(final InMemoryInterceptedSearchResult result) {
+        complete(result, OperationMetrics.SEARCH,
+                result.getRequest().getBaseDN() + " " + result.getRequest().getFilter(), result.getResult());
+    }
+
+    /**
+     * Attach the start time to a request.
+     *
+     * @param request The request.
+     */
+    private void start(final InMemoryInterceptedRequest request) {
+        request.setProperty(START_TIME, System.nanoTime());
+    }
+
+    /**
+     * Report a completed operation to the operation metrics. Operations that were not timed, because the request was
+     * seen before the interceptor was installed, are ignored.
+     *
+     * @param result     The intercepted result.
+     * @param operation  The name of the operation type.
+     * @param target     The DN the operation targeted and for searches the filter.
+     * @param ldapResult The result returned to the client.
+     */
+    private void complete(final InMemoryInterceptedResult result,
+                          final String operation,
+                          final String target,
+                          final LDAPResult ldapResult) {
+        final Object startTime = result.getProperty(START_TIME);
+        if (startTime instanceof Long) {
+            final ResultCode resultCode = ldapResult.getResultCode();
+            final boolean success = resultCode == ResultCode.SUCCESS
+                    || resultCode == ResultCode.COMPARE_TRUE
+                    || resultCode == ResultCode.COMPARE_FALSE;
+            metrics.operationCompleted(result.getConnectionID(), operation, target, resultCode.toString(), success,
+                    System.nanoTime() - (Long) startTime);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.unboundid;
+
+import com.btmatthews.maven.plugins.ldap.ChangeRecordInterner;
+import com.btmatthews.maven.plugins.ldap.FormatHandler;
+import com.btmatthews.maven.plugins.ldap.FormatHandlerRegistry;
+import com.btmatthews.maven.plugins.ldap.FormatLogger;
+import com.btmatthews.maven.plugins.ldap.FormatReader;
+import com.btmatthews.maven.plugins.ldap.SeedParser;
+import com.btmatthews.utils.monitor.Logger;
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldif.LDIFAddChangeRecord;
+import com.unboundid.ldif.LDIFChangeRecord;
+import com.unboundid.ldif.LDIFReader;
+import com.unboundid.ldif.LDIFReaderEntryTranslator;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses seed files for the UnboundID server. LDIF files are read with the SDK's {@link LDIFReader} and files in any
+ * other format are read with the format handler that is registered for that format, for example DSML. Only add change
+ * records are allowed in seed files.
+ * <p>
+ * All the parsed entries are held in memory until they are imported, so attribute names and short values are shared
+ * between the entries of each seed file using a {@link ChangeRecordInterner} and the savings are logged. LDIF seed
+ * files whose entries are already in parent-first order do not need to be held in memory and can instead be streamed
+ * into the server.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class SeedEntryParser implements SeedParser<Entry>, FormatLogger {
+
+    /**
+     * The name of the LDIF format.
+     */
+    private static final String LDIF_FORMAT = "ldif";
+    /**
+     * Used to detect the format of the seed files and locate the format handlers.
+     */
+    private final FormatHandlerRegistry registry;
+    /**
+     * Used to log messages from the format handlers.
+     */
+    private final Logger logger;
+
+    /**
+     * Initialise the parser.
+     *
+     * @param registry Used to detect the format of the seed files and locate the format handlers.
+     * @param logger   Used to log messages from the format handlers.
+     */
+    SeedEntryParser(final FormatHandlerRegistry registry, final Logger logger) {
+        this.registry = registry;
+        this.logger = logger;
+    }
+
+    /**
+     * Parse all the entries in a seed file. Each call uses its own {@link ChangeRecordInterner} because seed files may
+     * be parsed concurrently.
+     *
+     * @param file The seed file.
+     * @return The entries in the order they appear in the file.
+     * @throws Exception If the seed file could not be read or parsed.
+     */
+    public List<Entry> parse(final File file) throws Exception {
+        final List<Entry> entries = new ArrayList<Entry>();
+        final ChangeRecordInterner interner = new ChangeRecordInterner();
+        final InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            final String format = registry.detectFormat(file.getName(), in);
+            if (format == null || LDIF_FORMAT.equals(format)) {
+                final LDIFReader reader = new LDIFReader(in);
+                Entry entry = reader.readEntry();
+                while (entry != null) {
+                    entries.add(interner.intern(entry));
+                    entry = reader.readEntry();
+                }
+            } else {
+                final FormatHandler handler = registry.getHandler(format);
+                final FormatReader reader = handler.createReader(in, this);
+                if (reader == null) {
+                    throw new IOException("Could not read " + format + " seed file " + file);
+                }
+                try {
+                    LDIFChangeRecord record = reader.nextRecord();
+                    while (record != null) {
+                        if (!(record instanceof LDIFAddChangeRecord)) {
+                            throw new IOException("Seed file " + file + " contains a " + record.getChangeType()
+                                    + " change record for " + record.getDN());
+                        }
+                        entries.add(interner.intern(((LDIFAddChangeRecord) record).getEntryToAdd()));
+                        record = reader.nextRecord();
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
+        } finally {
+            in.close();
+        }
+        logger.logInfo("Shared " + interner.getSharedCount() + " attribute names and values ("
+                + interner.getSharedValueBytes() + " value bytes) in seed file " + file);
+        return entries;
+    }
+
+    /**
+     * Stream the entries in an LDIF seed file into the server without holding them in memory. This only succeeds if
+     * parent entries come before their children. The server is left unchanged if the seed file is not in LDIF format
+     * or its entries are not in parent-first order.
+     *
+     * @param server The in-memory directory server.
+     * @param file   The seed file.
+     * @return {@code true} if the entries were imported or {@code false} if the seed file must be parsed and sorted.
+     * @throws IOException   If the seed file could not be read.
+     * @throws LDAPException If the entries could not be imported for any other reason than their order.
+     */
+    public boolean importInOrder(final InMemoryDirectoryServer server, final File file)
+            throws IOException, LDAPException {
+        final long start = System.currentTimeMillis();
+        final ChangeRecordInterner interner = new ChangeRecordInterner();
+        final InputStream in = new BufferedInputStream(new FileInputStream(file));
+        final int count;
+        try {
+            final String format = registry.detectFormat(file.getName(), in);
+            if (format != null && !LDIF_FORMAT.equals(format)) {
+                return false;
+            }
+            final LDIFReader reader = new LDIFReader(in, 0, new LDIFReaderEntryTranslator() {
+                public Entry translate(final Entry original, final long firstLineNumber) {
+                    return interner.intern(original);
+                }
+            });
+            try {
+                count = server.importFromLDIF(false, reader);
+            } catch (final LDAPException e) {
+                if (e.getResultCode() == ResultCode.NO_SUCH_OBJECT) {
+                    logger.logInfo("Seed file " + file + " is not in parent-first order: " + e.getMessage());
+                    return false;
+                }
+                throw e;
+            }
+        } finally {
+            in.close();
+        }
+        logger.logInfo("Shared " + interner.getSharedCount() + " attribute names and values ("
+                + interner.getSharedValueBytes() + " value bytes) in seed file " + file);
+        logger.logInfo("Imported " + count + " entries from seed file " + file + " in "
+                + (System.currentTimeMillis() - start) + "ms");
+        return true;
+    }
+
+    /**
+     * Get the number of RDN components in the distinguished name of an entry.
+     *
+     * @param entry The entry.
+     * @return The depth of the entry or {@code 0} if the distinguished name is invalid. Entries with invalid
+     *         distinguished names are rejected when they are imported.
+     */
+    public int getDepth(final Entry entry) {
+        try {
+            return entry.getParsedDN().getRDNs().length;
+        } catch (final LDAPException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Write an information message from a format handler to the server log.
+     *
+     * @param message The message.
+     */
+    public void logInfo(final String message) {
+        logger.logInfo(message);
+    }
+
+    /**
+     * Write an error message from a format handler to the server log.
+     *
+     * @param message The message.
+     */
+    public void logError(final String message) {
+        logger.logError(message);
+    }
+
+    /**
+     * Write an error message with an exception stack trace from a format handler to the server log.
+     *
+     * @param message   The message.
+     * @param exception The exception.
+     */
+    public void logError(final String message, final Throwable exception) {
+        logger.logError(message, exception);
+    }
+}
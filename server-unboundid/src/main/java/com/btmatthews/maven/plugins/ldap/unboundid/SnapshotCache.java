@@ -0,0 +1,243 @@
+/*
+ * Copyright 2013-2016 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.maven.plugins.ldap.unboundid;
+
+import com.unboundid.asn1.ASN1Element;
+import com.unboundid.asn1.ASN1Exception;
+import com.unboundid.asn1.ASN1OctetString;
+import com.unboundid.asn1.ASN1Sequence;
+import com.unboundid.asn1.ASN1StreamReader;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.schema.AttributeTypeDefinition;
+import com.unboundid.ldap.sdk.schema.Schema;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Caches images of the seeded in-memory directory so that later starts can restore the entries without parsing the
+ * LDIF seed file again. Each image is keyed by a hash of the seed file content, the root DN, the object classes of the
+ * root entry and the schema. Any change to those produces a new image file.
+ * <p>
+ * An image is a header followed by one BER encoded sequence per entry containing the DN and the attributes as they
+ * are encoded in an LDAP add request. Entries are written in DN order so parents are always restored before their
+ * children.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
+ * @since 1.3.3
+ */
+final class SnapshotCache {
+
+    /**
+     * Identifies the image file format and version. It is included in the key so that a change to the format
+     * invalidates existing images.
+     */
+    private static final String HEADER = "LDAPMPIMG1";
+    /**
+     * The size of the buffers used to read the seed file and write the image file.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * The hexadecimal digits used when converting the hash to a file name.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /**
+     * The directory in which the image files are stored.
+     */
+    private final File directory;
+
+    /**
+     * Initialise the cache.
+     *
+     * @param directory The directory in which the image files are stored.
+     */
+    SnapshotCache(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get the image file for a seeded directory.
+     *
+     * @param root          The root DN.
+     * @param objectClasses The object classes used for the root entry.
+     * @param seedFiles     The seed files.
+     * @param schema        The schema used by the directory or {@code null} if schema checking is disabled.
+     * @return The image file which may not exist yet.
+     * @throws IOException If a seed file could not be read.
+     */
+    File getImageFile(final String root,
+                      final String[] objectClasses,
+                      final List<File> seedFiles,
+                      final Schema schema) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 message digest is not available");
+        }
+        update(digest, HEADER);
+        update(digest, root);
+        for (final String objectClass : objectClasses) {
+            update(digest, objectClass);
+        }
+        if (schema != null) {
+            update(digest, schema.getSchemaEntry().toLDIFString());
+        }
+        for (final File seedFile : seedFiles) {
+            update(digest, seedFile.getName());
+            final InputStream in = new FileInputStream(seedFile);
+            try {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int count = in.read(buffer);
+                while (count != -1) {
+                    digest.update(buffer, 0, count);
+                    count = in.read(buffer);
+                }
+            } finally {
+                in.close();
+            }
+        }
+        final byte[] hash = digest.digest();
+        final StringBuilder name = new StringBuilder("unboundid-");
+        for (final byte b : hash) {
+            name.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+        }
+        return new File(directory, name.append(".image").toString());
+    }
+
+    /**
+     * Read the entries from an image file.
+     *
+     * @param imageFile The image file.
+     * @return The entries in the order they were written.
+     * @throws IOException   If the image file could not be read.
+     * @throws LDAPException If an entry in the image file could not be decoded.
+     */
+    List<Entry> read(final File imageFile) throws IOException, LDAPException {
+        final List<Entry> entries = new ArrayList<Entry>();
+        final ASN1StreamReader reader = new ASN1StreamReader(new BufferedInputStream(new FileInputStream(imageFile), BUFFER_SIZE), 0);
+        try {
+            if (!HEADER.equals(reader.readString())) {
+                throw new IOException("Not a directory image file: " + imageFile);
+            }
+            ASN1Element element = reader.readElement();
+            while (element != null) {
+                final ASN1Element[] elements = ASN1Sequence.decodeAsSequence(element).elements();
+                final ASN1Element[] attributeElements = ASN1Sequence.decodeAsSequence(elements[1]).elements();
+                final List<Attribute> attributes = new ArrayList<Attribute>(attributeElements.length);
+                for (final ASN1Element attributeElement : attributeElements) {
+                    attributes.add(Attribute.decode(ASN1Sequence.decodeAsSequence(attributeElement)));
+                }
+                entries.add(new Entry(ASN1OctetString.decodeAsOctetString(elements[0]).stringValue(), attributes));
+                element = reader.readElement();
+            }
+        } catch (final ASN1Exception e) {
+            throw new IOException("Corrupt directory image file: " + imageFile + " - " + e.getMessage());
+        } finally {
+            reader.close();
+        }
+        return entries;
+    }
+
+    /**
+     * Write the entries to an image file. The image is written to a temporary file first which is then renamed so
+     * that other builds never see a partially written image. Operational attributes that cannot be supplied by clients
+     * are not written because the server generates them again when the entries are restored.
+     *
+     * @param imageFile The image file.
+     * @param entries   The entries in DN order.
+     * @param schema    The schema used by the directory or {@code null} if schema checking is disabled.
+     * @throws IOException If the image file could not be written.
+     */
+    void write(final File imageFile, final Collection<? extends Entry> entries, final Schema schema)
+            throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create snapshot directory: " + directory);
+        }
+        final File tempFile = File.createTempFile("unboundid-", ".tmp", directory);
+        try {
+            final OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE);
+            try {
+                out.write(new ASN1OctetString(HEADER).encode());
+                for (final Entry entry : entries) {
+                    final Collection<Attribute> attributes = entry.getAttributes();
+                    final List<ASN1Element> attributeElements = new ArrayList<ASN1Element>(attributes.size());
+                    for (final Attribute attribute : attributes) {
+                        if (!isNoUserModification(attribute, schema)) {
+                            attributeElements.add(attribute.encode());
+                        }
+                    }
+                    out.write(new ASN1Sequence(new ASN1OctetString(entry.getDN()),
+                            new ASN1Sequence(attributeElements)).encode());
+                }
+            } finally {
+                out.close();
+            }
+            if (!tempFile.renameTo(imageFile) && !imageFile.exists()) {
+                throw new IOException("Could not create directory image file: " + imageFile);
+            }
+        } finally {
+            if (tempFile.exists() && !tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Determine whether an attribute is an operational attribute that cannot be supplied by clients.
+     *
+     * @param attribute The attribute.
+     * @param schema    The schema used by the directory or {@code null} if schema checking is disabled.
+     * @return {@code true} if the attribute type is declared with NO-USER-MODIFICATION.
+     */
+    private static boolean isNoUserModification(final Attribute attribute, final Schema schema) {
+        if (schema == null) {
+            return false;
+        }
+        final AttributeTypeDefinition type = schema.getAttributeType(attribute.getBaseName());
+        return type != null && type.isNoUserModification();
+    }
+
+    /**
+     * Add a string to the message digest.
+     *
+     * @param digest The message digest.
+     * @param value  The string value.
+     */
+    private static void update(final MessageDigest digest, final String value) {
+        try {
+            digest.update(value.getBytes("UTF-8"));
+            digest.update((byte) 0);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
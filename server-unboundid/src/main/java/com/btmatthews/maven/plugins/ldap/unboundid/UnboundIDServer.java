@@ -17,23 +17,35 @@
 package com.btmatthews.maven.plugins.ldap.unboundid;
 
 import com.btmatthews.maven.plugins.ldap.AbstractLDAPServer;
+import com.btmatthews.maven.plugins.ldap.FormatHandlerRegistry;
+import com.btmatthews.maven.plugins.ldap.OperationMetrics;
+import com.btmatthews.maven.plugins.ldap.SeedFiles;
 import com.btmatthews.utils.monitor.Logger;
 import com.unboundid.ldap.listener.InMemoryDirectoryServer;
 import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerSnapshot;
 import com.unboundid.ldap.listener.InMemoryListenerConfig;
 import com.unboundid.ldap.sdk.Attribute;
 import com.unboundid.ldap.sdk.DN;
 import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.LDAPException;
-import com.unboundid.ldif.LDIFReader;
+import com.unboundid.ldap.sdk.ReadOnlyEntry;
 
-import java.io.FileInputStream;
+import javax.net.ServerSocketFactory;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Implements an in-memory LDAP directory server using the
  * <a href="https://www.unboundid.com/products/ldap-sdk/docs/in-memory-directory-server.php">UnboundID SDK</a>.
+ * If a snapshot directory is configured then an image of the seeded directory is cached there and later starts
+ * restore the entries from the image instead of parsing the seed files. The seed files can be in LDIF or any other
+ * format that has a registered format handler, such as DSML. LDIF seed files that are already in parent-first order are
+ * streamed into the server and the others are parsed concurrently.
  *
  * @author <a href="mailto:brian@btmatthews.com">Brian Matthews</a>
  * @since 1.1.1
@@ -49,6 +61,10 @@ public final class UnboundIDServer extends AbstractLDAPServer {
      * The in-memory instance of the UnboundID directory server.
      */
     private InMemoryDirectoryServer server;
+    /**
+     * A snapshot of the directory taken immediately after it was seeded. Used to reset the directory.
+     */
+    private InMemoryDirectoryServerSnapshot baseline;
 
     /**
      * Configure and start the embedded UnboundID server creating the root DN and loading the LDIF seed data.
@@ -59,28 +75,46 @@ public final class UnboundIDServer extends AbstractLDAPServer {
     public void start(final Logger logger) {
         try {
             logger.logInfo("Starting UnboundID server");
-            final InMemoryListenerConfig listenerConfig = InMemoryListenerConfig.createLDAPConfig("default", getServerPort());
+            final OperationMetrics metrics = openMetrics(logger);
+            final InMemoryListenerConfig listenerConfig;
+            if (metrics == null && getConnectionBacklog() == null && getReceiveBufferSize() == null
+                    && getSendBufferSize() == null) {
+                listenerConfig = InMemoryListenerConfig.createLDAPConfig("default", getServerPort());
+            } else {
+                final ServerSocketFactory socketFactory = new ListenerSocketFactory(getConnectionBacklog(),
+                        getReceiveBufferSize(), getSendBufferSize(), metrics);
+                listenerConfig = new InMemoryListenerConfig("default", null, getServerPort(), socketFactory, null, null);
+            }
             final InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(new DN(getRoot()));
             config.setListenerConfigs(listenerConfig);
             if (getAuthDn() != null) {
                 config.addAdditionalBindCredentials(getAuthDn(), getPasswd());
             }
+            tune(config, logger);
+            if (metrics != null) {
+                config.addInMemoryOperationInterceptor(new MetricsInterceptor(metrics));
+            }
             server = new InMemoryDirectoryServer(config);
             String[] objectClasses = getObjectClasses();
             if (objectClasses == null) {
                 objectClasses = DEFAULT_ROOT_OBJECT_CLASSES;
             }
-            server.add(new Entry(getRoot(), new Attribute("objectclass", objectClasses)));
-            if (getLdifFile() != null) {
-                final InputStream in = new FileInputStream(getLdifFile());
-                try {
-                    final LDIFReader reader = new LDIFReader(in);
-                    server.importFromLDIF(false, reader);
-                } finally {
-                    in.close();
+            if (getSnapshotDirectory() == null) {
+                seed(objectClasses, logger);
+            } else {
+                final SnapshotCache cache = new SnapshotCache(getSnapshotDirectory());
+                final File imageFile = cache.getImageFile(getRoot(), objectClasses, getSeedFiles(), config.getSchema());
+                if (!restore(cache, imageFile, logger)) {
+                    seed(objectClasses, logger);
+                    final Map<DN, ReadOnlyEntry> entries = server.createSnapshot().getEntryMap();
+                    cache.write(imageFile, new TreeMap<DN, ReadOnlyEntry>(entries).values(), config.getSchema());
+                    logger.logInfo("Saved directory image " + imageFile);
                 }
             }
+            baseline = server.createSnapshot();
             server.startListening();
+            setBoundPort(server.getListenPort(), logger);
+            registerMetrics(logger);
             logger.logInfo("Started UnboundID server");
         } catch (final LDAPException e) {
             e.printStackTrace();
@@ -91,6 +125,109 @@ public final class UnboundIDServer extends AbstractLDAPServer {
         }
     }
 
+    /**
+     * Apply the equality index, size limit, connection limit, schema enforcement and change log settings that were
+     * configured. Settings that were not configured keep the UnboundID defaults. Equality indexes need the schema so if
+     * both are configured then disabling schema enforcement only relaxes attribute syntax and structural object class
+     * checking.
+     *
+     * @param config The in-memory directory server configuration.
+     * @param logger Used to log informational messages.
+     */
+    private void tune(final InMemoryDirectoryServerConfig config, final Logger logger) {
+        if (getIndexAttributes() != null) {
+            config.setEqualityIndexAttributes(getIndexAttributes());
+        }
+        if (getSizeLimit() != null) {
+            config.setMaxSizeLimit(getSizeLimit());
+        }
+        if (getMaxConnections() != null) {
+            config.setMaxConnections(getMaxConnections());
+        }
+        if (Boolean.FALSE.equals(getSchemaEnforcement())) {
+            if (getIndexAttributes() == null) {
+                config.setSchema(null);
+            } else {
+                logger.logInfo("Equality indexes require the schema so only attribute syntax and structural object "
+                        + "class checking are disabled");
+                config.setEnforceAttributeSyntaxCompliance(false);
+                config.setEnforceSingleStructuralObjectClass(false);
+            }
+        }
+        if (getMaxChangeLogEntries() != null) {
+            config.setMaxChangeLogEntries(getMaxChangeLogEntries());
+        }
+    }
+
+    /**
+     * Restore the directory entries from an image file if it exists. If the image file cannot be read then it is
+     * ignored so that the directory is seeded from the seed files instead.
+     *
+     * @param cache     The snapshot cache.
+     * @param imageFile The image file.
+     * @param logger    Used to log informational and error messages.
+     * @return {@code true} if the entries were restored from the image file.
+     */
+    private boolean restore(final SnapshotCache cache, final File imageFile, final Logger logger) {
+        if (imageFile.exists()) {
+            try {
+                final long start = System.currentTimeMillis();
+                final List<Entry> entries = cache.read(imageFile);
+                server.addEntries(entries);
+                logger.logInfo("Restored " + entries.size() + " entries from directory image " + imageFile
+                        + " in " + (System.currentTimeMillis() - start) + "ms");
+                return true;
+            } catch (final IOException e) {
+                logger.logError("Ignoring directory image that could not be read: " + imageFile, e);
+            } catch (final LDAPException e) {
+                logger.logError("Ignoring directory image that could not be restored: " + imageFile, e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create the root DN and load the seed data. LDIF seed files whose entries are in parent-first order are streamed
+     * into the server one at a time. The remaining seed files are parsed concurrently and their entries are added
+     * with parent entries before their children, so only those entries are held in memory.
+     *
+     * @param objectClasses The object classes used for the root DN entry.
+     * @param logger        Used to log the time taken to parse and import the seed files.
+     * @throws LDAPException If the root DN could not be created or the seed data could not be loaded.
+     * @throws IOException   If a seed file could not be read or parsed.
+     */
+    private void seed(final String[] objectClasses, final Logger logger) throws LDAPException, IOException {
+        server.add(new Entry(getRoot(), new Attribute("objectclass", objectClasses)));
+        final SeedEntryParser parser = new SeedEntryParser(new FormatHandlerRegistry(), logger);
+        final List<File> unorderedFiles = new ArrayList<File>();
+        for (final File seedFile : getSeedFiles()) {
+            if (!parser.importInOrder(server, seedFile)) {
+                unorderedFiles.add(seedFile);
+            }
+        }
+        if (!unorderedFiles.isEmpty()) {
+            final List<Entry> entries = SeedFiles.parse(unorderedFiles, parser, logger);
+            final long start = System.currentTimeMillis();
+            server.addEntries(entries);
+            logger.logInfo("Imported " + entries.size() + " seed entries in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    /**
+     * Reset the embedded UnboundID server by restoring the snapshot taken after it was seeded. The listener is not
+     * restarted so connections remain open.
+     *
+     * @param logger Used to log informational and error messages.
+     * @since 1.3.3
+     */
+    @Override
+    public void reset(final Logger logger) {
+        logger.logInfo("Resetting UnboundID server");
+        server.restoreSnapshot(baseline);
+        logger.logInfo("Reset UnboundID server");
+    }
+
     /**
      * Shutdown the the embedded UnboundID server.
      *
@@ -99,7 +236,32 @@ public final class UnboundIDServer extends AbstractLDAPServer {
     @Override
     public void stop(final Logger logger) {
         logger.logInfo("Stopping UnboundID server");
-        server.shutDown(true);
+        if (server != null) {
+            server.shutDown(true);
+        }
+        closeMetrics(logger);
         logger.logInfo("Stopped UnboundID server");
     }
+
+    /**
+     * Determine if the embedded UnboundID server is listening for connections.
+     *
+     * @param logger Used to log informational and error messages.
+     * @return {@code true} if the server is listening.
+     */
+    @Override
+    public boolean isStarted(final Logger logger) {
+        return server != null && server.getListenPort() > 0;
+    }
+
+    /**
+     * Determine if the embedded UnboundID server has stopped listening for connections.
+     *
+     * @param logger Used to log informational and error messages.
+     * @return {@code true} if the server is not listening.
+     */
+    @Override
+    public boolean isStopped(final Logger logger) {
+        return !isStarted(logger);
+    }
 }
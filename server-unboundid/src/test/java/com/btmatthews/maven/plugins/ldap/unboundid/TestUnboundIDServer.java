@@ -16,16 +16,41 @@
 
 package com.btmatthews.maven.plugins.ldap.unboundid;
 
+import com.btmatthews.maven.plugins.ldap.AbstractLDAPServer;
+import com.btmatthews.maven.plugins.ldap.ControlChannel;
+import com.btmatthews.maven.plugins.ldap.LDAPServer;
+import com.btmatthews.maven.plugins.ldap.OperationMetrics;
 import com.btmatthews.maven.plugins.ldap.TestUtils;
 import com.btmatthews.utils.monitor.Logger;
 import com.btmatthews.utils.monitor.Server;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.LDAPConnection;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPSearchException;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.ldap.sdk.SearchScope;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import javax.management.ObjectName;
+
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.startsWith;
 import static org.mockito.Mockito.*;
@@ -61,9 +86,362 @@ public class TestUnboundIDServer {
         verify(logger).logInfo(startsWith("Configured LDIF seed data source for directory server: "));
         verify(logger).logInfo(startsWith("Configured working directory for directory server: "));
         verify(logger).logInfo(eq("Starting UnboundID server"));
+        verify(logger).logInfo(startsWith("Shared "));
+        verify(logger).logInfo(startsWith("Imported 6 entries from seed file "));
         verify(logger).logInfo(eq("Started UnboundID server"));
         verify(logger).logInfo(eq("Stopping UnboundID server"));
         verify(logger).logInfo(eq("Stopped UnboundID server"));
         verifyNoMoreInteractions(logger);
     }
+
+    @Test
+    public void testMultipleSeedFiles() throws Exception {
+        final int port = TestUtils.getUnusedPort(10389);
+        final Logger logger = mock(Logger.class);
+        final Server server = new UnboundIDServer();
+        final File usersFile = new File("target/test-classes/com/btmatthews/maven/plugins/ldap/unboundid/users.dsml");
+        final File peopleFile = new File("target/test-classes/com/btmatthews/maven/plugins/ldap/unboundid/people.ldif");
+        server.configure("root", "dc=btmatthews,dc=com", logger);
+        server.configure("authDn", "uid=admin,ou=system", logger);
+        server.configure("passwd", "secret", logger);
+        server.configure("ldapPort", port, logger);
+        server.configure("seedFiles", new File[]{usersFile, peopleFile}, logger);
+        server.start(logger);
+        try {
+            final LDAPConnection connection = new LDAPConnection("localhost", port, "uid=admin,ou=system", "secret");
+            try {
+                assertNotNull(connection.getEntry("ou=People,dc=btmatthews,dc=com"));
+                assertNotNull(connection.getEntry("uid=msimpson1,ou=People,dc=btmatthews,dc=com"));
+            } finally {
+                connection.close();
+            }
+        } finally {
+            server.stop(logger);
+        }
+        verify(logger).logInfo(startsWith("Parsed 1 entries from seed file " + usersFile + " in "));
+        verify(logger).logInfo(startsWith("Imported 1 entries from seed file " + peopleFile + " in "));
+        verify(logger).logInfo(startsWith("Imported 1 seed entries in "));
+        verify(logger, never()).logError(anyString(), any(Throwable.class));
+    }
+
+    @Test
+    public void testUnorderedSeedFile() throws Exception {
+        final int port = TestUtils.getUnusedPort(10389);
+        final Logger logger = mock(Logger.class);
+        final Server server = new UnboundIDServer();
+        final File seedFile = new File("target/test-classes/com/btmatthews/maven/plugins/ldap/unboundid/unordered.ldif");
+        server.configure("root", "dc=btmatthews,dc=com", logger);
+        server.configure("authDn", "uid=admin,ou=system", logger);
+        server.configure("passwd", "secret", logger);
+        server.configure("ldapPort", port, logger);
+        server.configure("seedFiles", new File[]{seedFile}, logger);
+        server.start(logger);
+        try {
+            final LDAPConnection connection = new LDAPConnection("localhost", port, "uid=admin,ou=system", "secret");
+            try {
+                assertNotNull(connection.getEntry("ou=People,dc=btmatthews,dc=com"));
+                assertNotNull(connection.getEntry("uid=bsimpson,ou=People,dc=btmatthews,dc=com"));
+            } finally {
+                connection.close();
+            }
+        } finally {
+            server.stop(logger);
+        }
+        verify(logger).logInfo(startsWith("Seed file " + seedFile + " is not in parent-first order: "));
+        verify(logger).logInfo(startsWith("Parsed 2 entries from seed file " + seedFile + " in "));
+        verify(logger).logInfo(startsWith("Imported 2 seed entries in "));
+        verify(logger, never()).logError(anyString(), any(Throwable.class));
+    }
+
+    @Test
+    public void testTuning() throws Exception {
+        final int port = TestUtils.getUnusedPort(10389);
+        final Logger logger = mock(Logger.class);
+        final Server server = new UnboundIDServer();
+        server.configure("root", "dc=btmatthews,dc=com", logger);
+        server.configure("authDn", "uid=admin,ou=system", logger);
+        server.configure("passwd", "secret", logger);
+        server.configure("ldapPort", port, logger);
+        server.configure("ldifFile", new File("target/test-classes/com/btmatthews/maven/plugins/ldap/unboundid/initial.ldif"), logger);
+        server.configure("indexAttributes", new String[]{"uid", "title"}, logger);
+        server.configure("sizeLimit", 2, logger);
+        server.configure("maxChangeLogEntries", 10, logger);
+        server.start(logger);
+        try {
+            final LDAPConnection connection = new LDAPConnection("localhost", port, "uid=admin,ou=system", "secret");
+            try {
+                try {
+                    connection.search("dc=btmatthews,dc=com", SearchScope.SUB, "(objectClass=inetOrgPerson)");
+                    fail();
+                } catch (final LDAPSearchException e) {
+                    assertEquals(ResultCode.SIZE_LIMIT_EXCEEDED, e.getResultCode());
+                }
+                assertEquals(1, connection.search("dc=btmatthews,dc=com", SearchScope.SUB, "(uid=hsimpson)").getEntryCount());
+                assertNotNull(connection.getEntry("cn=changelog"));
+            } finally {
+                connection.close();
+            }
+        } finally {
+            server.stop(logger);
+        }
+        verify(logger, never()).logError(anyString(), any(Throwable.class));
+    }
+
+    @Test
+    public void testListenerOptions() throws Exception {
+        final Logger logger = mock(Logger.class);
+        final Server server = new UnboundIDServer();
+        server.configure("root", "dc=btmatthews,dc=com", logger);
+        server.configure("authDn", "uid=admin,ou=system", logger);
+        server.configure("passwd", "secret", logger);
+        server.configure("ldapPort", 0, logger);
+        server.configure("ldifFile", new File("target/test-classes/com/btmatthews/maven/plugins/ldap/unboundid/initial.ldif"), logger);
+        server.configure("maxConnections", 1, logger);
+        server.configure("connectionBacklog", 16, logger);
+        server.configure("receiveBufferSize", 65536, logger);
+        server.configure("sendBufferSize", 65536, logger);
+        server.start(logger);
+        try {
+            final int port = ((LDAPServer) server).getServerPort();
+            final LDAPConnection connection = new LDAPConnection("localhost", port, "uid=admin,ou=system", "secret");
+            try {
+                assertNotNull(connection.getEntry("uid=hsimpson,ou=People,dc=btmatthews,dc=com"));
+                try {
+                    new LDAPConnection("localhost", port, "uid=admin,ou=system", "secret").close();
+                    fail();
+                } catch (final LDAPException e) {
+                    // expected
+                }
+            } finally {
+                connection.close();
+            }
+        } finally {
+            server.stop(logger);
+        }
+        verify(logger, never()).logError(anyString(), any(Throwable.class));
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        final File metricsFile = new File(folder.getRoot(), "ldap-metrics.txt");
+        final File accessLogFile = new File(folder.getRoot(), "ldap-access.log");
+        final Logger logger = mock(Logger.class);
+        final UnboundIDServer server = new UnboundIDServer();
+        server.configure("root", "dc=btmatthews,dc=com", logger);
+        server.configure("authDn", "uid=admin,ou=system", logger);
+        server.configure("passwd", "secret", logger);
+        server.configure("ldapPort", 0, logger);
+        server.configure("ldifFile", new File("target/test-classes/com/btmatthews/maven/plugins/ldap/unboundid/initial.ldif"), logger);
+        server.configure("metricsFile", metricsFile, logger);
+        server.configure("accessLogFile", accessLogFile, logger);
+        server.start(logger);
+        try {
+            final LDAPConnection connection = new LDAPConnection("localhost", server.getServerPort(), "uid=admin,ou=system", "secret");
+            try {
+                assertEquals(1, connection.search("dc=btmatthews,dc=com", SearchScope.SUB, "(uid=hsimpson)").getEntryCount());
+                assertNull(connection.getEntry("uid=nobody,ou=People,dc=btmatthews,dc=com"));
+            } finally {
+                connection.close();
+            }
+            final OperationMetrics metrics = server.getMetrics();
+            assertEquals(1L, metrics.getOperationCount(OperationMetrics.BIND));
+            assertEquals(2L, metrics.getOperationCount(OperationMetrics.SEARCH));
+            assertEquals(1L, metrics.getTotalConnections());
+            assertEquals(3, metrics.getSlowestOperations().length);
+            final ObjectName name = new ObjectName("com.btmatthews.maven.plugins.ldap:type=OperationMetrics,port=" + server.getServerPort());
+            assertEquals(3L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TotalOperations"));
+        } finally {
+            server.stop(logger);
+        }
+        verify(logger, never()).logError(anyString(), any(Throwable.class));
+        verify(logger).logInfo("Wrote operation metrics to " + metricsFile);
+        assertNull(server.getMetrics());
+        final String summary = readFile(metricsFile);
+        assertTrue(summary.contains("SEARCH count=2 errors=1"));
+        final String accessLog = readFile(accessLogFile);
+        assertTrue(accessLog.contains("SEARCH target=\"dc=btmatthews,dc=com (uid=hsimpson)\" result=0 (success)"));
+        assertTrue(accessLog.contains("CONNECT from="));
+    }
+
+    @Test
+    public void testSchemaEnforcementDisabled() throws Exception {
+        final int port = TestUtils.getUnusedPort(10389);
+        final Logger logger = mock(Logger.class);
+        final Server server = new UnboundIDServer();
+        server.configure("root", "dc=btmatthews,dc=com", logger);
+        server.configure("authDn", "uid=admin,ou=system", logger);
+        server.configure("passwd", "secret", logger);
+        server.configure("ldapPort", port, logger);
+        server.configure("schemaEnforcement", Boolean.FALSE, logger);
+        server.start(logger);
+        try {
+            final LDAPConnection connection = new LDAPConnection("localhost", port, "uid=admin,ou=system", "secret");
+            try {
+                connection.add("cn=Unchecked,dc=btmatthews,dc=com", new Attribute("objectClass", "undefinedClass"),
+                        new Attribute("cn", "Unchecked"));
+                assertNotNull(connection.getEntry("cn=Unchecked,dc=btmatthews,dc=com"));
+            } finally {
+                connection.close();
+            }
+        } finally {
+            server.stop(logger);
+        }
+        verify(logger, never()).logError(anyString(), any(Throwable.class));
+    }
+
+    @Test
+    public void testRestoreFromSnapshot() throws Exception {
+        final File snapshotDirectory = folder.newFolder();
+        final File ldifFile = new File("target/test-classes/com/btmatthews/maven/plugins/ldap/unboundid/initial.ldif");
+        for (int i = 0; i < 2; i++) {
+            final int port = TestUtils.getUnusedPort(10389);
+            final Logger logger = mock(Logger.class);
+            final Server server = new UnboundIDServer();
+            server.configure("root", "dc=btmatthews,dc=com", logger);
+            server.configure("authDn", "uid=admin,ou=system", logger);
+            server.configure("passwd", "secret", logger);
+            server.configure("ldapPort", port, logger);
+            server.configure("ldifFile", ldifFile, logger);
+            server.configure("snapshotDirectory", snapshotDirectory, logger);
+            server.start(logger);
+            try {
+                final LDAPConnection connection = new LDAPConnection("localhost", port, "uid=admin,ou=system", "secret");
+                try {
+                    assertNotNull(connection.getEntry("uid=hsimpson,ou=People,dc=btmatthews,dc=com"));
+                } finally {
+                    connection.close();
+                }
+            } finally {
+                server.stop(logger);
+            }
+            if (i == 0) {
+                verify(logger).logInfo(startsWith("Saved directory image "));
+            } else {
+                verify(logger).logInfo(startsWith("Restored "));
+            }
+            verify(logger, never()).logError(anyString(), any(Throwable.class));
+        }
+        assertEquals(1, snapshotDirectory.listFiles().length);
+    }
+
+    @Test
+    public void testResetThroughControlChannel() throws Exception {
+        final int port = TestUtils.getUnusedPort(10389);
+        final Logger logger = mock(Logger.class);
+        final UnboundIDServer server = new UnboundIDServer();
+        server.configure("root", "dc=btmatthews,dc=com", logger);
+        server.configure("authDn", "uid=admin,ou=system", logger);
+        server.configure("passwd", "secret", logger);
+        server.configure("ldapPort", port, logger);
+        server.configure("ldifFile", new File("target/test-classes/com/btmatthews/maven/plugins/ldap/unboundid/initial.ldif"), logger);
+        server.start(logger);
+        final ControlChannel channel = new ControlChannel(server, 0, "ldap", logger);
+        channel.start();
+        try {
+            final LDAPConnection connection = new LDAPConnection("localhost", port, "uid=admin,ou=system", "secret");
+            try {
+                connection.delete("uid=hsimpson,ou=People,dc=btmatthews,dc=com");
+                connection.add("ou=Groups,dc=btmatthews,dc=com", new Attribute("objectClass", "organizationalUnit"),
+                        new Attribute("ou", "Groups"));
+                ControlChannel.reset(channel.getPort(), "ldap");
+                assertNotNull(connection.getEntry("uid=hsimpson,ou=People,dc=btmatthews,dc=com"));
+                assertNull(connection.getEntry("ou=Groups,dc=btmatthews,dc=com"));
+            } finally {
+                connection.close();
+            }
+            try {
+                ControlChannel.reset(channel.getPort(), "wrong");
+                fail();
+            } catch (final IOException e) {
+                assertEquals("Command reset failed: ERROR Invalid control key", e.getMessage());
+            }
+        } finally {
+            channel.close();
+            server.stop(logger);
+        }
+        verify(logger).logInfo(eq("Reset UnboundID server"));
+    }
+
+    /**
+     * Verify that a failed reset is reported to the client and that the control channel keeps accepting commands.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void testControlChannelReportsResetFailure() throws Exception {
+        final Logger logger = mock(Logger.class);
+        final LDAPServer server = mock(LDAPServer.class);
+        doThrow(new IllegalStateException("Reset failed")).when(server).reset(logger);
+        when(server.isStarted(logger)).thenReturn(true);
+        final ControlChannel channel = new ControlChannel(server, 0, "ldap", logger);
+        channel.start();
+        try {
+            try {
+                ControlChannel.reset(channel.getPort(), "ldap");
+                fail();
+            } catch (final IOException e) {
+                assertTrue(e.getMessage().startsWith("Command reset failed: ERROR"));
+            }
+            ControlChannel.sendCommand(channel.getPort(), "ldap", ControlChannel.PING, ControlChannel.DEFAULT_TIMEOUT);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Verify that the default reset keeps collecting the same operation metrics and does not write the summary.
+     *
+     * @throws Exception If there was an unexpected error.
+     */
+    @Test
+    public void testDefaultResetKeepsMetrics() throws Exception {
+        final Logger logger = mock(Logger.class);
+        final File metricsFile = new File(folder.newFolder(), "ldap-metrics.txt");
+        final AbstractLDAPServer server = new AbstractLDAPServer() {
+            @Override
+            public void start(final Logger logger) {
+                openMetrics(logger);
+                registerMetrics(logger);
+            }
+
+            @Override
+            public void stop(final Logger logger) {
+                closeMetrics(logger);
+            }
+        };
+        server.configure("ldapPort", TestUtils.getUnusedPort(10389), logger);
+        server.configure(LDAPServer.METRICS_FILE, metricsFile, logger);
+        server.start(logger);
+        final OperationMetrics metrics = server.getMetrics();
+        assertNotNull(metrics);
+        server.reset(logger);
+        assertSame(metrics, server.getMetrics());
+        assertFalse(metricsFile.exists());
+        server.stop(logger);
+        assertTrue(metricsFile.exists());
+        verify(logger, never()).logError(anyString(), any(Throwable.class));
+    }
+
+    /**
+     * Read the contents of a UTF-8 encoded text file.
+     *
+     * @param file The file.
+     * @return The contents of the file.
+     * @throws IOException If there was an error reading the file.
+     */
+    private static String readFile(final File file) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final InputStream in = new FileInputStream(file);
+        try {
+            final byte[] buffer = new byte[4096];
+            int count = in.read(buffer);
+            while (count > 0) {
+                out.write(buffer, 0, count);
+                count = in.read(buffer);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toString("UTF-8");
+    }
 }